@@ -0,0 +1,96 @@
+package es.iesjandula.ReaktorIssuesServer.benchmark;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import es.iesjandula.ReaktorIssuesServer.dto.IncidenciaDTO;
+import es.iesjandula.ReaktorIssuesServer.indice.IndiceTextoIncidencias;
+
+/**
+ * Compara la búsqueda de texto con el índice en memoria frente a la consulta {@code LIKE '%texto%'}.
+ * <p>
+ * Ambas variantes se ejecutan sobre las mismas incidencias, cargadas en una base de datos H2 en memoria en modo MySQL.
+ * La variante {@code like} cuenta las filas que cumplen el {@code LIKE}, lo que obliga a recorrer la tabla completa
+ * igual que en MySQL; la variante {@code indice} obtiene las incidencias candidatas del índice. Los textos buscados
+ * son uno muy frecuente (un equipo) y uno poco frecuente (una referencia numérica).
+ * </p>
+ * <p>
+ * Ejecución: {@code mvn -P benchmark verify -DskipTests -Djmh.args="BusquedaTextoBenchmark"}
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = { "-Xms4g", "-Xmx4g" })
+public class BusquedaTextoBenchmark
+{
+	@Param({ "1000000" })
+	private int filas;
+
+	@Param({ "proyector", "48213" })
+	private String texto;
+
+	private Connection conexion;
+
+	private PreparedStatement like;
+
+	private IndiceTextoIncidencias indice;
+
+	@Setup(Level.Trial)
+	public void preparar() throws SQLException
+	{
+		List<IncidenciaDTO> incidencias = DatosIncidencias.generar(this.filas, 42L);
+
+		this.conexion = DriverManager.getConnection("jdbc:h2:mem:busqueda-texto;MODE=MySQL;DATABASE_TO_LOWER=TRUE");
+		DatosIncidencias.cargarTabla(this.conexion, incidencias);
+		this.like = this.conexion.prepareStatement(
+				"SELECT COUNT(*) FROM incidencias WHERE descripcion_incidencia LIKE CONCAT('%', ?, '%')");
+
+		this.indice = new IndiceTextoIncidencias();
+		this.indice.cargar(incidencias.stream());
+	}
+
+	@TearDown(Level.Trial)
+	public void cerrar() throws SQLException
+	{
+		this.conexion.close();
+	}
+
+	@Benchmark
+	public int like() throws SQLException
+	{
+		this.like.setString(1, this.texto);
+		try (ResultSet resultado = this.like.executeQuery())
+		{
+			resultado.next();
+			return resultado.getInt(1);
+		}
+	}
+
+	@Benchmark
+	public int indice()
+	{
+		return this.indice.buscar(this.texto, null).size();
+	}
+}
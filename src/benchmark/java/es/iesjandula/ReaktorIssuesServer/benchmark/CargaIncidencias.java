@@ -0,0 +1,482 @@
+package es.iesjandula.ReaktorIssuesServer.benchmark;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.text.SimpleDateFormat;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import es.iesjandula.ReaktorIssuesServer.ReaktorIssuesServerApplication;
+import es.iesjandula.ReaktorIssuesServer.dto.FiltroBusqueda;
+import es.iesjandula.ReaktorIssuesServer.dto.IncidenciaDTO;
+import es.iesjandula.ReaktorIssuesServer.utils.Constants;
+
+/**
+ * Prueba de carga del servicio completo contra una base de datos H2 en memoria en modo MySQL.
+ * <p>
+ * Carga la tabla con incidencias sintéticas de {@link DatosIncidencias}, arranca la aplicación en un puerto libre con
+ * la configuración de {@code application.yaml} (salvo el origen de datos) y lanza desde muchos clientes concurrentes
+ * una mezcla configurable de altas, actualizaciones, búsquedas y borrados. Al terminar escribe un informe JSON con el
+ * rendimiento, los percentiles 50, 95 y 99 de la latencia y la tasa de errores, en total y por operación.
+ * </p>
+ * <p>
+ * Las opciones se indican como propiedades de Spring con el prefijo {@code carga.}; el resto de argumentos se pasan a
+ * la aplicación, por ejemplo {@code --spring.profiles.active=virtual}:
+ * </p>
+ * <ul>
+ * <li>{@code carga.incidencias}: incidencias cargadas antes de empezar (100000).</li>
+ * <li>{@code carga.clientes}: clientes concurrentes, cada uno con una petición en curso como mucho (64).</li>
+ * <li>{@code carga.calentamiento}: tiempo inicial cuyas peticiones no se miden (15s).</li>
+ * <li>{@code carga.duracion}: tiempo medido (60s).</li>
+ * <li>{@code carga.mezcla}: peso de cada operación (crear=30,actualizar=20,buscar=40,borrar=10).</li>
+ * <li>{@code carga.semilla}: semilla de los datos y de las peticiones (42).</li>
+ * <li>{@code carga.etiqueta}: texto libre que identifica la versión probada en el informe.</li>
+ * <li>{@code carga.informe}: fichero del informe (target/carga/informe-fecha.json).</li>
+ * </ul>
+ * <p>
+ * Ejecución:
+ * {@code mvn -P benchmark test-compile exec:exec@carga -Dcarga.args="--carga.incidencias=100000 --carga.clientes=64"}
+ * </p>
+ */
+public final class CargaIncidencias
+{
+	/**
+	 * URL de la base de datos en memoria, que se conserva mientras viva la máquina virtual.
+	 */
+	private static final String URL_BASE_DATOS = "jdbc:h2:mem:carga;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+	/**
+	 * Operaciones de la prueba, en el orden del informe.
+	 */
+	private static final List<String> OPERACIONES = List.of("crear", "actualizar", "buscar", "borrar");
+
+	private static final ObjectMapper JSON = Jackson2ObjectMapperBuilder.json().build();
+
+	private CargaIncidencias()
+	{
+	}
+
+	public static void main(String[] args) throws Exception
+	{
+		LocalDateTime inicio = LocalDateTime.now();
+		// DevTools volveria a ejecutar este metodo en otro cargador de clases al arrancar la aplicacion.
+		System.setProperty("spring.devtools.restart.enabled", "false");
+
+		// Las opciones se leen del entorno de Spring, que admite los mismos argumentos que la aplicacion.
+		StandardEnvironment opciones = new StandardEnvironment();
+		opciones.getPropertySources().addFirst(new SimpleCommandLinePropertySource(args));
+		opciones.setConversionService(new ApplicationConversionService());
+		int cantidad = opciones.getProperty("carga.incidencias", Integer.class, 100000);
+		int clientes = opciones.getProperty("carga.clientes", Integer.class, 64);
+		Duration calentamiento = opciones.getProperty("carga.calentamiento", Duration.class, Duration.ofSeconds(15));
+		Duration duracion = opciones.getProperty("carga.duracion", Duration.class, Duration.ofSeconds(60));
+		Map<String, Integer> mezcla = leerMezcla(opciones.getProperty("carga.mezcla",
+				"crear=30,actualizar=20,buscar=40,borrar=10"));
+		long semilla = opciones.getProperty("carga.semilla", Long.class, 42L);
+		Path informe = Path.of(opciones.getProperty("carga.informe",
+				"target/carga/informe-" + inicio.format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".json"));
+
+		// Carga la tabla antes de arrancar, para que el indice de texto y las estadisticas partan de los datos.
+		List<IncidenciaDTO> incidencias = DatosIncidencias.generar(cantidad, semilla);
+		try (Connection conexion = DriverManager.getConnection(URL_BASE_DATOS, "sa", ""))
+		{
+			DatosIncidencias.cargarTabla(conexion, incidencias);
+		}
+		System.out.printf("Cargadas %d incidencias.%n", cantidad);
+
+		// Como propiedades del sistema prevalecen sobre application.yaml, pero no sobre los argumentos.
+		System.setProperty("server.port", "0");
+		System.setProperty("spring.datasource.url", URL_BASE_DATOS);
+		System.setProperty("spring.datasource.username", "sa");
+		System.setProperty("spring.datasource.password", "");
+		System.setProperty("spring.jpa.hibernate.ddl-auto", "none");
+		System.setProperty("logging.file.name", "target/carga/servicio.log");
+		System.setProperty("logging.level.root", "WARN");
+		// Todos los clientes comparten la direccion local: se mide el servicio, no el control de admision.
+		System.setProperty("incidencias.admision.habilitada", "false");
+		ConfigurableApplicationContext contexto = new SpringApplicationBuilder(ReaktorIssuesServerApplication.class)
+				.run(args);
+		try
+		{
+			String base = "http://localhost:" + contexto.getEnvironment().getProperty("local.server.port")
+					+ "/incidencias";
+			HttpClient cliente = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+					.connectTimeout(Duration.ofSeconds(10)).build();
+			esperarEstadisticas(cliente, base);
+
+			System.out.printf("Lanzando %d clientes durante %s (+%s de calentamiento), mezcla %s.%n", clientes,
+					duracion, calentamiento, mezcla);
+			List<Medidas> medidas = lanzar(cliente, base, incidencias, clientes, calentamiento, duracion, mezcla,
+					semilla);
+
+			Map<String, Object> resultado = new LinkedHashMap<>();
+			resultado.put("fecha", inicio.toString());
+			resultado.put("etiqueta", opciones.getProperty("carga.etiqueta", ""));
+			Map<String, Object> configuracion = new LinkedHashMap<>();
+			configuracion.put("incidencias", cantidad);
+			configuracion.put("clientes", clientes);
+			configuracion.put("calentamientoSegundos", calentamiento.toSeconds());
+			configuracion.put("duracionSegundos", duracion.toSeconds());
+			configuracion.put("mezcla", mezcla);
+			configuracion.put("semilla", semilla);
+			configuracion.put("perfiles", Arrays.asList(contexto.getEnvironment().getActiveProfiles()));
+			configuracion.put("procesadores", Runtime.getRuntime().availableProcessors());
+			configuracion.put("java", System.getProperty("java.version"));
+			resultado.put("configuracion", configuracion);
+			resultado.put("total", resumir(medidas, null, duracion));
+			Map<String, Object> porOperacion = new LinkedHashMap<>();
+			for (String operacion : OPERACIONES)
+			{
+				if (mezcla.containsKey(operacion))
+				{
+					porOperacion.put(operacion, resumir(medidas, operacion, duracion));
+				}
+			}
+			resultado.put("operaciones", porOperacion);
+
+			Files.createDirectories(informe.toAbsolutePath().getParent());
+			JSON.writer().with(SerializationFeature.INDENT_OUTPUT).writeValue(informe.toFile(), resultado);
+			System.out.println(JSON.writer().with(SerializationFeature.INDENT_OUTPUT).writeValueAsString(resultado));
+			System.out.printf("Informe escrito en %s%n", informe.toAbsolutePath());
+		}
+		finally
+		{
+			contexto.close();
+		}
+	}
+
+	/**
+	 * Lanza los clientes y espera a que terminen.
+	 *
+	 * @return Las medidas de cada cliente.
+	 */
+	private static List<Medidas> lanzar(HttpClient cliente, String base, List<IncidenciaDTO> incidencias, int clientes,
+			Duration calentamiento, Duration duracion, Map<String, Integer> mezcla, long semilla)
+			throws InterruptedException
+	{
+		// Cada borrado consume una incidencia distinta, en un orden aleatorio pero reproducible.
+		List<IncidenciaDTO> borrables = new ArrayList<>(incidencias);
+		Collections.shuffle(borrables, new Random(semilla));
+		AtomicInteger siguienteBorrado = new AtomicInteger();
+
+		long inicioMedida = System.nanoTime() + calentamiento.toNanos();
+		long fin = inicioMedida + duracion.toNanos();
+
+		List<Medidas> medidas = new ArrayList<>();
+		List<Thread> hilos = new ArrayList<>();
+		for (int i = 0; i < clientes; i++)
+		{
+			Medidas medidasCliente = new Medidas();
+			Random aleatorio = new Random(semilla + 1 + i);
+			medidas.add(medidasCliente);
+			hilos.add(Thread.ofPlatform().name("cliente-" + i).start(() ->
+			{
+				long ahora;
+				while ((ahora = System.nanoTime()) < fin)
+				{
+					String operacion = elegir(mezcla, aleatorio);
+					boolean correcta;
+					try
+					{
+						correcta = ejecutar(cliente, base, operacion, incidencias, borrables, siguienteBorrado, aleatorio);
+					}
+					catch (IOException ioException)
+					{
+						correcta = false;
+					}
+					catch (InterruptedException interruptedException)
+					{
+						return;
+					}
+					long terminada = System.nanoTime();
+					if (ahora >= inicioMedida && terminada <= fin)
+					{
+						medidasCliente.anotar(operacion, terminada - ahora, correcta);
+					}
+				}
+			}));
+		}
+		for (Thread hilo : hilos)
+		{
+			hilo.join();
+		}
+		return medidas;
+	}
+
+	/**
+	 * Ejecuta una petición de la operación indicada.
+	 *
+	 * @return Si la respuesta tiene el código esperado.
+	 */
+	private static boolean ejecutar(HttpClient cliente, String base, String operacion, List<IncidenciaDTO> incidencias,
+			List<IncidenciaDTO> borrables, AtomicInteger siguienteBorrado, Random aleatorio)
+			throws IOException, InterruptedException
+	{
+		HttpRequest.Builder peticion = HttpRequest.newBuilder().timeout(Duration.ofSeconds(60))
+				.header("Content-Type", "application/json");
+		switch (operacion)
+		{
+			case "crear":
+			{
+				IncidenciaDTO nueva = new IncidenciaDTO();
+				nueva.setNumeroAula(incidencias.get(aleatorio.nextInt(incidencias.size())).getNumeroAula());
+				nueva.setDescripcionIncidencia("El proyector del puesto " + aleatorio.nextInt(20) + " no enciende");
+				peticion.uri(URI.create(base)).header("correo-docente", "docente" + aleatorio.nextInt(400)
+						+ "@g.educaand.es").PUT(HttpRequest.BodyPublishers.ofByteArray(JSON.writeValueAsBytes(nueva)));
+				int codigo = enviar(cliente, peticion);
+				return codigo == 201 || codigo == 202;
+			}
+			case "actualizar":
+			{
+				IncidenciaDTO existente = incidencias.get(aleatorio.nextInt(incidencias.size()));
+				IncidenciaDTO cambio = new IncidenciaDTO(existente.getNumeroAula(), existente.getCorreoDocente(),
+						existente.getFechaIncidencia(), existente.getDescripcionIncidencia(),
+						aleatorio.nextBoolean() ? Constants.ESTADO_EN_PROGRESO : Constants.ESTADO_RESUELTA,
+						"Revisado en la prueba de carga");
+				peticion.uri(URI.create(base)).header("correo-docente", existente.getCorreoDocente())
+						.PUT(HttpRequest.BodyPublishers.ofByteArray(JSON.writeValueAsBytes(cambio)));
+				// Si la incidencia se ha borrado durante la prueba, se vuelve a crear.
+				int codigo = enviar(cliente, peticion);
+				return codigo == 200 || codigo == 201 || codigo == 202;
+			}
+			case "buscar":
+			{
+				peticion.uri(URI.create(base)).POST(HttpRequest.BodyPublishers.ofByteArray(
+						JSON.writeValueAsBytes(filtro(incidencias, aleatorio))));
+				// Una busqueda sin resultados responde 404.
+				int codigo = enviar(cliente, peticion);
+				return codigo == 200 || codigo == 404;
+			}
+			default:
+			{
+				int indice = siguienteBorrado.getAndIncrement();
+				if (indice >= borrables.size())
+				{
+					return false;
+				}
+				peticion.uri(URI.create(base)).method("DELETE",
+						HttpRequest.BodyPublishers.ofByteArray(JSON.writeValueAsBytes(borrables.get(indice))));
+				return enviar(cliente, peticion) == 204;
+			}
+		}
+	}
+
+	/**
+	 * Crea un filtro de búsqueda como los de los paneles de seguimiento: por aula, por docente o por estado, con un
+	 * periodo de un mes en la mitad de los casos.
+	 */
+	private static FiltroBusqueda filtro(List<IncidenciaDTO> incidencias, Random aleatorio)
+	{
+		IncidenciaDTO referencia = incidencias.get(aleatorio.nextInt(incidencias.size()));
+		FiltroBusqueda filtro = new FiltroBusqueda();
+		switch (aleatorio.nextInt(3))
+		{
+			case 0 -> filtro.setNumeroAula(referencia.getNumeroAula());
+			case 1 -> filtro.setCorreoDocente(referencia.getCorreoDocente());
+			default -> filtro.setEstadoIncidencia(referencia.getEstadoIncidencia());
+		}
+		if (aleatorio.nextBoolean())
+		{
+			SimpleDateFormat formato = new SimpleDateFormat("dd-MM-yyyy");
+			filtro.setFechaInicio(formato.format(referencia.getFechaIncidencia()));
+			filtro.setFechaFin(formato.format(new Date(referencia.getFechaIncidencia().getTime()
+					+ Duration.ofDays(30).toMillis())));
+		}
+		filtro.setTamanoPagina(50);
+		return filtro;
+	}
+
+	private static int enviar(HttpClient cliente, HttpRequest.Builder peticion) throws IOException, InterruptedException
+	{
+		return cliente.send(peticion.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+	}
+
+	/**
+	 * Espera a que el servicio termine de calcular las estadísticas al arrancar.
+	 */
+	private static void esperarEstadisticas(HttpClient cliente, String base) throws IOException, InterruptedException
+	{
+		HttpRequest peticion = HttpRequest.newBuilder(URI.create(base + "/estadisticas")).GET().build();
+		while (cliente.send(peticion, HttpResponse.BodyHandlers.discarding()).statusCode() != 200)
+		{
+			Thread.sleep(100);
+		}
+	}
+
+	/**
+	 * Elige una operación al azar según su peso.
+	 */
+	private static String elegir(Map<String, Integer> mezcla, Random aleatorio)
+	{
+		int total = mezcla.values().stream().mapToInt(Integer::intValue).sum();
+		int valor = aleatorio.nextInt(total);
+		for (Map.Entry<String, Integer> operacion : mezcla.entrySet())
+		{
+			valor -= operacion.getValue();
+			if (valor < 0)
+			{
+				return operacion.getKey();
+			}
+		}
+		throw new IllegalStateException("Mezcla de operaciones vacia");
+	}
+
+	/**
+	 * Interpreta la mezcla de operaciones con el formato {@code operacion=peso,...}.
+	 */
+	private static Map<String, Integer> leerMezcla(String texto)
+	{
+		Map<String, Integer> mezcla = new LinkedHashMap<>();
+		for (String parte : texto.split(","))
+		{
+			String[] operacionPeso = parte.trim().split("=");
+			if (operacionPeso.length != 2 || !OPERACIONES.contains(operacionPeso[0].trim()))
+			{
+				throw new IllegalArgumentException("Operacion no valida en carga.mezcla: " + parte);
+			}
+			int peso = Integer.parseInt(operacionPeso[1].trim());
+			if (peso > 0)
+			{
+				mezcla.put(operacionPeso[0].trim(), peso);
+			}
+		}
+		if (mezcla.isEmpty())
+		{
+			throw new IllegalArgumentException("La mezcla de operaciones no tiene ningun peso positivo.");
+		}
+		return mezcla;
+	}
+
+	/**
+	 * Resume las medidas de una operación, o de todas si es nula.
+	 */
+	private static Map<String, Object> resumir(List<Medidas> medidas, String operacion, Duration duracion)
+	{
+		long errores = 0;
+		int cantidad = 0;
+		for (Medidas medidasCliente : medidas)
+		{
+			for (String clave : OPERACIONES)
+			{
+				if (operacion == null || operacion.equals(clave))
+				{
+					cantidad += medidasCliente.cantidad(clave);
+					errores += medidasCliente.errores(clave);
+				}
+			}
+		}
+		long[] latencias = new long[cantidad];
+		int posicion = 0;
+		for (Medidas medidasCliente : medidas)
+		{
+			for (String clave : OPERACIONES)
+			{
+				if (operacion == null || operacion.equals(clave))
+				{
+					posicion = medidasCliente.copiar(clave, latencias, posicion);
+				}
+			}
+		}
+		Arrays.sort(latencias);
+
+		Map<String, Object> resumen = new LinkedHashMap<>();
+		resumen.put("peticiones", cantidad);
+		resumen.put("errores", errores);
+		resumen.put("tasaErrores", cantidad == 0 ? 0.0 : (double) errores / cantidad);
+		resumen.put("peticionesPorSegundo", cantidad / (duracion.toNanos() / 1e9));
+		resumen.put("p50Ms", percentil(latencias, 0.50));
+		resumen.put("p95Ms", percentil(latencias, 0.95));
+		resumen.put("p99Ms", percentil(latencias, 0.99));
+		resumen.put("maximoMs", percentil(latencias, 1.0));
+		return resumen;
+	}
+
+	/**
+	 * Percentil de latencias ordenadas, en milisegundos.
+	 */
+	private static double percentil(long[] latencias, double cuantil)
+	{
+		if (latencias.length == 0)
+		{
+			return 0.0;
+		}
+		int indice = (int) Math.ceil(cuantil * latencias.length) - 1;
+		return latencias[Math.max(indice, 0)] / 1e6;
+	}
+
+	/**
+	 * Latencias y errores de un cliente, por operación. Cada cliente anota solo en las suyas.
+	 */
+	private static final class Medidas
+	{
+		private final Map<String, long[]> latencias = new LinkedHashMap<>();
+
+		private final Map<String, Integer> cantidades = new LinkedHashMap<>();
+
+		private final Map<String, Long> errores = new LinkedHashMap<>();
+
+		void anotar(String operacion, long nanos, boolean correcta)
+		{
+			long[] lista = this.latencias.computeIfAbsent(operacion, clave -> new long[1024]);
+			int cantidad = this.cantidades.getOrDefault(operacion, 0);
+			if (cantidad == lista.length)
+			{
+				lista = Arrays.copyOf(lista, lista.length * 2);
+				this.latencias.put(operacion, lista);
+			}
+			lista[cantidad] = nanos;
+			this.cantidades.put(operacion, cantidad + 1);
+			if (!correcta)
+			{
+				this.errores.merge(operacion, 1L, Long::sum);
+			}
+		}
+
+		int cantidad(String operacion)
+		{
+			return this.cantidades.getOrDefault(operacion, 0);
+		}
+
+		long errores(String operacion)
+		{
+			return this.errores.getOrDefault(operacion, 0L);
+		}
+
+		int copiar(String operacion, long[] destino, int posicion)
+		{
+			int cantidad = this.cantidad(operacion);
+			if (cantidad > 0)
+			{
+				System.arraycopy(this.latencias.get(operacion), 0, destino, posicion, cantidad);
+			}
+			return posicion + cantidad;
+		}
+	}
+}
@@ -0,0 +1,154 @@
+package es.iesjandula.ReaktorIssuesServer.benchmark;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Level;
+import es.iesjandula.ReaktorIssuesServer.dto.IncidenciaDTO;
+import es.iesjandula.ReaktorIssuesServer.utils.Constants;
+
+/**
+ * Generador de incidencias sintéticas para las pruebas de rendimiento.
+ * <p>
+ * Reparte las incidencias entre unas 80 aulas y 400 docentes a lo largo de cuatro cursos, con los estados en las
+ * proporciones habituales del servicio y descripciones formadas por un equipo, su ubicación, el problema y una
+ * referencia numérica. Con la misma semilla se generan siempre las mismas incidencias.
+ * </p>
+ */
+public final class DatosIncidencias
+{
+	private static final String[] EQUIPOS = { "La pizarra digital", "El proyector", "El teclado", "El raton",
+			"El ordenador", "La impresora", "El altavoz", "El enchufe", "La persiana", "El cable HDMI", "La pantalla",
+			"El router wifi", "La camara", "El aire acondicionado", "La lampara" };
+
+	private static final String[] UBICACIONES = { "del profesor", "del puesto 3", "del puesto 7", "del puesto 12",
+			"del puesto 16", "de la mesa central", "junto a la ventana", "del fondo del aula" };
+
+	private static final String[] PROBLEMAS = { "no enciende", "no funciona", "esta roto", "parpadea",
+			"hace ruido", "no se conecta a la red", "se apaga solo", "no detecta el dispositivo", "tiene la imagen borrosa",
+			"no carga el sistema" };
+
+	private static final String[] COMENTARIOS = { "", "", "Revisado por mantenimiento", "Pendiente de pieza",
+			"Sustituido por uno nuevo", "Se ha reiniciado y funciona", "Avisado al proveedor" };
+
+	/**
+	 * Primer instante de las incidencias generadas: 01-09-2020.
+	 */
+	private static final long INICIO = 1598918400000L;
+
+	/**
+	 * Duración del periodo de las incidencias generadas: cuatro años.
+	 */
+	private static final long PERIODO = 4L * 365 * 24 * 3600 * 1000;
+
+	private DatosIncidencias()
+	{
+	}
+
+	/**
+	 * Genera incidencias sintéticas.
+	 *
+	 * @param cantidad Número de incidencias a generar.
+	 * @param semilla  Semilla del generador aleatorio.
+	 * @return Las incidencias generadas, con claves distintas entre sí.
+	 */
+	public static List<IncidenciaDTO> generar(int cantidad, long semilla)
+	{
+		Random aleatorio = new Random(semilla);
+		List<IncidenciaDTO> incidencias = new ArrayList<>(cantidad);
+		for (int i = 0; i < cantidad; i++)
+		{
+			String aula = (aleatorio.nextInt(4)) + "." + (1 + aleatorio.nextInt(20));
+			String docente = "docente" + aleatorio.nextInt(400) + "@g.educaand.es";
+			// El indice se suma a la fecha para que ninguna clave se repita.
+			Date fecha = new Date(INICIO + (long) (aleatorio.nextDouble() * PERIODO) / cantidad * cantidad + i);
+
+			String descripcion = EQUIPOS[aleatorio.nextInt(EQUIPOS.length)] + " "
+					+ UBICACIONES[aleatorio.nextInt(UBICACIONES.length)] + " "
+					+ PROBLEMAS[aleatorio.nextInt(PROBLEMAS.length)] + " (ref. " + aleatorio.nextInt(100000) + ")";
+
+			int probabilidad = aleatorio.nextInt(100);
+			String estado = probabilidad < 40 ? Constants.ESTADO_PENDIENTE
+					: probabilidad < 55 ? Constants.ESTADO_EN_PROGRESO
+							: probabilidad < 90 ? Constants.ESTADO_RESUELTA : Constants.ESTADO_CANCELADA;
+
+			incidencias.add(new IncidenciaDTO(aula, docente, fecha, descripcion, estado,
+					COMENTARIOS[aleatorio.nextInt(COMENTARIOS.length)]));
+		}
+		return incidencias;
+	}
+
+	/**
+	 * Configura los registros con el nivel INFO, como en el servicio. Sin configuración, Logback escribiría en consola
+	 * todos los mensajes de depuración y su coste se sumaría al medido.
+	 */
+	public static void configurarRegistros()
+	{
+		((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.INFO);
+	}
+
+	/**
+	 * Crea la tabla de incidencias, con la misma estructura que genera Hibernate, y la carga con las incidencias
+	 * indicadas.
+	 *
+	 * @param conexion    La conexión JDBC a la base de datos.
+	 * @param incidencias Las incidencias a insertar.
+	 * @throws SQLException Si falla alguna sentencia.
+	 */
+	public static void cargarTabla(Connection conexion, List<IncidenciaDTO> incidencias) throws SQLException
+	{
+		try (Statement sentencia = conexion.createStatement())
+		{
+			sentencia.execute("CREATE TABLE incidencias (numero_aula VARCHAR(255) NOT NULL, "
+					+ "correo_docente VARCHAR(255) NOT NULL, fecha_incidencia DATETIME(6) NOT NULL, "
+					+ "descripcion_incidencia TEXT, estado_incidencia VARCHAR(255), comentario TEXT, "
+					+ "PRIMARY KEY (correo_docente, fecha_incidencia, numero_aula))");
+			sentencia.execute("CREATE INDEX idx_incidencias_orden ON incidencias "
+					+ "(fecha_incidencia, numero_aula, correo_docente)");
+		}
+		insertar(conexion, incidencias);
+	}
+
+	/**
+	 * Inserta las incidencias indicadas en la tabla de incidencias, que debe existir, en lotes de 1000.
+	 *
+	 * @param conexion    La conexión JDBC a la base de datos.
+	 * @param incidencias Las incidencias a insertar.
+	 * @throws SQLException Si falla alguna sentencia.
+	 */
+	public static void insertar(Connection conexion, List<IncidenciaDTO> incidencias) throws SQLException
+	{
+		try (PreparedStatement insercion = conexion.prepareStatement("INSERT INTO incidencias (numero_aula, "
+				+ "correo_docente, fecha_incidencia, descripcion_incidencia, estado_incidencia, comentario) "
+				+ "VALUES (?, ?, ?, ?, ?, ?)"))
+		{
+			int pendientes = 0;
+			for (IncidenciaDTO incidencia : incidencias)
+			{
+				insercion.setString(1, incidencia.getNumeroAula());
+				insercion.setString(2, incidencia.getCorreoDocente());
+				insercion.setTimestamp(3, new Timestamp(incidencia.getFechaIncidencia().getTime()));
+				insercion.setString(4, incidencia.getDescripcionIncidencia());
+				insercion.setString(5, incidencia.getEstadoIncidencia());
+				insercion.setString(6, incidencia.getComentario());
+				insercion.addBatch();
+				if (++pendientes == 1000)
+				{
+					insercion.executeBatch();
+					pendientes = 0;
+				}
+			}
+			insercion.executeBatch();
+		}
+	}
+}
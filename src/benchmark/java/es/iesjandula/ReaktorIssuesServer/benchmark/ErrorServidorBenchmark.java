@@ -0,0 +1,80 @@
+package es.iesjandula.ReaktorIssuesServer.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import es.iesjandula.ReaktorIssuesServer.utils.IssuesServerError;
+
+/**
+ * Mide la construcción de la respuesta de error con {@link IssuesServerError#getMapError()}, que incluye la traza
+ * completa de la excepción.
+ * <p>
+ * La profundidad es el número de marcos de la pila de la excepción: una excepción lanzada desde un controlador
+ * atendido por Tomcat y Spring MVC supera con facilidad el centenar de marcos. La variante {@code sinExcepcion} sirve
+ * de referencia sin traza.
+ * </p>
+ * <p>
+ * Ejecución: {@code mvn -P benchmark verify -DskipTests -Djmh.args="ErrorServidorBenchmark -prof gc"}
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ErrorServidorBenchmark
+{
+	@Param({ "20", "150" })
+	private int profundidad;
+
+	private IssuesServerError conExcepcion;
+
+	private IssuesServerError sinExcepcion;
+
+	@Setup(Level.Trial)
+	public void preparar()
+	{
+		Exception excepcion = crearExcepcion(this.profundidad);
+		String mensaje = "ERROR: Capturado en buscaIncidencia()\n" + excepcion.getMessage();
+		this.conExcepcion = new IssuesServerError(3, mensaje, excepcion);
+		this.sinExcepcion = new IssuesServerError(3, mensaje);
+	}
+
+	@Benchmark
+	public Map<String, String> conExcepcion()
+	{
+		return this.conExcepcion.getMapError();
+	}
+
+	@Benchmark
+	public Map<String, String> sinExcepcion()
+	{
+		return this.sinExcepcion.getMapError();
+	}
+
+	/**
+	 * Crea una excepción con aproximadamente el número de marcos de pila indicado.
+	 */
+	private static Exception crearExcepcion(int marcos)
+	{
+		if (marcos <= 1)
+		{
+			return new IllegalStateException("Fallo simulado al consultar la base de datos");
+		}
+		return crearExcepcion(marcos - 1);
+	}
+}
@@ -0,0 +1,183 @@
+package es.iesjandula.ReaktorIssuesServer.benchmark;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import es.iesjandula.ReaktorIssuesServer.dto.IncidenciaDTO;
+
+/**
+ * Compara el esquema de la tabla de incidencias que genera Hibernate con el esquema compacto del perfil
+ * {@code compacto} ({@code db/compacto/schema.sql}).
+ * <p>
+ * Necesita un servidor MySQL: los tamaños de los índices y los planes de ejecución de InnoDB no se pueden reproducir
+ * con H2. Cada variante crea la tabla en el esquema indicado por {@code url}, la carga con las mismas incidencias y
+ * escribe en la salida el tamaño de la tabla y de cada índice. Las consultas medidas son la lectura de una incidencia
+ * por su identificador, una página de la búsqueda por fecha y una página de las incidencias de un docente.
+ * </p>
+ * <p>
+ * Ejecución:
+ * {@code mvn -P benchmark verify -DskipTests -Djmh.args="EsquemaCompactoBenchmark -p url=jdbc:mysql://..."}
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class EsquemaCompactoBenchmark
+{
+	@Param({ "1000000" })
+	private int filas;
+
+	@Param({ "clasico", "compacto" })
+	private String esquema;
+
+	@Param({ "jdbc:mysql://localhost:3306/incidencias_benchmark?createDatabaseIfNotExist=true"
+			+ "&rewriteBatchedStatements=true" })
+	private String url;
+
+	@Param({ "root" })
+	private String usuario;
+
+	@Param({ "1234" })
+	private String clave;
+
+	private Connection conexion;
+
+	private List<IncidenciaDTO> incidencias;
+
+	private PreparedStatement porClave;
+
+	private PreparedStatement paginaPorFecha;
+
+	private PreparedStatement paginaPorDocente;
+
+	private int siguiente;
+
+	@Setup(Level.Trial)
+	public void preparar() throws SQLException
+	{
+		this.incidencias = DatosIncidencias.generar(this.filas, 42L);
+		this.conexion = DriverManager.getConnection(this.url, this.usuario, this.clave);
+
+		try (Statement sentencia = this.conexion.createStatement())
+		{
+			sentencia.execute("DROP TABLE IF EXISTS incidencias");
+		}
+		if ("compacto".equals(this.esquema))
+		{
+			ScriptUtils.executeSqlScript(this.conexion, new ClassPathResource("db/compacto/schema.sql"));
+			DatosIncidencias.insertar(this.conexion, this.incidencias);
+		}
+		else
+		{
+			DatosIncidencias.cargarTabla(this.conexion, this.incidencias);
+		}
+		this.mostrarTamanos();
+
+		this.porClave = this.conexion.prepareStatement("SELECT * FROM incidencias WHERE numero_aula = ? "
+				+ "AND correo_docente = ? AND fecha_incidencia = ?");
+		this.paginaPorFecha = this.conexion.prepareStatement("SELECT * FROM incidencias WHERE fecha_incidencia > ? "
+				+ "ORDER BY fecha_incidencia, numero_aula, correo_docente LIMIT 100");
+		this.paginaPorDocente = this.conexion.prepareStatement("SELECT * FROM incidencias WHERE correo_docente = ? "
+				+ "ORDER BY fecha_incidencia LIMIT 100");
+	}
+
+	@TearDown(Level.Trial)
+	public void cerrar() throws SQLException
+	{
+		this.conexion.close();
+	}
+
+	@Benchmark
+	public int porClave() throws SQLException
+	{
+		IncidenciaDTO incidencia = this.siguienteIncidencia();
+		this.porClave.setString(1, incidencia.getNumeroAula());
+		this.porClave.setString(2, incidencia.getCorreoDocente());
+		this.porClave.setTimestamp(3, new Timestamp(incidencia.getFechaIncidencia().getTime()));
+		return contar(this.porClave);
+	}
+
+	@Benchmark
+	public int paginaPorFecha() throws SQLException
+	{
+		this.paginaPorFecha.setTimestamp(1, new Timestamp(this.siguienteIncidencia().getFechaIncidencia().getTime()));
+		return contar(this.paginaPorFecha);
+	}
+
+	@Benchmark
+	public int paginaPorDocente() throws SQLException
+	{
+		this.paginaPorDocente.setString(1, this.siguienteIncidencia().getCorreoDocente());
+		return contar(this.paginaPorDocente);
+	}
+
+	/**
+	 * Recorre las incidencias cargadas para que cada invocación consulte una distinta.
+	 */
+	private IncidenciaDTO siguienteIncidencia()
+	{
+		this.siguiente = (this.siguiente + 7919) % this.incidencias.size();
+		return this.incidencias.get(this.siguiente);
+	}
+
+	/**
+	 * Escribe en la salida el tamaño de la tabla y de cada índice según las estadísticas de InnoDB.
+	 */
+	private void mostrarTamanos() throws SQLException
+	{
+		try (Statement sentencia = this.conexion.createStatement())
+		{
+			sentencia.execute("ANALYZE TABLE incidencias");
+			try (ResultSet resultado = sentencia.executeQuery("SELECT index_name, stat_value * @@innodb_page_size "
+					+ "FROM mysql.innodb_index_stats WHERE database_name = DATABASE() "
+					+ "AND table_name = 'incidencias' AND stat_name = 'size' ORDER BY index_name"))
+			{
+				while (resultado.next())
+				{
+					System.out.printf("%n[%s] Indice %s: %.2f MB", this.esquema, resultado.getString(1),
+							resultado.getLong(2) / 1024.0 / 1024.0);
+				}
+				System.out.println();
+			}
+		}
+	}
+
+	private static int contar(PreparedStatement consulta) throws SQLException
+	{
+		int filas = 0;
+		try (ResultSet resultado = consulta.executeQuery())
+		{
+			while (resultado.next())
+			{
+				filas++;
+			}
+		}
+		return filas;
+	}
+}
@@ -0,0 +1,75 @@
+package es.iesjandula.ReaktorIssuesServer.benchmark;
+
+import java.text.ParseException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import es.iesjandula.ReaktorIssuesServer.dto.CriteriosBusqueda;
+import es.iesjandula.ReaktorIssuesServer.dto.FiltroBusqueda;
+import es.iesjandula.ReaktorIssuesServer.services.BusquedaIncidenciaService;
+
+/**
+ * Mide la interpretación de las fechas del filtro que realiza cada búsqueda y exportación.
+ * <p>
+ * La variante {@code normalizar} ejecuta {@link BusquedaIncidenciaService#normalizar(FiltroBusqueda)}, que crea un
+ * {@code SimpleDateFormat} en cada llamada; la variante {@code dateTimeFormatter} interpreta las mismas fechas con un
+ * {@code DateTimeFormatter} compartido, como referencia de lo que cuesta el análisis por sí solo.
+ * </p>
+ * <p>
+ * Ejecución: {@code mvn -P benchmark verify -DskipTests -Djmh.args="FechasFiltroBenchmark -prof gc"}
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FechasFiltroBenchmark
+{
+	private static final DateTimeFormatter FORMATO_FECHA = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+
+	private BusquedaIncidenciaService servicio;
+
+	private FiltroBusqueda filtro;
+
+	@Setup(Level.Trial)
+	public void preparar()
+	{
+		DatosIncidencias.configurarRegistros();
+		this.servicio = new BusquedaIncidenciaService();
+		this.filtro = new FiltroBusqueda();
+		this.filtro.setFechaInicio("01-09-2024");
+		this.filtro.setFechaFin("30-06-2025");
+	}
+
+	@Benchmark
+	public CriteriosBusqueda normalizar() throws ParseException
+	{
+		return this.servicio.normalizar(this.filtro);
+	}
+
+	@Benchmark
+	public Date[] dateTimeFormatter()
+	{
+		ZoneId zona = ZoneId.systemDefault();
+		return new Date[] {
+				Date.from(LocalDate.parse(this.filtro.getFechaInicio(), FORMATO_FECHA).atStartOfDay(zona).toInstant()),
+				Date.from(LocalDate.parse(this.filtro.getFechaFin(), FORMATO_FECHA).atStartOfDay(zona).toInstant()) };
+	}
+}
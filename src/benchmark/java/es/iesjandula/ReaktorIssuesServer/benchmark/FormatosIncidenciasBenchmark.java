@@ -0,0 +1,94 @@
+package es.iesjandula.ReaktorIssuesServer.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import es.iesjandula.ReaktorIssuesServer.dto.IncidenciaDTO;
+
+/**
+ * Compara el tamaño y el tiempo de serialización de una respuesta de 10.000 incidencias en cada formato que admite la
+ * búsqueda (JSON, Smile y CBOR), sin comprimir y comprimida con gzip como lo hace Tomcat (nivel por defecto).
+ * <p>
+ * Cada formato se escribe con el mismo {@code ObjectMapper} que usan los conversores de Spring MVC. Al preparar cada
+ * variante se escribe en la salida el tamaño de la respuesta, que JMH no informa.
+ * </p>
+ * <p>
+ * Ejecución: {@code mvn -P benchmark verify -DskipTests -Djmh.args="FormatosIncidenciasBenchmark -prof gc"}
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FormatosIncidenciasBenchmark
+{
+	@Param({ "10000" })
+	private int incidencias;
+
+	@Param({ "json", "smile", "cbor" })
+	private String formato;
+
+	@Param({ "false", "true" })
+	private boolean gzip;
+
+	private List<IncidenciaDTO> lista;
+
+	private ObjectWriter escritor;
+
+	/**
+	 * Tamaño de la última respuesta, para reservar el búfer de una vez.
+	 */
+	private int tamano;
+
+	@Setup(Level.Trial)
+	public void preparar() throws IOException
+	{
+		ObjectMapper mapper = switch (this.formato)
+		{
+			case "smile" -> Jackson2ObjectMapperBuilder.smile().build();
+			case "cbor" -> Jackson2ObjectMapperBuilder.cbor().build();
+			default -> Jackson2ObjectMapperBuilder.json().build();
+		};
+		this.escritor = mapper.writer();
+		this.lista = DatosIncidencias.generar(this.incidencias, 42L);
+
+		this.tamano = 1024;
+		this.tamano = this.serializar().length;
+		System.out.printf("%n[%s%s] %d incidencias: %d bytes (%.1f bytes por incidencia)%n", this.formato,
+				this.gzip ? "+gzip" : "", this.incidencias, this.tamano, (double) this.tamano / this.incidencias);
+	}
+
+	@Benchmark
+	public byte[] serializar() throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(this.tamano);
+		try (OutputStream salida = this.gzip ? new GZIPOutputStream(bytes) : bytes)
+		{
+			this.escritor.writeValue(salida, this.lista);
+		}
+		return bytes.toByteArray();
+	}
+}
@@ -0,0 +1,79 @@
+package es.iesjandula.ReaktorIssuesServer.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import es.iesjandula.ReaktorIssuesServer.dto.IncidenciaDTO;
+
+/**
+ * Mide la conversión a JSON y desde JSON de listas de incidencias, con el mismo {@code ObjectMapper} que usan los
+ * conversores de Spring MVC.
+ * <p>
+ * Los tamaños corresponden a una incidencia, a una página de búsqueda por defecto (100) y a una página máxima o un lote
+ * máximo (1000).
+ * </p>
+ * <p>
+ * Ejecución: {@code mvn -P benchmark verify -DskipTests -Djmh.args="JsonIncidenciasBenchmark -prof gc"}
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonIncidenciasBenchmark
+{
+	@Param({ "1", "100", "1000" })
+	private int incidencias;
+
+	private List<IncidenciaDTO> lista;
+
+	private byte[] json;
+
+	private ObjectWriter escritor;
+
+	private ObjectReader lector;
+
+	@Setup(Level.Trial)
+	public void preparar() throws IOException
+	{
+		ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+		this.escritor = mapper.writer();
+		this.lector = mapper.readerFor(mapper.getTypeFactory().constructCollectionType(List.class, IncidenciaDTO.class));
+
+		this.lista = DatosIncidencias.generar(this.incidencias, 42L);
+		this.json = this.escritor.writeValueAsBytes(this.lista);
+	}
+
+	@Benchmark
+	public byte[] serializar() throws IOException
+	{
+		return this.escritor.writeValueAsBytes(this.lista);
+	}
+
+	@Benchmark
+	public List<IncidenciaDTO> deserializar() throws IOException
+	{
+		return this.lector.readValue(this.json);
+	}
+}
@@ -0,0 +1,73 @@
+package es.iesjandula.ReaktorIssuesServer.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import es.iesjandula.ReaktorIssuesServer.dto.IncidenciaDTO;
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import es.iesjandula.ReaktorIssuesServer.mappers.IncidenciaMapper;
+
+/**
+ * Mide la validación y el mapeo a entidad de una incidencia que realizan las peticiones de alta, actualización y
+ * borrado.
+ * <p>
+ * Los registros se configuran con el nivel INFO, como en el servicio, de modo que el resultado incluye el coste de los
+ * mensajes de depuración que se construyen aunque no se escriban.
+ * </p>
+ * <p>
+ * Ejecución: {@code mvn -P benchmark verify -DskipTests -Djmh.args="MapeoIncidenciaBenchmark -prof gc"}
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MapeoIncidenciaBenchmark
+{
+	private IncidenciaMapper mapper;
+
+	private IncidenciaDTO valida;
+
+	private IncidenciaDTO incompleta;
+
+	@Setup(Level.Trial)
+	public void preparar()
+	{
+		DatosIncidencias.configurarRegistros();
+		this.mapper = new IncidenciaMapper();
+		this.valida = DatosIncidencias.generar(1, 42L).get(0);
+		this.incompleta = new IncidenciaDTO(this.valida.getNumeroAula(), this.valida.getCorreoDocente(), null,
+				this.valida.getDescripcionIncidencia(), null, null);
+	}
+
+	@Benchmark
+	public IncidenciaEntity mapToEntity() throws Exception
+	{
+		return this.mapper.mapToEntity(this.valida);
+	}
+
+	@Benchmark
+	public boolean dtoIsValid()
+	{
+		return this.mapper.dtoIsValid(this.valida);
+	}
+
+	@Benchmark
+	public boolean dtoIsValidIncompleta()
+	{
+		return this.mapper.dtoIsValid(this.incompleta);
+	}
+}
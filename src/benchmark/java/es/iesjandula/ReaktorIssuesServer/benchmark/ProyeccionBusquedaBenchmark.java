@@ -0,0 +1,216 @@
+package es.iesjandula.ReaktorIssuesServer.benchmark;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import es.iesjandula.ReaktorIssuesServer.dto.IncidenciaDTO;
+import es.iesjandula.ReaktorIssuesServer.utils.Constants;
+
+/**
+ * Compara una página de la búsqueda que lee todas las columnas con la que solo lee la clave y el estado
+ * ({@code "campos": ["estadoIncidencia"]}), sobre una tabla cuyas descripciones y comentarios ocupan
+ * {@code longitudTexto} caracteres.
+ * <p>
+ * Necesita un servidor MySQL, como {@link EsquemaCompactoBenchmark}. Las consultas medidas son las que genera la
+ * búsqueda para una página por fecha ({@code idx_incidencias_orden}) y una página por estado
+ * ({@code idx_incidencias_estado}). Al terminar cada variante escribe en la salida, por consulta, las páginas de
+ * InnoDB leídas del buffer pool y de disco y los bytes enviados por el servidor. Los contadores de InnoDB son globales,
+ * por lo que el servidor no debe atender otras consultas durante la prueba, y para medir lecturas de disco la tabla
+ * debe ser mayor que {@code innodb_buffer_pool_size}.
+ * </p>
+ * <p>
+ * Ejecución:
+ * {@code mvn -P benchmark verify -DskipTests -Djmh.args="ProyeccionBusquedaBenchmark -p url=jdbc:mysql://..."}
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ProyeccionBusquedaBenchmark
+{
+	@Param({ "200000" })
+	private int filas;
+
+	@Param({ "2000" })
+	private int longitudTexto;
+
+	@Param({ "todos", "estado" })
+	private String campos;
+
+	@Param({ "jdbc:mysql://localhost:3306/incidencias_benchmark?createDatabaseIfNotExist=true"
+			+ "&rewriteBatchedStatements=true" })
+	private String url;
+
+	@Param({ "root" })
+	private String usuario;
+
+	@Param({ "1234" })
+	private String clave;
+
+	private Connection conexion;
+
+	private List<IncidenciaDTO> incidencias;
+
+	private PreparedStatement paginaPorFecha;
+
+	private PreparedStatement paginaPorEstado;
+
+	private int siguiente;
+
+	private long consultas;
+
+	private Map<String, Long> estadoInicial;
+
+	@Setup(Level.Trial)
+	public void preparar() throws SQLException
+	{
+		this.incidencias = DatosIncidencias.generar(this.filas, 42L);
+		for (IncidenciaDTO incidencia : this.incidencias)
+		{
+			incidencia.setDescripcionIncidencia(alargar(incidencia.getDescripcionIncidencia()));
+			incidencia.setComentario(alargar(incidencia.getDescripcionIncidencia()));
+		}
+		this.conexion = DriverManager.getConnection(this.url, this.usuario, this.clave);
+
+		try (Statement sentencia = this.conexion.createStatement())
+		{
+			sentencia.execute("DROP TABLE IF EXISTS incidencias");
+		}
+		DatosIncidencias.cargarTabla(this.conexion, this.incidencias);
+		try (Statement sentencia = this.conexion.createStatement())
+		{
+			sentencia.execute("CREATE INDEX idx_incidencias_estado ON incidencias "
+					+ "(estado_incidencia, fecha_incidencia)");
+			sentencia.execute("ANALYZE TABLE incidencias");
+		}
+
+		// Las mismas columnas que selecciona la búsqueda para cada valor de "campos".
+		String columnas = "todos".equals(this.campos)
+				? "numero_aula, correo_docente, fecha_incidencia, descripcion_incidencia, estado_incidencia, comentario"
+				: "numero_aula, correo_docente, fecha_incidencia, estado_incidencia";
+		this.paginaPorFecha = this.conexion.prepareStatement("SELECT " + columnas + " FROM incidencias "
+				+ "WHERE fecha_incidencia > ? ORDER BY fecha_incidencia, numero_aula, correo_docente LIMIT 101");
+		this.paginaPorEstado = this.conexion.prepareStatement("SELECT " + columnas + " FROM incidencias "
+				+ "WHERE estado_incidencia = ? AND fecha_incidencia > ? "
+				+ "ORDER BY fecha_incidencia, numero_aula, correo_docente LIMIT 101");
+
+		this.estadoInicial = this.estado();
+	}
+
+	@TearDown(Level.Trial)
+	public void cerrar() throws SQLException
+	{
+		Map<String, Long> estadoFinal = this.estado();
+		for (Map.Entry<String, Long> valor : estadoFinal.entrySet())
+		{
+			System.out.printf("%n[%s] %s: %.1f por consulta", this.campos, valor.getKey(),
+					(double) (valor.getValue() - this.estadoInicial.get(valor.getKey())) / this.consultas);
+		}
+		System.out.println();
+		this.conexion.close();
+	}
+
+	@Benchmark
+	public int paginaPorFecha() throws SQLException
+	{
+		this.paginaPorFecha.setTimestamp(1, new Timestamp(this.siguienteIncidencia().getFechaIncidencia().getTime()));
+		return this.leer(this.paginaPorFecha);
+	}
+
+	@Benchmark
+	public int paginaPorEstado() throws SQLException
+	{
+		IncidenciaDTO incidencia = this.siguienteIncidencia();
+		this.paginaPorEstado.setString(1, Constants.ESTADO_RESUELTA);
+		this.paginaPorEstado.setTimestamp(2, new Timestamp(incidencia.getFechaIncidencia().getTime()));
+		return this.leer(this.paginaPorEstado);
+	}
+
+	/**
+	 * Recorre las incidencias cargadas para que cada invocación consulte una página distinta.
+	 */
+	private IncidenciaDTO siguienteIncidencia()
+	{
+		this.siguiente = (this.siguiente + 7919) % this.incidencias.size();
+		return this.incidencias.get(this.siguiente);
+	}
+
+	/**
+	 * Lee todas las columnas seleccionadas de cada fila, como hace Hibernate al construir el resultado.
+	 */
+	private int leer(PreparedStatement consulta) throws SQLException
+	{
+		this.consultas++;
+		int longitud = 0;
+		try (ResultSet resultado = consulta.executeQuery())
+		{
+			int columnas = resultado.getMetaData().getColumnCount();
+			while (resultado.next())
+			{
+				for (int i = 1; i <= columnas; i++)
+				{
+					String valor = resultado.getString(i);
+					longitud += valor == null ? 0 : valor.length();
+				}
+			}
+		}
+		return longitud;
+	}
+
+	/**
+	 * Obtiene los contadores de lecturas de InnoDB y los bytes enviados por el servidor en esta conexión.
+	 */
+	private Map<String, Long> estado() throws SQLException
+	{
+		Map<String, Long> estado = new HashMap<>();
+		try (Statement sentencia = this.conexion.createStatement();
+				ResultSet resultado = sentencia.executeQuery("SHOW SESSION STATUS WHERE Variable_name IN "
+						+ "('Innodb_buffer_pool_read_requests', 'Innodb_buffer_pool_reads', 'Bytes_sent')"))
+		{
+			while (resultado.next())
+			{
+				estado.put(resultado.getString(1), resultado.getLong(2));
+			}
+		}
+		return estado;
+	}
+
+	/**
+	 * Repite el texto hasta ocupar {@code longitudTexto} caracteres.
+	 */
+	private String alargar(String texto)
+	{
+		StringBuilder largo = new StringBuilder(this.longitudTexto);
+		while (largo.length() < this.longitudTexto)
+		{
+			largo.append(texto).append(' ');
+		}
+		return largo.substring(0, this.longitudTexto);
+	}
+}
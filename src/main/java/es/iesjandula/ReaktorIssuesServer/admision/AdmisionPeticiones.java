@@ -0,0 +1,253 @@
+package es.iesjandula.ReaktorIssuesServer.admision;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import es.iesjandula.ReaktorIssuesServer.utils.IssuesServerError;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Control de admisión de las peticiones de incidencias por cliente.
+ * <p>
+ * El pool solo tiene unas pocas conexiones, por lo que un único cliente que repite peticiones sin parar puede
+ * ocuparlas todas y hacer que las peticiones de los demás esperen una conexión hasta agotar su tiempo. Este filtro
+ * asigna a cada cliente un cubo de testigos por grupo de operaciones (escritura, lectura y exportación), que se
+ * rellena al ritmo configurado hasta un máximo de ráfaga. Cada petición consume un testigo y, si no queda ninguno, se
+ * rechaza antes de llegar al controlador con {@code 429 Too Many Requests} y la cabecera {@code Retry-After} con los
+ * segundos que faltan para el siguiente testigo.
+ * </p>
+ * <p>
+ * El cliente es la dirección IP de la petición. La cabecera {@code correo-docente} la elige el propio cliente, por lo
+ * que no se usa: cambiándola en cada petición tendría siempre un cubo nuevo. Detrás de un proxy, la dirección es la
+ * del cliente si se configura {@code server.forward-headers-strategy}. Cada cubo es un único instante atómico, el
+ * momento en que quedaría lleno, que se avanza sin bloqueos, y los cubos se guardan en un mapa concurrente que
+ * descarta los de los clientes inactivos.
+ * </p>
+ * <p>
+ * Está deshabilitado por defecto: todos los equipos de un centro detrás de una misma NAT comparten dirección y, por
+ * tanto, cubo, por lo que sus límites deben ajustarse a cada despliegue antes de habilitarlo.
+ * </p>
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class AdmisionPeticiones extends OncePerRequestFilter
+{
+	/**
+	 * Nombre del contador de las peticiones rechazadas, por grupo de operaciones.
+	 */
+	public static final String METRICA = "incidencias.admision.rechazadas";
+
+	/**
+	 * Prefijo de las rutas controladas.
+	 */
+	private static final String RUTA = "/incidencias";
+
+	/**
+	 * Grupos de operaciones con un límite propio.
+	 */
+	enum Grupo
+	{
+		/**
+		 * Altas, actualizaciones, lotes y borrados.
+		 */
+		ESCRITURA,
+
+		/**
+		 * Búsquedas, recuentos, estadísticas y consultas de estado.
+		 */
+		LECTURA,
+
+		/**
+		 * Exportaciones, que ocupan una conexión mientras duran.
+		 */
+		EXPORTACION
+	}
+
+	/**
+	 * Permite habilitar el control de admisión. Deshabilitado, se atienden todas las peticiones.
+	 */
+	@Value("${incidencias.admision.habilitada:false}")
+	private boolean habilitada;
+
+	@Autowired
+	// Auto-inyeccion del conversor JSON para el cuerpo de los rechazos.
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	// Auto-inyeccion del registro de metricas.
+	private MeterRegistry meterRegistry;
+
+	/**
+	 * Nanosegundos entre dos testigos y nanosegundos de adelanto admitidos, por grupo.
+	 */
+	private final Map<Grupo, long[]> limites = new EnumMap<>(Grupo.class);
+
+	/**
+	 * Cubo de cada cliente y grupo, como el instante en nanosegundos a partir del cual estaría lleno.
+	 */
+	private final Cache<String, AtomicLong> cubos;
+
+	/**
+	 * Crea el filtro con los límites configurados.
+	 *
+	 * @param escrituraPorSegundo   Peticiones de escritura por segundo admitidas de cada cliente.
+	 * @param escrituraRafaga       Peticiones de escritura seguidas admitidas tras un periodo sin ellas.
+	 * @param lecturaPorSegundo     Peticiones de lectura por segundo admitidas de cada cliente.
+	 * @param lecturaRafaga         Peticiones de lectura seguidas admitidas tras un periodo sin ellas.
+	 * @param exportacionPorSegundo Exportaciones por segundo admitidas de cada cliente.
+	 * @param exportacionRafaga     Exportaciones seguidas admitidas tras un periodo sin ellas.
+	 * @param maximoClientes        Número máximo de cubos guardados.
+	 * @param inactividad           Tiempo sin peticiones tras el que se descarta el cubo de un cliente.
+	 */
+	public AdmisionPeticiones(@Value("${incidencias.admision.escritura.por-segundo:5}") double escrituraPorSegundo,
+			@Value("${incidencias.admision.escritura.rafaga:20}") int escrituraRafaga,
+			@Value("${incidencias.admision.lectura.por-segundo:20}") double lecturaPorSegundo,
+			@Value("${incidencias.admision.lectura.rafaga:50}") int lecturaRafaga,
+			@Value("${incidencias.admision.exportacion.por-segundo:0.1}") double exportacionPorSegundo,
+			@Value("${incidencias.admision.exportacion.rafaga:2}") int exportacionRafaga,
+			@Value("${incidencias.admision.maximo-clientes:100000}") long maximoClientes,
+			@Value("${incidencias.admision.inactividad:10m}") Duration inactividad)
+	{
+		this.limites.put(Grupo.ESCRITURA, limite(escrituraPorSegundo, escrituraRafaga));
+		this.limites.put(Grupo.LECTURA, limite(lecturaPorSegundo, lecturaRafaga));
+		this.limites.put(Grupo.EXPORTACION, limite(exportacionPorSegundo, exportacionRafaga));
+		this.cubos = Caffeine.newBuilder()
+				.maximumSize(maximoClientes)
+				.expireAfterAccess(inactividad)
+				.build();
+	}
+
+	/**
+	 * Calcula el intervalo entre testigos y el adelanto admitido de un grupo.
+	 */
+	private static long[] limite(double porSegundo, int rafaga)
+	{
+		if (porSegundo <= 0 || rafaga < 1)
+		{
+			throw new IllegalArgumentException("Los limites de admision deben ser positivos.");
+		}
+		long intervalo = (long) (TimeUnit.SECONDS.toNanos(1) / porSegundo);
+		return new long[] { intervalo, intervalo * (rafaga - 1) };
+	}
+
+	@Override
+	protected boolean shouldNotFilter(HttpServletRequest request)
+	{
+		return !this.habilitada || !ruta(request).startsWith(RUTA);
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException
+	{
+		Grupo grupo = grupo(request.getMethod(), ruta(request).substring(RUTA.length()));
+		String cliente = cliente(request);
+		long espera = this.consumir(cliente + " " + grupo, this.limites.get(grupo), System.nanoTime());
+		if (espera == 0)
+		{
+			filterChain.doFilter(request, response);
+			return;
+		}
+
+		// El rechazo no toca la base de datos ni el controlador.
+		long segundos = Math.max(1, (espera + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+		log.debug("DEBUG: Peticion de {} rechazada por superar el limite de {}", cliente, grupo);
+		this.meterRegistry.counter(METRICA, "grupo", grupo.name()).increment();
+
+		IssuesServerError serverError = new IssuesServerError(18, "ERROR: Demasiadas peticiones de " + cliente
+				+ " en " + grupo.name().toLowerCase(Locale.ROOT) + ". Reintente en " + segundos + " segundos.");
+		response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+		response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(segundos));
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		response.setCharacterEncoding("UTF-8");
+		this.objectMapper.writeValue(response.getOutputStream(), serverError.getMapError());
+	}
+
+	/**
+	 * Consume un testigo del cubo indicado.
+	 *
+	 * @param clave  El cliente y grupo del cubo.
+	 * @param limite El intervalo entre testigos y el adelanto admitido, en nanosegundos.
+	 * @param ahora  El instante actual, en nanosegundos.
+	 * @return 0 si se ha consumido el testigo, o los nanosegundos que faltan para el siguiente.
+	 */
+	long consumir(String clave, long[] limite, long ahora)
+	{
+		AtomicLong lleno = this.cubos.get(clave, k -> new AtomicLong(ahora));
+		while (true)
+		{
+			long actual = lleno.get();
+			// Un cubo que ya estaba lleno no acumula mas testigos que la rafaga.
+			long desde = Math.max(actual, ahora);
+			long adelanto = desde - ahora;
+			if (adelanto > limite[1])
+			{
+				return adelanto - limite[1];
+			}
+			if (lleno.compareAndSet(actual, desde + limite[0]))
+			{
+				return 0;
+			}
+		}
+	}
+
+	/**
+	 * Clasifica una petición en su grupo de operaciones.
+	 *
+	 * @param metodo El método HTTP.
+	 * @param ruta   La ruta posterior a {@code /incidencias}.
+	 * @return El grupo cuyo límite se aplica.
+	 */
+	static Grupo grupo(String metodo, String ruta)
+	{
+		if ("PUT".equals(metodo) || "DELETE".equals(metodo) || ruta.equals("/borrar") || ruta.equals("/estado"))
+		{
+			return Grupo.ESCRITURA;
+		}
+		return ruta.equals("/exportar") ? Grupo.EXPORTACION : Grupo.LECTURA;
+	}
+
+	/**
+	 * Identifica el cliente de una petición por su dirección, que no depende de ninguna cabecera que envíe.
+	 *
+	 * @param request La petición recibida.
+	 * @return La dirección IP del cliente.
+	 */
+	public static String cliente(HttpServletRequest request)
+	{
+		return request.getRemoteAddr();
+	}
+
+	/**
+	 * Obtiene la ruta de la petición sin el contexto de la aplicación.
+	 */
+	private static String ruta(HttpServletRequest request)
+	{
+		return request.getRequestURI().substring(request.getContextPath().length());
+	}
+}
@@ -0,0 +1,232 @@
+package es.iesjandula.ReaktorIssuesServer.archivo;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import es.iesjandula.ReaktorIssuesServer.events.IncidenciaModificadaEvent;
+import es.iesjandula.ReaktorIssuesServer.utils.Constants;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Traslada periódicamente las incidencias cerradas antiguas de la tabla {@code incidencias} a la tabla
+ * {@code incidencias_archivo}.
+ * <p>
+ * Se archivan las incidencias en estado {@value Constants#ESTADO_RESUELTA} o {@value Constants#ESTADO_CANCELADA} con
+ * una fecha anterior a la antigüedad configurada. Se mueven por lotes, cada uno en su propia transacción: se leen y
+ * bloquean las filas del lote con el índice de estado y fecha, se copian al archivo y se eliminan de la tabla. Si el
+ * proceso se interrumpe, los lotes confirmados ya están archivados y la siguiente ejecución continúa con el resto.
+ * </p>
+ * <p>
+ * Entre lote y lote se espera el tiempo configurado sin ocupar ninguna conexión, de modo que el archivado nunca usa
+ * más de una conexión del pool y las peticiones la obtienen entre lotes. Cada ejecución termina al agotar su duración
+ * máxima aunque queden incidencias por archivar.
+ * </p>
+ * <p>
+ * Para el resto del servicio, cada incidencia archivada se elimina: se publica su {@link IncidenciaModificadaEvent}
+ * de borrado, que la retira del índice de texto, de las estadísticas y de las páginas de la caché que la incluyen.
+ * </p>
+ */
+@Slf4j
+@Component
+public class ArchivoIncidencias
+{
+	/**
+	 * Selecciona y bloquea un lote de incidencias archivables.
+	 */
+	private static final String SELECCIONAR = "SELECT numero_aula, correo_docente, fecha_incidencia, "
+			+ "descripcion_incidencia, estado_incidencia, comentario FROM incidencias "
+			+ "WHERE estado_incidencia IN (?, ?) AND fecha_incidencia < ? LIMIT ? FOR UPDATE";
+
+	/**
+	 * Copia una incidencia al archivo. Si ya estaba archivada, se sustituyen sus datos.
+	 */
+	private static final String ARCHIVAR = "INSERT INTO incidencias_archivo (numero_aula, correo_docente, "
+			+ "fecha_incidencia, descripcion_incidencia, estado_incidencia, comentario) VALUES (?, ?, ?, ?, ?, ?) "
+			+ "ON DUPLICATE KEY UPDATE descripcion_incidencia = VALUES(descripcion_incidencia), "
+			+ "estado_incidencia = VALUES(estado_incidencia), comentario = VALUES(comentario)";
+
+	/**
+	 * Elimina una incidencia de la tabla de incidencias.
+	 */
+	private static final String ELIMINAR = "DELETE FROM incidencias "
+			+ "WHERE numero_aula = ? AND correo_docente = ? AND fecha_incidencia = ?";
+
+	@Autowired
+	// Auto-inyeccion del acceso JDBC para mover las filas por lotes.
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	// Auto-inyeccion del gestor de transacciones, con una transaccion por lote.
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	// Auto-inyeccion del publicador de eventos de modificacion de incidencias.
+	private ApplicationEventPublisher applicationEventPublisher;
+
+	/**
+	 * Indica si las incidencias cerradas se archivan periódicamente.
+	 */
+	@Value("${incidencias.archivo.habilitado:false}")
+	private boolean habilitado;
+
+	/**
+	 * Antigüedad a partir de la cual se archiva una incidencia cerrada, contada desde su fecha.
+	 */
+	@Value("${incidencias.archivo.antiguedad:180d}")
+	private Duration antiguedad;
+
+	/**
+	 * Número máximo de incidencias que se mueven en cada transacción.
+	 */
+	@Value("${incidencias.archivo.tamano-lote:500}")
+	private int tamanoLote;
+
+	/**
+	 * Tiempo de espera entre un lote y el siguiente, durante el que no se ocupa ninguna conexión.
+	 */
+	@Value("${incidencias.archivo.pausa:1s}")
+	private Duration pausa;
+
+	/**
+	 * Duración máxima de cada ejecución.
+	 */
+	@Value("${incidencias.archivo.duracion-maxima:30m}")
+	private Duration duracionMaxima;
+
+	/**
+	 * Se activa al detener la aplicación para que el archivado termine tras el lote en curso.
+	 */
+	private volatile boolean detenido;
+
+	/**
+	 * Archiva las incidencias cerradas antiguas según la programación configurada.
+	 */
+	@Scheduled(cron = "${incidencias.archivo.cron:0 0 2 * * *}")
+	public void archivarPeriodicamente()
+	{
+		if (!this.habilitado)
+		{
+			return;
+		}
+
+		try
+		{
+			long archivadas = this.archivar(new Date(System.currentTimeMillis() - this.antiguedad.toMillis()));
+			log.info("INFO: Archivadas {} incidencias cerradas.", archivadas);
+		}
+		catch (InterruptedException interruptedException)
+		{
+			Thread.currentThread().interrupt();
+		}
+		catch (Exception archiveException)
+		{
+			log.error("ERROR: No se han podido archivar las incidencias cerradas.", archiveException);
+		}
+	}
+
+	/**
+	 * Archiva por lotes las incidencias cerradas con fecha anterior a la indicada, hasta que no quede ninguna, se
+	 * agote la duración máxima o se detenga la aplicación.
+	 *
+	 * @param limite Las incidencias cerradas con fecha anterior a esta se archivan.
+	 * @return El número de incidencias archivadas.
+	 * @throws InterruptedException Si el hilo se interrumpe durante la pausa entre lotes.
+	 */
+	public synchronized long archivar(Date limite) throws InterruptedException
+	{
+		long fin = System.currentTimeMillis() + this.duracionMaxima.toMillis();
+		long archivadas = 0;
+		int lote;
+		do
+		{
+			lote = this.archivarLote(limite);
+			archivadas += lote;
+			if (lote == this.tamanoLote && !this.pausa.isZero())
+			{
+				Thread.sleep(this.pausa.toMillis());
+			}
+		}
+		while (lote == this.tamanoLote && !this.detenido && System.currentTimeMillis() < fin);
+		return archivadas;
+	}
+
+	/**
+	 * Mueve un lote de incidencias cerradas al archivo en una sola transacción.
+	 *
+	 * @param limite Las incidencias cerradas con fecha anterior a esta se archivan.
+	 * @return El número de incidencias archivadas, menor que el tamaño de lote si no quedan más.
+	 */
+	private int archivarLote(Date limite)
+	{
+		Integer archivadas = new TransactionTemplate(this.transactionManager).execute(estado ->
+		{
+			List<IncidenciaEntity> lote = this.jdbcTemplate.query(SELECCIONAR, ArchivoIncidencias::leer,
+					Constants.ESTADO_RESUELTA, Constants.ESTADO_CANCELADA, new Timestamp(limite.getTime()),
+					this.tamanoLote);
+			if (lote.isEmpty())
+			{
+				return 0;
+			}
+
+			this.jdbcTemplate.batchUpdate(ARCHIVAR, lote, lote.size(), (sentencia, incidencia) ->
+			{
+				sentencia.setString(1, incidencia.getNumeroAula());
+				sentencia.setString(2, incidencia.getCorreoDocente());
+				sentencia.setTimestamp(3, new Timestamp(incidencia.getFechaIncidencia().getTime()));
+				sentencia.setString(4, incidencia.getDescripcionIncidencia());
+				sentencia.setString(5, incidencia.getEstadoIncidencia());
+				sentencia.setString(6, incidencia.getComentario());
+			});
+			this.jdbcTemplate.batchUpdate(ELIMINAR, lote, lote.size(), (sentencia, incidencia) ->
+			{
+				sentencia.setString(1, incidencia.getNumeroAula());
+				sentencia.setString(2, incidencia.getCorreoDocente());
+				sentencia.setTimestamp(3, new Timestamp(incidencia.getFechaIncidencia().getTime()));
+			});
+
+			// Los oyentes los reciben al confirmar la transaccion.
+			for (IncidenciaEntity incidencia : lote)
+			{
+				this.applicationEventPublisher
+						.publishEvent(new IncidenciaModificadaEvent(IncidenciaModificadaEvent.Tipo.BORRADA, incidencia));
+			}
+			return lote.size();
+		});
+		log.debug("DEBUG: Lote de {} incidencias archivado", archivadas);
+		return archivadas == null ? 0 : archivadas;
+	}
+
+	/**
+	 * Detiene el archivado en curso al terminar su lote.
+	 */
+	@PreDestroy
+	public void detener()
+	{
+		this.detenido = true;
+	}
+
+	/**
+	 * Convierte una fila de la tabla de incidencias en su entidad.
+	 */
+	private static IncidenciaEntity leer(ResultSet fila, int numero) throws SQLException
+	{
+		return new IncidenciaEntity(fila.getString("numero_aula"), fila.getString("correo_docente"),
+				new Date(fila.getTimestamp("fecha_incidencia").getTime()), fila.getString("descripcion_incidencia"),
+				fila.getString("estado_incidencia"), fila.getString("comentario"));
+	}
+}
@@ -0,0 +1,187 @@
+package es.iesjandula.ReaktorIssuesServer.cache;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import es.iesjandula.ReaktorIssuesServer.dto.CriteriosBusqueda;
+import es.iesjandula.ReaktorIssuesServer.dto.EstadisticasCacheDTO;
+import es.iesjandula.ReaktorIssuesServer.dto.PaginaIncidencias;
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import es.iesjandula.ReaktorIssuesServer.events.IncidenciaModificadaEvent;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Caché en memoria de las páginas de resultados de la búsqueda de incidencias.
+ * <p>
+ * Los paneles de seguimiento repiten cada pocos segundos las mismas búsquedas. Esta caché guarda la página devuelta
+ * para cada combinación de criterios normalizados, cursor, tamaño de página y orden, con un número máximo de entradas
+ * y un tiempo máximo de vida desde que se calculan.
+ * </p>
+ * <p>
+ * Cada vez que se crea, actualiza o elimina una incidencia, se descartan solo las entradas cuyos criterios de aula,
+ * docente, estado (el nuevo o el anterior a una actualización) y fechas pueden incluirla. Los criterios de texto no se tienen en cuenta, ya que una actualización
+ * puede hacer que la incidencia empiece o deje de contener el texto buscado.
+ * </p>
+ */
+@Slf4j
+@Component
+public class CacheBusquedaIncidencias
+{
+	/**
+	 * Permite desactivar la caché, de modo que todas las búsquedas consulten la base de datos.
+	 */
+	@Value("${incidencias.cache-busqueda.habilitada:true}")
+	private boolean habilitada = true;
+
+	/**
+	 * Páginas de resultados por búsqueda.
+	 */
+	private final Cache<ClaveBusqueda, PaginaIncidencias> paginas;
+
+	/**
+	 * Número de modificaciones recibidas. Permite detectar si una página se ha calculado mientras se modificaba
+	 * alguna incidencia, en cuyo caso podría no reflejar la modificación y no se guarda.
+	 */
+	private final AtomicLong modificaciones = new AtomicLong();
+
+	/**
+	 * Número de entradas descartadas por modificaciones de incidencias.
+	 */
+	private final AtomicLong invalidaciones = new AtomicLong();
+
+	/**
+	 * Crea la caché con los límites configurados.
+	 *
+	 * @param tamanoMaximo Número máximo de páginas guardadas.
+	 * @param duracion     Tiempo máximo que se guarda cada página desde que se calcula.
+	 */
+	public CacheBusquedaIncidencias(@Value("${incidencias.cache-busqueda.tamano-maximo:1000}") long tamanoMaximo,
+			@Value("${incidencias.cache-busqueda.duracion:60s}") Duration duracion)
+	{
+		this.paginas = Caffeine.newBuilder()
+				.maximumSize(tamanoMaximo)
+				.expireAfterWrite(duracion)
+				.recordStats()
+				.build();
+	}
+
+	/**
+	 * Devuelve la página guardada para la búsqueda o, si no la hay, la calcula y la guarda.
+	 *
+	 * @param clave   La búsqueda solicitada.
+	 * @param calculo El cálculo de la página a partir de la base de datos.
+	 * @return La página de resultados.
+	 */
+	public PaginaIncidencias obtener(ClaveBusqueda clave, Supplier<PaginaIncidencias> calculo)
+	{
+		if (!this.habilitada)
+		{
+			return calculo.get();
+		}
+
+		PaginaIncidencias pagina = this.paginas.getIfPresent(clave);
+		if (pagina != null)
+		{
+			return pagina;
+		}
+
+		long version = this.modificaciones.get();
+		pagina = calculo.get();
+		this.paginas.put(clave, pagina);
+		// Si alguna incidencia ha cambiado durante el calculo, la pagina puede no reflejarlo.
+		if (this.modificaciones.get() != version)
+		{
+			this.paginas.invalidate(clave);
+		}
+		return pagina;
+	}
+
+	/**
+	 * Descarta las páginas guardadas que pueden incluir la incidencia modificada.
+	 *
+	 * @param evento El evento de la incidencia creada, actualizada o eliminada.
+	 */
+	@TransactionalEventListener(fallbackExecution = true)
+	public void alModificarIncidencia(IncidenciaModificadaEvent evento)
+	{
+		this.modificaciones.incrementAndGet();
+
+		IncidenciaEntity incidencia = evento.getIncidencia();
+		// Una actualizacion afecta a las busquedas del estado anterior y del nuevo. Si no se conoce el anterior,
+		// afecta a las de cualquier estado.
+		boolean actualizada = evento.getTipo() == IncidenciaModificadaEvent.Tipo.ACTUALIZADA;
+		boolean comprobarEstado = !actualizada || evento.getEstadoAnterior() != null;
+		String estadoAnterior = actualizada ? evento.getEstadoAnterior() : incidencia.getEstadoIncidencia();
+
+		AtomicLong descartadas = new AtomicLong();
+		this.paginas.asMap().keySet().removeIf(clave ->
+		{
+			boolean descartar = puedeIncluir(clave.getCriterios(), incidencia, comprobarEstado, estadoAnterior);
+			if (descartar)
+			{
+				descartadas.incrementAndGet();
+			}
+			return descartar;
+		});
+		this.invalidaciones.addAndGet(descartadas.get());
+		log.debug("DEBUG: Cache de busquedas, {} paginas descartadas por incidencia {}", descartadas, evento.getTipo());
+	}
+
+	/**
+	 * Descarta todas las páginas guardadas.
+	 */
+	public void vaciar()
+	{
+		this.modificaciones.incrementAndGet();
+		long tamano = this.paginas.estimatedSize();
+		this.paginas.invalidateAll();
+		this.invalidaciones.addAndGet(tamano);
+	}
+
+	/**
+	 * Devuelve los contadores de uso de la caché desde el arranque.
+	 *
+	 * @return Los aciertos, fallos, expulsiones e invalidaciones de la caché y su tamaño actual.
+	 */
+	public EstadisticasCacheDTO estadisticas()
+	{
+		CacheStats estadisticas = this.paginas.stats();
+		return new EstadisticasCacheDTO(this.habilitada, estadisticas.hitCount(), estadisticas.missCount(),
+				estadisticas.hitRate(), estadisticas.evictionCount(), this.invalidaciones.get(),
+				this.paginas.estimatedSize());
+	}
+
+	/**
+	 * Comprueba si una búsqueda con los criterios indicados puede incluir la incidencia.
+	 */
+	private static boolean puedeIncluir(CriteriosBusqueda criterios, IncidenciaEntity incidencia,
+			boolean comprobarEstado, String estadoAnterior)
+	{
+		Date fecha = incidencia.getFechaIncidencia();
+		return coincide(criterios.getNumeroAula(), incidencia.getNumeroAula())
+				&& coincide(criterios.getCorreoDocente(), incidencia.getCorreoDocente())
+				&& (!comprobarEstado || coincide(criterios.getEstadoIncidencia(), incidencia.getEstadoIncidencia())
+						|| coincide(criterios.getEstadoIncidencia(), estadoAnterior))
+				&& (fecha == null || ((criterios.getFechaInicio() == null || !fecha.before(criterios.getFechaInicio()))
+						&& (criterios.getFechaFin() == null || !fecha.after(criterios.getFechaFin()))));
+	}
+
+	/**
+	 * Compara un criterio con el valor de la incidencia igual que MySQL, sin distinguir mayúsculas. Un criterio nulo
+	 * admite cualquier valor.
+	 */
+	private static boolean coincide(String criterio, String valor)
+	{
+		return criterio == null || valor == null || criterio.trim().equalsIgnoreCase(valor.trim());
+	}
+}
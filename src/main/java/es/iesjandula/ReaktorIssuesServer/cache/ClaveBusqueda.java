@@ -0,0 +1,53 @@
+package es.iesjandula.ReaktorIssuesServer.cache;
+
+import java.util.List;
+
+import es.iesjandula.ReaktorIssuesServer.dto.CriteriosBusqueda;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+/**
+ * Clave de una página de resultados en la {@link CacheBusquedaIncidencias}.
+ * <p>
+ * Identifica la búsqueda por sus criterios ya normalizados, de modo que dos filtros que solo difieren en la forma de
+ * indicar las fechas comparten la misma entrada.
+ * </p>
+ */
+@Value
+@AllArgsConstructor
+public class ClaveBusqueda
+{
+	/**
+	 * Criterios de búsqueda normalizados.
+	 */
+	CriteriosBusqueda criterios;
+
+	/**
+	 * Cursor de la página solicitada, o null para la primera página.
+	 */
+	String cursor;
+
+	/**
+	 * Tamaño de página efectivo.
+	 */
+	int tamanoPagina;
+
+	/**
+	 * Si el resultado se ordena por relevancia.
+	 */
+	boolean relevancia;
+
+	/**
+	 * Columnas opcionales que se leen, en el orden de {@code BusquedaIncidenciaService#CAMPOS_OPCIONALES}, o null
+	 * para leerlas todas.
+	 */
+	List<String> campos;
+
+	/**
+	 * Crea la clave de una búsqueda que lee todas las columnas.
+	 */
+	public ClaveBusqueda(CriteriosBusqueda criterios, String cursor, int tamanoPagina, boolean relevancia)
+	{
+		this(criterios, cursor, tamanoPagina, relevancia, null);
+	}
+}
@@ -0,0 +1,181 @@
+package es.iesjandula.ReaktorIssuesServer.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import es.iesjandula.ReaktorIssuesServer.dto.CriteriosBusqueda;
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import es.iesjandula.ReaktorIssuesServer.events.IncidenciaModificadaEvent;
+
+/**
+ * Versión de los datos que puede devolver cada búsqueda, con la que se calcula su {@code ETag}.
+ * <p>
+ * Cada modificación de una incidencia recibe un número de secuencia, que se anota como última modificación de su
+ * aula y de su estado (y del estado anterior, si es una actualización). La versión de una búsqueda por aula es la de
+ * su aula; la de una búsqueda por estado, sin aula, la de su estado; y la del resto de búsquedas, la última
+ * modificación de cualquier incidencia. Así, una búsqueda mantiene su {@code ETag} mientras no cambie ninguna
+ * incidencia que pueda incluir, sin consultar la base de datos.
+ * </p>
+ * <p>
+ * Como los cambios realizados directamente en la base de datos no se notifican, la etiqueta incluye además el
+ * arranque del servicio y el periodo de renovación en curso, de modo que caduca como tarde al terminar el periodo.
+ * </p>
+ */
+@Component
+public class VersionesBusqueda
+{
+	/**
+	 * Número de la última modificación recibida.
+	 */
+	private final AtomicLong secuencia = new AtomicLong();
+
+	/**
+	 * Número de la última modificación de cada aula.
+	 */
+	private final Map<String, Long> porAula = new ConcurrentHashMap<>();
+
+	/**
+	 * Número de la última modificación de cada estado.
+	 */
+	private final Map<String, Long> porEstado = new ConcurrentHashMap<>();
+
+	/**
+	 * Número de la última actualización cuyo estado anterior no se conoce, que puede afectar a cualquier estado.
+	 */
+	private volatile long cualquierEstado;
+
+	/**
+	 * Versión mínima de todas las búsquedas, que aumenta al descartar todas las versiones.
+	 */
+	private volatile long base;
+
+	/**
+	 * Instante de arranque, para que las etiquetas de una ejecución anterior no coincidan.
+	 */
+	private final long arranque = System.currentTimeMillis();
+
+	/**
+	 * Duración del periodo tras el que cambian todas las etiquetas.
+	 */
+	private final long renovacion;
+
+	/**
+	 * Crea las versiones con el periodo de renovación configurado.
+	 *
+	 * @param renovacion Tiempo tras el que cambian todas las etiquetas aunque no se modifique ninguna incidencia.
+	 */
+	public VersionesBusqueda(@Value("${incidencias.etag.renovacion:60s}") Duration renovacion)
+	{
+		this.renovacion = Math.max(1, renovacion.toMillis());
+	}
+
+	/**
+	 * Anota la modificación de una incidencia una vez confirmada.
+	 *
+	 * @param evento El evento de la incidencia creada, actualizada o eliminada.
+	 */
+	@TransactionalEventListener(fallbackExecution = true)
+	public void alModificarIncidencia(IncidenciaModificadaEvent evento)
+	{
+		IncidenciaEntity incidencia = evento.getIncidencia();
+		long version = this.secuencia.incrementAndGet();
+		anotar(this.porAula, incidencia.getNumeroAula(), version);
+		anotar(this.porEstado, incidencia.getEstadoIncidencia(), version);
+		if (evento.getTipo() == IncidenciaModificadaEvent.Tipo.ACTUALIZADA)
+		{
+			if (evento.getEstadoAnterior() != null)
+			{
+				anotar(this.porEstado, evento.getEstadoAnterior(), version);
+			}
+			else
+			{
+				this.cualquierEstado = version;
+			}
+		}
+	}
+
+	/**
+	 * Cambia la versión de todas las búsquedas, tras modificar incidencias sin publicar sus eventos.
+	 */
+	public void invalidarTodo()
+	{
+		this.base = this.secuencia.incrementAndGet();
+	}
+
+	/**
+	 * Calcula la versión de los datos que pueden incluirse en una búsqueda.
+	 *
+	 * @param criterios Los criterios de búsqueda normalizados.
+	 * @return Un número que cambia cada vez que se modifica una incidencia que la búsqueda puede incluir.
+	 */
+	public long version(CriteriosBusqueda criterios)
+	{
+		long version = this.base;
+		if (criterios.getNumeroAula() != null)
+		{
+			return Math.max(version, this.porAula.getOrDefault(normalizar(criterios.getNumeroAula()), 0L));
+		}
+		if (criterios.getEstadoIncidencia() != null)
+		{
+			return Math.max(Math.max(version, this.cualquierEstado),
+					this.porEstado.getOrDefault(normalizar(criterios.getEstadoIncidencia()), 0L));
+		}
+		return Math.max(version, this.secuencia.get());
+	}
+
+	/**
+	 * Calcula la etiqueta {@code ETag} débil de una página de resultados.
+	 * <p>
+	 * La versión se lee antes de consultar la base de datos, por lo que una modificación confirmada durante la
+	 * consulta cambia la etiqueta de la búsqueda siguiente.
+	 * </p>
+	 *
+	 * @param clave La búsqueda, con sus criterios, cursor, tamaño de página y orden.
+	 * @return La etiqueta, con el formato {@code W/"..."}.
+	 */
+	public String etiqueta(ClaveBusqueda clave)
+	{
+		long periodo = (System.currentTimeMillis() - this.arranque) / this.renovacion;
+		String origen = clave + "#" + this.version(clave.getCriterios()) + "#" + this.arranque + "#" + periodo;
+		try
+		{
+			byte[] resumen = MessageDigest.getInstance("SHA-256").digest(origen.getBytes(StandardCharsets.UTF_8));
+			return "W/\"" + HexFormat.of().formatHex(resumen, 0, 12) + "\"";
+		}
+		catch (NoSuchAlgorithmException noSuchAlgorithmException)
+		{
+			// Todas las implementaciones de Java incluyen SHA-256.
+			throw new IllegalStateException(noSuchAlgorithmException);
+		}
+	}
+
+	/**
+	 * Anota la última modificación de un valor, que puede ser nulo.
+	 */
+	private static void anotar(Map<String, Long> versiones, String valor, long version)
+	{
+		if (valor != null)
+		{
+			versiones.merge(normalizar(valor), version, Math::max);
+		}
+	}
+
+	/**
+	 * Normaliza un valor igual que MySQL lo compara, sin distinguir mayúsculas ni espacios finales.
+	 */
+	private static String normalizar(String valor)
+	{
+		return valor.trim().toLowerCase(Locale.ROOT);
+	}
+}
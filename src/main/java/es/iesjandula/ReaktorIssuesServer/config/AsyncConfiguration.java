@@ -0,0 +1,86 @@
+package es.iesjandula.ReaktorIssuesServer.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Configuración de las peticiones asíncronas de Spring MVC.
+ * <p>
+ * Las exportaciones escriben su respuesta desde un hilo distinto al de la petición y mantienen ocupada una conexión
+ * a la base de datos mientras duran. Esta clase define el tiempo máximo de dichas respuestas y el grupo de hilos que
+ * las atiende, cuyo tamaño limita el número de exportaciones simultáneas para no agotar el pool de conexiones.
+ * </p>
+ * <p>
+ * El grupo de hilos es un bean para que Spring lo detenga al cerrarse la aplicación, esperando a las exportaciones en
+ * curso hasta {@code tiempo-maximo}.
+ * </p>
+ * <p>
+ * En el modo de hilos virtuales ({@code spring.threads.virtual.enabled}) el grupo mantiene los mismos límites, pero
+ * sus hilos son virtuales.
+ * </p>
+ */
+@Configuration
+public class AsyncConfiguration implements WebMvcConfigurer
+{
+
+	/**
+	 * Tiempo máximo en milisegundos que puede durar una respuesta asíncrona.
+	 */
+	@Value("${incidencias.exportacion.tiempo-maximo:600000}")
+	private long tiempoMaximo;
+
+	/**
+	 * Número máximo de exportaciones que se atienden a la vez.
+	 */
+	@Value("${incidencias.exportacion.hilos:2}")
+	private int hilos;
+
+	/**
+	 * Número máximo de exportaciones que pueden esperar a que quede un hilo libre.
+	 */
+	@Value("${incidencias.exportacion.cola:10}")
+	private int cola;
+
+	/**
+	 * Si el servicio se ejecuta con hilos virtuales.
+	 */
+	@Value("${spring.threads.virtual.enabled:false}")
+	private boolean hilosVirtuales;
+
+	/**
+	 * Grupo de hilos que atiende las exportaciones. Con todos los hilos ocupados y la cola llena, rechaza la
+	 * exportación con {@link org.springframework.core.task.TaskRejectedException}.
+	 *
+	 * @return El grupo de hilos de las exportaciones.
+	 */
+	@Bean
+	public ThreadPoolTaskExecutor exportacionExecutor()
+	{
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(this.hilos);
+		executor.setMaxPoolSize(this.hilos);
+		executor.setQueueCapacity(this.cola);
+		executor.setThreadNamePrefix("exportacion-");
+		if (this.hilosVirtuales)
+		{
+			executor.setThreadFactory(Thread.ofVirtual().name("exportacion-", 1).factory());
+		}
+		// Al cerrarse la aplicacion deja terminar las exportaciones en curso.
+		executor.setWaitForTasksToCompleteOnShutdown(true);
+		executor.setAwaitTerminationMillis(this.tiempoMaximo);
+		return executor;
+	}
+
+	// Configuración de las respuestas asíncronas.
+	@Override
+	public void configureAsyncSupport(AsyncSupportConfigurer configurer)
+	{
+		// En una clase @Configuration la llamada devuelve el bean del contexto, no un grupo de hilos nuevo.
+		configurer.setTaskExecutor(this.exportacionExecutor());
+		configurer.setDefaultTimeout(this.tiempoMaximo);
+	}
+}
@@ -0,0 +1,59 @@
+package es.iesjandula.ReaktorIssuesServer.config;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Configuración del modo de hilos virtuales, que se activa con {@code spring.threads.virtual.enabled=true} (perfil
+ * {@code virtual}).
+ * <p>
+ * Spring Boot atiende entonces las peticiones de Tomcat y las tareas asíncronas y programadas con hilos virtuales. Como
+ * el pool de conexiones es mucho menor que el número de peticiones simultáneas, el origen de datos se envuelve en un
+ * {@link LimiteConexionesDataSource} con tantos permisos como conexiones tiene el pool.
+ * </p>
+ */
+@Slf4j
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class HilosVirtualesConfiguration
+{
+
+	/**
+	 * Envuelve el origen de datos para limitar las conexiones pedidas a la vez al tamaño del pool.
+	 *
+	 * @param conexiones Tamaño máximo del pool de conexiones.
+	 * @param espera     Tiempo máximo de espera de una conexión, en milisegundos.
+	 * @return El postprocesador que envuelve el origen de datos.
+	 */
+	@Bean
+	public static BeanPostProcessor limiteConexionesPostProcessor(
+			@Value("${spring.datasource.hikari.maximum-pool-size:10}") int conexiones,
+			@Value("${spring.datasource.hikari.connection-timeout:30000}") long espera)
+	{
+		return new BeanPostProcessor()
+		{
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName)
+			{
+				// El proxy de las replicas no tiene conexiones propias y las replicas se limitan en su origen de datos.
+				if (bean instanceof DataSource dataSource && !(bean instanceof LimiteConexionesDataSource)
+						&& !(bean instanceof LazyConnectionDataSourceProxy) && !(bean instanceof ReplicasDataSource))
+				{
+					log.info("INFO: Hilos virtuales, conexiones limitadas a {} en el origen de datos {}.", conexiones,
+							beanName);
+					return new LimiteConexionesDataSource(dataSource, conexiones, espera);
+				}
+				return bean;
+			}
+		};
+	}
+}
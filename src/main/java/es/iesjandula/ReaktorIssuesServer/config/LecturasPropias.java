@@ -0,0 +1,115 @@
+package es.iesjandula.ReaktorIssuesServer.config;
+
+import java.time.Duration;
+import java.util.Locale;
+
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import es.iesjandula.ReaktorIssuesServer.admision.AdmisionPeticiones;
+import es.iesjandula.ReaktorIssuesServer.events.IncidenciaModificadaEvent;
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Recuerda durante un tiempo los clientes que acaban de modificar incidencias, para que sus lecturas se hagan en el
+ * primario y no en una réplica que aún no tenga sus cambios.
+ * <p>
+ * Se recuerdan tanto la dirección IP de la petición, como en el control de admisión, como el docente de su cabecera
+ * {@code correo-docente} y el de cada incidencia modificada. Una lectura se hace en el primario si coincide su
+ * dirección o su docente, de modo que se cubren las búsquedas que no envían la cabecera, las de un docente desde otro
+ * equipo y las incidencias guardadas en segundo plano o por lotes.
+ * </p>
+ */
+public class LecturasPropias
+{
+	/**
+	 * Cabecera con la que se identifica el docente.
+	 */
+	private static final String CABECERA_DOCENTE = "correo-docente";
+
+	/**
+	 * Clientes con modificaciones recientes. Cada entrada caduca al terminar la ventana.
+	 */
+	private final Cache<String, Boolean> clientes;
+
+	/**
+	 * Crea el registro con la ventana indicada.
+	 *
+	 * @param ventana Tiempo durante el que las lecturas de un cliente se hacen en el primario tras modificar.
+	 */
+	public LecturasPropias(Duration ventana)
+	{
+		this.clientes = Caffeine.newBuilder()
+				.maximumSize(100000)
+				.expireAfterWrite(ventana)
+				.build();
+	}
+
+	/**
+	 * Registra la dirección y el docente de la petición y el docente de la incidencia modificada, una vez confirmada
+	 * la modificación.
+	 *
+	 * @param evento El evento de modificación.
+	 */
+	@TransactionalEventListener(fallbackExecution = true)
+	public void registrar(IncidenciaModificadaEvent evento)
+	{
+		this.recordar(docente(evento.getIncidencia().getCorreoDocente()));
+		HttpServletRequest request = peticionActual();
+		if (request != null)
+		{
+			this.recordar(AdmisionPeticiones.cliente(request));
+			this.recordar(docente(request.getHeader(CABECERA_DOCENTE)));
+		}
+	}
+
+	/**
+	 * Indica si la dirección o el docente de la petición en curso han modificado incidencias dentro de la ventana.
+	 *
+	 * @return {@code true} si sus lecturas deben hacerse en el primario. Fuera de una petición, {@code false}.
+	 */
+	public boolean reciente()
+	{
+		HttpServletRequest request = peticionActual();
+		if (request == null)
+		{
+			return false;
+		}
+		String correoDocente = docente(request.getHeader(CABECERA_DOCENTE));
+		return this.clientes.getIfPresent(AdmisionPeticiones.cliente(request)) != null
+				|| (correoDocente != null && this.clientes.getIfPresent(correoDocente) != null);
+	}
+
+	/**
+	 * Recuerda una dirección o un docente durante la ventana, si no es nulo.
+	 */
+	private void recordar(String cliente)
+	{
+		if (cliente != null)
+		{
+			this.clientes.put(cliente, Boolean.TRUE);
+		}
+	}
+
+	/**
+	 * Normaliza el correo de un docente, o devuelve null si no se indica.
+	 */
+	private static String docente(String correoDocente)
+	{
+		return correoDocente == null || correoDocente.isBlank() ? null : correoDocente.trim().toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Obtiene la petición que atiende el hilo actual, si la hay.
+	 */
+	private static HttpServletRequest peticionActual()
+	{
+		RequestAttributes atributos = RequestContextHolder.getRequestAttributes();
+		return atributos instanceof ServletRequestAttributes servlet ? servlet.getRequest() : null;
+	}
+}
@@ -0,0 +1,170 @@
+package es.iesjandula.ReaktorIssuesServer.config;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * Origen de datos que limita el número de conexiones en uso a la vez.
+ * <p>
+ * Con hilos virtuales cada petición tiene su propio hilo, por lo que cientos de hilos pueden pedir a la vez una de
+ * las pocas conexiones del pool. Este origen de datos hace que esperen en un semáforo justo, en orden de llegada y
+ * sin ocupar un hilo del sistema, en lugar de acumularse dentro del pool, y que como mucho tantos hilos como
+ * conexiones estén ejecutando el controlador JDBC, que puede bloquear el hilo del sistema que los ejecuta.
+ * </p>
+ * <p>
+ * El permiso se obtiene al pedir la conexión y se devuelve al cerrarla. Si no se obtiene en el tiempo indicado se
+ * lanza la misma excepción que el pool al agotar su espera.
+ * </p>
+ */
+public class LimiteConexionesDataSource extends DelegatingDataSource
+{
+	/**
+	 * Permisos disponibles, uno por conexión.
+	 */
+	private final Semaphore permisos;
+
+	/**
+	 * Tiempo máximo de espera de un permiso, en milisegundos.
+	 */
+	private final long espera;
+
+	/**
+	 * Crea el origen de datos limitado.
+	 *
+	 * @param destino    El origen de datos real.
+	 * @param conexiones Número máximo de conexiones en uso a la vez.
+	 * @param espera     Tiempo máximo de espera de una conexión, en milisegundos.
+	 */
+	public LimiteConexionesDataSource(DataSource destino, int conexiones, long espera)
+	{
+		super(destino);
+		this.permisos = new Semaphore(conexiones, true);
+		this.espera = espera;
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException
+	{
+		this.adquirir();
+		try
+		{
+			return this.limitar(super.getConnection());
+		}
+		catch (SQLException | RuntimeException exception)
+		{
+			this.permisos.release();
+			throw exception;
+		}
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException
+	{
+		this.adquirir();
+		try
+		{
+			return this.limitar(super.getConnection(username, password));
+		}
+		catch (SQLException | RuntimeException exception)
+		{
+			this.permisos.release();
+			throw exception;
+		}
+	}
+
+	/**
+	 * Devuelve el número de hilos que esperan una conexión.
+	 *
+	 * @return El número aproximado de hilos en espera.
+	 */
+	public int getHilosEnEspera()
+	{
+		return this.permisos.getQueueLength();
+	}
+
+	/**
+	 * Espera un permiso durante el tiempo máximo configurado.
+	 *
+	 * @throws SQLException Si no se obtiene el permiso a tiempo o se interrumpe la espera.
+	 */
+	private void adquirir() throws SQLException
+	{
+		try
+		{
+			if (!this.permisos.tryAcquire(this.espera, TimeUnit.MILLISECONDS))
+			{
+				throw new SQLTransientConnectionException(
+						"No hay conexiones disponibles tras esperar " + this.espera + "ms.");
+			}
+		}
+		catch (InterruptedException interruptedException)
+		{
+			Thread.currentThread().interrupt();
+			throw new SQLTransientConnectionException("Interrumpida la espera de una conexion.", interruptedException);
+		}
+	}
+
+	/**
+	 * Envuelve la conexión para devolver el permiso al cerrarla, una sola vez aunque se cierre varias.
+	 */
+	private Connection limitar(Connection conexion)
+	{
+		AtomicBoolean cerrada = new AtomicBoolean();
+		InvocationHandler manejador = (proxy, metodo, argumentos) ->
+		{
+			if (metodo.getName().equals("close") && metodo.getParameterCount() == 0)
+			{
+				try
+				{
+					conexion.close();
+				}
+				finally
+				{
+					if (cerrada.compareAndSet(false, true))
+					{
+						this.permisos.release();
+					}
+				}
+				return null;
+			}
+			if (metodo.getName().equals("equals") && metodo.getParameterCount() == 1)
+			{
+				return proxy == argumentos[0];
+			}
+			if (metodo.getName().equals("hashCode") && metodo.getParameterCount() == 0)
+			{
+				return System.identityHashCode(proxy);
+			}
+			return invocar(conexion, metodo, argumentos);
+		};
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+				manejador);
+	}
+
+	/**
+	 * Invoca el método sobre la conexión real, relanzando la excepción original.
+	 */
+	private static Object invocar(Connection conexion, Method metodo, Object[] argumentos) throws Throwable
+	{
+		try
+		{
+			return metodo.invoke(conexion, argumentos);
+		}
+		catch (InvocationTargetException invocationTargetException)
+		{
+			throw invocationTargetException.getTargetException();
+		}
+	}
+}
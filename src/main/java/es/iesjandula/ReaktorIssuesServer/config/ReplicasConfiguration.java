@@ -0,0 +1,136 @@
+package es.iesjandula.ReaktorIssuesServer.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Configuración de las réplicas de lectura, que se activa con {@code incidencias.replicas.habilitadas=true}.
+ * <p>
+ * El origen de datos de la aplicación pasa a ser un {@link LazyConnectionDataSourceProxy} que no pide la conexión
+ * hasta la primera sentencia, cuando ya sabe si la transacción es de solo lectura. Las transacciones de solo lectura
+ * (búsquedas, recuentos y exportaciones) obtienen su conexión del {@link ReplicasDataSource} y el resto, del pool del
+ * primario configurado en {@code spring.datasource}.
+ * </p>
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "incidencias.replicas.habilitadas", havingValue = "true")
+public class ReplicasConfiguration
+{
+	/**
+	 * Pool de conexiones del primario, con las propiedades de {@code spring.datasource}.
+	 *
+	 * @param propiedades Las propiedades del origen de datos.
+	 * @return El pool del primario.
+	 */
+	@Bean
+	@ConfigurationProperties("spring.datasource.hikari")
+	public HikariDataSource primarioDataSource(DataSourceProperties propiedades)
+	{
+		return propiedades.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+	}
+
+	/**
+	 * Clientes que acaban de modificar incidencias, cuyas lecturas se hacen en el primario.
+	 *
+	 * @param ventana Tiempo durante el que las lecturas de un cliente se hacen en el primario tras modificar.
+	 * @return El registro de modificaciones recientes.
+	 */
+	@Bean
+	public LecturasPropias lecturasPropias(@Value("${incidencias.replicas.lectura-propia:5s}") Duration ventana)
+	{
+		return new LecturasPropias(ventana);
+	}
+
+	/**
+	 * Origen de datos de las transacciones de solo lectura, con un pool por réplica.
+	 *
+	 * @param primario        El pool del primario, al que se recurre si no hay réplicas disponibles.
+	 * @param lecturasPropias Clientes cuyas lecturas deben hacerse en el primario.
+	 * @param meterRegistry   Registro de métricas de los pools.
+	 * @param urls            URL JDBC de las réplicas.
+	 * @param usuario         Usuario de las réplicas.
+	 * @param contrasena      Contraseña de las réplicas.
+	 * @param tamanoPool      Número máximo de conexiones de cada réplica.
+	 * @param esperaConexion  Tiempo máximo de espera de una conexión de una réplica.
+	 * @param seleccion       Criterio de elección de la réplica.
+	 * @param reintento       Tiempo durante el que no se usa una réplica que ha fallado.
+	 * @param consultaRetraso Consulta del retraso de cada réplica, vacía para no comprobarlo.
+	 * @param retrasoMaximo   Retraso a partir del que no se usa una réplica.
+	 * @param virtuales       Si las peticiones se atienden con hilos virtuales.
+	 * @return El origen de datos de lectura.
+	 */
+	@Bean
+	public ReplicasDataSource replicasDataSource(@Qualifier("primarioDataSource") DataSource primario,
+			LecturasPropias lecturasPropias, MeterRegistry meterRegistry,
+			@Value("${incidencias.replicas.urls:}") List<String> urls,
+			@Value("${incidencias.replicas.usuario:${spring.datasource.username:}}") String usuario,
+			@Value("${incidencias.replicas.contrasena:${spring.datasource.password:}}") String contrasena,
+			@Value("${incidencias.replicas.tamano-pool:5}") int tamanoPool,
+			@Value("${incidencias.replicas.espera-conexion:2s}") Duration esperaConexion,
+			@Value("${incidencias.replicas.seleccion:ROTACION}") ReplicasDataSource.Seleccion seleccion,
+			@Value("${incidencias.replicas.reintento:30s}") Duration reintento,
+			@Value("${incidencias.replicas.consulta-retraso:SHOW REPLICA STATUS}") String consultaRetraso,
+			@Value("${incidencias.replicas.retraso-maximo:10s}") Duration retrasoMaximo,
+			@Value("${spring.threads.virtual.enabled:false}") boolean virtuales)
+	{
+		if (urls.isEmpty())
+		{
+			throw new IllegalStateException("Con las replicas habilitadas debe indicarse al menos una URL.");
+		}
+
+		// Los pools se inician con la primera conexion, de modo que una replica caida no impide arrancar.
+		List<HikariDataSource> pools = new ArrayList<>();
+		for (String url : urls)
+		{
+			HikariDataSource pool = new HikariDataSource();
+			pool.setPoolName("replica-" + (pools.size() + 1));
+			pool.setJdbcUrl(url.trim());
+			pool.setUsername(usuario);
+			pool.setPassword(contrasena);
+			pool.setMaximumPoolSize(tamanoPool);
+			pool.setConnectionTimeout(esperaConexion.toMillis());
+			pool.setReadOnly(true);
+			pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+			pools.add(pool);
+		}
+		log.info("INFO: Lecturas repartidas entre {} replicas ({}).", pools.size(), seleccion);
+		return new ReplicasDataSource(primario, pools, virtuales, seleccion, reintento.toMillis(), lecturasPropias,
+				consultaRetraso, retrasoMaximo.toMillis());
+	}
+
+	/**
+	 * Origen de datos de la aplicación, que elige el primario o las réplicas según la transacción.
+	 *
+	 * @param primario El pool del primario.
+	 * @param replicas El origen de datos de lectura.
+	 * @return El origen de datos de la aplicación.
+	 */
+	@Bean
+	@Primary
+	public DataSource dataSource(@Qualifier("primarioDataSource") DataSource primario, ReplicasDataSource replicas)
+	{
+		LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primario);
+		dataSource.setReadOnlyDataSource(replicas);
+		return dataSource;
+	}
+}
@@ -0,0 +1,318 @@
+package es.iesjandula.ReaktorIssuesServer.config;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Origen de datos de las transacciones de solo lectura, repartidas entre las réplicas de la base de datos.
+ * <p>
+ * Cada conexión se pide a una réplica elegida por turnos ({@link Seleccion#ROTACION}) o a la que tiene menos
+ * conexiones en uso ({@link Seleccion#MENOS_OCUPADA}). Si una réplica no entrega la conexión, se deja de usar durante
+ * el tiempo de reintento y se prueba con la siguiente; si ninguna está disponible, la conexión se pide al primario.
+ * </p>
+ * <p>
+ * Además, cada cierto tiempo se consulta el retraso de cada réplica respecto al primario ({@link #comprobarRetraso()})
+ * y las que superan el retraso máximo, o no lo informan, dejan de usarse hasta la siguiente comprobación correcta.
+ * </p>
+ * <p>
+ * Las lecturas de los clientes que acaban de modificar incidencias también se hacen en el primario, para que vean
+ * sus propios cambios aunque las réplicas vayan con retraso (ver {@link LecturasPropias}).
+ * </p>
+ */
+@Slf4j
+public class ReplicasDataSource extends AbstractDataSource implements AutoCloseable
+{
+	/**
+	 * Criterio de elección de la réplica de cada conexión.
+	 */
+	public enum Seleccion
+	{
+		/**
+		 * Las réplicas se usan por turnos.
+		 */
+		ROTACION,
+
+		/**
+		 * Se usa la réplica con menos conexiones en uso.
+		 */
+		MENOS_OCUPADA
+	}
+
+	/**
+	 * Origen de datos del primario, que se usa si no hay ninguna réplica disponible.
+	 */
+	private final DataSource primario;
+
+	/**
+	 * Réplicas configuradas, en orden.
+	 */
+	private final List<Replica> replicas = new ArrayList<>();
+
+	/**
+	 * Criterio de elección de la réplica.
+	 */
+	private final Seleccion seleccion;
+
+	/**
+	 * Milisegundos durante los que no se usa una réplica que ha fallado.
+	 */
+	private final long reintento;
+
+	/**
+	 * Clientes cuyas lecturas deben hacerse en el primario.
+	 */
+	private final LecturasPropias lecturasPropias;
+
+	/**
+	 * Consulta que devuelve los segundos de retraso de una réplica, o null si no se comprueba el retraso.
+	 */
+	private final String consultaRetraso;
+
+	/**
+	 * Milisegundos de retraso a partir de los que no se usa una réplica.
+	 */
+	private final long retrasoMaximo;
+
+	/**
+	 * Turno de la siguiente conexión en la rotación.
+	 */
+	private final AtomicInteger turno = new AtomicInteger();
+
+	/**
+	 * Crea el origen de datos de lectura.
+	 *
+	 * @param primario          El origen de datos del primario.
+	 * @param pools             Los pools de conexiones de las réplicas.
+	 * @param limitarConexiones Si las conexiones en uso de cada réplica se limitan al tamaño de su pool, como en el
+	 *                          modo de hilos virtuales.
+	 * @param seleccion         Criterio de elección de la réplica.
+	 * @param reintento         Milisegundos durante los que no se usa una réplica que ha fallado.
+	 * @param lecturasPropias   Clientes cuyas lecturas deben hacerse en el primario.
+	 * @param consultaRetraso   Consulta que devuelve los segundos de retraso de una réplica, en la columna
+	 *                          {@code Seconds_Behind_Source} o en la primera. Si es null o vacía no se comprueba.
+	 * @param retrasoMaximo     Milisegundos de retraso a partir de los que no se usa una réplica.
+	 */
+	public ReplicasDataSource(DataSource primario, List<HikariDataSource> pools, boolean limitarConexiones,
+			Seleccion seleccion, long reintento, LecturasPropias lecturasPropias, String consultaRetraso,
+			long retrasoMaximo)
+	{
+		this.primario = primario;
+		for (HikariDataSource pool : pools)
+		{
+			DataSource origen = limitarConexiones
+					? new LimiteConexionesDataSource(pool, pool.getMaximumPoolSize(), pool.getConnectionTimeout())
+					: pool;
+			this.replicas.add(new Replica(pool, origen));
+		}
+		this.seleccion = seleccion;
+		this.reintento = reintento;
+		this.lecturasPropias = lecturasPropias;
+		this.consultaRetraso = consultaRetraso == null || consultaRetraso.isBlank() ? null : consultaRetraso;
+		this.retrasoMaximo = retrasoMaximo;
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException
+	{
+		if (this.lecturasPropias.reciente())
+		{
+			return this.primario.getConnection();
+		}
+
+		long ahora = System.currentTimeMillis();
+		for (Replica replica : this.candidatas())
+		{
+			if (replica.retrasada || replica.noDisponibleHasta > ahora)
+			{
+				continue;
+			}
+			try
+			{
+				return replica.origen.getConnection();
+			}
+			// Hikari lanza excepciones no comprobadas si no puede crear el pool.
+			catch (SQLException | RuntimeException exception)
+			{
+				replica.noDisponibleHasta = ahora + this.reintento;
+				log.error("ERROR: Replica {} no disponible durante {} ms, se leera de otra o del primario: {}",
+						replica.pool.getPoolName(), this.reintento, exception.getMessage());
+			}
+		}
+		return this.primario.getConnection();
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException
+	{
+		throw new SQLFeatureNotSupportedException("Las replicas usan el usuario de su configuracion.");
+	}
+
+	/**
+	 * Consulta el retraso de cada réplica y deja de usar las que superan el retraso máximo, no lo informan o no
+	 * responden, hasta la siguiente comprobación en la que estén al día.
+	 */
+	@Scheduled(fixedDelayString = "${incidencias.replicas.comprobacion:PT10S}")
+	public void comprobarRetraso()
+	{
+		if (this.consultaRetraso == null)
+		{
+			return;
+		}
+		for (Replica replica : this.replicas)
+		{
+			String motivo;
+			try
+			{
+				Long retraso = this.retraso(replica);
+				motivo = retraso == null ? "no informa de su retraso"
+						: retraso * 1000 > this.retrasoMaximo ? "lleva " + retraso + " s de retraso" : null;
+			}
+			// Hikari lanza excepciones no comprobadas si no puede crear el pool.
+			catch (SQLException | RuntimeException exception)
+			{
+				motivo = "no responde: " + exception.getMessage();
+			}
+
+			boolean retrasada = motivo != null;
+			if (retrasada && !replica.retrasada)
+			{
+				log.error("ERROR: Replica {} {}, se leera de otra o del primario hasta que se ponga al dia",
+						replica.pool.getPoolName(), motivo);
+			}
+			else if (!retrasada && replica.retrasada)
+			{
+				log.info("INFO: Replica {} de nuevo al dia", replica.pool.getPoolName());
+			}
+			replica.retrasada = retrasada;
+		}
+	}
+
+	/**
+	 * Segundos de retraso de una réplica según la consulta de retraso, o null si no los informa.
+	 */
+	private Long retraso(Replica replica) throws SQLException
+	{
+		try (Connection conexion = replica.origen.getConnection();
+				Statement sentencia = conexion.createStatement())
+		{
+			// La consulta no puede ocupar el planificador mas de lo que se espera una conexion.
+			sentencia.setQueryTimeout((int) Math.max(1, replica.pool.getConnectionTimeout() / 1000));
+			try (ResultSet resultado = sentencia.executeQuery(this.consultaRetraso))
+			{
+				if (!resultado.next())
+				{
+					return null;
+				}
+				long segundos = resultado.getLong(columnaRetraso(resultado.getMetaData()));
+				return resultado.wasNull() ? null : segundos;
+			}
+		}
+	}
+
+	/**
+	 * Columna con el retraso: {@code Seconds_Behind_Source} en {@code SHOW REPLICA STATUS} de MySQL o, si no existe,
+	 * la primera.
+	 */
+	private static int columnaRetraso(ResultSetMetaData columnas) throws SQLException
+	{
+		for (int i = 1; i <= columnas.getColumnCount(); i++)
+		{
+			if ("Seconds_Behind_Source".equalsIgnoreCase(columnas.getColumnLabel(i)))
+			{
+				return i;
+			}
+		}
+		return 1;
+	}
+
+	/**
+	 * Ordena las réplicas según el criterio de elección.
+	 */
+	private List<Replica> candidatas()
+	{
+		List<Replica> candidatas = new ArrayList<>(this.replicas.size());
+		if (this.seleccion == Seleccion.MENOS_OCUPADA)
+		{
+			candidatas.addAll(this.replicas);
+			candidatas.sort(Comparator.comparingInt(Replica::enUso));
+			return candidatas;
+		}
+		int inicio = Math.floorMod(this.turno.getAndIncrement(), this.replicas.size());
+		for (int i = 0; i < this.replicas.size(); i++)
+		{
+			candidatas.add(this.replicas.get((inicio + i) % this.replicas.size()));
+		}
+		return candidatas;
+	}
+
+	/**
+	 * Cierra los pools de conexiones de las réplicas.
+	 */
+	@Override
+	public void close()
+	{
+		for (Replica replica : this.replicas)
+		{
+			replica.pool.close();
+		}
+	}
+
+	/**
+	 * Réplica con su pool y su disponibilidad.
+	 */
+	private static final class Replica
+	{
+		/**
+		 * Pool de conexiones de la réplica.
+		 */
+		private final HikariDataSource pool;
+
+		/**
+		 * Origen de datos al que se piden las conexiones, el pool o el pool limitado.
+		 */
+		private final DataSource origen;
+
+		/**
+		 * Instante, en milisegundos, hasta el que no se usa la réplica tras un fallo.
+		 */
+		private volatile long noDisponibleHasta;
+
+		/**
+		 * Si la última comprobación del retraso no ha sido correcta.
+		 */
+		private volatile boolean retrasada;
+
+		private Replica(HikariDataSource pool, DataSource origen)
+		{
+			this.pool = pool;
+			this.origen = origen;
+		}
+
+		/**
+		 * Conexiones de la réplica en uso, 0 si su pool aún no se ha iniciado.
+		 */
+		private int enUso()
+		{
+			HikariPoolMXBean estado = this.pool.getHikariPoolMXBean();
+			return estado == null ? 0 : estado.getActiveConnections();
+		}
+	}
+}
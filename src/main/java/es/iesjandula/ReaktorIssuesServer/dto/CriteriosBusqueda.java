@@ -0,0 +1,70 @@
+package es.iesjandula.ReaktorIssuesServer.dto;
+
+import java.util.Date;
+
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+/**
+ * Clase que representa los criterios de búsqueda de incidencias ya normalizados.
+ *
+ * <p>
+ * Se obtiene a partir de un {@link FiltroBusqueda} recibido del cliente una vez
+ * interpretadas sus fechas. Es inmutable, por lo que puede compartirse entre hilos
+ * y utilizarse como clave.
+ * </p>
+ */
+@Value
+@AllArgsConstructor
+public class CriteriosBusqueda
+{
+	/**
+	 * Atributo - Número de aula, o null para no filtrar por aula.
+	 */
+	String numeroAula;
+
+	/**
+	 * Atributo - Correo del docente, o null para no filtrar por docente.
+	 */
+	String correoDocente;
+
+	/**
+	 * Atributo - Inicio del rango de fechas de búsqueda, o null para no acotarlo.
+	 */
+	Date fechaInicio;
+
+	/**
+	 * Atributo - Fin del rango de fechas de búsqueda, o null para no acotarlo.
+	 */
+	Date fechaFin;
+
+	/**
+	 * Atributo - Texto que debe contener la descripción, o null.
+	 */
+	String descripcionIncidencia;
+
+	/**
+	 * Atributo - Estado de la incidencia, o null para no filtrar por estado.
+	 */
+	String estadoIncidencia;
+
+	/**
+	 * Atributo - Texto que debe contener el comentario, o null.
+	 */
+	String comentario;
+
+	/**
+	 * Atributo - Si la búsqueda incluye la tabla de incidencias archivadas.
+	 */
+	boolean incluirArchivo;
+
+	/**
+	 * Crea unos criterios que solo buscan en la tabla de incidencias, sin el archivo.
+	 */
+	public CriteriosBusqueda(String numeroAula, String correoDocente, Date fechaInicio, Date fechaFin,
+			String descripcionIncidencia, String estadoIncidencia, String comentario)
+	{
+		this(numeroAula, correoDocente, fechaInicio, fechaFin, descripcionIncidencia, estadoIncidencia, comentario,
+				false);
+	}
+}
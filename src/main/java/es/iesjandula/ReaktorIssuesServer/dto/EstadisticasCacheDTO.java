@@ -0,0 +1,49 @@
+package es.iesjandula.ReaktorIssuesServer.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Clase que representa los contadores de uso de la caché de búsquedas desde el arranque del servicio.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class EstadisticasCacheDTO
+{
+	/**
+	 * Atributo - Indica si la caché está habilitada.
+	 */
+	private boolean habilitada;
+
+	/**
+	 * Atributo - Búsquedas respondidas desde la caché.
+	 */
+	private long aciertos;
+
+	/**
+	 * Atributo - Búsquedas que han tenido que consultar la base de datos.
+	 */
+	private long fallos;
+
+	/**
+	 * Atributo - Proporción de búsquedas respondidas desde la caché, entre 0 y 1.
+	 */
+	private double tasaAciertos;
+
+	/**
+	 * Atributo - Páginas descartadas por superar el tamaño máximo o el tiempo de vida.
+	 */
+	private long expulsiones;
+
+	/**
+	 * Atributo - Páginas descartadas por la modificación de alguna incidencia.
+	 */
+	private long invalidaciones;
+
+	/**
+	 * Atributo - Número aproximado de páginas guardadas actualmente.
+	 */
+	private long tamano;
+}
@@ -0,0 +1,43 @@
+package es.iesjandula.ReaktorIssuesServer.dto;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Clase que representa el número de incidencias registradas, en total y agrupadas por estado, por aula, por día y
+ * por semana.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class EstadisticasIncidenciasDTO
+{
+	/**
+	 * Atributo - Número total de incidencias.
+	 */
+	private long total;
+
+	/**
+	 * Atributo - Número de incidencias por estado.
+	 */
+	private Map<String, Long> porEstado;
+
+	/**
+	 * Atributo - Número de incidencias por aula.
+	 */
+	private Map<String, Long> porAula;
+
+	/**
+	 * Atributo - Número de incidencias por día, en orden cronológico.
+	 */
+	private Map<LocalDate, Long> porDia;
+
+	/**
+	 * Atributo - Número de incidencias por semana, identificada por su lunes, en orden cronológico.
+	 */
+	private Map<LocalDate, Long> porSemana;
+}
@@ -1,5 +1,7 @@
 package es.iesjandula.ReaktorIssuesServer.dto;
 
+import java.util.List;
+
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -80,4 +82,50 @@ public class FiltroBusqueda {
      * que contengan el texto proporcionado en sus comentarios.
      */
     private String comentario;
+
+    /**
+     * Atributo - Número máximo de incidencias a devolver en la página.
+     * 
+     * Si no se establece se aplicará el tamaño de página por defecto
+     * configurado en el servidor. Nunca podrá superar el máximo configurado.
+     */
+    private Integer tamanoPagina;
+
+    /**
+     * Atributo - Cursor opaco de continuación.
+     * 
+     * Valor devuelto por el servidor en la cabecera "X-Siguiente-Cursor" de
+     * la página anterior. Si se establece, la búsqueda continúa justo después
+     * de la última incidencia devuelta en dicha página.
+     */
+    private String cursor;
+
+    /**
+     * Atributo - Ordena los resultados por relevancia del texto buscado.
+     * 
+     * Solo tiene efecto si se busca por descripción o comentario. Las
+     * incidencias cuyas palabras coincidentes son menos frecuentes aparecen
+     * primero. Con este orden solo se devuelve la primera página.
+     */
+    private Boolean ordenarPorRelevancia;
+
+    /**
+     * Atributo - Incluye en la búsqueda las incidencias archivadas.
+     * 
+     * Las incidencias cerradas antiguas se trasladan a la tabla de archivo
+     * y por defecto no se buscan. Si se establece a true, se buscan en
+     * ambas tablas y los resultados se devuelven en el mismo orden.
+     */
+    private Boolean incluirArchivo;
+
+    /**
+     * Atributo - Campos de cada incidencia que se devuelven.
+     * 
+     * Si no se establece se devuelven todos. El aula, el docente y la fecha
+     * se devuelven siempre, ya que identifican la incidencia y ordenan la
+     * paginación; el resto de campos no solicitados no se leen de la base de
+     * datos y se devuelven nulos. Los listados que no muestran la
+     * descripción ni el comentario evitan así leer sus columnas de texto.
+     */
+    private List<String> campos;
 }
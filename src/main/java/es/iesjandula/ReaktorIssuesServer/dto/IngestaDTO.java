@@ -0,0 +1,54 @@
+package es.iesjandula.ReaktorIssuesServer.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Clase que representa el estado de una incidencia recibida en modo de ingesta asíncrona.
+ *
+ * <p>
+ * Al encolar la incidencia se devuelve al cliente con el estado EN_COLA y el
+ * testigo con el que puede consultar después si se ha guardado.
+ * </p>
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class IngestaDTO
+{
+	/**
+	 * Estado de una incidencia que espera en la cola a ser guardada.
+	 */
+	public static final String EN_COLA = "EN_COLA";
+
+	/**
+	 * Estado de una incidencia que no existía y se ha creado.
+	 */
+	public static final String CREADA = "CREADA";
+
+	/**
+	 * Estado de una incidencia que ya existía y se ha actualizado.
+	 */
+	public static final String ACTUALIZADA = "ACTUALIZADA";
+
+	/**
+	 * Estado de una incidencia que no se ha podido guardar.
+	 */
+	public static final String ERROR = "ERROR";
+
+	/**
+	 * Atributo - Testigo que identifica la incidencia recibida.
+	 */
+	private String testigo;
+
+	/**
+	 * Atributo - Estado de la incidencia: EN_COLA, CREADA, ACTUALIZADA o ERROR.
+	 */
+	private String estado;
+
+	/**
+	 * Atributo - Motivo del error si la incidencia no se ha podido guardar.
+	 */
+	private String mensaje;
+}
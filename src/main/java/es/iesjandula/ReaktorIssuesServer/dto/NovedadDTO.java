@@ -0,0 +1,30 @@
+package es.iesjandula.ReaktorIssuesServer.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Clase que representa una modificación de una incidencia enviada a los suscriptores de
+ * {@code GET /incidencias/novedades}.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class NovedadDTO
+{
+	/**
+	 * Atributo - Tipo de modificación: "CREADA", "ACTUALIZADA" o "BORRADA".
+	 */
+	private String tipo;
+
+	/**
+	 * Atributo - Incidencia tal y como ha quedado guardada, o la incidencia eliminada.
+	 */
+	private IncidenciaDTO incidencia;
+
+	/**
+	 * Atributo - Estado que tenía la incidencia antes de actualizarse, si se conoce.
+	 */
+	private String estadoAnterior;
+}
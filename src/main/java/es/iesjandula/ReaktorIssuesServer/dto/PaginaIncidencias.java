@@ -0,0 +1,31 @@
+package es.iesjandula.ReaktorIssuesServer.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Clase que representa una página de resultados de búsqueda de incidencias.
+ *
+ * <p>
+ * Contiene las incidencias de la página, ordenadas por fecha, aula y correo del
+ * docente, y el cursor opaco que permite solicitar la página siguiente.
+ * </p>
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PaginaIncidencias
+{
+	/**
+	 * Atributo - Incidencias encontradas en esta página.
+	 */
+	private List<IncidenciaDTO> incidencias;
+
+	/**
+	 * Atributo - Cursor de la página siguiente, o null si no hay más resultados.
+	 */
+	private String siguienteCursor;
+}
@@ -0,0 +1,29 @@
+package es.iesjandula.ReaktorIssuesServer.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Clase que representa una petición {@code PUT /incidencias} recibida en modo de ingesta asíncrona.
+ *
+ * <p>
+ * Junto con la incidencia recibida conserva el correo del docente de la cabecera, con el que se crea la incidencia
+ * si el DTO no identifica una que ya existe, igual que al guardarla durante la petición.
+ * </p>
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PeticionIncidenciaDTO
+{
+	/**
+	 * Atributo - Correo del docente recibido en la cabecera de la petición.
+	 */
+	private String correoDocente;
+
+	/**
+	 * Atributo - Incidencia recibida en el cuerpo de la petición, con el aula y la descripción ya validados.
+	 */
+	private IncidenciaDTO incidencia;
+}
@@ -0,0 +1,68 @@
+package es.iesjandula.ReaktorIssuesServer.dto;
+
+import java.util.Date;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Clase que representa el resultado de una incidencia dentro de una operación por lotes.
+ *
+ * <p>
+ * Cada elemento del lote recibido produce un resultado, en el mismo orden, que
+ * identifica la incidencia e indica si se ha creado, se ha actualizado o se ha
+ * rechazado por no ser válida o por repetirse en el lote.
+ * </p>
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ResultadoLoteDTO
+{
+	/**
+	 * Resultado de una incidencia que no existía y se ha creado.
+	 */
+	public static final String CREADA = "CREADA";
+
+	/**
+	 * Resultado de una incidencia que ya existía y se ha actualizado.
+	 */
+	public static final String ACTUALIZADA = "ACTUALIZADA";
+
+	/**
+	 * Resultado de una incidencia rechazada por no ser válida.
+	 */
+	public static final String INVALIDA = "INVALIDA";
+
+	/**
+	 * Resultado de una incidencia que se repite más adelante en el mismo lote y no se guarda, ya que prevalece la
+	 * última.
+	 */
+	public static final String DUPLICADA = "DUPLICADA";
+
+	/**
+	 * Atributo - Aula de la incidencia recibida.
+	 */
+	private String numeroAula;
+
+	/**
+	 * Atributo - Correo del docente de la incidencia recibida.
+	 */
+	private String correoDocente;
+
+	/**
+	 * Atributo - Fecha de la incidencia recibida.
+	 */
+	private Date fechaIncidencia;
+
+	/**
+	 * Atributo - Resultado de la operación: CREADA, ACTUALIZADA, INVALIDA o DUPLICADA.
+	 */
+	private String resultado;
+
+	/**
+	 * Atributo - Motivo del rechazo si la incidencia no es válida o está duplicada.
+	 */
+	private String mensaje;
+}
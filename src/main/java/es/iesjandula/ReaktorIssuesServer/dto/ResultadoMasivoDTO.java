@@ -0,0 +1,25 @@
+package es.iesjandula.ReaktorIssuesServer.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Clase que representa el resultado de un borrado o de un cambio de estado de todas las incidencias que cumplen un
+ * filtro.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ResultadoMasivoDTO
+{
+	/**
+	 * Atributo - Número de incidencias borradas o cambiadas de estado, o que lo serían en una simulación.
+	 */
+	private long afectadas;
+
+	/**
+	 * Atributo - Si la operación solo se ha simulado, sin modificar ninguna incidencia.
+	 */
+	private boolean simulacion;
+}
@@ -0,0 +1,69 @@
+package es.iesjandula.ReaktorIssuesServer.entity;
+
+import java.util.Date;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Clase que representa una incidencia cerrada que se ha trasladado a la tabla de archivo.
+ *
+ * <p>
+ * Tiene los mismos atributos e identificador compuesto que {@link IncidenciaEntity}. Las incidencias resueltas o
+ * canceladas con cierta antigüedad se mueven a esta tabla, de modo que la tabla de incidencias y sus índices solo
+ * contienen las incidencias recientes o abiertas. Solo se consulta si la búsqueda lo solicita.
+ * </p>
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "incidencias_archivo", indexes = {
+		// Índice que sigue el orden de la paginación por cursor de las búsquedas. Resuelve también los filtros por fecha.
+		@Index(name = "idx_incidencias_archivo_orden", columnList = "fecha_incidencia, numero_aula, correo_docente") })
+@IdClass(IncidenciaEntityId.class)
+public class IncidenciaArchivadaEntity
+{
+	/**
+	 * Atributo - Aula en la que se dio la incidencia.
+	 */
+	@Id
+	private String numeroAula;
+
+	/**
+	 * Atributo - Correo del docente que informó de la incidencia.
+	 */
+	@Id
+	private String correoDocente;
+
+	/**
+	 * Atributo - Fecha de creación de la señalación.
+	 */
+	@Id
+	private Date fechaIncidencia;
+
+	/**
+	 * Atributo - Detalla el problema relacionado a la incidencia.
+	 */
+	@Column(columnDefinition = "TEXT")
+	private String descripcionIncidencia;
+
+	/**
+	 * Atributo - Estado con el que se cerró la incidencia, "RESUELTA" o "CANCELADA".
+	 */
+	@Column()
+	private String estadoIncidencia;
+
+	/**
+	 * Atributo - Comentario relacionado a la solución de la incidencia.
+	 */
+	@Column(columnDefinition = "TEXT")
+	private String comentario;
+}
@@ -6,6 +6,7 @@ import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 import jakarta.persistence.IdClass;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -25,7 +26,13 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "incidencias")
+@Table(name = "incidencias", indexes = {
+		// Índice que sigue el orden de la paginación por cursor de las búsquedas. Resuelve también los filtros por fecha.
+		@Index(name = "idx_incidencias_orden", columnList = "fecha_incidencia, numero_aula, correo_docente"),
+		// Búsquedas por estado, acotadas por fecha. Los filtros por docente usan la clave primaria.
+		@Index(name = "idx_incidencias_estado", columnList = "estado_incidencia, fecha_incidencia"),
+		// Búsquedas por aula, acotadas por fecha.
+		@Index(name = "idx_incidencias_aula", columnList = "numero_aula, fecha_incidencia") })
 @IdClass(IncidenciaEntityId.class)
 public class IncidenciaEntity 
 {
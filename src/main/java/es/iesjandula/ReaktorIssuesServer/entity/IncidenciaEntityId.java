@@ -44,4 +44,21 @@ public class IncidenciaEntityId implements Serializable
 	 */
 	private Date fechaIncidencia;
 
+	/**
+	 * Crea el identificador de una incidencia con la fecha copiada como {@link Date}, para poder compararlo.
+	 * <p>
+	 * Las fechas que llegan de la base de datos pueden ser {@link java.sql.Timestamp}, que no son iguales a una
+	 * {@link Date} con el mismo instante.
+	 * </p>
+	 *
+	 * @param numeroAula    El número de aula.
+	 * @param correoDocente El correo del docente.
+	 * @param fecha         La fecha de la incidencia.
+	 * @return El identificador de la incidencia.
+	 */
+	public static IncidenciaEntityId crear(String numeroAula, String correoDocente, Date fecha)
+	{
+		return new IncidenciaEntityId(numeroAula, correoDocente, new Date(fecha.getTime()));
+	}
+
 }
@@ -0,0 +1,328 @@
+package es.iesjandula.ReaktorIssuesServer.estadisticas;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import es.iesjandula.ReaktorIssuesServer.dto.EstadisticasIncidenciasDTO;
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import es.iesjandula.ReaktorIssuesServer.events.IncidenciaModificadaEvent;
+import es.iesjandula.ReaktorIssuesServer.repository.IIncidenciaRepository;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Contadores en memoria del número de incidencias por estado, por aula, por día y por semana.
+ * <p>
+ * Los contadores se calculan al arrancar la aplicación con consultas agrupadas y a partir de entonces se actualizan
+ * con los eventos {@link IncidenciaModificadaEvent}, de modo que consultarlos no recorre la tabla: su coste depende
+ * solo del número de grupos devueltos. Una actualización que cambia el estado de una incidencia resta uno al estado
+ * anterior, que cada escritura lee bloqueado en su propia transacción, y suma uno al nuevo.
+ * </p>
+ * <p>
+ * Los contadores se recalculan además periódicamente, solo como comprobación de consistencia: para incorporar los
+ * cambios realizados directamente en la base de datos y corregir cualquier desviación.
+ * </p>
+ */
+@Slf4j
+@Component
+public class EstadisticasIncidencias
+{
+	@Autowired
+	// Auto-inyeccion de repositorio.
+	private IIncidenciaRepository iIncidenciaRepository;
+
+	@Autowired
+	// Auto-inyeccion del gestor de transacciones para leer los tres recuentos de la misma instantanea.
+	private PlatformTransactionManager transactionManager;
+
+	/**
+	 * Cerrojo que protege todos los contadores.
+	 */
+	private final ReentrantReadWriteLock cerrojo = new ReentrantReadWriteLock();
+
+	/**
+	 * Número de incidencias por estado.
+	 */
+	private Map<String, Long> porEstado = new HashMap<>();
+
+	/**
+	 * Número de incidencias por aula.
+	 */
+	private Map<String, Long> porAula = new HashMap<>();
+
+	/**
+	 * Número de incidencias por día.
+	 */
+	private NavigableMap<LocalDate, Long> porDia = new TreeMap<>();
+
+	/**
+	 * Número de incidencias por semana, identificada por su lunes.
+	 */
+	private NavigableMap<LocalDate, Long> porSemana = new TreeMap<>();
+
+	/**
+	 * Número total de incidencias.
+	 */
+	private long total;
+
+	/**
+	 * Eventos recibidos desde que se fija la instantánea de un recálculo, que se aplican de nuevo sobre su resultado.
+	 * Es null si no hay ninguno en curso.
+	 */
+	private List<IncidenciaModificadaEvent> pendientes;
+
+	/**
+	 * Indica si los contadores se han calculado al menos una vez.
+	 */
+	private volatile boolean listas;
+
+	/**
+	 * Calcula los contadores en segundo plano cuando la aplicación ha arrancado.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void calcularAlArrancar()
+	{
+		Thread.ofPlatform().name("estadisticas").daemon().start(this::recalcular);
+	}
+
+	/**
+	 * Recalcula periódicamente los contadores a partir de la base de datos.
+	 */
+	@Scheduled(initialDelayString = "${incidencias.estadisticas.recalculo:PT1H}",
+			fixedDelayString = "${incidencias.estadisticas.recalculo:PT1H}")
+	public void recalcularPeriodicamente()
+	{
+		this.recalcular();
+	}
+
+	/**
+	 * Recalcula todos los contadores con consultas agrupadas sobre la tabla de incidencias.
+	 * <p>
+	 * Las tres consultas se ejecutan en una transacción {@code REPEATABLE READ}, por lo que todas leen la misma
+	 * instantánea, la que se fija con la primera de ellas. Los eventos recibidos desde justo antes de esa consulta
+	 * corresponden a escrituras confirmadas después de fijarse la instantánea, que no están incluidas en el resultado,
+	 * y se aplican de nuevo sobre él.
+	 * </p>
+	 */
+	public synchronized void recalcular()
+	{
+		try
+		{
+			long inicio = System.currentTimeMillis();
+			Map<String, Long> nuevosPorEstado = new HashMap<>();
+			Map<String, Long> nuevosPorAula = new HashMap<>();
+			NavigableMap<LocalDate, Long> nuevosPorDia = new TreeMap<>();
+			NavigableMap<LocalDate, Long> nuevosPorSemana = new TreeMap<>();
+			long[] nuevoTotal = new long[1];
+
+			// Sin solo lectura, para leer del primario aunque haya replicas.
+			TransactionTemplate transaccion = new TransactionTemplate(this.transactionManager);
+			transaccion.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+			transaccion.executeWithoutResult(estado ->
+			{
+				// La instantanea se fija con la primera lectura de la transaccion, la siguiente sentencia.
+				this.cerrojo.writeLock().lock();
+				try
+				{
+					this.pendientes = new ArrayList<>();
+				}
+				finally
+				{
+					this.cerrojo.writeLock().unlock();
+				}
+
+				for (Object[] fila : iIncidenciaRepository.cuentaPorEstado())
+				{
+					nuevosPorEstado.put(grupo((String) fila[0]), (Long) fila[1]);
+				}
+				for (Object[] fila : iIncidenciaRepository.cuentaPorAula())
+				{
+					nuevosPorAula.put(grupo((String) fila[0]), (Long) fila[1]);
+				}
+				for (Object[] fila : iIncidenciaRepository.cuentaPorDia())
+				{
+					LocalDate dia = (LocalDate) fila[0];
+					long cantidad = (Long) fila[1];
+					nuevosPorDia.put(dia, cantidad);
+					nuevosPorSemana.merge(semana(dia), cantidad, Long::sum);
+					nuevoTotal[0] += cantidad;
+				}
+			});
+
+			this.cerrojo.writeLock().lock();
+			try
+			{
+				this.porEstado = nuevosPorEstado;
+				this.porAula = nuevosPorAula;
+				this.porDia = nuevosPorDia;
+				this.porSemana = nuevosPorSemana;
+				this.total = nuevoTotal[0];
+				this.listas = true;
+				this.pendientes.forEach(this::aplicar);
+				this.pendientes = null;
+			}
+			finally
+			{
+				this.cerrojo.writeLock().unlock();
+			}
+			log.info("INFO: Estadisticas de incidencias calculadas en {} ms.", System.currentTimeMillis() - inicio);
+		}
+		catch (Exception statisticsException)
+		{
+			this.cerrojo.writeLock().lock();
+			try
+			{
+				this.pendientes = null;
+			}
+			finally
+			{
+				this.cerrojo.writeLock().unlock();
+			}
+			log.error("ERROR: No se han podido calcular las estadisticas de incidencias.", statisticsException);
+		}
+	}
+
+	/**
+	 * Actualiza los contadores con las escrituras confirmadas en la base de datos.
+	 *
+	 * @param evento El evento de la incidencia creada, actualizada o eliminada.
+	 */
+	@TransactionalEventListener(fallbackExecution = true)
+	public void alModificarIncidencia(IncidenciaModificadaEvent evento)
+	{
+		this.cerrojo.writeLock().lock();
+		try
+		{
+			this.aplicar(evento);
+			if (this.pendientes != null)
+			{
+				this.pendientes.add(evento);
+			}
+		}
+		finally
+		{
+			this.cerrojo.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Indica si los contadores se han calculado y pueden consultarse.
+	 *
+	 * @return true si las estadísticas están disponibles.
+	 */
+	public boolean isListas()
+	{
+		return this.listas;
+	}
+
+	/**
+	 * Devuelve el valor actual de los contadores.
+	 *
+	 * @param desde Primer día de los contadores por día y por semana, o null para no limitarlo.
+	 * @param hasta Último día de los contadores por día y por semana, o null para no limitarlo.
+	 * @return Una copia de los contadores.
+	 */
+	public EstadisticasIncidenciasDTO consultar(LocalDate desde, LocalDate hasta)
+	{
+		LocalDate primero = desde != null ? desde : LocalDate.MIN;
+		LocalDate ultimo = hasta != null ? hasta : LocalDate.MAX;
+
+		this.cerrojo.readLock().lock();
+		try
+		{
+			return new EstadisticasIncidenciasDTO(this.total, new LinkedHashMap<>(this.porEstado),
+					new LinkedHashMap<>(this.porAula),
+					new LinkedHashMap<>(this.porDia.subMap(primero, true, ultimo, true)),
+					new LinkedHashMap<>(this.porSemana.subMap(semana(primero), true, ultimo, true)));
+		}
+		finally
+		{
+			this.cerrojo.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Aplica un evento de modificación a los contadores. Debe invocarse con el cerrojo de escritura adquirido.
+	 *
+	 * @param evento El evento a aplicar.
+	 */
+	private void aplicar(IncidenciaModificadaEvent evento)
+	{
+		IncidenciaEntity incidencia = evento.getIncidencia();
+		switch (evento.getTipo())
+		{
+			case CREADA -> this.sumar(incidencia, 1);
+			case BORRADA -> this.sumar(incidencia, -1);
+			case ACTUALIZADA ->
+			{
+				// El aula y la fecha forman parte del identificador y no cambian; el estado si puede cambiar.
+				sumar(this.porEstado, grupo(evento.getEstadoAnterior()), -1);
+				sumar(this.porEstado, grupo(incidencia.getEstadoIncidencia()), 1);
+			}
+		}
+	}
+
+	/**
+	 * Suma una cantidad a todos los contadores de una incidencia.
+	 */
+	private void sumar(IncidenciaEntity incidencia, int cantidad)
+	{
+		sumar(this.porEstado, grupo(incidencia.getEstadoIncidencia()), cantidad);
+		LocalDate dia = dia(incidencia.getFechaIncidencia());
+		sumar(this.porAula, grupo(incidencia.getNumeroAula()), cantidad);
+		sumar(this.porDia, dia, cantidad);
+		sumar(this.porSemana, semana(dia), cantidad);
+		this.total += cantidad;
+	}
+
+	/**
+	 * Suma una cantidad a un contador, eliminándolo si queda a cero.
+	 */
+	private static <K> void sumar(Map<K, Long> contadores, K grupo, int cantidad)
+	{
+		contadores.merge(grupo, (long) cantidad, (actual, suma) -> actual + suma == 0 ? null : actual + suma);
+	}
+
+	/**
+	 * Devuelve el grupo de un estado o de un aula. Los valores nulos se agrupan como cadena vacía.
+	 */
+	private static String grupo(String valor)
+	{
+		return valor != null ? valor : "";
+	}
+
+	/**
+	 * Devuelve el día de una fecha en la zona horaria del servidor, la misma con la que se guarda en la base de datos.
+	 */
+	private static LocalDate dia(Date fecha)
+	{
+		return fecha.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+	}
+
+	/**
+	 * Devuelve el lunes de la semana de un día.
+	 */
+	private static LocalDate semana(LocalDate dia)
+	{
+		return dia == LocalDate.MIN ? dia : dia.with(DayOfWeek.MONDAY);
+	}
+}
@@ -0,0 +1,79 @@
+package es.iesjandula.ReaktorIssuesServer.events;
+
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Evento que se publica cada vez que una incidencia se crea, se actualiza o se
+ * elimina en la base de datos.
+ *
+ * <p>
+ * Permite que los componentes que mantienen información derivada de las
+ * incidencias (índices, contadores, cachés...) se mantengan sincronizados sin que
+ * el controlador tenga que conocerlos. Se publica una vez confirmada la escritura,
+ * por lo que los oyentes deben registrarse con
+ * {@code @TransactionalEventListener(fallbackExecution = true)}.
+ * </p>
+ */
+@Data
+@AllArgsConstructor
+public class IncidenciaModificadaEvent
+{
+	/**
+	 * Tipos de modificación que puede sufrir una incidencia.
+	 */
+	public enum Tipo
+	{
+		CREADA, ACTUALIZADA, BORRADA
+	}
+
+	/**
+	 * Atributo - Tipo de modificación realizada.
+	 */
+	private Tipo tipo;
+
+	/**
+	 * Atributo - Incidencia tal y como ha quedado guardada, o la incidencia
+	 * eliminada si el tipo es {@link Tipo#BORRADA}.
+	 */
+	private IncidenciaEntity incidencia;
+
+	/**
+	 * Atributo - Estado que tenía la incidencia antes de actualizarse, leído en la
+	 * misma transacción que la actualización. Solo se indica si el tipo es
+	 * {@link Tipo#ACTUALIZADA}.
+	 */
+	private String estadoAnterior;
+
+	/**
+	 * Atributo - Indica que la descripción y el comentario de la incidencia no se
+	 * han leído, por lo que son nulos aunque la incidencia los tenga. Una
+	 * actualización con este indicador no ha cambiado el texto.
+	 */
+	private boolean textoDesconocido;
+
+	/**
+	 * Crea un evento con el texto de la incidencia.
+	 *
+	 * @param tipo           El tipo de modificación realizada.
+	 * @param incidencia     La incidencia tal y como ha quedado guardada.
+	 * @param estadoAnterior El estado anterior de una incidencia actualizada, o
+	 *                       null si se ha creado o eliminado.
+	 */
+	public IncidenciaModificadaEvent(Tipo tipo, IncidenciaEntity incidencia, String estadoAnterior)
+	{
+		this(tipo, incidencia, estadoAnterior, false);
+	}
+
+	/**
+	 * Crea un evento sin estado anterior, para incidencias creadas o eliminadas.
+	 *
+	 * @param tipo       El tipo de modificación realizada.
+	 * @param incidencia La incidencia creada o eliminada.
+	 */
+	public IncidenciaModificadaEvent(Tipo tipo, IncidenciaEntity incidencia)
+	{
+		this(tipo, incidencia, null);
+	}
+}
@@ -0,0 +1,641 @@
+package es.iesjandula.ReaktorIssuesServer.indice;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import es.iesjandula.ReaktorIssuesServer.dto.IncidenciaDTO;
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntityId;
+import es.iesjandula.ReaktorIssuesServer.events.IncidenciaModificadaEvent;
+import es.iesjandula.ReaktorIssuesServer.repository.IIncidenciaRepository;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Índice invertido en memoria sobre la descripción y el comentario de las incidencias.
+ * <p>
+ * Las columnas de texto se buscan con {@code LIKE '%texto%'}, lo que obliga a MySQL a recorrer la tabla completa. Este
+ * índice guarda, para cada palabra que aparece en los textos, la lista de incidencias que la contienen, de modo que las
+ * búsquedas de texto obtienen en memoria las incidencias candidatas sin consultar la base de datos.
+ * </p>
+ * <p>
+ * Los textos se normalizan a minúsculas y sin tildes, igual que compara MySQL con su cotejamiento por defecto. Para
+ * respetar la semántica de {@code LIKE}, una consulta de una sola palabra encuentra cualquier palabra que la contenga,
+ * y en una consulta de varias palabras la primera puede ser el final de una palabra y la última su comienzo. El
+ * resultado es por tanto un superconjunto de las incidencias que cumplen el {@code LIKE}: quien lo utilice debe
+ * comprobar el texto de cada candidata con {@link #contiene(String, String)}.
+ * </p>
+ * <p>
+ * Cada palabra de la consulta se resuelve sin recorrer el vocabulario: las palabras completas con una búsqueda exacta,
+ * los comienzos con un rango del mapa ordenado de palabras y los finales y las subcadenas con un rango del conjunto
+ * ordenado de los sufijos de cada palabra.
+ * </p>
+ * <p>
+ * El índice se construye al arrancar la aplicación a partir de las filas de la tabla y se mantiene actualizado con los
+ * eventos {@link IncidenciaModificadaEvent}. Hasta que termina de construirse, {@link #buscar(String, String)} devuelve
+ * null y las búsquedas deben resolverse con la consulta {@code LIKE}.
+ * </p>
+ */
+@Slf4j
+@Component
+public class IndiceTextoIncidencias
+{
+	/**
+	 * Separa un texto normalizado en palabras.
+	 */
+	private static final Pattern SEPARADOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+	/**
+	 * Marcas diacríticas que se eliminan al normalizar.
+	 */
+	private static final Pattern DIACRITICOS = Pattern.compile("\\p{M}+");
+
+	@Autowired(required = false)
+	// Auto-inyeccion de repositorio. No existe cuando el índice se usa fuera de Spring.
+	private IIncidenciaRepository iIncidenciaRepository;
+
+	@Autowired(required = false)
+	// Auto-inyeccion del gestor de transacciones para la construcción inicial.
+	private PlatformTransactionManager transactionManager;
+
+	/**
+	 * Permite desactivar el índice, por ejemplo si la memoria es escasa.
+	 */
+	@Value("${incidencias.indice-texto.habilitado:true}")
+	private boolean habilitado = true;
+
+	/**
+	 * Cerrojo que protege todas las estructuras del índice.
+	 */
+	private final ReentrantReadWriteLock cerrojo = new ReentrantReadWriteLock();
+
+	/**
+	 * Clave de cada documento del índice, por número de documento. Vale null si el documento se ha eliminado.
+	 */
+	private final List<IncidenciaEntityId> documentos = new ArrayList<>();
+
+	/**
+	 * Número de documento vigente de cada incidencia indexada.
+	 */
+	private final Map<IncidenciaEntityId, Integer> documentoPorClave = new HashMap<>();
+
+	/**
+	 * Palabras de la descripción con sus documentos.
+	 */
+	private final Campo descripciones = new Campo();
+
+	/**
+	 * Palabras del comentario con sus documentos.
+	 */
+	private final Campo comentarios = new Campo();
+
+	/**
+	 * Número de documentos eliminados que siguen ocupando posiciones en las listas.
+	 */
+	private int borrados;
+
+	/**
+	 * Eventos recibidos durante la construcción, que se aplican al terminarla. Es null una vez construido.
+	 */
+	private List<IncidenciaModificadaEvent> pendientes = new ArrayList<>();
+
+	/**
+	 * Indica si el índice está construido y puede responder búsquedas.
+	 */
+	private volatile boolean listo;
+
+	/**
+	 * Lanza la construcción del índice en segundo plano cuando la aplicación ha arrancado.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void construirAlArrancar()
+	{
+		if (!this.habilitado)
+		{
+			log.info("INFO: Indice de texto deshabilitado, las busquedas de texto usaran LIKE.");
+			return;
+		}
+
+		Thread.ofPlatform().name("indice-texto").daemon().start(() ->
+		{
+			try
+			{
+				long inicio = System.currentTimeMillis();
+				// Sin solo lectura, para leer del primario aunque haya replicas: el indice se mantiene despues con
+				// cada modificacion y no debe partir de una replica con retraso.
+				TransactionTemplate transaccion = new TransactionTemplate(this.transactionManager);
+				transaccion.executeWithoutResult(estado ->
+				{
+					try (Stream<IncidenciaDTO> incidencias = iIncidenciaRepository.recorreIncidencias())
+					{
+						this.cargar(incidencias);
+					}
+				});
+				log.info("INFO: Indice de texto construido con {} incidencias en {} ms.", this.tamano(),
+						System.currentTimeMillis() - inicio);
+			}
+			catch (Exception buildIndexException)
+			{
+				log.error("ERROR: No se ha podido construir el indice de texto, las busquedas de texto usaran LIKE.",
+						buildIndexException);
+			}
+		});
+	}
+
+	/**
+	 * Añade al índice todas las incidencias recibidas y lo marca como listo para buscar.
+	 * <p>
+	 * Las modificaciones recibidas mientras tanto se aplican al terminar, por lo que el resultado refleja el estado
+	 * más reciente de cada incidencia aunque el origen de datos sea anterior a ellas.
+	 * </p>
+	 *
+	 * @param incidencias Las incidencias a indexar.
+	 */
+	public void cargar(Stream<IncidenciaDTO> incidencias)
+	{
+		incidencias.forEach(incidencia ->
+		{
+			this.cerrojo.writeLock().lock();
+			try
+			{
+				this.indexar(incidencia.getNumeroAula(), incidencia.getCorreoDocente(), incidencia.getFechaIncidencia(),
+						incidencia.getDescripcionIncidencia(), incidencia.getComentario());
+			}
+			finally
+			{
+				this.cerrojo.writeLock().unlock();
+			}
+		});
+
+		this.cerrojo.writeLock().lock();
+		try
+		{
+			if (this.pendientes != null)
+			{
+				this.pendientes.forEach(this::aplicar);
+				this.pendientes = null;
+			}
+			this.listo = true;
+		}
+		finally
+		{
+			this.cerrojo.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Mantiene el índice sincronizado con las escrituras confirmadas en la base de datos.
+	 * <p>
+	 * Se ejecuta antes que el resto de oyentes, para que las cachés que se descartan con el mismo evento no vuelvan a
+	 * calcularse con el índice sin actualizar.
+	 * </p>
+	 *
+	 * @param evento El evento de la incidencia creada, actualizada o eliminada.
+	 */
+	@Order(Ordered.HIGHEST_PRECEDENCE)
+	@TransactionalEventListener(fallbackExecution = true)
+	public void alModificarIncidencia(IncidenciaModificadaEvent evento)
+	{
+		if (!this.habilitado)
+		{
+			return;
+		}
+
+		this.cerrojo.writeLock().lock();
+		try
+		{
+			if (this.pendientes != null)
+			{
+				this.pendientes.add(evento);
+			}
+			else
+			{
+				this.aplicar(evento);
+			}
+		}
+		finally
+		{
+			this.cerrojo.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Busca las incidencias candidatas a contener los textos indicados.
+	 * <p>
+	 * Si se indican ambos textos, se devuelven las incidencias candidatas para los dos. Cada candidata lleva una
+	 * puntuación de relevancia que es mayor cuanto menos frecuentes son las palabras que coinciden con la consulta.
+	 * </p>
+	 *
+	 * @param descripcion Texto a buscar en la descripción, o null.
+	 * @param comentario  Texto a buscar en el comentario, o null.
+	 * @return Las claves de las incidencias candidatas con su puntuación, o null si el índice no está listo o no puede
+	 *         responder a la consulta y debe usarse {@code LIKE}.
+	 */
+	public Map<IncidenciaEntityId, Double> buscar(String descripcion, String comentario)
+	{
+		if (!this.listo || (descripcion == null && comentario == null) || !admite(descripcion) || !admite(comentario))
+		{
+			return null;
+		}
+
+		this.cerrojo.readLock().lock();
+		try
+		{
+			Map<Integer, Double> candidatos = null;
+			if (descripcion != null)
+			{
+				candidatos = this.buscarEnCampo(this.descripciones, descripcion);
+			}
+			if (comentario != null)
+			{
+				candidatos = intersectar(candidatos, this.buscarEnCampo(this.comentarios, comentario));
+			}
+
+			Map<IncidenciaEntityId, Double> resultado = new HashMap<>();
+			candidatos.forEach((documento, puntuacion) -> resultado.put(this.documentos.get(documento), puntuacion));
+			return resultado;
+		}
+		finally
+		{
+			this.cerrojo.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Indica si el índice ha terminado de construirse.
+	 *
+	 * @return true si el índice puede responder búsquedas.
+	 */
+	public boolean isListo()
+	{
+		return this.listo;
+	}
+
+	/**
+	 * Devuelve el número de incidencias indexadas.
+	 *
+	 * @return El número de incidencias presentes en el índice.
+	 */
+	public int tamano()
+	{
+		this.cerrojo.readLock().lock();
+		try
+		{
+			return this.documentoPorClave.size();
+		}
+		finally
+		{
+			this.cerrojo.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Comprueba si un texto contiene la consulta con la misma semántica que {@code LIKE '%consulta%'}, sin distinguir
+	 * mayúsculas ni tildes.
+	 *
+	 * @param texto    El texto de la incidencia, puede ser nulo.
+	 * @param consulta El texto buscado.
+	 * @return true si el texto contiene la consulta.
+	 */
+	public static boolean contiene(String texto, String consulta)
+	{
+		return texto != null && normalizar(texto).contains(normalizar(consulta));
+	}
+
+	/**
+	 * Aplica un evento de modificación al índice. Debe invocarse con el cerrojo de escritura adquirido.
+	 *
+	 * @param evento El evento a aplicar.
+	 */
+	private void aplicar(IncidenciaModificadaEvent evento)
+	{
+		IncidenciaEntity incidencia = evento.getIncidencia();
+		if (evento.getTipo() == IncidenciaModificadaEvent.Tipo.BORRADA)
+		{
+			this.eliminar(IncidenciaEntityId.crear(incidencia.getNumeroAula(), incidencia.getCorreoDocente(),
+					incidencia.getFechaIncidencia()));
+		}
+		// Un cambio de estado sin texto conocido deja el texto indexado tal cual.
+		else if (!evento.isTextoDesconocido())
+		{
+			this.indexar(incidencia.getNumeroAula(), incidencia.getCorreoDocente(), incidencia.getFechaIncidencia(),
+					incidencia.getDescripcionIncidencia(), incidencia.getComentario());
+		}
+	}
+
+	/**
+	 * Añade o reemplaza una incidencia en el índice. Debe invocarse con el cerrojo de escritura adquirido.
+	 */
+	private void indexar(String numeroAula, String correoDocente, Date fecha, String descripcion, String comentario)
+	{
+		IncidenciaEntityId clave = IncidenciaEntityId.crear(numeroAula, correoDocente, fecha);
+		this.eliminar(clave);
+
+		int documento = this.documentos.size();
+		this.documentos.add(clave);
+		this.documentoPorClave.put(clave, documento);
+		agregarPalabras(this.descripciones, descripcion, documento);
+		agregarPalabras(this.comentarios, comentario, documento);
+	}
+
+	/**
+	 * Elimina una incidencia del índice si estaba indexada. Debe invocarse con el cerrojo de escritura adquirido.
+	 * <p>
+	 * El documento solo se marca como eliminado; cuando los eliminados superan a los vigentes, las listas se compactan.
+	 * </p>
+	 */
+	private void eliminar(IncidenciaEntityId clave)
+	{
+		Integer documento = this.documentoPorClave.remove(clave);
+		if (documento == null)
+		{
+			return;
+		}
+		this.documentos.set(documento, null);
+		this.borrados++;
+
+		if (this.borrados > 1024 && this.borrados > this.documentoPorClave.size())
+		{
+			this.compactar();
+		}
+	}
+
+	/**
+	 * Renumera los documentos vigentes y elimina de las listas los documentos borrados.
+	 */
+	private void compactar()
+	{
+		int[] nuevoNumero = new int[this.documentos.size()];
+		List<IncidenciaEntityId> vigentes = new ArrayList<>(this.documentoPorClave.size());
+		for (int documento = 0; documento < this.documentos.size(); documento++)
+		{
+			IncidenciaEntityId clave = this.documentos.get(documento);
+			nuevoNumero[documento] = -1;
+			if (clave != null)
+			{
+				nuevoNumero[documento] = vigentes.size();
+				this.documentoPorClave.put(clave, vigentes.size());
+				vigentes.add(clave);
+			}
+		}
+		this.documentos.clear();
+		this.documentos.addAll(vigentes);
+		this.borrados = 0;
+
+		this.descripciones.renumerar(nuevoNumero);
+		this.comentarios.renumerar(nuevoNumero);
+		log.debug("DEBUG: Indice de texto compactado a {} documentos.", vigentes.size());
+	}
+
+	/**
+	 * Busca los documentos candidatos a contener la consulta en uno de los campos. Debe invocarse con el cerrojo de
+	 * lectura adquirido.
+	 */
+	private Map<Integer, Double> buscarEnCampo(Campo campo, String consulta)
+	{
+		List<String> palabras = palabras(normalizar(consulta));
+		Map<Integer, Double> candidatos = null;
+		for (int posicion = 0; posicion < palabras.size(); posicion++)
+		{
+			Map<Integer, Double> coincidencias = new HashMap<>();
+			for (ListaDocumentos lista : campo.coincidentes(palabras.get(posicion), posicion == 0,
+					posicion == palabras.size() - 1))
+			{
+				double idf = Math.log(1.0 + (double) this.documentoPorClave.size() / lista.tamano);
+				for (int i = 0; i < lista.tamano; i++)
+				{
+					int documento = lista.documentos[i];
+					if (this.documentos.get(documento) != null)
+					{
+						coincidencias.merge(documento, idf, Math::max);
+					}
+				}
+			}
+			candidatos = intersectar(candidatos, coincidencias);
+		}
+		return candidatos;
+	}
+
+	/**
+	 * Intersecta dos conjuntos de candidatos sumando sus puntuaciones. Un conjunto nulo equivale a no filtrar.
+	 */
+	private static Map<Integer, Double> intersectar(Map<Integer, Double> acumulado, Map<Integer, Double> nuevos)
+	{
+		if (acumulado == null)
+		{
+			return nuevos;
+		}
+		acumulado.keySet().retainAll(nuevos.keySet());
+		acumulado.replaceAll((documento, puntuacion) -> puntuacion + nuevos.get(documento));
+		return acumulado;
+	}
+
+	/**
+	 * Añade las palabras de un texto a las listas de un campo.
+	 */
+	private static void agregarPalabras(Campo campo, String texto, int documento)
+	{
+		if (texto == null)
+		{
+			return;
+		}
+		for (String palabra : new LinkedHashSet<>(palabras(normalizar(texto))))
+		{
+			campo.agregar(palabra, documento);
+		}
+	}
+
+	/**
+	 * Indica si el índice puede responder a la consulta. Los comodines de {@code LIKE} y las consultas sin ninguna
+	 * letra ni número deben resolverse en la base de datos.
+	 */
+	private static boolean admite(String consulta)
+	{
+		return consulta == null
+				|| (consulta.indexOf('%') < 0 && consulta.indexOf('_') < 0 && !palabras(normalizar(consulta)).isEmpty());
+	}
+
+	/**
+	 * Pasa un texto a minúsculas y elimina sus tildes y demás marcas diacríticas.
+	 */
+	private static String normalizar(String texto)
+	{
+		String descompuesto = Normalizer.normalize(texto, Normalizer.Form.NFD);
+		return DIACRITICOS.matcher(descompuesto).replaceAll("").toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Separa un texto normalizado en palabras.
+	 */
+	private static List<String> palabras(String normalizado)
+	{
+		List<String> palabras = new ArrayList<>();
+		for (String palabra : SEPARADOR.split(normalizado))
+		{
+			if (!palabra.isEmpty())
+			{
+				palabras.add(palabra);
+			}
+		}
+		return palabras;
+	}
+
+	/**
+	 * Palabras de un campo, con los documentos en los que aparece cada una y los sufijos de cada palabra.
+	 */
+	private static final class Campo
+	{
+		/**
+		 * Separa el sufijo de la palabra a la que pertenece. Es menor que cualquier letra o número.
+		 */
+		private static final char FIN_SUFIJO = '\u0000';
+
+		/**
+		 * Mayor que cualquier letra o número, cierra los rangos de las palabras que empiezan por un texto.
+		 */
+		private static final char MAXIMO = '\uffff';
+
+		/**
+		 * Documentos de cada palabra, en orden alfabético.
+		 */
+		private final TreeMap<String, ListaDocumentos> terminos = new TreeMap<>();
+
+		/**
+		 * Cada sufijo de cada palabra seguido de {@link #FIN_SUFIJO} y de la palabra completa.
+		 */
+		private final TreeSet<String> sufijos = new TreeSet<>();
+
+		/**
+		 * Añade un documento a la lista de una palabra, que se crea junto con sus sufijos si no existía.
+		 */
+		private void agregar(String palabra, int documento)
+		{
+			ListaDocumentos lista = this.terminos.get(palabra);
+			if (lista == null)
+			{
+				lista = new ListaDocumentos();
+				this.terminos.put(palabra, lista);
+				for (int inicio = 0; inicio < palabra.length(); inicio++)
+				{
+					this.sufijos.add(palabra.substring(inicio) + FIN_SUFIJO + palabra);
+				}
+			}
+			lista.agregar(documento);
+		}
+
+		/**
+		 * Obtiene las listas de las palabras que coinciden con una palabra de la consulta según su posición: una
+		 * palabra intermedia debe coincidir entera, la primera puede ser el final de una palabra, la última su comienzo
+		 * y, si es la única, cualquier parte de ella.
+		 */
+		private Collection<ListaDocumentos> coincidentes(String palabra, boolean primera, boolean ultima)
+		{
+			if (!primera)
+			{
+				if (!ultima)
+				{
+					ListaDocumentos lista = this.terminos.get(palabra);
+					return lista == null ? List.of() : List.of(lista);
+				}
+				return this.terminos.subMap(palabra, true, palabra + MAXIMO, false).values();
+			}
+
+			// Los sufijos que empiezan por la palabra son subcadenas; los que son exactamente la palabra, finales.
+			String desde = ultima ? palabra : palabra + FIN_SUFIJO;
+			Set<String> encontradas = new LinkedHashSet<>();
+			for (String sufijo : this.sufijos.subSet(desde, true, desde + MAXIMO, false))
+			{
+				encontradas.add(sufijo.substring(sufijo.indexOf(FIN_SUFIJO) + 1));
+			}
+			List<ListaDocumentos> listas = new ArrayList<>(encontradas.size());
+			encontradas.forEach(encontrada -> listas.add(this.terminos.get(encontrada)));
+			return listas;
+		}
+
+		/**
+		 * Renumera los documentos de todas las palabras y elimina las palabras que se quedan sin documentos.
+		 */
+		private void renumerar(int[] nuevoNumero)
+		{
+			this.terminos.entrySet().removeIf(entrada ->
+			{
+				if (!entrada.getValue().renumerar(nuevoNumero))
+				{
+					return false;
+				}
+				String palabra = entrada.getKey();
+				for (int inicio = 0; inicio < palabra.length(); inicio++)
+				{
+					this.sufijos.remove(palabra.substring(inicio) + FIN_SUFIJO + palabra);
+				}
+				return true;
+			});
+		}
+	}
+
+	/**
+	 * Lista creciente de números de documento en los que aparece una palabra.
+	 */
+	private static final class ListaDocumentos
+	{
+		private int[] documentos = new int[4];
+
+		private int tamano;
+
+		/**
+		 * Añade un documento, que siempre es mayor que los ya presentes.
+		 */
+		private void agregar(int documento)
+		{
+			if (this.tamano == this.documentos.length)
+			{
+				this.documentos = Arrays.copyOf(this.documentos, this.tamano * 2);
+			}
+			this.documentos[this.tamano++] = documento;
+		}
+
+		/**
+		 * Sustituye los números de documento según la tabla indicada, eliminando los que valen -1.
+		 *
+		 * @return true si la lista ha quedado vacía.
+		 */
+		private boolean renumerar(int[] nuevoNumero)
+		{
+			int vigentes = 0;
+			for (int i = 0; i < this.tamano; i++)
+			{
+				int documento = nuevoNumero[this.documentos[i]];
+				if (documento >= 0)
+				{
+					this.documentos[vigentes++] = documento;
+				}
+			}
+			this.tamano = vigentes;
+			return vigentes == 0;
+		}
+	}
+}
@@ -0,0 +1,352 @@
+package es.iesjandula.ReaktorIssuesServer.ingesta;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import es.iesjandula.ReaktorIssuesServer.dto.IncidenciaDTO;
+import es.iesjandula.ReaktorIssuesServer.dto.IngestaDTO;
+import es.iesjandula.ReaktorIssuesServer.dto.PeticionIncidenciaDTO;
+import es.iesjandula.ReaktorIssuesServer.events.IncidenciaModificadaEvent;
+import es.iesjandula.ReaktorIssuesServer.services.LoteIncidenciaService;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cola de ingesta asíncrona de las incidencias recibidas por {@code PUT /incidencias}.
+ * <p>
+ * Al comenzar cada trimestre muchos docentes notifican incidencias a la vez y las escrituras síncronas esperan una
+ * conexión libre del pool hasta agotar su tiempo. Con la ingesta asíncrona habilitada, cada incidencia recibida se
+ * deja en una cola de capacidad limitada, junto con el correo de la cabecera, y se devuelve al cliente un testigo con
+ * el que consultar su estado.
+ * </p>
+ * <p>
+ * Un único hilo escritor vacía la cola por lotes: tras recibir una incidencia espera brevemente a que lleguen más y
+ * las guarda todas en una sola transacción con {@link LoteIncidenciaService#guardarPeticiones(List)}, de modo que la
+ * confirmación y los lotes JDBC se comparten entre todas. Como durante la petición, se actualizan las incidencias
+ * identificadas que ya existen y las demás se crean con el correo de la cabecera. Si el lote falla, sus incidencias
+ * se reintentan una a una para que una incidencia errónea no impida guardar las demás.
+ * </p>
+ * <p>
+ * Si la cola está llena se rechazan las nuevas incidencias. Al detener el servicio se dejan de admitir incidencias y
+ * se guardan las que quedan en la cola, después de que el servidor web haya terminado de atender las peticiones.
+ * </p>
+ */
+@Slf4j
+@Component
+public class ColaIngestaIncidencias implements SmartLifecycle
+{
+	/**
+	 * Permite habilitar la ingesta asíncrona. Si no se habilita, las incidencias se guardan durante la petición.
+	 */
+	@Value("${incidencias.ingesta.asincrona:false}")
+	private boolean asincrona;
+
+	/**
+	 * Número máximo de incidencias que se guardan en cada transacción.
+	 */
+	@Value("${incidencias.ingesta.tamano-lote:200}")
+	private int tamanoLote;
+
+	/**
+	 * Tiempo que se espera a que lleguen más incidencias antes de guardar un lote incompleto.
+	 */
+	@Value("${incidencias.ingesta.espera:50ms}")
+	private Duration espera;
+
+	/**
+	 * Tiempo máximo que se espera al detener el servicio a que se guarden las incidencias de la cola.
+	 */
+	@Value("${incidencias.ingesta.tiempo-cierre:30s}")
+	private Duration tiempoCierre;
+
+	@Autowired
+	// Auto-inyeccion del servicio de escritura por lotes.
+	private LoteIncidenciaService loteIncidenciaService;
+
+	/**
+	 * Incidencias pendientes de guardar.
+	 */
+	private final BlockingQueue<Pendiente> cola;
+
+	/**
+	 * Estado de cada incidencia recibida, por testigo.
+	 */
+	private final Cache<String, IngestaDTO> estados;
+
+	/**
+	 * Si la cola admite incidencias. El escritor termina cuando deja de admitirlas y la cola queda vacía.
+	 */
+	private volatile boolean enMarcha;
+
+	/**
+	 * Hilo que vacía la cola.
+	 */
+	private Thread escritor;
+
+	/**
+	 * Crea la cola con los límites configurados.
+	 *
+	 * @param capacidad Número máximo de incidencias en la cola.
+	 * @param retencion Tiempo durante el que se puede consultar el estado de una incidencia recibida.
+	 */
+	public ColaIngestaIncidencias(@Value("${incidencias.ingesta.capacidad:10000}") int capacidad,
+			@Value("${incidencias.ingesta.retencion:1h}") Duration retencion)
+	{
+		this.cola = new ArrayBlockingQueue<>(capacidad);
+		// Se conservan los estados de varias colas completas para que el limite solo descarte los mas antiguos.
+		this.estados = Caffeine.newBuilder()
+				.maximumSize(10L * capacidad)
+				.expireAfterWrite(retencion)
+				.build();
+	}
+
+	/**
+	 * Indica si las incidencias deben encolarse en lugar de guardarse durante la petición.
+	 *
+	 * @return {@code true} si la ingesta asíncrona está habilitada.
+	 */
+	public boolean isAsincrona()
+	{
+		return this.asincrona;
+	}
+
+	/**
+	 * Deja una incidencia en la cola para guardarla en segundo plano.
+	 *
+	 * @param correoDocente El correo del docente recibido en la cabecera, con el que se crean las incidencias nuevas.
+	 * @param incidenciaDTO La incidencia recibida, con el aula y la descripción ya validados.
+	 * @return El estado de la incidencia, con el testigo asignado.
+	 * @throws RejectedExecutionException Si la cola está llena o el servicio se está deteniendo.
+	 */
+	public IngestaDTO encolar(String correoDocente, IncidenciaDTO incidenciaDTO) throws RejectedExecutionException
+	{
+		if (!this.enMarcha)
+		{
+			throw new RejectedExecutionException("La cola de ingesta no admite incidencias.");
+		}
+
+		IngestaDTO ingesta = new IngestaDTO(UUID.randomUUID().toString(), IngestaDTO.EN_COLA, null);
+		this.estados.put(ingesta.getTestigo(), ingesta);
+		if (!this.cola.offer(new Pendiente(ingesta.getTestigo(), new PeticionIncidenciaDTO(correoDocente, incidenciaDTO))))
+		{
+			this.estados.invalidate(ingesta.getTestigo());
+			throw new RejectedExecutionException("La cola de ingesta esta llena.");
+		}
+		return ingesta;
+	}
+
+	/**
+	 * Devuelve el estado de una incidencia recibida.
+	 *
+	 * @param testigo El testigo devuelto al encolar la incidencia.
+	 * @return El estado de la incidencia, o {@code null} si el testigo no existe o ha caducado.
+	 */
+	public IngestaDTO consultar(String testigo)
+	{
+		return this.estados.getIfPresent(testigo);
+	}
+
+	/**
+	 * Devuelve el número de incidencias que esperan en la cola.
+	 *
+	 * @return El número de incidencias pendientes de guardar.
+	 */
+	public int pendientes()
+	{
+		return this.cola.size();
+	}
+
+	@Override
+	public void start()
+	{
+		if (!this.asincrona)
+		{
+			return;
+		}
+		this.enMarcha = true;
+		this.escritor = new Thread(this::escribir, "ingesta");
+		this.escritor.setDaemon(true);
+		this.escritor.start();
+		log.info("INFO: Ingesta asincrona de incidencias iniciada.");
+	}
+
+	@Override
+	public void stop()
+	{
+		if (this.escritor == null)
+		{
+			return;
+		}
+		this.enMarcha = false;
+		log.info("INFO: Deteniendo la ingesta asincrona, {} incidencias en cola.", this.cola.size());
+		try
+		{
+			this.escritor.join(this.tiempoCierre.toMillis());
+			if (this.escritor.isAlive())
+			{
+				log.error("ERROR: La cola de ingesta no se ha vaciado en {}, se interrumpe el escritor.", this.tiempoCierre);
+				this.escritor.interrupt();
+				this.escritor.join();
+			}
+		}
+		catch (InterruptedException interruptedException)
+		{
+			Thread.currentThread().interrupt();
+		}
+		this.escritor = null;
+	}
+
+	@Override
+	public boolean isRunning()
+	{
+		return this.escritor != null;
+	}
+
+	/**
+	 * La cola se inicia antes y se detiene después que el servidor web, de modo que no queden peticiones encolando
+	 * incidencias mientras se vacía.
+	 */
+	@Override
+	public int getPhase()
+	{
+		return SmartLifecycle.DEFAULT_PHASE - 4096;
+	}
+
+	/**
+	 * Bucle del hilo escritor: recibe lotes de la cola y los guarda hasta que se detiene el servicio y la cola queda
+	 * vacía.
+	 */
+	private void escribir()
+	{
+		List<Pendiente> lote = new ArrayList<>(this.tamanoLote);
+		while (this.enMarcha || !this.cola.isEmpty())
+		{
+			try
+			{
+				this.recibir(lote);
+			}
+			catch (InterruptedException interruptedException)
+			{
+				Thread.currentThread().interrupt();
+			}
+			if (!lote.isEmpty())
+			{
+				this.guardar(lote);
+				lote.clear();
+			}
+			if (Thread.currentThread().isInterrupted())
+			{
+				break;
+			}
+		}
+
+		// Solo quedan incidencias si se ha interrumpido el escritor.
+		this.cola.drainTo(lote);
+		for (Pendiente pendiente : lote)
+		{
+			this.estados.put(pendiente.testigo(), new IngestaDTO(pendiente.testigo(), IngestaDTO.ERROR,
+					"El servicio se ha detenido antes de guardar la incidencia."));
+		}
+		log.info("INFO: Ingesta asincrona de incidencias detenida, {} incidencias sin guardar.", lote.size());
+	}
+
+	/**
+	 * Recibe de la cola el siguiente lote. Tras la primera incidencia espera como mucho el tiempo configurado a que
+	 * lleguen más, sin superar el tamaño de lote.
+	 *
+	 * @param lote La lista donde se añaden las incidencias recibidas.
+	 * @throws InterruptedException Si se interrumpe el escritor durante la espera.
+	 */
+	private void recibir(List<Pendiente> lote) throws InterruptedException
+	{
+		Pendiente primera = this.cola.poll(100, TimeUnit.MILLISECONDS);
+		if (primera == null)
+		{
+			return;
+		}
+		lote.add(primera);
+
+		long limite = System.nanoTime() + this.espera.toNanos();
+		while (lote.size() < this.tamanoLote)
+		{
+			this.cola.drainTo(lote, this.tamanoLote - lote.size());
+			long restante = limite - System.nanoTime();
+			if (lote.size() >= this.tamanoLote || restante <= 0)
+			{
+				return;
+			}
+			Pendiente siguiente = this.cola.poll(restante, TimeUnit.NANOSECONDS);
+			if (siguiente == null)
+			{
+				return;
+			}
+			lote.add(siguiente);
+		}
+	}
+
+	/**
+	 * Guarda un lote en una transacción y anota el estado de cada incidencia. Si falla, guarda cada incidencia en su
+	 * propia transacción.
+	 *
+	 * @param lote Las incidencias a guardar.
+	 */
+	private void guardar(List<Pendiente> lote)
+	{
+		try
+		{
+			List<IncidenciaModificadaEvent.Tipo> tipos = this.loteIncidenciaService
+					.guardarPeticiones(lote.stream().map(Pendiente::peticion).toList());
+			for (int i = 0; i < lote.size(); i++)
+			{
+				this.anotar(lote.get(i), tipos.get(i));
+			}
+			log.debug("DEBUG: Lote de ingesta de {} incidencias guardado.", lote.size());
+		}
+		catch (Exception batchIssueException)
+		{
+			log.error("ERROR: Fallo al guardar un lote de ingesta de " + lote.size() + " incidencias.", batchIssueException);
+			for (Pendiente pendiente : lote)
+			{
+				try
+				{
+					this.anotar(pendiente, this.loteIncidenciaService.guardarPeticiones(List.of(pendiente.peticion())).get(0));
+				}
+				catch (Exception issueException)
+				{
+					log.error("ERROR: No se ha podido guardar la incidencia encolada " + pendiente.testigo(), issueException);
+					this.estados.put(pendiente.testigo(),
+							new IngestaDTO(pendiente.testigo(), IngestaDTO.ERROR, issueException.getMessage()));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Anota el estado de una incidencia guardada.
+	 */
+	private void anotar(Pendiente pendiente, IncidenciaModificadaEvent.Tipo tipo)
+	{
+		String estado = tipo == IncidenciaModificadaEvent.Tipo.CREADA ? IngestaDTO.CREADA : IngestaDTO.ACTUALIZADA;
+		this.estados.put(pendiente.testigo(), new IngestaDTO(pendiente.testigo(), estado, null));
+	}
+
+	/**
+	 * Petición de la cola junto con su testigo.
+	 */
+	private record Pendiente(String testigo, PeticionIncidenciaDTO peticion)
+	{
+	}
+}
@@ -1,9 +1,12 @@
 package es.iesjandula.ReaktorIssuesServer.mappers;
 
+import java.util.Date;
+
 import org.springframework.stereotype.Component;
 
 import es.iesjandula.ReaktorIssuesServer.dto.IncidenciaDTO;
 import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import es.iesjandula.ReaktorIssuesServer.utils.Constants;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -60,7 +63,7 @@ public class IncidenciaMapper
 			incidencia.setDescripcionIncidencia(dto.getDescripcionIncidencia());
 			incidencia.setEstadoIncidencia(dto.getEstadoIncidencia());
 			incidencia.setComentario(dto.getComentario());
-			log.debug("DEBUG: Incidencia mapeada con éxito.\n Incidenecia: {}", incidencia.toString());
+			log.debug("DEBUG: Incidencia mapeada con éxito.\n Incidenecia: {}", incidencia);
 
 			// Retorna el nuevo objeto completamente cargado con los datos correspondientes.
 			return incidencia;
@@ -75,6 +78,38 @@ public class IncidenciaMapper
 
 	}
 
+	/**
+	 * Crea una incidencia nueva con el correo de la cabecera, la fecha actual, el
+	 * estado pendiente y sin comentario.
+	 * 
+	 * Es la incidencia que se crea con {@code PUT /incidencias} cuando el DTO no
+	 * identifica una incidencia que ya existe, por lo que solo se toman del DTO el
+	 * aula y la descripción.
+	 *
+	 * @param correoDocente El correo del docente recibido en la cabecera.
+	 * @param dto           La incidencia recibida.
+	 * @return La incidencia a guardar.
+	 */
+	public IncidenciaEntity mapToNuevaEntity(String correoDocente, IncidenciaDTO dto)
+	{
+		// Objeto fecha de hoy
+		Date today = new Date();
+		
+		// Primer parametro  - Numero de Aula
+		// Segundo parametro - Correo del Docente
+		// Tercer parametro  - Fecha Actual
+		// Cuarto parametro  - Descripcion
+		// Quinto parametro  - Estado(Pendiente)
+		// Sexto parametro   - Comentario(Vacío)
+		return new IncidenciaEntity(
+				dto.getNumeroAula(), 
+				correoDocente, 
+				today,
+				dto.getDescripcionIncidencia(),
+				Constants.ESTADO_PENDIENTE,
+				"");
+	}
+
 	/**
 	 * Verifica si el objeto IncidenciaDTO proporcionado es válido.
 	 *
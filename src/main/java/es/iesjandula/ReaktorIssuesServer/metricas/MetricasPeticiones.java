@@ -0,0 +1,109 @@
+package es.iesjandula.ReaktorIssuesServer.metricas;
+
+import java.util.Map;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Mide la duración de cada petición atendida por el controlador de incidencias, por operación y resultado.
+ * <p>
+ * Cada método del controlador registra su duración en el temporizador {@code incidencias.peticiones}, cuyo número de
+ * muestras es además el contador de peticiones. La etiqueta {@code operacion} es el nombre del método y la etiqueta
+ * {@code resultado} se obtiene de la respuesta: {@code CREADA}, {@code ACTUALIZADA}, {@code ENCOLADA},
+ * {@code BORRADA}, {@code OK}, {@code NO_ENCONTRADA}, {@code INVALIDA}, {@code NO_DISPONIBLE} o
+ * {@code ERROR_<id>} con el identificador de {@code IssuesServerError}.
+ * </p>
+ * <p>
+ * En las exportaciones solo se mide hasta que comienza la respuesta; la duración completa la recoge la métrica
+ * {@code http.server.requests} de Spring.
+ * </p>
+ */
+@Aspect
+@Component
+public class MetricasPeticiones
+{
+	/**
+	 * Nombre del temporizador de las peticiones.
+	 */
+	public static final String METRICA = "incidencias.peticiones";
+
+	@Autowired
+	// Auto-inyeccion del registro de metricas.
+	private MeterRegistry meterRegistry;
+
+	/**
+	 * Mide una petición y la anota con el resultado de su respuesta.
+	 *
+	 * @param peticion El método del controlador en ejecución.
+	 * @return La respuesta del controlador.
+	 * @throws Throwable La excepción del controlador, si la lanza.
+	 */
+	@Around("within(es.iesjandula.ReaktorIssuesServer.rest.IncidenciaController) "
+			+ "&& execution(public org.springframework.http.ResponseEntity *(..))")
+	public Object medir(ProceedingJoinPoint peticion) throws Throwable
+	{
+		Timer.Sample muestra = Timer.start(this.meterRegistry);
+		String operacion = peticion.getSignature().getName();
+		String resultado = "EXCEPCION";
+		try
+		{
+			Object respuesta = peticion.proceed();
+			resultado = resultado(operacion, (ResponseEntity<?>) respuesta);
+			return respuesta;
+		}
+		finally
+		{
+			muestra.stop(Timer.builder(METRICA)
+					.description("Duracion de las peticiones de incidencias por operacion y resultado")
+					.tag("operacion", operacion)
+					.tag("resultado", resultado)
+					.register(this.meterRegistry));
+		}
+	}
+
+	/**
+	 * Obtiene el resultado de una petición a partir de su respuesta.
+	 */
+	static String resultado(String operacion, ResponseEntity<?> respuesta)
+	{
+		// Las respuestas de error llevan el mapa de IssuesServerError con su identificador.
+		if (respuesta.getBody() instanceof Map<?, ?> error && error.containsKey("id") && error.containsKey("message"))
+		{
+			return "ERROR_" + error.get("id");
+		}
+
+		HttpStatus estado = HttpStatus.resolve(respuesta.getStatusCode().value());
+		if (estado == null)
+		{
+			return String.valueOf(respuesta.getStatusCode().value());
+		}
+		switch (estado)
+		{
+			case CREATED:
+				return "CREADA";
+			case ACCEPTED:
+				return "ENCOLADA";
+			case NO_CONTENT:
+				return "BORRADA";
+			case NOT_FOUND:
+				return "NO_ENCONTRADA";
+			case BAD_REQUEST:
+				return "INVALIDA";
+			case SERVICE_UNAVAILABLE:
+				return "NO_DISPONIBLE";
+			case OK:
+				return operacion.equals("crearActualizarIncidencia") ? "ACTUALIZADA" : "OK";
+			default:
+				return String.valueOf(estado.value());
+		}
+	}
+}
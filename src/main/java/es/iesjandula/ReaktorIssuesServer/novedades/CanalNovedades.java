@@ -0,0 +1,381 @@
+package es.iesjandula.ReaktorIssuesServer.novedades;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import es.iesjandula.ReaktorIssuesServer.dto.IncidenciaDTO;
+import es.iesjandula.ReaktorIssuesServer.dto.NovedadDTO;
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import es.iesjandula.ReaktorIssuesServer.events.IncidenciaModificadaEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Canal de Server-Sent Events que envía a los clientes suscritos cada incidencia creada, actualizada o eliminada.
+ * <p>
+ * Cada {@link IncidenciaModificadaEvent} confirmado recibe un identificador consecutivo y se guarda en un historial
+ * de tamaño acotado. Un cliente que se reconecta con la cabecera {@code Last-Event-ID} recibe primero las novedades
+ * del historial posteriores a ese identificador; si ya no están en el historial, recibe el evento
+ * {@value #EVENTO_REINICIO} y debe repetir su búsqueda.
+ * </p>
+ * <p>
+ * Los identificadores empiezan en el instante de arranque del servicio multiplicado por mil, de modo que los de un
+ * arranque anterior son menores que los del historial actual y el cliente que los envía también recibe
+ * {@value #EVENTO_REINICIO}, igual que el que envía un identificador posterior al último publicado.
+ * </p>
+ * <p>
+ * Cada suscriptor tiene su propia cola acotada, que se vacía en un hilo virtual, de modo que un cliente lento no
+ * retrasa a los demás ni a la transacción que ha publicado el evento. Si la cola de un suscriptor se llena, se cierra
+ * su conexión y sus novedades pendientes se descartan; al reconectarse las recupera del historial.
+ * </p>
+ */
+@Slf4j
+@Component
+public class CanalNovedades
+{
+	/**
+	 * Evento que indica al cliente que se ha perdido alguna novedad y debe repetir la búsqueda.
+	 */
+	public static final String EVENTO_REINICIO = "REINICIO";
+
+	/**
+	 * Número máximo de novedades pendientes de enviar a cada suscriptor.
+	 */
+	private final int capacidadSuscriptor;
+
+	/**
+	 * Número de novedades que se conservan para los clientes que se reconectan.
+	 */
+	private final int tamanoHistorial;
+
+	/**
+	 * Últimas novedades publicadas, de la más antigua a la más reciente.
+	 */
+	private final Deque<Novedad> historial = new ArrayDeque<>();
+
+	/**
+	 * Identificador de la última novedad publicada.
+	 */
+	private long ultimoId;
+
+	/**
+	 * Suscriptores conectados.
+	 */
+	private final Set<Suscriptor> suscriptores = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Hilos que envían las novedades encoladas a cada suscriptor.
+	 */
+	private final ExecutorService envios = Executors
+			.newThreadPerTaskExecutor(Thread.ofVirtual().name("novedades-", 1).factory());
+
+	/**
+	 * Crea el canal con la capacidad de cada suscriptor y el tamaño del historial configurados.
+	 *
+	 * @param capacidadSuscriptor Número máximo de novedades pendientes de enviar a cada suscriptor.
+	 * @param tamanoHistorial     Número de novedades que se conservan para los clientes que se reconectan.
+	 */
+	@Autowired
+	public CanalNovedades(@Value("${incidencias.novedades.capacidad-suscriptor:256}") int capacidadSuscriptor,
+			@Value("${incidencias.novedades.historial:10000}") int tamanoHistorial)
+	{
+		this(capacidadSuscriptor, tamanoHistorial, System.currentTimeMillis() * 1000);
+	}
+
+	/**
+	 * Crea el canal con el identificador a partir del cual se numeran las novedades.
+	 *
+	 * @param capacidadSuscriptor Número máximo de novedades pendientes de enviar a cada suscriptor.
+	 * @param tamanoHistorial     Número de novedades que se conservan para los clientes que se reconectan.
+	 * @param ultimoId            El identificador anterior a la primera novedad.
+	 */
+	CanalNovedades(int capacidadSuscriptor, int tamanoHistorial, long ultimoId)
+	{
+		this.capacidadSuscriptor = capacidadSuscriptor;
+		this.tamanoHistorial = tamanoHistorial;
+		this.ultimoId = ultimoId;
+	}
+
+	/**
+	 * Registra un suscriptor, enviándole antes las novedades que se ha perdido si se reconecta.
+	 *
+	 * @param emisor           La conexión SSE del cliente.
+	 * @param numeroAula       Si no es nulo, solo se envían las novedades de incidencias de esta aula.
+	 * @param estadoIncidencia Si no es nulo, solo se envían las novedades de incidencias que tienen o tenían este
+	 *                         estado.
+	 * @param ultimoIdRecibido El identificador de la última novedad recibida antes de reconectarse, o null.
+	 */
+	public void suscribir(SseEmitter emisor, String numeroAula, String estadoIncidencia, Long ultimoIdRecibido)
+	{
+		Suscriptor suscriptor = new Suscriptor(emisor, numeroAula, estadoIncidencia);
+		emisor.onCompletion(() -> this.suscriptores.remove(suscriptor));
+		emisor.onTimeout(() -> this.retirar(suscriptor));
+		emisor.onError(error -> this.retirar(suscriptor));
+
+		// Bajo el mismo cerrojo que la publicacion, para no perder ni repetir novedades entre el historial y la cola.
+		synchronized (this.historial)
+		{
+			if (ultimoIdRecibido != null && ultimoIdRecibido > this.ultimoId)
+			{
+				// El identificador no se ha publicado en este arranque del servicio.
+				suscriptor.encolar(new Novedad(this.ultimoId, EVENTO_REINICIO, null));
+			}
+			else if (ultimoIdRecibido != null && ultimoIdRecibido < this.ultimoId)
+			{
+				List<Novedad> perdidas = new ArrayList<>();
+				boolean completas = !this.historial.isEmpty() && this.historial.peekFirst().id() <= ultimoIdRecibido + 1;
+				for (Novedad novedad : this.historial)
+				{
+					if (novedad.id() > ultimoIdRecibido && suscriptor.interesa(novedad))
+					{
+						perdidas.add(novedad);
+					}
+				}
+				if (!completas || perdidas.size() > this.capacidadSuscriptor)
+				{
+					suscriptor.encolar(new Novedad(this.ultimoId, EVENTO_REINICIO, null));
+				}
+				else
+				{
+					perdidas.forEach(suscriptor::encolar);
+				}
+			}
+			this.suscriptores.add(suscriptor);
+		}
+		this.programar(suscriptor);
+	}
+
+	/**
+	 * Envía a los suscriptores interesados cada modificación de incidencia una vez confirmada.
+	 *
+	 * @param evento El evento de la incidencia creada, actualizada o eliminada.
+	 */
+	@TransactionalEventListener(fallbackExecution = true)
+	public void alModificarIncidencia(IncidenciaModificadaEvent evento)
+	{
+		IncidenciaEntity incidencia = evento.getIncidencia();
+		NovedadDTO datos = new NovedadDTO(evento.getTipo().name(),
+				new IncidenciaDTO(incidencia.getNumeroAula(), incidencia.getCorreoDocente(),
+						incidencia.getFechaIncidencia(), incidencia.getDescripcionIncidencia(),
+						incidencia.getEstadoIncidencia(), incidencia.getComentario()),
+				evento.getEstadoAnterior());
+
+		List<Suscriptor> destinatarios = new ArrayList<>();
+		synchronized (this.historial)
+		{
+			Novedad novedad = new Novedad(++this.ultimoId, datos.getTipo(), datos);
+			this.historial.addLast(novedad);
+			if (this.historial.size() > this.tamanoHistorial)
+			{
+				this.historial.removeFirst();
+			}
+
+			for (Suscriptor suscriptor : this.suscriptores)
+			{
+				if (suscriptor.interesa(novedad))
+				{
+					if (suscriptor.encolar(novedad))
+					{
+						destinatarios.add(suscriptor);
+					}
+					else
+					{
+						log.debug("DEBUG: Suscriptor de novedades expulsado por no leer a tiempo.");
+						this.retirar(suscriptor);
+					}
+				}
+			}
+		}
+		destinatarios.forEach(this::programar);
+	}
+
+	/**
+	 * Envía periódicamente un comentario a cada suscriptor para detectar las conexiones cerradas.
+	 */
+	@Scheduled(fixedDelayString = "${incidencias.novedades.latido:PT15S}")
+	public void latir()
+	{
+		for (Suscriptor suscriptor : this.suscriptores)
+		{
+			if (suscriptor.encolar(Novedad.LATIDO))
+			{
+				this.programar(suscriptor);
+			}
+			else
+			{
+				this.retirar(suscriptor);
+			}
+		}
+	}
+
+	/**
+	 * Devuelve el número de suscriptores conectados.
+	 *
+	 * @return El número de suscriptores.
+	 */
+	public int getSuscriptores()
+	{
+		return this.suscriptores.size();
+	}
+
+	/**
+	 * Cierra todas las conexiones al detener la aplicación.
+	 */
+	@PreDestroy
+	public void cerrar()
+	{
+		this.suscriptores.forEach(this::retirar);
+		this.envios.shutdownNow();
+	}
+
+	/**
+	 * Lanza el envío de las novedades encoladas del suscriptor si no hay otro en curso.
+	 */
+	private void programar(Suscriptor suscriptor)
+	{
+		if (suscriptor.enviando.compareAndSet(false, true))
+		{
+			this.envios.execute(() -> this.enviar(suscriptor));
+		}
+	}
+
+	/**
+	 * Envía al suscriptor sus novedades encoladas, en orden.
+	 */
+	private void enviar(Suscriptor suscriptor)
+	{
+		do
+		{
+			Novedad novedad;
+			while ((novedad = suscriptor.cola.poll()) != null)
+			{
+				try
+				{
+					suscriptor.emisor.send(novedad.evento());
+				}
+				catch (IOException | IllegalStateException sendException)
+				{
+					// Conexion cerrada por el cliente o ya completada.
+					this.retirar(suscriptor);
+					return;
+				}
+			}
+			suscriptor.enviando.set(false);
+		}
+		// Una novedad encolada tras vaciar la cola y antes de liberar el envio no se ha programado.
+		while (!suscriptor.cola.isEmpty() && suscriptor.enviando.compareAndSet(false, true));
+	}
+
+	/**
+	 * Retira un suscriptor y cierra su conexión.
+	 */
+	private void retirar(Suscriptor suscriptor)
+	{
+		if (this.suscriptores.remove(suscriptor))
+		{
+			suscriptor.cola.clear();
+			suscriptor.emisor.complete();
+		}
+	}
+
+	/**
+	 * Novedad publicada, con su identificador consecutivo.
+	 *
+	 * @param id     Identificador de la novedad, que el cliente devuelve en {@code Last-Event-ID} al reconectarse.
+	 * @param nombre Nombre del evento SSE.
+	 * @param datos  Datos del evento, o null si no tiene.
+	 */
+	private record Novedad(long id, String nombre, NovedadDTO datos)
+	{
+		/**
+		 * Comentario sin datos que solo comprueba que la conexión sigue abierta.
+		 */
+		static final Novedad LATIDO = new Novedad(0, null, null);
+
+		/**
+		 * Construye el evento SSE de la novedad.
+		 */
+		SseEmitter.SseEventBuilder evento()
+		{
+			if (this.nombre == null)
+			{
+				return SseEmitter.event().comment("latido");
+			}
+			SseEmitter.SseEventBuilder evento = SseEmitter.event().id(Long.toString(this.id)).name(this.nombre);
+			return this.datos == null ? evento.data("") : evento.data(this.datos);
+		}
+	}
+
+	/**
+	 * Cliente suscrito, con su filtro y su cola de novedades pendientes.
+	 */
+	private final class Suscriptor
+	{
+		private final SseEmitter emisor;
+
+		private final String numeroAula;
+
+		private final String estadoIncidencia;
+
+		private final Queue<Novedad> cola = new ArrayBlockingQueue<>(CanalNovedades.this.capacidadSuscriptor);
+
+		/**
+		 * Indica si hay un hilo enviando las novedades de la cola.
+		 */
+		private final AtomicBoolean enviando = new AtomicBoolean();
+
+		Suscriptor(SseEmitter emisor, String numeroAula, String estadoIncidencia)
+		{
+			this.emisor = emisor;
+			this.numeroAula = numeroAula;
+			this.estadoIncidencia = estadoIncidencia;
+		}
+
+		/**
+		 * Añade una novedad a la cola.
+		 *
+		 * @return false si la cola está llena.
+		 */
+		boolean encolar(Novedad novedad)
+		{
+			return this.cola.offer(novedad);
+		}
+
+		/**
+		 * Comprueba si la novedad cumple el filtro del suscriptor. Una actualización interesa a los suscriptores del
+		 * estado anterior y del nuevo, o de cualquier estado si el anterior no se conoce.
+		 */
+		boolean interesa(Novedad novedad)
+		{
+			IncidenciaDTO incidencia = novedad.datos().getIncidencia();
+			if (this.numeroAula != null && !this.numeroAula.equalsIgnoreCase(incidencia.getNumeroAula()))
+			{
+				return false;
+			}
+			if (this.estadoIncidencia == null || this.estadoIncidencia.equalsIgnoreCase(incidencia.getEstadoIncidencia()))
+			{
+				return true;
+			}
+			boolean actualizada = IncidenciaModificadaEvent.Tipo.ACTUALIZADA.name().equals(novedad.datos().getTipo());
+			return actualizada && (novedad.datos().getEstadoAnterior() == null
+					|| this.estadoIncidencia.equalsIgnoreCase(novedad.datos().getEstadoAnterior()));
+		}
+	}
+}
@@ -0,0 +1,284 @@
+package es.iesjandula.ReaktorIssuesServer.particiones;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import es.iesjandula.ReaktorIssuesServer.cache.CacheBusquedaIncidencias;
+import es.iesjandula.ReaktorIssuesServer.cache.VersionesBusqueda;
+import es.iesjandula.ReaktorIssuesServer.estadisticas.EstadisticasIncidencias;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Mantiene la tabla de incidencias particionada por meses de {@code fecha_incidencia} en MySQL.
+ * <p>
+ * La tabla se particiona una sola vez con {@code db/particionado/migracion.sql}: una partición {@code pAAAAMM} por
+ * mes, con las incidencias de ese mes, y una última partición {@code p_futuro} para las fechas posteriores. Como todas
+ * las búsquedas acotan o recorren la fecha, MySQL solo lee las particiones de los meses buscados.
+ * </p>
+ * <p>
+ * Al arrancar y cada día se crean las particiones de los próximos meses dividiendo {@code p_futuro}, que está vacía,
+ * por lo que no se copian filas. Si se configura un número de meses a conservar, las particiones anteriores se retiran
+ * de la tabla de una sola vez, sin borrar sus filas una a una: se eliminan o se intercambian por una tabla
+ * {@code incidencias_pAAAAMM} con sus filas, que puede consultarse, copiarse o eliminarse después.
+ * </p>
+ * <p>
+ * Las incidencias retiradas no generan eventos: al retirar una partición se vacía la caché de búsquedas, cambian
+ * las etiquetas de todas las búsquedas y se recalculan las estadísticas. El índice de texto conserva sus claves, que
+ * se descartan al no encontrarse en la tabla.
+ * </p>
+ */
+@Slf4j
+@Component
+public class ParticionesIncidencias
+{
+	/**
+	 * Nombre de la última partición, que recibe las fechas posteriores al último mes creado.
+	 */
+	public static final String PARTICION_FUTURO = "p_futuro";
+
+	/**
+	 * Formato de los nombres de las particiones mensuales.
+	 */
+	private static final DateTimeFormatter NOMBRE_PARTICION = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+	/**
+	 * Nombres de las particiones mensuales.
+	 */
+	private static final Pattern PARTICION_MENSUAL = Pattern.compile("p\\d{6}");
+
+	@Autowired
+	// Auto-inyeccion del acceso JDBC para las sentencias de definicion de la tabla.
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	// Auto-inyeccion de la cache de paginas de resultados.
+	private CacheBusquedaIncidencias cacheBusqueda;
+
+	@Autowired
+	// Auto-inyeccion de las versiones de los datos de cada busqueda.
+	private VersionesBusqueda versionesBusqueda;
+
+	@Autowired
+	// Auto-inyeccion de los contadores de incidencias.
+	private EstadisticasIncidencias estadisticas;
+
+	@Autowired
+	// Auto-inyeccion del planificador de tareas, que recalcula las estadisticas tras retirar una particion.
+	private TaskScheduler taskScheduler;
+
+	/**
+	 * Indica si la tabla está particionada y deben mantenerse sus particiones.
+	 */
+	@Value("${incidencias.particiones.habilitadas:false}")
+	private boolean habilitadas;
+
+	/**
+	 * Número de meses posteriores al actual cuyas particiones se crean por adelantado.
+	 */
+	@Value("${incidencias.particiones.meses-futuros:3}")
+	private int mesesFuturos;
+
+	/**
+	 * Número de meses, contando el actual, cuyas particiones se conservan. Cero las conserva todas.
+	 */
+	@Value("${incidencias.particiones.meses-conservados:0}")
+	private int mesesConservados;
+
+	/**
+	 * Si las particiones retiradas se conservan como tablas en lugar de eliminarse.
+	 */
+	@Value("${incidencias.particiones.archivar:true}")
+	private boolean archivar;
+
+	/**
+	 * Crea las particiones que falten cuando la aplicación ha arrancado.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void mantenerAlArrancar()
+	{
+		this.mantener();
+	}
+
+	/**
+	 * Crea las particiones de los próximos meses y retira las que superan los meses a conservar.
+	 */
+	@Scheduled(cron = "${incidencias.particiones.cron:0 30 3 * * *}")
+	public synchronized void mantener()
+	{
+		if (!this.habilitadas)
+		{
+			return;
+		}
+
+		try
+		{
+			YearMonth actual = YearMonth.now();
+			List<YearMonth> creadas = this.crearParticionesFuturas(actual);
+			if (!creadas.isEmpty())
+			{
+				log.info("INFO: Creadas las particiones de incidencias de {} a {}.", creadas.get(0),
+						creadas.get(creadas.size() - 1));
+			}
+
+			if (this.mesesConservados > 0)
+			{
+				YearMonth primerMes = actual.minusMonths(this.mesesConservados - 1L);
+				for (YearMonth mes : this.meses())
+				{
+					if (mes.isBefore(primerMes))
+					{
+						this.retirarParticion(mes, this.archivar);
+					}
+				}
+			}
+		}
+		catch (Exception partitionException)
+		{
+			log.error("ERROR: No se han podido mantener las particiones de la tabla incidencias.", partitionException);
+		}
+	}
+
+	/**
+	 * Crea las particiones mensuales que falten hasta {@code mesesFuturos} meses después del indicado.
+	 *
+	 * @param actual El mes actual.
+	 * @return Los meses cuyas particiones se han creado, en orden.
+	 * @throws IllegalStateException Si la tabla no está particionada.
+	 */
+	public List<YearMonth> crearParticionesFuturas(YearMonth actual) throws IllegalStateException
+	{
+		List<YearMonth> existentes = this.meses();
+		YearMonth ultimo = actual.plusMonths(this.mesesFuturos);
+		YearMonth mes = existentes.isEmpty() ? actual : existentes.get(existentes.size() - 1).plusMonths(1);
+
+		List<YearMonth> nuevos = new ArrayList<>();
+		for (; !mes.isAfter(ultimo); mes = mes.plusMonths(1))
+		{
+			nuevos.add(mes);
+		}
+		if (!nuevos.isEmpty())
+		{
+			this.jdbcTemplate.execute(sentenciaCrear(nuevos));
+		}
+		return nuevos;
+	}
+
+	/**
+	 * Retira de la tabla la partición de un mes, con todas sus incidencias.
+	 *
+	 * @param mes      El mes de la partición.
+	 * @param archivar Si la partición se conserva como la tabla {@code incidencias_pAAAAMM} en lugar de eliminarse.
+	 * @return El nombre de la tabla con las incidencias retiradas, o null si se han eliminado.
+	 * @throws IllegalStateException Si ya existe una tabla {@code incidencias_pAAAAMM} con incidencias.
+	 */
+	public synchronized String retirarParticion(YearMonth mes, boolean archivar) throws IllegalStateException
+	{
+		String particion = NOMBRE_PARTICION.format(mes);
+		String tabla = null;
+		if (archivar)
+		{
+			tabla = "incidencias_" + particion;
+			this.crearTablaArchivo(tabla);
+			try
+			{
+				// El intercambio solo cambia los ficheros de la particion y de la tabla vacia, sin copiar filas.
+				this.jdbcTemplate.execute("ALTER TABLE " + tabla + " REMOVE PARTITIONING");
+				this.jdbcTemplate
+						.execute("ALTER TABLE incidencias EXCHANGE PARTITION " + particion + " WITH TABLE " + tabla);
+			}
+			catch (RuntimeException exchangeException)
+			{
+				// La tabla sigue vacia, ya que el intercambio no se ha hecho, y se elimina para poder reintentarlo.
+				this.jdbcTemplate.execute("DROP TABLE IF EXISTS " + tabla);
+				throw exchangeException;
+			}
+		}
+		this.jdbcTemplate.execute("ALTER TABLE incidencias DROP PARTITION " + particion);
+		log.info("INFO: Retirada la particion {} de la tabla incidencias{}.", particion,
+				tabla == null ? "" : " a la tabla " + tabla);
+
+		// Las incidencias retiradas no han pasado por el servicio.
+		this.cacheBusqueda.vaciar();
+		this.versionesBusqueda.invalidarTodo();
+		this.taskScheduler.schedule(this.estadisticas::recalcular, Instant.now());
+		return tabla;
+	}
+
+	/**
+	 * Crea la tabla vacía que recibe las incidencias de una partición. Si ya existe y está vacía, porque un intento
+	 * anterior no llegó a intercambiar la partición, se vuelve a crear.
+	 *
+	 * @param tabla El nombre de la tabla.
+	 * @throws IllegalStateException Si la tabla ya existe y tiene incidencias.
+	 */
+	private void crearTablaArchivo(String tabla) throws IllegalStateException
+	{
+		boolean existe = !this.jdbcTemplate.queryForList("SELECT TABLE_NAME FROM information_schema.TABLES "
+				+ "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?", String.class, tabla).isEmpty();
+		if (existe)
+		{
+			if (!this.jdbcTemplate.queryForList("SELECT 1 FROM " + tabla + " LIMIT 1", Integer.class).isEmpty())
+			{
+				throw new IllegalStateException("La tabla " + tabla + " ya existe y contiene incidencias, debe "
+						+ "revisarse antes de retirar la particion.");
+			}
+			this.jdbcTemplate.execute("DROP TABLE " + tabla);
+		}
+		this.jdbcTemplate.execute("CREATE TABLE " + tabla + " LIKE incidencias");
+	}
+
+	/**
+	 * Obtiene los meses que tienen partición en la tabla de incidencias.
+	 *
+	 * @return Los meses con partición, en orden.
+	 * @throws IllegalStateException Si la tabla no está particionada.
+	 */
+	public List<YearMonth> meses() throws IllegalStateException
+	{
+		List<String> particiones = this.jdbcTemplate.queryForList("SELECT PARTITION_NAME FROM information_schema.PARTITIONS "
+				+ "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'incidencias' ORDER BY PARTITION_ORDINAL_POSITION",
+				String.class);
+		if (particiones.isEmpty() || particiones.stream().anyMatch(Objects::isNull)
+				|| !particiones.contains(PARTICION_FUTURO))
+		{
+			throw new IllegalStateException(
+					"La tabla incidencias no esta particionada por meses, debe ejecutarse db/particionado/migracion.sql.");
+		}
+		return particiones.stream().filter(particion -> PARTICION_MENSUAL.matcher(particion).matches())
+				.map(particion -> YearMonth.parse(particion, NOMBRE_PARTICION)).sorted().toList();
+	}
+
+	/**
+	 * Construye la sentencia que divide la partición {@code p_futuro} en una partición por cada mes indicado, seguida de
+	 * una nueva {@code p_futuro}.
+	 *
+	 * @param meses Los meses consecutivos, en orden, posteriores a la última partición mensual.
+	 * @return La sentencia {@code ALTER TABLE ... REORGANIZE PARTITION}.
+	 */
+	static String sentenciaCrear(List<YearMonth> meses)
+	{
+		StringBuilder sentencia = new StringBuilder("ALTER TABLE incidencias REORGANIZE PARTITION ")
+				.append(PARTICION_FUTURO).append(" INTO (");
+		for (YearMonth mes : meses)
+		{
+			sentencia.append("PARTITION ").append(NOMBRE_PARTICION.format(mes)).append(" VALUES LESS THAN ('")
+					.append(mes.plusMonths(1).atDay(1)).append("'), ");
+		}
+		return sentencia.append("PARTITION ").append(PARTICION_FUTURO).append(" VALUES LESS THAN (MAXVALUE))")
+				.toString();
+	}
+}
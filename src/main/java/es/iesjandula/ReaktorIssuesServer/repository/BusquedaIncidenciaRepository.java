@@ -0,0 +1,122 @@
+package es.iesjandula.ReaktorIssuesServer.repository;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import es.iesjandula.ReaktorIssuesServer.dto.CriteriosBusqueda;
+import es.iesjandula.ReaktorIssuesServer.dto.IncidenciaDTO;
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntityId;
+
+/**
+ * Búsquedas de incidencias por filtro, construidas a partir de los criterios presentes.
+ * <p>
+ * La consulta solo incluye una condición por cada criterio indicado, en lugar de la forma
+ * {@code (:criterio IS NULL OR columna = :criterio)} para todos ellos, de modo que la base de datos puede elegir en
+ * cada búsqueda el índice que corresponde a sus criterios: el de aula, el de estado, el de fecha o la clave primaria
+ * para el docente. La implementación se encuentra en {@link BusquedaIncidenciaRepositoryImpl} y se expone a través de
+ * {@link IIncidenciaRepository}.
+ * </p>
+ * <p>
+ * Las búsquedas solo incluyen la tabla de incidencias archivadas si los criterios lo indican
+ * ({@link CriteriosBusqueda#isIncluirArchivo()}).
+ * </p>
+ */
+public interface BusquedaIncidenciaRepository
+{
+
+	/**
+	 * Busca incidencias en la base de datos según los criterios especificados.
+	 * <p>
+	 * Los resultados se devuelven ordenados por fecha, aula y correo del docente, y se paginan por cursor (keyset):
+	 * si se indica el identificador de la última incidencia de la página anterior, solo se devuelven las posteriores
+	 * a ella en dicho orden. De esta forma el coste de cada página no depende de su posición en el listado.
+	 * </p>
+	 *
+	 * @param criterios Los criterios de búsqueda. Los criterios nulos no se aplican.
+	 * @param cursor    El identificador de la última incidencia de la página anterior, o uno sin fecha para la primera.
+	 * @param limite    Número máximo de incidencias a devolver.
+	 * @return Una lista de objetos {@link IncidenciaDTO} que cumplen con los criterios de búsqueda.
+	 */
+	public default List<IncidenciaDTO> buscaIncidencia(CriteriosBusqueda criterios, IncidenciaEntityId cursor,
+			int limite)
+	{
+		return this.buscaIncidencia(criterios, cursor, limite, null);
+	}
+
+	/**
+	 * Busca incidencias en la base de datos según los criterios especificados, leyendo solo algunas columnas.
+	 * <p>
+	 * Igual que {@link #buscaIncidencia(CriteriosBusqueda, IncidenciaEntityId, int)}, pero la consulta solo selecciona
+	 * las columnas de la clave y las indicadas en {@code campos}. Las columnas de texto no solicitadas no se leen, y
+	 * si solo se solicita el estado, los índices de estado y de fecha (que incluyen la clave primaria) bastan para
+	 * responder a las búsquedas que los usan.
+	 * </p>
+	 *
+	 * @param criterios Los criterios de búsqueda. Los criterios nulos no se aplican.
+	 * @param cursor    El identificador de la última incidencia de la página anterior, o uno sin fecha para la primera.
+	 * @param limite    Número máximo de incidencias a devolver.
+	 * @param campos    Nombres de los atributos de {@link IncidenciaDTO}, además de la clave, que se leen, o null para
+	 *                  leerlos todos. Los atributos no leídos quedan nulos.
+	 * @return Una lista de objetos {@link IncidenciaDTO} que cumplen con los criterios de búsqueda.
+	 */
+	public List<IncidenciaDTO> buscaIncidencia(CriteriosBusqueda criterios, IncidenciaEntityId cursor, int limite,
+			List<String> campos);
+
+	/**
+	 * Recorre las incidencias que cumplen con los criterios especificados sin cargarlas todas en memoria.
+	 * <p>
+	 * Aplica los mismos criterios y el mismo orden que {@link #buscaIncidencia}, pero devuelve un {@link Stream}
+	 * respaldado por un cursor JDBC que trae las filas de {@value IIncidenciaRepository#TAMANO_FETCH_EXPORTACION} en
+	 * {@value IIncidenciaRepository#TAMANO_FETCH_EXPORTACION}. Debe invocarse dentro de una transacción de solo
+	 * lectura y el {@link Stream} debe cerrarse al terminar para liberar la conexión.
+	 * </p>
+	 *
+	 * @param criterios Los criterios de búsqueda. Los criterios nulos no se aplican.
+	 * @return Un {@link Stream} de objetos {@link IncidenciaDTO} que cumplen con los criterios de búsqueda.
+	 */
+	public Stream<IncidenciaDTO> exportaIncidencia(CriteriosBusqueda criterios);
+
+	/**
+	 * Cuenta las incidencias que cumplen con los criterios especificados con {@code SELECT COUNT(*)}, sin leer sus
+	 * filas.
+	 *
+	 * @param criterios Los criterios de búsqueda. Los criterios nulos no se aplican.
+	 * @return El número de incidencias que cumplen con los criterios de búsqueda.
+	 */
+	public long cuentaIncidencias(CriteriosBusqueda criterios);
+
+	/**
+	 * Comprueba si alguna incidencia cumple con los criterios especificados. La consulta termina en cuanto encuentra
+	 * la primera ({@code LIMIT 1}) y solo lee una columna de su clave.
+	 *
+	 * @param criterios Los criterios de búsqueda. Los criterios nulos no se aplican.
+	 * @return {@code true} si existe al menos una incidencia que cumple con los criterios de búsqueda.
+	 */
+	public boolean existeIncidencia(CriteriosBusqueda criterios);
+
+	/**
+	 * Lee y bloquea ({@code SELECT ... FOR UPDATE}) las primeras incidencias que cumplen con los criterios, en el orden
+	 * de la paginación, para modificarlas a continuación en la misma transacción.
+	 * <p>
+	 * Solo se leen de la tabla de incidencias: las incidencias archivadas no se modifican. Solo se seleccionan las
+	 * columnas de la clave y el estado, por lo que la descripción y el comentario de las incidencias devueltas son
+	 * nulos. Las incidencias devueltas no son entidades gestionadas y sus cambios no se guardan.
+	 * </p>
+	 *
+	 * @param criterios      Los criterios de búsqueda. Los criterios nulos no se aplican.
+	 * @param estadoExcluido Si no es nulo, se omiten las incidencias que ya tienen este estado.
+	 * @param limite         Número máximo de incidencias a bloquear.
+	 * @return Las incidencias bloqueadas.
+	 */
+	public List<IncidenciaEntity> bloqueaIncidencias(CriteriosBusqueda criterios, String estadoExcluido, int limite);
+
+	/**
+	 * Cuenta las incidencias de la tabla de incidencias que {@link #bloqueaIncidencias} puede devolver, sin leerlas.
+	 *
+	 * @param criterios      Los criterios de búsqueda. Los criterios nulos no se aplican.
+	 * @param estadoExcluido Si no es nulo, no se cuentan las incidencias que ya tienen este estado.
+	 * @return El número de incidencias que se modificarían.
+	 */
+	public long cuentaModificables(CriteriosBusqueda criterios, String estadoExcluido);
+}
@@ -0,0 +1,386 @@
+package es.iesjandula.ReaktorIssuesServer.repository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.hibernate.jpa.HibernateHints;
+
+import es.iesjandula.ReaktorIssuesServer.dto.CriteriosBusqueda;
+import es.iesjandula.ReaktorIssuesServer.dto.IncidenciaDTO;
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaArchivadaEntity;
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntityId;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+
+/**
+ * Implementación de {@link BusquedaIncidenciaRepository} con la API Criteria de JPA.
+ * <p>
+ * Si los criterios incluyen el archivo, la misma consulta se ejecuta sobre {@link IncidenciaArchivadaEntity} y los
+ * resultados de ambas tablas se mezclan en el orden de la paginación.
+ * </p>
+ * <p>
+ * Las búsquedas que solo solicitan algunos campos seleccionan sus columnas como {@link Tuple} en lugar de construir
+ * el {@link IncidenciaDTO} en la consulta.
+ * </p>
+ */
+public class BusquedaIncidenciaRepositoryImpl implements BusquedaIncidenciaRepository
+{
+
+	@PersistenceContext
+	// Auto-inyeccion del gestor de entidades de la transaccion en curso.
+	private EntityManager entityManager;
+
+	/**
+	 * Atributos de la clave, que las proyecciones leen siempre para ordenar la página y calcular el cursor.
+	 */
+	private static final List<String> CLAVE = List.of("numeroAula", "correoDocente", "fechaIncidencia");
+
+	/**
+	 * Orden de la paginación: fecha, aula y correo del docente.
+	 */
+	private static final Comparator<IncidenciaDTO> ORDEN_PAGINACION = Comparator
+			.comparing(IncidenciaDTO::getFechaIncidencia)
+			.thenComparing(IncidenciaDTO::getNumeroAula)
+			.thenComparing(IncidenciaDTO::getCorreoDocente);
+
+	@Override
+	public List<IncidenciaDTO> buscaIncidencia(CriteriosBusqueda criterios, IncidenciaEntityId cursor, int limite,
+			List<String> campos)
+	{
+		List<IncidenciaDTO> incidencias = this.buscaIncidencia(IncidenciaEntity.class, criterios, cursor, limite,
+				campos);
+		if (!criterios.isIncluirArchivo())
+		{
+			return incidencias;
+		}
+
+		// Cada tabla devuelve su pagina en orden; la pagina conjunta son las primeras de ambas.
+		List<IncidenciaDTO> archivadas = this.buscaIncidencia(IncidenciaArchivadaEntity.class, criterios, cursor,
+				limite, campos);
+		return Stream.concat(incidencias.stream(), archivadas.stream()).sorted(ORDEN_PAGINACION).limit(limite)
+				.toList();
+	}
+
+	@Override
+	public Stream<IncidenciaDTO> exportaIncidencia(CriteriosBusqueda criterios)
+	{
+		Stream<IncidenciaDTO> incidencias = this.exportaIncidencia(IncidenciaEntity.class, criterios);
+		if (!criterios.isIncluirArchivo())
+		{
+			return incidencias;
+		}
+		return mezclar(incidencias, this.exportaIncidencia(IncidenciaArchivadaEntity.class, criterios));
+	}
+
+	@Override
+	public long cuentaIncidencias(CriteriosBusqueda criterios)
+	{
+		long total = this.cuentaIncidencias(IncidenciaEntity.class, criterios);
+		if (criterios.isIncluirArchivo())
+		{
+			total += this.cuentaIncidencias(IncidenciaArchivadaEntity.class, criterios);
+		}
+		return total;
+	}
+
+	@Override
+	public boolean existeIncidencia(CriteriosBusqueda criterios)
+	{
+		// El archivo solo se consulta si la tabla de incidencias no tiene ninguna.
+		return this.existeIncidencia(IncidenciaEntity.class, criterios)
+				|| (criterios.isIncluirArchivo() && this.existeIncidencia(IncidenciaArchivadaEntity.class, criterios));
+	}
+
+	@Override
+	public List<IncidenciaEntity> bloqueaIncidencias(CriteriosBusqueda criterios, String estadoExcluido, int limite)
+	{
+		CriteriaBuilder cb = this.entityManager.getCriteriaBuilder();
+		CriteriaQuery<Tuple> consulta = cb.createTupleQuery();
+		Root<IncidenciaEntity> e = consulta.from(IncidenciaEntity.class);
+
+		List<String> columnas = new ArrayList<>(CLAVE);
+		columnas.add("estadoIncidencia");
+		consulta.multiselect(columnas.stream().<Selection<?>>map(columna -> e.get(columna).alias(columna)).toList())
+				.where(predicadosModificables(cb, e, criterios, estadoExcluido).toArray(Predicate[]::new))
+				.orderBy(cb.asc(e.get("fechaIncidencia")), cb.asc(e.get("numeroAula")), cb.asc(e.get("correoDocente")));
+
+		return this.entityManager.createQuery(consulta).setMaxResults(limite)
+				.setLockMode(LockModeType.PESSIMISTIC_WRITE)
+				.getResultList().stream()
+				.map(fila -> new IncidenciaEntity(fila.get("numeroAula", String.class),
+						fila.get("correoDocente", String.class), fila.get("fechaIncidencia", Date.class), null,
+						fila.get("estadoIncidencia", String.class), null))
+				.toList();
+	}
+
+	@Override
+	public long cuentaModificables(CriteriosBusqueda criterios, String estadoExcluido)
+	{
+		CriteriaBuilder cb = this.entityManager.getCriteriaBuilder();
+		CriteriaQuery<Long> consulta = cb.createQuery(Long.class);
+		Root<IncidenciaEntity> e = consulta.from(IncidenciaEntity.class);
+		consulta.select(cb.count(e))
+				.where(predicadosModificables(cb, e, criterios, estadoExcluido).toArray(Predicate[]::new));
+
+		return this.entityManager.createQuery(consulta).getSingleResult();
+	}
+
+	/**
+	 * Busca una página de incidencias en la tabla de la entidad indicada.
+	 */
+	private List<IncidenciaDTO> buscaIncidencia(Class<?> entidad, CriteriosBusqueda criterios,
+			IncidenciaEntityId cursor, int limite, List<String> campos)
+	{
+		if (campos != null)
+		{
+			return this.proyectaIncidencia(entidad, criterios, cursor, limite, campos);
+		}
+
+		CriteriaBuilder cb = this.entityManager.getCriteriaBuilder();
+		CriteriaQuery<IncidenciaDTO> consulta = cb.createQuery(IncidenciaDTO.class);
+		Root<?> e = consulta.from(entidad);
+		seleccionar(cb, consulta, e, predicados(cb, e, criterios, cursor));
+
+		return this.entityManager.createQuery(consulta).setMaxResults(limite).getResultList();
+	}
+
+	/**
+	 * Busca una página de incidencias en la tabla de la entidad indicada, seleccionando solo la clave y las columnas
+	 * solicitadas.
+	 */
+	private List<IncidenciaDTO> proyectaIncidencia(Class<?> entidad, CriteriosBusqueda criterios,
+			IncidenciaEntityId cursor, int limite, List<String> campos)
+	{
+		CriteriaBuilder cb = this.entityManager.getCriteriaBuilder();
+		CriteriaQuery<Tuple> consulta = cb.createTupleQuery();
+		Root<?> e = consulta.from(entidad);
+
+		List<String> columnas = new ArrayList<>(CLAVE);
+		columnas.addAll(campos);
+		consulta.multiselect(columnas.stream().<Selection<?>>map(columna -> e.get(columna).alias(columna)).toList())
+				.where(predicados(cb, e, criterios, cursor).toArray(Predicate[]::new))
+				.orderBy(cb.asc(e.get("fechaIncidencia")), cb.asc(e.get("numeroAula")), cb.asc(e.get("correoDocente")));
+
+		return this.entityManager.createQuery(consulta).setMaxResults(limite).getResultList().stream()
+				.map(fila -> new IncidenciaDTO(fila.get("numeroAula", String.class),
+						fila.get("correoDocente", String.class), fila.get("fechaIncidencia", Date.class),
+						leer(fila, campos, "descripcionIncidencia"), leer(fila, campos, "estadoIncidencia"),
+						leer(fila, campos, "comentario")))
+				.toList();
+	}
+
+	/**
+	 * Obtiene el valor de una columna opcional de la fila, o null si no se ha seleccionado.
+	 */
+	private static String leer(Tuple fila, List<String> campos, String columna)
+	{
+		return campos.contains(columna) ? fila.get(columna, String.class) : null;
+	}
+
+	/**
+	 * Construye las condiciones de los criterios y, si se indica un estado excluido, la de las incidencias que no lo
+	 * tienen, incluidas las que no tienen estado.
+	 */
+	private static List<Predicate> predicadosModificables(CriteriaBuilder cb, Root<?> e,
+			CriteriosBusqueda criterios, String estadoExcluido)
+	{
+		List<Predicate> predicados = predicados(cb, e, criterios);
+		if (estadoExcluido != null)
+		{
+			predicados.add(cb.or(cb.isNull(e.get("estadoIncidencia")),
+					cb.notEqual(e.get("estadoIncidencia"), estadoExcluido)));
+		}
+		return predicados;
+	}
+
+	/**
+	 * Construye las condiciones de los criterios y, si se indica la última incidencia de la página anterior, la de
+	 * las incidencias posteriores a ella en el orden de la paginación.
+	 */
+	private static List<Predicate> predicados(CriteriaBuilder cb, Root<?> e, CriteriosBusqueda criterios,
+			IncidenciaEntityId cursor)
+	{
+		List<Predicate> predicados = predicados(cb, e, criterios);
+		if (cursor != null && cursor.getFechaIncidencia() != null)
+		{
+			// Incidencias posteriores a la ultima de la pagina anterior, en el orden de la paginacion.
+			predicados.add(cb.or(cb.greaterThan(e.get("fechaIncidencia"), cursor.getFechaIncidencia()),
+					cb.and(cb.equal(e.get("fechaIncidencia"), cursor.getFechaIncidencia()),
+							cb.or(cb.greaterThan(e.get("numeroAula"), cursor.getNumeroAula()),
+									cb.and(cb.equal(e.get("numeroAula"), cursor.getNumeroAula()),
+											cb.greaterThan(e.get("correoDocente"), cursor.getCorreoDocente()))))));
+		}
+		return predicados;
+	}
+
+	/**
+	 * Recorre las incidencias de la tabla de la entidad indicada con un cursor JDBC.
+	 */
+	private Stream<IncidenciaDTO> exportaIncidencia(Class<?> entidad, CriteriosBusqueda criterios)
+	{
+		CriteriaBuilder cb = this.entityManager.getCriteriaBuilder();
+		CriteriaQuery<IncidenciaDTO> consulta = cb.createQuery(IncidenciaDTO.class);
+		Root<?> e = consulta.from(entidad);
+		seleccionar(cb, consulta, e, predicados(cb, e, criterios));
+
+		return this.entityManager.createQuery(consulta)
+				.setHint(HibernateHints.HINT_FETCH_SIZE, IIncidenciaRepository.TAMANO_FETCH_EXPORTACION)
+				.setHint(HibernateHints.HINT_READ_ONLY, true)
+				.setHint(HibernateHints.HINT_CACHEABLE, false)
+				.getResultStream();
+	}
+
+	/**
+	 * Cuenta las incidencias de la tabla de la entidad indicada.
+	 */
+	private long cuentaIncidencias(Class<?> entidad, CriteriosBusqueda criterios)
+	{
+		CriteriaBuilder cb = this.entityManager.getCriteriaBuilder();
+		CriteriaQuery<Long> consulta = cb.createQuery(Long.class);
+		Root<?> e = consulta.from(entidad);
+		consulta.select(cb.count(e)).where(predicados(cb, e, criterios).toArray(Predicate[]::new));
+
+		return this.entityManager.createQuery(consulta).getSingleResult();
+	}
+
+	/**
+	 * Comprueba si alguna incidencia de la tabla de la entidad indicada cumple los criterios. Solo se selecciona el
+	 * aula. En la tabla que genera Hibernate forma parte de la clave primaria, que InnoDB copia en todos los índices, de
+	 * modo que la base de datos puede responder sin leer la fila. En el esquema compacto la clave primaria es
+	 * {@code id} y el aula solo está en la clave única y en {@code idx_incidencias_aula}: con otro índice, como
+	 * {@code idx_incidencias_estado (estado_incidencia, fecha_incidencia)}, se lee la fila de la primera coincidencia.
+	 */
+	private boolean existeIncidencia(Class<?> entidad, CriteriosBusqueda criterios)
+	{
+		CriteriaBuilder cb = this.entityManager.getCriteriaBuilder();
+		CriteriaQuery<String> consulta = cb.createQuery(String.class);
+		Root<?> e = consulta.from(entidad);
+		consulta.select(e.get("numeroAula")).where(predicados(cb, e, criterios).toArray(Predicate[]::new));
+
+		return !this.entityManager.createQuery(consulta).setMaxResults(1).getResultList().isEmpty();
+	}
+
+	/**
+	 * Mezcla dos recorridos ordenados en uno solo, también ordenado, sin leerlos por adelantado. Al cerrar el
+	 * resultado se cierran ambos.
+	 */
+	static Stream<IncidenciaDTO> mezclar(Stream<IncidenciaDTO> primero, Stream<IncidenciaDTO> segundo)
+	{
+		IteradorAnticipado a = new IteradorAnticipado(primero.iterator());
+		IteradorAnticipado b = new IteradorAnticipado(segundo.iterator());
+		Iterator<IncidenciaDTO> mezcla = new Iterator<>()
+		{
+			@Override
+			public boolean hasNext()
+			{
+				return a.siguiente != null || b.siguiente != null;
+			}
+
+			@Override
+			public IncidenciaDTO next()
+			{
+				if (!this.hasNext())
+				{
+					throw new NoSuchElementException();
+				}
+				boolean delPrimero = b.siguiente == null
+						|| (a.siguiente != null && ORDEN_PAGINACION.compare(a.siguiente, b.siguiente) <= 0);
+				return delPrimero ? a.avanzar() : b.avanzar();
+			}
+		};
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(mezcla, Spliterator.ORDERED), false)
+				.onClose(primero::close).onClose(segundo::close);
+	}
+
+	/**
+	 * Iterador que permite consultar el siguiente elemento sin consumirlo.
+	 */
+	private static final class IteradorAnticipado
+	{
+		private final Iterator<IncidenciaDTO> iterador;
+
+		private IncidenciaDTO siguiente;
+
+		IteradorAnticipado(Iterator<IncidenciaDTO> iterador)
+		{
+			this.iterador = iterador;
+			this.siguiente = iterador.hasNext() ? iterador.next() : null;
+		}
+
+		IncidenciaDTO avanzar()
+		{
+			IncidenciaDTO actual = this.siguiente;
+			this.siguiente = this.iterador.hasNext() ? this.iterador.next() : null;
+			return actual;
+		}
+	}
+
+	/**
+	 * Construye una condición por cada criterio presente. Los criterios nulos no añaden ninguna.
+	 * <p>
+	 * Las fechas se comparan por separado, de modo que un filtro con solo una de ellas queda acotado por un lado.
+	 * Los textos se buscan con {@code LIKE '%texto%'}, que no puede usar índices y solo se aplica si se indican.
+	 * </p>
+	 */
+	static List<Predicate> predicados(CriteriaBuilder cb, Root<?> e, CriteriosBusqueda criterios)
+	{
+		List<Predicate> predicados = new ArrayList<>();
+		if (criterios.getNumeroAula() != null)
+		{
+			predicados.add(cb.equal(e.get("numeroAula"), criterios.getNumeroAula()));
+		}
+		if (criterios.getCorreoDocente() != null)
+		{
+			predicados.add(cb.equal(e.get("correoDocente"), criterios.getCorreoDocente()));
+		}
+		if (criterios.getEstadoIncidencia() != null)
+		{
+			predicados.add(cb.equal(e.get("estadoIncidencia"), criterios.getEstadoIncidencia()));
+		}
+		if (criterios.getFechaInicio() != null)
+		{
+			predicados.add(cb.greaterThanOrEqualTo(e.get("fechaIncidencia"), criterios.getFechaInicio()));
+		}
+		if (criterios.getFechaFin() != null)
+		{
+			predicados.add(cb.lessThanOrEqualTo(e.get("fechaIncidencia"), criterios.getFechaFin()));
+		}
+		if (criterios.getDescripcionIncidencia() != null)
+		{
+			predicados.add(cb.like(e.get("descripcionIncidencia"), "%" + criterios.getDescripcionIncidencia() + "%"));
+		}
+		if (criterios.getComentario() != null)
+		{
+			predicados.add(cb.like(e.get("comentario"), "%" + criterios.getComentario() + "%"));
+		}
+		return predicados;
+	}
+
+	/**
+	 * Completa la consulta con la selección como {@link IncidenciaDTO}, las condiciones y el orden de la paginación.
+	 */
+	private static void seleccionar(CriteriaBuilder cb, CriteriaQuery<IncidenciaDTO> consulta, Root<?> e,
+			List<Predicate> predicados)
+	{
+		consulta.select(cb.construct(IncidenciaDTO.class, e.get("numeroAula"), e.get("correoDocente"),
+				e.get("fechaIncidencia"), e.get("descripcionIncidencia"), e.get("estadoIncidencia"), e.get("comentario")))
+				.where(predicados.toArray(Predicate[]::new))
+				.orderBy(cb.asc(e.get("fechaIncidencia")), cb.asc(e.get("numeroAula")), cb.asc(e.get("correoDocente")));
+	}
+}
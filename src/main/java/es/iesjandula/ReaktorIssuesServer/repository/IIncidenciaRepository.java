@@ -1,27 +1,44 @@
 package es.iesjandula.ReaktorIssuesServer.repository;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import es.iesjandula.ReaktorIssuesServer.dto.IncidenciaDTO;
 import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
 import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntityId;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 
 /**
  * Repositorio para gestionar incidencias en la base de datos.
  * <p>
  * Esta interfaz extiende {@link JpaRepository} y proporciona métodos para realizar operaciones
  * de búsqueda y verificación sobre la entidad {@link IncidenciaEntity} utilizando identificadores compuestos.
+ * Las búsquedas por filtro se heredan de {@link BusquedaIncidenciaRepository}.
  * </p>
  */
 @Repository
-public interface IIncidenciaRepository extends JpaRepository<IncidenciaEntity, IncidenciaEntityId>
+public interface IIncidenciaRepository extends JpaRepository<IncidenciaEntity, IncidenciaEntityId>, BusquedaIncidenciaRepository
 {
+
+	/**
+	 * Número de filas que el driver JDBC trae de la base de datos en cada viaje durante una exportación.
+	 */
+	public static final String TAMANO_FETCH_EXPORTACION = "1000";
 	
 	/**
 	 * Verifica si existe una incidencia en la base de datos utilizando un identificador compuesto.
@@ -42,38 +59,223 @@ public interface IIncidenciaRepository extends JpaRepository<IncidenciaEntity, I
 		
 	
 	/**
-	 * Busca incidencias en la base de datos según los criterios especificados.
+	 * Busca una incidencia por su identificador compuesto.
+	 * <p>
+	 * Se redeclara sin solo lectura para que, con réplicas habilitadas, se lea del primario y no de una réplica que
+	 * aún no tenga la incidencia.
+	 * </p>
+	 *
+	 * @param id El identificador compuesto de la incidencia.
+	 * @return La incidencia guardada, si existe.
+	 */
+	@Override
+	@Transactional
+	public Optional<IncidenciaEntity> findById(IncidenciaEntityId id);
+
+	/**
+	 * Busca una incidencia por su identificador compuesto y la bloquea hasta el final de la transacción, con
+	 * {@code SELECT ... FOR UPDATE}.
+	 *
+	 * @param numeroAula      El número del aula de la incidencia.
+	 * @param correoDocente   El correo del docente que reportó la incidencia.
+	 * @param fechaIncidencia La fecha y hora de la incidencia.
+	 * @return La incidencia guardada, si existe.
+	 */
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("SELECT e FROM IncidenciaEntity e WHERE e.numeroAula = :numeroAula "
+			+ "AND e.correoDocente = :correoDocente AND e.fechaIncidencia = :fechaIncidencia")
+	public Optional<IncidenciaEntity> bloqueaIncidencia(
+			@Param("numeroAula") String numeroAula,
+			@Param("correoDocente") String correoDocente,
+			@Param("fechaIncidencia") Date fechaIncidencia );
+
+	/**
+	 * Lee y bloquea hasta el final de la transacción el estado de una incidencia, con {@code SELECT ... FOR UPDATE},
+	 * sin leer su descripción ni su comentario.
+	 * <p>
+	 * Devuelve una lista para distinguir una incidencia sin estado, con un único elemento nulo, de una incidencia que
+	 * no existe, sin ningún elemento.
+	 * </p>
+	 *
+	 * @param numeroAula      El número del aula de la incidencia.
+	 * @param correoDocente   El correo del docente que reportó la incidencia.
+	 * @param fechaIncidencia La fecha y hora de la incidencia.
+	 * @return El estado de la incidencia, o una lista vacía si no existe.
+	 */
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("SELECT e.estadoIncidencia FROM IncidenciaEntity e WHERE e.numeroAula = :numeroAula "
+			+ "AND e.correoDocente = :correoDocente AND e.fechaIncidencia = :fechaIncidencia")
+	public List<String> bloqueaEstado(
+			@Param("numeroAula") String numeroAula,
+			@Param("correoDocente") String correoDocente,
+			@Param("fechaIncidencia") Date fechaIncidencia );
+
+	/**
+	 * Elimina una incidencia a partir de su identificador compuesto.
+	 * <p>
+	 * La incidencia se lee bloqueada y se elimina en la misma transacción, de modo que la incidencia devuelta es la
+	 * que se ha eliminado: ninguna otra escritura puede cambiar su estado entre la lectura y el borrado.
+	 * </p>
+	 *
+	 * @param id El identificador compuesto de la incidencia.
+	 * @return La incidencia eliminada, o vacío si no existía.
+	 */
+	@Transactional
+	public default Optional<IncidenciaEntity> borraIncidencia(IncidenciaEntityId id)
+	{
+		Optional<IncidenciaEntity> guardada = this.bloqueaIncidencia(id.getNumeroAula(), id.getCorreoDocente(),
+				id.getFechaIncidencia());
+		guardada.ifPresent(this::delete);
+		return guardada;
+	}
+
+	/**
+	 * Cuenta las incidencias de cada estado.
 	 * <p>
-	 * Este método utiliza una consulta JPQL para seleccionar incidencias y devolver una lista de objetos {@link IncidenciaDTO}.
-	 * Los criterios de búsqueda son opcionales y se aplican si se proporcionan valores diferentes de null.
+	 * Este recuento y los dos siguientes se leen del primario, porque las estadísticas se mantienen a partir de ellos
+	 * con cada modificación y una réplica con retraso las dejaría descuadradas.
 	 * </p>
-	 * 
-	 * Cada parametro especificado a continuación puede ser nulo. De serlo será ignorado en la busqueda.	  
-	 * @param numeroAula              El número del aula de la incidencia.
-	 * @param correoDocente           El correo del docente que reportó la incidencia.
-	 * @param fechaInicio             La fecha y hora de inicio para filtrar incidencias.
-	 * @param fechaFin                La fecha y hora de fin para filtrar incidencias.
-	 * @param descripcionIncidencia    Parte de la descripción de la incidencia a buscar.
-	 * @param estadoIncidencia        El estado de la incidencia.
-	 * @param comentario               Parte del comentario de la incidencia a buscar.
-	 * @return                        Una lista de objetos {@link IncidenciaDTO} que cumplen con los criterios de búsqueda.
+	 *
+	 * @return Una lista de pares con el estado y el número de incidencias.
+	 */
+	@Transactional
+	@Query("SELECT e.estadoIncidencia, COUNT(e) FROM IncidenciaEntity e GROUP BY e.estadoIncidencia")
+	public List<Object[]> cuentaPorEstado();
+
+	/**
+	 * Cuenta las incidencias de cada aula.
+	 *
+	 * @return Una lista de pares con el número de aula y el número de incidencias.
+	 */
+	@Transactional
+	@Query("SELECT e.numeroAula, COUNT(e) FROM IncidenciaEntity e GROUP BY e.numeroAula")
+	public List<Object[]> cuentaPorAula();
+
+	/**
+	 * Cuenta las incidencias de cada día.
+	 *
+	 * @return Una lista de pares con el día, como {@link java.time.LocalDate}, y el número de incidencias.
 	 */
+	@Transactional
+	@Query("SELECT EXTRACT(DATE FROM e.fechaIncidencia), COUNT(e) FROM IncidenciaEntity e "
+			+ "GROUP BY EXTRACT(DATE FROM e.fechaIncidencia)")
+	public List<Object[]> cuentaPorDia();
+
+	/**
+	 * Inserta una incidencia o, si ya existe otra con el mismo identificador compuesto, actualiza su descripción,
+	 * estado y comentario, todo ello en una única sentencia {@code INSERT ... ON DUPLICATE KEY UPDATE} de MySQL.
+	 * <p>
+	 * Se usa para las incidencias nuevas, con la fecha actual, de modo que normalmente crea la incidencia. Si llegara
+	 * a coincidir con una que ya existe, la sustituye como hacía {@code save()}, en lugar de fallar.
+	 * </p>
+	 *
+	 * @param numeroAula            El número del aula de la incidencia.
+	 * @param correoDocente         El correo del docente que reportó la incidencia.
+	 * @param fechaIncidencia       La fecha y hora de la incidencia.
+	 * @param descripcionIncidencia La descripción de la incidencia.
+	 * @param estadoIncidencia      El estado de la incidencia.
+	 * @param comentario            El comentario de la incidencia.
+	 * @return El número de filas afectadas por la sentencia.
+	 */
+	@Transactional
+	@Modifying
+	@Query(value = "INSERT INTO incidencias (numero_aula, correo_docente, fecha_incidencia, descripcion_incidencia, "
+			+ "estado_incidencia, comentario) VALUES (:numeroAula, :correoDocente, :fechaIncidencia, "
+			+ ":descripcionIncidencia, :estadoIncidencia, :comentario) ON DUPLICATE KEY UPDATE "
+			+ "descripcion_incidencia = VALUES(descripcion_incidencia), estado_incidencia = VALUES(estado_incidencia), "
+			+ "comentario = VALUES(comentario)", nativeQuery = true)
+	public int guardaIncidencia(
+			@Param("numeroAula") String numeroAula,
+			@Param("correoDocente") String correoDocente,
+			@Param("fechaIncidencia") Date fechaIncidencia,
+			@Param("descripcionIncidencia") String descripcionIncidencia,
+			@Param("estadoIncidencia") String estadoIncidencia,
+			@Param("comentario") String comentario );
+
+	/**
+	 * Actualiza la descripción, el estado y el comentario de una incidencia que ya existe, sin crearla si no existe.
+	 * <p>
+	 * Devuelve el número de filas encontradas, también si ya tenían los mismos datos, ya que la conexión no usa
+	 * {@code useAffectedRows}: 0 indica que la incidencia no existe.
+	 * </p>
+	 *
+	 * @param numeroAula            El número del aula de la incidencia.
+	 * @param correoDocente         El correo del docente que reportó la incidencia.
+	 * @param fechaIncidencia       La fecha y hora de la incidencia.
+	 * @param descripcionIncidencia La nueva descripción de la incidencia.
+	 * @param estadoIncidencia      El nuevo estado de la incidencia.
+	 * @param comentario            El nuevo comentario de la incidencia.
+	 * @return El número de filas encontradas por la sentencia.
+	 */
+	@Transactional
+	@Modifying
+	@Query(value = "UPDATE incidencias SET descripcion_incidencia = :descripcionIncidencia, "
+			+ "estado_incidencia = :estadoIncidencia, comentario = :comentario WHERE numero_aula = :numeroAula "
+			+ "AND correo_docente = :correoDocente AND fecha_incidencia = :fechaIncidencia", nativeQuery = true)
+	public int actualizaIncidencia(
+			@Param("numeroAula") String numeroAula,
+			@Param("correoDocente") String correoDocente,
+			@Param("fechaIncidencia") Date fechaIncidencia,
+			@Param("descripcionIncidencia") String descripcionIncidencia,
+			@Param("estadoIncidencia") String estadoIncidencia,
+			@Param("comentario") String comentario );
+
+	/**
+	 * Recorre todas las incidencias registradas sin cargarlas todas en memoria.
+	 * <p>
+	 * Se utiliza para construir las estructuras que se mantienen en memoria a partir de la tabla, como el índice de
+	 * texto. Debe invocarse dentro de una transacción de solo lectura y el {@link Stream} debe cerrarse al terminar.
+	 * </p>
+	 *
+	 * @return Un {@link Stream} con todas las incidencias como objetos {@link IncidenciaDTO}.
+	 */
+	@QueryHints({ @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = TAMANO_FETCH_EXPORTACION),
+			@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+			@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false") })
 	@Query("SELECT new es.iesjandula.ReaktorIssuesServer.dto.IncidenciaDTO("
 			+ "e.numeroAula, e.correoDocente, e.fechaIncidencia, e.descripcionIncidencia, e.estadoIncidencia, e.comentario"
-			+ ") " + "FROM IncidenciaEntity e WHERE ( :numeroAula IS NULL OR e.numeroAula = :numeroAula ) AND "
-			+ "( :correoDocente IS NULL OR e.correoDocente = :correoDocente ) AND "
-			+ "( (:fechaFin IS NULL) OR (:fechaInicio IS NULL) OR e.fechaIncidencia BETWEEN :fechaInicio AND :fechaFin ) AND "
-			+ "( :descripcionIncidencia IS NULL OR e.descripcionIncidencia LIKE CONCAT('%', :descripcionIncidencia, '%') ) AND "
-			+ "( :estadoIncidencia IS NULL OR e.estadoIncidencia = :estadoIncidencia ) AND "
-			+ "( :comentario IS NULL OR e.comentario LIKE CONCAT('%', :comentario, '%') )")
-	public List<IncidenciaDTO> buscaIncidencia(  
-			@Param("numeroAula") String numeroAula, 
-			@Param("correoDocente")String correoDocente, 
-			@Param("fechaInicio")Date fechaInicio, 
-			@Param("fechaFin")Date fechaFin, 
-			@Param("descripcionIncidencia")String descripcionIncidencia, 
-			@Param("estadoIncidencia")String estadoIncidencia, 
-			@Param("comentario")String comentario );
-	
+			+ ") FROM IncidenciaEntity e")
+	public Stream<IncidenciaDTO> recorreIncidencias();
+
+	/**
+	 * Busca incidencias a partir de los correos y las fechas de un conjunto de identificadores compuestos.
+	 * <p>
+	 * Devuelve todas las incidencias cuyo correo y fecha estén entre los indicados, que incluyen las de los
+	 * identificadores buscados. Quien la invoca debe descartar las incidencias cuyo identificador no buscaba.
+	 * Se resuelve con una sola consulta sobre la clave primaria, en lugar de una consulta por identificador.
+	 * </p>
+	 *
+	 * @param correos Los correos de los identificadores buscados.
+	 * @param fechas  Las fechas de los identificadores buscados.
+	 * @return Una lista de objetos {@link IncidenciaDTO} que incluye las incidencias buscadas que existen.
+	 */
+	@Query("SELECT new es.iesjandula.ReaktorIssuesServer.dto.IncidenciaDTO("
+			+ "e.numeroAula, e.correoDocente, e.fechaIncidencia, e.descripcionIncidencia, e.estadoIncidencia, e.comentario"
+			+ ") FROM IncidenciaEntity e WHERE e.correoDocente IN :correos AND e.fechaIncidencia IN :fechas")
+	public List<IncidenciaDTO> buscaPorClaves(
+			@Param("correos") Collection<String> correos,
+			@Param("fechas") Collection<Date> fechas );
+
+	/**
+	 * Busca las entidades de incidencia a partir de los correos y las fechas de un conjunto de identificadores compuestos.
+	 * <p>
+	 * Igual que {@link #buscaPorClaves}, devuelve un superconjunto de las incidencias buscadas que existen, pero como
+	 * entidades gestionadas, de modo que dentro de una transacción pueden modificarse sin volver a leerlas.
+	 * </p>
+	 * <p>
+	 * Se bloquean hasta el final de la transacción con {@code SELECT ... FOR UPDATE}, como la incidencia que actualiza
+	 * {@code PUT /incidencias}, para que el estado anterior publicado con cada actualización sea el que tenía justo
+	 * antes. El bloqueo alcanza también a las incidencias del superconjunto que no se buscaban.
+	 * </p>
+	 *
+	 * @param correos Los correos de los identificadores buscados.
+	 * @param fechas  Las fechas de los identificadores buscados.
+	 * @return Una lista de entidades que incluye las incidencias buscadas que existen.
+	 */
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("SELECT e FROM IncidenciaEntity e WHERE e.correoDocente IN :correos AND e.fechaIncidencia IN :fechas")
+	public List<IncidenciaEntity> buscaEntidadesPorClaves(
+			@Param("correos") Collection<String> correos,
+			@Param("fechas") Collection<Date> fechas );
 
 }
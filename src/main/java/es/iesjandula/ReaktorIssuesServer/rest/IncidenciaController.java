@@ -1,24 +1,57 @@
 package es.iesjandula.ReaktorIssuesServer.rest;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.net.URI;
+import java.text.ParseException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+
+import es.iesjandula.ReaktorIssuesServer.cache.CacheBusquedaIncidencias;
+import es.iesjandula.ReaktorIssuesServer.dto.CriteriosBusqueda;
 import es.iesjandula.ReaktorIssuesServer.dto.FiltroBusqueda;
 import es.iesjandula.ReaktorIssuesServer.dto.IncidenciaDTO;
+import es.iesjandula.ReaktorIssuesServer.dto.IngestaDTO;
+import es.iesjandula.ReaktorIssuesServer.dto.NovedadDTO;
+import es.iesjandula.ReaktorIssuesServer.dto.PaginaIncidencias;
+import es.iesjandula.ReaktorIssuesServer.dto.ResultadoLoteDTO;
 import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import es.iesjandula.ReaktorIssuesServer.estadisticas.EstadisticasIncidencias;
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntityId;
+import es.iesjandula.ReaktorIssuesServer.events.IncidenciaModificadaEvent;
+import es.iesjandula.ReaktorIssuesServer.ingesta.ColaIngestaIncidencias;
 import es.iesjandula.ReaktorIssuesServer.mappers.IncidenciaMapper;
+import es.iesjandula.ReaktorIssuesServer.novedades.CanalNovedades;
 import es.iesjandula.ReaktorIssuesServer.repository.IIncidenciaRepository;
-import es.iesjandula.ReaktorIssuesServer.utils.Constants;
+import es.iesjandula.ReaktorIssuesServer.services.BusquedaIncidenciaService;
+import es.iesjandula.ReaktorIssuesServer.services.EscrituraIncidenciaService;
+import es.iesjandula.ReaktorIssuesServer.services.LoteIncidenciaService;
+import es.iesjandula.ReaktorIssuesServer.services.MasivoIncidenciaService;
 import es.iesjandula.ReaktorIssuesServer.utils.IssuesServerError;
 import lombok.extern.slf4j.Slf4j;
 
@@ -40,10 +73,27 @@ import lombok.extern.slf4j.Slf4j;
  * incidencias.</li>
  * <li><strong>Actualizar Incidencia:</strong> Permite la actualización de
  * incidencias existentes.</li>
+ * <li><strong>Consultar Incidencias Encoladas:</strong> Permite conocer si
+ * se ha guardado una incidencia recibida en modo de ingesta asíncrona.</li>
+ * <li><strong>Crear o Actualizar Incidencias por lotes:</strong> Permite
+ * guardar muchas incidencias en una sola petición y transacción.</li>
  * <li><strong>Buscar Incidencias:</strong> Permite buscar incidencias basadas
  * en criterios específicos.</li>
+ * <li><strong>Exportar Incidencias:</strong> Permite descargar todas las
+ * incidencias que cumplen unos criterios sin límite de tamaño.</li>
+ * <li><strong>Contar Incidencias:</strong> Permite conocer cuántas
+ * incidencias cumplen unos criterios, o si existe alguna, sin leerlas.</li>
+ * <li><strong>Consultar Estadísticas:</strong> Permite conocer el número de
+ * incidencias por estado, aula, día y semana.</li>
+ * <li><strong>Consultar la Caché de Búsquedas:</strong> Permite conocer los
+ * aciertos, fallos y expulsiones de la caché de resultados.</li>
+ * <li><strong>Suscribirse a las Novedades:</strong> Permite recibir cada
+ * incidencia creada, actualizada o eliminada sin repetir la búsqueda.</li>
  * <li><strong>Eliminar Incidencia:</strong> Permite la eliminación de
  * incidencias existentes.</li>
+ * <li><strong>Borrar o Cambiar de Estado por Filtro:</strong> Permite
+ * borrar o cambiar el estado de todas las incidencias que cumplen unos
+ * criterios en una sola petición.</li>
  * </ul>
  * 
  * Se requiere que los encabezados y los cuerpos de las solicitudes contengan
@@ -71,6 +121,76 @@ public class IncidenciaController
 	// Auto-inyeccion de mapeador de dto-entidad.
 	IncidenciaMapper incidenciaMapper;
 
+	@Autowired
+	// Auto-inyeccion del servicio de busqueda paginada.
+	private BusquedaIncidenciaService busquedaIncidenciaService;
+
+	@Autowired
+	// Auto-inyeccion de la cache de paginas de resultados.
+	private CacheBusquedaIncidencias cacheBusquedaIncidencias;
+
+	@Autowired
+	// Auto-inyeccion de los contadores de incidencias.
+	private EstadisticasIncidencias estadisticasIncidencias;
+
+	@Autowired
+	// Auto-inyeccion del servicio de alta y actualizacion de una incidencia.
+	private EscrituraIncidenciaService escrituraIncidenciaService;
+
+	@Autowired
+	// Auto-inyeccion del servicio de escritura por lotes.
+	private LoteIncidenciaService loteIncidenciaService;
+
+	@Autowired
+	// Auto-inyeccion del servicio de borrado y cambio de estado por filtro.
+	private MasivoIncidenciaService masivoIncidenciaService;
+
+	@Autowired
+	// Auto-inyeccion de la cola de ingesta asincrona.
+	private ColaIngestaIncidencias colaIngestaIncidencias;
+
+	@Autowired
+	// Auto-inyeccion del publicador de eventos de modificacion de incidencias.
+	private ApplicationEventPublisher applicationEventPublisher;
+
+	@Autowired
+	// Auto-inyeccion del canal de novedades para los clientes suscritos.
+	private CanalNovedades canalNovedades;
+
+	/**
+	 * Tiempo máximo en milisegundos que se mantiene abierta una suscripción a las novedades. El cliente se reconecta
+	 * al cerrarse.
+	 */
+	@Value("${incidencias.novedades.tiempo-maximo:1800000}")
+	private long tiempoMaximoNovedades;
+
+	/**
+	 * Cabecera de respuesta con el cursor de la siguiente página de resultados.
+	 */
+	public static final String CABECERA_SIGUIENTE_CURSOR = "X-Siguiente-Cursor";
+
+	/**
+	 * Segundos tras los que el cliente puede reintentar una incidencia rechazada por estar llena la cola de ingesta.
+	 */
+	private static final String SEGUNDOS_REINTENTO_INGESTA = "1";
+
+	/**
+	 * Segundos tras los que el cliente puede reintentar una exportación rechazada por estar llena su cola.
+	 */
+	private static final String SEGUNDOS_REINTENTO_EXPORTACION = "10";
+
+	/**
+	 * Formato de las fechas recibidas como parámetro.
+	 */
+	private static final DateTimeFormatter FORMATO_FECHA = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+
+	/**
+	 * Escritor JSON de las exportaciones. Se configura igual que los conversores de
+	 * Spring MVC para que cada línea coincida con la incidencia devuelta por la búsqueda.
+	 */
+	private static final ObjectWriter ESCRITOR_NDJSON = Jackson2ObjectMapperBuilder.json().build().writer()
+			.withRootValueSeparator("\n");
+
 	/**
 	 * Crear o actualizar una incidencia en el sistema.
 	 * 
@@ -81,6 +201,17 @@ public class IncidenciaController
 	 * código de estado HTTP 400 (Bad Request). En caso de un error inesperado, se
 	 * devuelve un código de estado HTTP 500 (Internal Server Error).
 	 * 
+	 * Si el DTO indica el correo del docente y la fecha de una incidencia que
+	 * existe, se lee y bloquea su estado anterior, se valida completo y se
+	 * actualiza con una única sentencia SQL. En otro caso se crea una incidencia
+	 * nueva con el correo de la cabecera, la fecha actual, el estado pendiente y
+	 * sin comentario (ver {@link EscrituraIncidenciaService}).
+	 * 
+	 * Si la ingesta asíncrona está habilitada, la incidencia se deja en una cola
+	 * con el correo de la cabecera y se crea o actualiza en segundo plano junto
+	 * con otras, con la misma regla, y se responde con un testigo para consultar
+	 * su estado en {@code GET /incidencias/ingesta/{testigo}}.
+	 * 
 	 * @param correoDocente      El correo electrónico del docente, que se espera en
 	 *                           el encabezado de la solicitud. Este parámetro es
 	 *                           requerido y no puede ser nulo.
@@ -94,6 +225,9 @@ public class IncidenciaController
 	 *         un código de estado 400 (Bad Request) con un mensaje de error. 
 	 *         Si ocurre un error inesperado, se devuelve un
 	 *         código de estado 500 (Internal Server Error) con un mensaje de error.
+	 *         Con la ingesta asíncrona se devuelve un código de estado 202 (Accepted)
+	 *         con el testigo de la incidencia encolada, o 503 (Service Unavailable)
+	 *         con la cabecera Retry-After si la cola está llena.
 	 */
 	@RequestMapping(method = RequestMethod.PUT)
 	public ResponseEntity<?> crearActualizarIncidencia(
@@ -106,7 +240,7 @@ public class IncidenciaController
 			ResponseEntity<String> response = null;
 			
 			// Loguea los parametros recibidos para fines diagnosticos.
-			log.debug("Parametros recibidos:\n" + incidenciaDTO.toString());
+			log.debug("DEBUG: Parametros recibidos:\n{}", incidenciaDTO);
 				
 			// Si el numero de aula está vacio o solo espacios.
 			if (incidenciaDTO.getNumeroAula() == null || incidenciaDTO.getNumeroAula().isBlank())
@@ -123,60 +257,39 @@ public class IncidenciaController
 				return ResponseEntity.badRequest().body("ERROR: Descripcion de incidencia nulo, vacio o menor de 15 caracteres.");
 			}
 			
-			// Si tanto numero de aula como descripción han sido definidos correctamente
-			// creamos nueva incidencia.
-			IncidenciaEntity incidencia = new IncidenciaEntity();
-			
-			
-			// Si no existe la incidencia
-			if(!iIncidenciaRepository.existsByCompositeId(incidenciaDTO.getNumeroAula(), 
-			incidenciaDTO.getCorreoDocente(), incidenciaDTO.getFechaIncidencia()))
+			// Con la ingesta asincrona la incidencia se crea o actualiza en segundo plano, con la misma regla.
+			if (colaIngestaIncidencias.isAsincrona())
 			{
-				// Objeto fecha de hoy
-				Date today = new Date();
-				
-				// Primer parametro  - Numero de Aula
-				// Segundo parametro - Correo del Docente
-				// Tercer parametro  - Fecha Actual
-				// Cuarto parametro  - Descripcion
-				// Quinto parametro  - Estado(Pendiente)
-				// Sexto parametro   - Comentario(Vacío)
-				incidencia = new IncidenciaEntity(
-						incidenciaDTO.getNumeroAula(), 
-						correoDocente, 
-						today,
-						incidenciaDTO.getDescripcionIncidencia(),
-						Constants.ESTADO_PENDIENTE,
-						"");
-			
-				// Información para indicar la inicializacion de la incidencia
-				log.debug("DEBUG: Objeto incidencia inicializado correctamente:\n " + incidencia.toString());
-
-				// Informe de incidencia creada con exito
-				response = ResponseEntity.status(HttpStatus.CREATED).body("EXITO: Incidencia creada con exito");
+				IngestaDTO ingesta = colaIngestaIncidencias.encolar(correoDocente, incidenciaDTO);
+				return ResponseEntity.status(HttpStatus.ACCEPTED)
+						.location(URI.create("/incidencias/ingesta/" + ingesta.getTestigo())).body(ingesta);
 			}
-			else
+
+			// Crea la incidencia, o la actualiza si el DTO identifica una que ya existe.
+			if (escrituraIncidenciaService.guardar(correoDocente, incidenciaDTO) == IncidenciaModificadaEvent.Tipo.ACTUALIZADA)
 			{
-				// Mapear la incidencia
-				incidencia = incidenciaMapper.mapToEntity(incidenciaDTO);
-				
-				// Información para indicar la inicializacion de la incidencia
-				log.debug("DEBUG: Objeto incidencia inicializado correctamente:\n " + incidencia.toString());
-				
 				// Informe de incidencia actualizada con exito
 				response = ResponseEntity.status(HttpStatus.OK).body("EXITO: Incidencia actualizada con exito");
 			}
-			
-			// Finalmente guarda la incidencia en la BBDD.
-			iIncidenciaRepository.saveAndFlush(incidencia);
-
-			// Información para registro.
-			log.info("INFO: El objeto guardado en base de datos es:\n" + incidencia.toString());
+			else
+			{
+				// Informe de incidencia creada con exito
+				response = ResponseEntity.status(HttpStatus.CREATED).body("EXITO: Incidencia creada con exito");
+			}
 
 			// Informe a cliente del exito de la operacion.
 			return response;
 
 		}
+		// Cola de ingesta llena o servicio deteniendose.
+		catch (RejectedExecutionException rejectedExecutionException)
+		{
+			String message = "ERROR: Incidencia rechazada en crearIncidencia().\n" + rejectedExecutionException.getMessage();
+			log.error(message);
+			IssuesServerError serverError = new IssuesServerError(9, message, rejectedExecutionException);
+			return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+					.header(HttpHeaders.RETRY_AFTER, SEGUNDOS_REINTENTO_INGESTA).body(serverError.getMapError());
+		}
 		catch (Exception createIssueException)
 		{
 			String message = "Excepción capturada en crearIncidencia(): {}" + createIssueException.getMessage();
@@ -186,6 +299,80 @@ public class IncidenciaController
 		}
 	}
 
+	/**
+	 * Consulta el estado de una incidencia recibida en modo de ingesta asíncrona.
+	 *
+	 * @param testigo El testigo devuelto al encolar la incidencia.
+	 * @return Un objeto {@link ResponseEntity} que puede contener:
+	 *         <ul>
+	 *         <li>El {@link IngestaDTO} con el estado de la incidencia: en cola,
+	 *         creada, actualizada o con error, con código de estado 200 (OK).</li>
+	 *         <li>Un mensaje informativo si el testigo no existe o ha caducado,
+	 *         con código de estado 404 (Not Found).</li>
+	 *         </ul>
+	 */
+	@RequestMapping(value = "/ingesta/{testigo}", method = RequestMethod.GET)
+	public ResponseEntity<?> consultaIngesta(@PathVariable("testigo") String testigo)
+	{
+		IngestaDTO ingesta = colaIngestaIncidencias.consultar(testigo);
+		if (ingesta == null)
+		{
+			return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Testigo de ingesta no encontrado o caducado.");
+		}
+		return ResponseEntity.status(HttpStatus.OK).body(ingesta);
+	}
+
+	/**
+	 * Crea o actualiza un lote de incidencias en una sola transacción.
+	 * 
+	 * Cada incidencia del lote debe incluir todos sus atributos, identificativos
+	 * incluidos, y se valida con {@link IncidenciaMapper}. Las incidencias que ya
+	 * existen se localizan con una sola consulta y todas las escrituras se envían a
+	 * la base de datos en lotes JDBC. Las incidencias no válidas se rechazan sin
+	 * impedir que se guarden las demás.
+	 *
+	 * @param lote La lista de {@link IncidenciaDTO} a crear o actualizar.
+	 * @return Un objeto {@link ResponseEntity} que puede contener:
+	 *         <ul>
+	 *         <li>Una lista de {@link ResultadoLoteDTO}, en el mismo orden que el
+	 *         lote, que indica para cada incidencia si se ha creado, actualizado o
+	 *         rechazado, con código de estado 200 (OK).</li>
+	 *         <li>Un mensaje de error si el lote está vacío o supera el tamaño
+	 *         máximo, con código de estado 400 (Bad Request).</li>
+	 *         <li>Un mensaje de error general, en caso de excepciones inesperadas,
+	 *         con código de estado 500 (Internal Server Error). En este caso no se
+	 *         guarda ninguna incidencia del lote.</li>
+	 *         </ul>
+	 */
+	@RequestMapping(value = "/lote", method = RequestMethod.PUT)
+	public ResponseEntity<?> crearActualizarLote(@RequestBody(required = true) List<IncidenciaDTO> lote)
+	{
+		try
+		{
+			// Loguea el tamaño del lote recibido
+			log.debug("DEBUG: Lote de {} incidencias recibido", lote.size());
+
+			// Guarda el lote completo e informa del resultado de cada incidencia.
+			List<ResultadoLoteDTO> resultados = loteIncidenciaService.guardar(lote);
+			return ResponseEntity.status(HttpStatus.OK).body(resultados);
+		}
+		// Lote vacio o demasiado grande.
+		catch (IllegalArgumentException illegalArgumentException)
+		{
+			String message = "ERROR: Error en el lote recibido en crearActualizarLote().\n" + illegalArgumentException.getMessage();
+			log.error(message, illegalArgumentException);
+			IssuesServerError serverError = new IssuesServerError(6, message, illegalArgumentException);
+			return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(serverError.getMapError());
+		}
+		catch (Exception batchIssueException)
+		{
+			String message = "ERROR: Capturado en crearActualizarLote()\n" + batchIssueException.getMessage();
+			log.error(message, batchIssueException);
+			IssuesServerError serverError = new IssuesServerError(7, message, batchIssueException);
+			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(serverError.getMapError());
+		}
+	}
+
 	/**
 	 * Maneja las solicitudes GET para buscar incidencias en base a los criterios
 	 * proporcionados en el filtro de búsqueda.
@@ -197,54 +384,59 @@ public class IncidenciaController
 	 * incidencias, se devuelve un mensaje informativo con un código de estado 404
 	 * (Not Found). Si ocurre algún error durante el proceso, se devuelve un mensaje
 	 * de error con un código de estado 500 (Internal Server Error).
+	 * 
+	 * Los resultados se devuelven por páginas de tamaño acotado. Si existen más
+	 * resultados, la respuesta incluye la cabecera "X-Siguiente-Cursor" cuyo valor
+	 * debe enviarse en el atributo {@code cursor} del filtro para obtener la
+	 * página siguiente.
+	 * 
+	 * Cada página se devuelve con una cabecera "ETag" que solo cambia cuando se
+	 * modifica alguna incidencia que la búsqueda puede incluir. Si el cliente la
+	 * envía en la cabecera "If-None-Match" y no ha cambiado, se responde sin
+	 * cuerpo y sin consultar la base de datos.
+	 * 
+	 * Las incidencias se devuelven en JSON, salvo que la cabecera "Accept" pida
+	 * un formato binario más compacto: CBOR ({@code application/cbor}) o Smile
+	 * ({@code application/x-jackson-smile}).
 	 *
 	 * @param filtro El objeto {@link FiltroBusqueda} que contiene los criterios de
 	 *          búsqueda para filtrar las incidencias.
+	 * @param etiquetasCliente Las etiquetas de las páginas que ya tiene el
+	 *          cliente, recibidas en la cabecera "If-None-Match". Puede ser nulo.
 	 * @return Un objeto {@link ResponseEntity} que puede contener:
 	 *         <ul>
 	 *         <li>Una lista de {@link IncidenciaDTO} en caso de que se encuentren
 	 *         incidencias, con código de estado 200 (OK).</li>
+	 *         <li>Ningún cuerpo si la página no ha cambiado desde la etiqueta
+	 *         enviada por el cliente, con código de estado 304 (Not Modified).</li>
 	 *         <li>Un mensaje de error si no se encuentran incidencias, con código
 	 *         de estado 404 (Not Found).</li>
+	 *         <li>Un mensaje de error si el cursor o el tamaño de página no son
+	 *         válidos, con código de estado 400 (Bad Request).</li>
 	 *         <li>Un mensaje de error general, en caso de excepciones inesperadas,
 	 *         con código de estado 500 (Internal Server Error).</li>
 	 *         </ul>
 	 */
 	@RequestMapping(method = RequestMethod.POST)
-	public ResponseEntity<?> buscaIncidencia(@RequestBody FiltroBusqueda filtroBusqueda)
+	public ResponseEntity<?> buscaIncidencia(@RequestBody FiltroBusqueda filtroBusqueda,
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String etiquetasCliente)
 	{
 		try
 		{
 			// Loguea los parametros recibidos
-			log.debug("DEBUG: Parametros de busqueda recibidos:\n {}", filtroBusqueda.toString());
-
-			// Fecha inicio para el filtrado
-			Date fechainicioF;
-			// Fecha fin para el filtrado
-			Date fechafinF;
-					
-			// Formateador de fecha
-		   SimpleDateFormat formatter = new SimpleDateFormat("dd-MM-yyyy");
-
-			// Horas formateadas para consulta en bbdd.
-			if (filtroBusqueda.getFechaInicio() == null || filtroBusqueda.getFechaInicio().isBlank())
-			{
-				fechainicioF = formatter.parse("01-01-1979");
-			} else
-			{
-				fechainicioF = formatter.parse(filtroBusqueda.getFechaInicio());
-			}
-			if (filtroBusqueda.getFechaFin() == null || filtroBusqueda.getFechaFin().isBlank())
-			{
-				fechafinF = formatter.parse("31-12-2099");
-			} else
+			log.debug("DEBUG: Parametros de busqueda recibidos:\n {}", filtroBusqueda);
+
+			// Si el cliente ya tiene la pagina y no ha cambiado, no se vuelve a buscar ni a enviar.
+			String etiqueta = busquedaIncidenciaService.etiqueta(filtroBusqueda);
+			if (coincideEtiqueta(etiquetasCliente, etiqueta))
 			{
-				fechafinF = formatter.parse(filtroBusqueda.getFechaFin());
+				log.debug("DEBUG: Pagina sin cambios desde la etiqueta {}", etiqueta);
+				return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etiqueta).varyBy(HttpHeaders.ACCEPT).build();
 			}
 
-			// Invoca el metodo con query personalizada para busqueda con nulos.
-			List<IncidenciaDTO> listado = iIncidenciaRepository.buscaIncidencia(filtroBusqueda.getNumeroAula(), filtroBusqueda.getCorreoDocente(),
-					fechainicioF, fechafinF, filtroBusqueda.getDescripcionIncidencia(), filtroBusqueda.getEstadoIncidencia(), filtroBusqueda.getComentario());
+			// Busca la pagina de incidencias solicitada.
+			PaginaIncidencias pagina = busquedaIncidenciaService.buscar(filtroBusqueda);
+			List<IncidenciaDTO> listado = pagina.getIncidencias();
 
 			// Registra los elementos encontrados en la lista.
 			log.debug("DEBUG: Objetos encontrados {}", listado.size());
@@ -252,16 +444,31 @@ public class IncidenciaController
 			// Verifica si la lista de resultados está vacía y devuelve un mensaje adecuado.
 			if (listado.isEmpty())
 			{
-				log.info("No se han encontrado incidencias con los criterios especificados.");
+				log.debug("DEBUG: No se han encontrado incidencias con los criterios especificados.");
 				return ResponseEntity.status(HttpStatus.NOT_FOUND)
 						.body("No se han encontrado incidencias con los criterios especificados.");
 			}
 
 			// Si el filtro no es nulo y la lista no está vacia devuelve los resultados
-			// encontrados.
-			return ResponseEntity.status(HttpStatus.OK).body(listado);
+			// encontrados, indicando el cursor de la pagina siguiente si la hay.
+			// El formato del cuerpo depende de la cabecera Accept (JSON, CBOR o Smile).
+			ResponseEntity.BodyBuilder respuesta = ResponseEntity.status(HttpStatus.OK).eTag(etiqueta)
+					.varyBy(HttpHeaders.ACCEPT);
+			if (pagina.getSiguienteCursor() != null)
+			{
+				respuesta.header(CABECERA_SIGUIENTE_CURSOR, pagina.getSiguienteCursor());
+			}
+			return respuesta.body(listado);
 
 		}
+		// Cursor o tamaño de pagina no validos.
+		catch (IllegalArgumentException illegalArgumentException)
+		{
+			String message = "ERROR: Error en parametros del filtro recibido en buscaIncidencia().\n" + illegalArgumentException.getMessage();
+			log.error(message, illegalArgumentException);
+			IssuesServerError serverError = new IssuesServerError(2, message, illegalArgumentException);
+			return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(serverError.getMapError());
+		}
 		catch (Exception searchIssueException)
 		{
 			String message = "ERROR: Capturado en buscaIncidencia()\n {}" + searchIssueException.getMessage();
@@ -271,6 +478,382 @@ public class IncidenciaController
 		}
 	}
 
+	/**
+	 * Exporta todas las incidencias que cumplen con los criterios del filtro de
+	 * búsqueda en formato JSON delimitado por saltos de línea (NDJSON).
+	 * 
+	 * A diferencia de la búsqueda paginada, este método no limita el número de
+	 * incidencias devueltas ni las acumula en memoria: las filas se leen de la base
+	 * de datos por bloques y cada incidencia se escribe en el cuerpo de la respuesta,
+	 * como un objeto JSON por línea, en cuanto se recibe. Los campos de paginación del
+	 * filtro se ignoran.
+	 *
+	 * @param filtroBusqueda El objeto {@link FiltroBusqueda} que contiene los
+	 *                       criterios de búsqueda para filtrar las incidencias.
+	 * @return Un objeto {@link ResponseEntity} que puede contener:
+	 *         <ul>
+	 *         <li>El flujo NDJSON de incidencias, con código de estado 200 (OK).
+	 *         Si ninguna incidencia cumple el filtro el cuerpo estará vacío.</li>
+	 *         <li>Un mensaje de error si ya hay demasiadas exportaciones en curso y
+	 *         en espera, con código de estado 503 (Service Unavailable) y la
+	 *         cabecera Retry-After (ver {@link #exportacionRechazada}).</li>
+	 *         <li>Un mensaje de error general, en caso de excepciones inesperadas
+	 *         antes de comenzar la exportación, con código de estado 500 (Internal
+	 *         Server Error).</li>
+	 *         </ul>
+	 */
+	@RequestMapping(value = "/exportar", method = RequestMethod.POST)
+	public ResponseEntity<StreamingResponseBody> exportaIncidencia(@RequestBody FiltroBusqueda filtroBusqueda)
+	{
+		try
+		{
+			// Loguea los parametros recibidos
+			log.debug("DEBUG: Parametros de exportacion recibidos:\n {}", filtroBusqueda);
+
+			// Interpreta el filtro antes de empezar a escribir la respuesta.
+			CriteriosBusqueda criterios = busquedaIncidenciaService.normalizar(filtroBusqueda);
+
+			// Cuerpo escrito a medida que llegan las filas de la base de datos.
+			StreamingResponseBody cuerpo = salida ->
+			{
+				SequenceWriter escritor = ESCRITOR_NDJSON.writeValues(salida);
+				long total = busquedaIncidenciaService.exportar(criterios, escritor::write);
+				escritor.flush();
+				// El separador solo se escribe entre incidencias, falta terminar la ultima linea.
+				if (total > 0)
+				{
+					salida.write('\n');
+				}
+				log.info("INFO: Exportacion finalizada con {} incidencias.", total);
+			};
+
+			return ResponseEntity.status(HttpStatus.OK).contentType(MediaType.APPLICATION_NDJSON).body(cuerpo);
+		}
+		catch (Exception exportIssueException)
+		{
+			String message = "ERROR: Capturado en exportaIncidencia()\n" + exportIssueException.getMessage();
+			log.error(message, exportIssueException);
+			IssuesServerError serverError = new IssuesServerError(5, message, exportIssueException);
+			// La respuesta de esta operacion siempre es un flujo, por lo que el error se escribe directamente.
+			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).contentType(MediaType.APPLICATION_JSON)
+					.body(salida -> ESCRITOR_NDJSON.writeValue(salida, serverError.getMapError()));
+		}
+	}
+
+	/**
+	 * Responde a una exportación que el grupo de hilos de las exportaciones no
+	 * admite por tener todos sus hilos ocupados y la cola llena.
+	 * 
+	 * El rechazo se produce al iniciar la respuesta asíncrona, una vez que
+	 * {@link #exportaIncidencia} ha devuelto el cuerpo, por lo que no puede
+	 * capturarse en dicho método.
+	 *
+	 * @param taskRejectedException La excepción del grupo de hilos.
+	 * @return Un mensaje de error con código de estado 503 (Service Unavailable)
+	 *         y la cabecera Retry-After.
+	 */
+	@ExceptionHandler(TaskRejectedException.class)
+	public ResponseEntity<?> exportacionRechazada(TaskRejectedException taskRejectedException)
+	{
+		String message = "ERROR: Exportacion rechazada en exportaIncidencia().\n" + taskRejectedException.getMessage();
+		log.error(message);
+		IssuesServerError serverError = new IssuesServerError(19, message, taskRejectedException);
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).contentType(MediaType.APPLICATION_JSON)
+				.header(HttpHeaders.RETRY_AFTER, SEGUNDOS_REINTENTO_EXPORTACION).body(serverError.getMapError());
+	}
+
+	/**
+	 * Cuenta las incidencias que cumplen con los criterios del filtro de búsqueda.
+	 * 
+	 * A diferencia de la búsqueda, no lee ninguna incidencia: la base de datos
+	 * resuelve la consulta con {@code SELECT COUNT(*)} y los mismos criterios.
+	 * Los campos de paginación y de orden del filtro se ignoran.
+	 *
+	 * @param filtroBusqueda El objeto {@link FiltroBusqueda} que contiene los
+	 *                       criterios de búsqueda para filtrar las incidencias.
+	 * @return Un objeto {@link ResponseEntity} que puede contener:
+	 *         <ul>
+	 *         <li>El número de incidencias, con código de estado 200 (OK).</li>
+	 *         <li>Un mensaje de error si alguna fecha no es válida, con código de
+	 *         estado 400 (Bad Request).</li>
+	 *         <li>Un mensaje de error general, en caso de excepciones inesperadas,
+	 *         con código de estado 500 (Internal Server Error).</li>
+	 *         </ul>
+	 */
+	@RequestMapping(value = "/contar", method = RequestMethod.POST)
+	public ResponseEntity<?> cuentaIncidencias(@RequestBody FiltroBusqueda filtroBusqueda)
+	{
+		try
+		{
+			log.debug("DEBUG: Parametros de recuento recibidos:\n {}", filtroBusqueda);
+			return ResponseEntity.status(HttpStatus.OK).body(busquedaIncidenciaService.contar(filtroBusqueda));
+		}
+		// Fechas con formato no valido.
+		catch (ParseException parseException)
+		{
+			String message = "ERROR: Error en las fechas recibidas en cuentaIncidencias().\n" + parseException.getMessage();
+			log.error(message, parseException);
+			IssuesServerError serverError = new IssuesServerError(10, message, parseException);
+			return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(serverError.getMapError());
+		}
+		catch (Exception countIssueException)
+		{
+			String message = "ERROR: Capturado en cuentaIncidencias()\n" + countIssueException.getMessage();
+			log.error(message, countIssueException);
+			IssuesServerError serverError = new IssuesServerError(11, message, countIssueException);
+			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(serverError.getMapError());
+		}
+	}
+
+	/**
+	 * Comprueba si alguna incidencia cumple con los criterios del filtro de
+	 * búsqueda.
+	 * 
+	 * La consulta se detiene en la primera incidencia encontrada y no lee sus
+	 * columnas de texto. Los campos de paginación y de orden del filtro se
+	 * ignoran.
+	 *
+	 * @param filtroBusqueda El objeto {@link FiltroBusqueda} que contiene los
+	 *                       criterios de búsqueda para filtrar las incidencias.
+	 * @return Un objeto {@link ResponseEntity} que puede contener:
+	 *         <ul>
+	 *         <li>{@code true} si existe alguna incidencia o {@code false} si no
+	 *         existe ninguna, con código de estado 200 (OK).</li>
+	 *         <li>Un mensaje de error si alguna fecha no es válida, con código de
+	 *         estado 400 (Bad Request).</li>
+	 *         <li>Un mensaje de error general, en caso de excepciones inesperadas,
+	 *         con código de estado 500 (Internal Server Error).</li>
+	 *         </ul>
+	 */
+	@RequestMapping(value = "/existe", method = RequestMethod.POST)
+	public ResponseEntity<?> existeIncidencia(@RequestBody FiltroBusqueda filtroBusqueda)
+	{
+		try
+		{
+			log.debug("DEBUG: Parametros de comprobacion recibidos:\n {}", filtroBusqueda);
+			return ResponseEntity.status(HttpStatus.OK).body(busquedaIncidenciaService.existe(filtroBusqueda));
+		}
+		// Fechas con formato no valido.
+		catch (ParseException parseException)
+		{
+			String message = "ERROR: Error en las fechas recibidas en existeIncidencia().\n" + parseException.getMessage();
+			log.error(message, parseException);
+			IssuesServerError serverError = new IssuesServerError(12, message, parseException);
+			return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(serverError.getMapError());
+		}
+		catch (Exception existsIssueException)
+		{
+			String message = "ERROR: Capturado en existeIncidencia()\n" + existsIssueException.getMessage();
+			log.error(message, existsIssueException);
+			IssuesServerError serverError = new IssuesServerError(13, message, existsIssueException);
+			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(serverError.getMapError());
+		}
+	}
+
+	/**
+	 * Borra todas las incidencias que cumplen con los criterios del filtro de
+	 * búsqueda, por ejemplo las de un trimestre ya cerrado.
+	 * 
+	 * Las incidencias se borran por lotes de tamaño acotado: de cada lote solo
+	 * se leen y bloquean la clave y el estado, que necesitan las estadísticas, y
+	 * se borra con una única sentencia {@code DELETE}, sin borrar las incidencias
+	 * una a una. El filtro debe indicar al menos un criterio y no puede incluir
+	 * el archivo.
+	 * Los campos de paginación, orden y campos del filtro se ignoran.
+	 *
+	 * @param filtroBusqueda El objeto {@link FiltroBusqueda} que contiene los
+	 *                       criterios de las incidencias a borrar.
+	 * @param simulacion     Si es {@code true}, solo se cuentan las incidencias
+	 *                       que se borrarían, sin borrarlas.
+	 * @return Un objeto {@link ResponseEntity} que puede contener:
+	 *         <ul>
+	 *         <li>El número de incidencias borradas, o que se borrarían, con
+	 *         código de estado 200 (OK).</li>
+	 *         <li>Un mensaje de error si el filtro no es válido, con código de
+	 *         estado 400 (Bad Request).</li>
+	 *         <li>Un mensaje de error general, en caso de excepciones inesperadas,
+	 *         con código de estado 500 (Internal Server Error).</li>
+	 *         </ul>
+	 */
+	@RequestMapping(value = "/borrar", method = RequestMethod.POST)
+	public ResponseEntity<?> borraIncidencias(@RequestBody FiltroBusqueda filtroBusqueda,
+			@RequestParam(value = "simulacion", defaultValue = "false") boolean simulacion)
+	{
+		try
+		{
+			log.debug("DEBUG: Parametros de borrado recibidos:\n {}", filtroBusqueda);
+			return ResponseEntity.status(HttpStatus.OK)
+					.body(masivoIncidenciaService.borrar(filtroBusqueda, simulacion));
+		}
+		// Filtro vacio, con archivo o con fechas no validas.
+		catch (ParseException | IllegalArgumentException invalidFilterException)
+		{
+			String message = "ERROR: Error en el filtro recibido en borraIncidencias().\n" + invalidFilterException.getMessage();
+			log.error(message, invalidFilterException);
+			IssuesServerError serverError = new IssuesServerError(14, message, invalidFilterException);
+			return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(serverError.getMapError());
+		}
+		catch (Exception deleteIssuesException)
+		{
+			String message = "ERROR: Capturado en borraIncidencias()\n" + deleteIssuesException.getMessage();
+			log.error(message, deleteIssuesException);
+			IssuesServerError serverError = new IssuesServerError(15, message, deleteIssuesException);
+			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(serverError.getMapError());
+		}
+	}
+
+	/**
+	 * Cambia el estado de todas las incidencias que cumplen con los criterios
+	 * del filtro de búsqueda, por ejemplo para resolver las pendientes de un
+	 * trimestre ya cerrado.
+	 * 
+	 * Las incidencias se actualizan por lotes de tamaño acotado, cada uno con
+	 * una única sentencia {@code UPDATE}. Las que ya tienen el nuevo estado no
+	 * se modifican. El filtro debe indicar al menos un criterio y no puede
+	 * incluir el archivo.
+	 *
+	 * @param filtroBusqueda El objeto {@link FiltroBusqueda} que contiene los
+	 *                       criterios de las incidencias a cambiar.
+	 * @param estado         El nuevo estado: PENDIENTE, EN PROGRESO, RESUELTA o
+	 *                       CANCELADA.
+	 * @param simulacion     Si es {@code true}, solo se cuentan las incidencias
+	 *                       que cambiarían de estado, sin cambiarlas.
+	 * @return Un objeto {@link ResponseEntity} que puede contener:
+	 *         <ul>
+	 *         <li>El número de incidencias cambiadas de estado, o que
+	 *         cambiarían, con código de estado 200 (OK).</li>
+	 *         <li>Un mensaje de error si el estado o el filtro no son válidos,
+	 *         con código de estado 400 (Bad Request).</li>
+	 *         <li>Un mensaje de error general, en caso de excepciones inesperadas,
+	 *         con código de estado 500 (Internal Server Error).</li>
+	 *         </ul>
+	 */
+	@RequestMapping(value = "/estado", method = RequestMethod.POST)
+	public ResponseEntity<?> cambiaEstadoIncidencias(@RequestBody FiltroBusqueda filtroBusqueda,
+			@RequestParam(value = "estado") String estado,
+			@RequestParam(value = "simulacion", defaultValue = "false") boolean simulacion)
+	{
+		try
+		{
+			log.debug("DEBUG: Cambio a {} con los parametros recibidos:\n {}", estado, filtroBusqueda);
+			return ResponseEntity.status(HttpStatus.OK)
+					.body(masivoIncidenciaService.cambiarEstado(filtroBusqueda, estado, simulacion));
+		}
+		// Estado no valido, filtro vacio, con archivo o con fechas no validas.
+		catch (ParseException | IllegalArgumentException invalidFilterException)
+		{
+			String message = "ERROR: Error en los parametros recibidos en cambiaEstadoIncidencias().\n" + invalidFilterException.getMessage();
+			log.error(message, invalidFilterException);
+			IssuesServerError serverError = new IssuesServerError(16, message, invalidFilterException);
+			return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(serverError.getMapError());
+		}
+		catch (Exception updateIssuesException)
+		{
+			String message = "ERROR: Capturado en cambiaEstadoIncidencias()\n" + updateIssuesException.getMessage();
+			log.error(message, updateIssuesException);
+			IssuesServerError serverError = new IssuesServerError(17, message, updateIssuesException);
+			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(serverError.getMapError());
+		}
+	}
+
+	/**
+	 * Devuelve el número de incidencias registradas, en total y agrupadas por
+	 * estado, por aula, por día y por semana.
+	 * 
+	 * Los contadores se mantienen en memoria y se actualizan con cada alta,
+	 * modificación o borrado, por lo que la consulta no recorre la tabla de
+	 * incidencias. Las fechas opcionales limitan los contadores por día y por
+	 * semana devueltos.
+	 *
+	 * @param fechaInicio Primer día de los contadores por día y semana, con el
+	 *                    formato dd-MM-yyyy. Puede ser nulo.
+	 * @param fechaFin    Último día de los contadores por día y semana, con el
+	 *                    formato dd-MM-yyyy. Puede ser nulo.
+	 * @return Un objeto {@link ResponseEntity} que puede contener:
+	 *         <ul>
+	 *         <li>Los contadores de incidencias, con código de estado 200
+	 *         (OK).</li>
+	 *         <li>Un mensaje de error si alguna fecha no es válida, con código de
+	 *         estado 400 (Bad Request).</li>
+	 *         <li>Un mensaje informativo mientras los contadores se calculan al
+	 *         arrancar, con código de estado 503 (Service Unavailable).</li>
+	 *         </ul>
+	 */
+	@RequestMapping(value = "/estadisticas", method = RequestMethod.GET)
+	public ResponseEntity<?> estadisticasIncidencias(
+			@RequestParam(value = "fechaInicio", required = false) String fechaInicio,
+			@RequestParam(value = "fechaFin", required = false) String fechaFin)
+	{
+		try
+		{
+			// Los contadores se calculan en segundo plano al arrancar.
+			if (!estadisticasIncidencias.isListas())
+			{
+				return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+						.body("Las estadisticas de incidencias se estan calculando.");
+			}
+
+			LocalDate desde = fechaInicio == null || fechaInicio.isBlank() ? null : LocalDate.parse(fechaInicio, FORMATO_FECHA);
+			LocalDate hasta = fechaFin == null || fechaFin.isBlank() ? null : LocalDate.parse(fechaFin, FORMATO_FECHA);
+			return ResponseEntity.status(HttpStatus.OK).body(estadisticasIncidencias.consultar(desde, hasta));
+		}
+		// Fechas con formato no valido.
+		catch (DateTimeParseException dateTimeParseException)
+		{
+			String message = "ERROR: Error en las fechas recibidas en estadisticasIncidencias().\n" + dateTimeParseException.getMessage();
+			log.error(message, dateTimeParseException);
+			IssuesServerError serverError = new IssuesServerError(8, message, dateTimeParseException);
+			return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(serverError.getMapError());
+		}
+	}
+
+	/**
+	 * Devuelve los contadores de uso de la caché de resultados de la búsqueda
+	 * desde el arranque del servicio.
+	 *
+	 * @return Un objeto {@link ResponseEntity} con los aciertos, fallos,
+	 *         expulsiones e invalidaciones de la caché y su tamaño, con código de
+	 *         estado 200 (OK).
+	 */
+	@RequestMapping(value = "/cache", method = RequestMethod.GET)
+	public ResponseEntity<?> estadisticasCache()
+	{
+		return ResponseEntity.status(HttpStatus.OK).body(cacheBusquedaIncidencias.estadisticas());
+	}
+
+	/**
+	 * Abre un canal de Server-Sent Events por el que se envía cada incidencia
+	 * creada, actualizada o eliminada, una vez guardada.
+	 * 
+	 * Cada evento tiene como nombre el tipo de modificación ({@code CREADA},
+	 * {@code ACTUALIZADA} o {@code BORRADA}), un identificador consecutivo y como
+	 * datos un {@link NovedadDTO}. Al reconectarse, el cliente envía el último
+	 * identificador recibido en la cabecera {@code Last-Event-ID} y recibe las
+	 * novedades que se ha perdido, o el evento {@code REINICIO} si ya no se
+	 * conservan, en cuyo caso debe repetir su búsqueda.
+	 *
+	 * @param numeroAula       Si se indica, solo se envían las novedades de esta
+	 *                         aula.
+	 * @param estadoIncidencia Si se indica, solo se envían las novedades de
+	 *                         incidencias que tienen o tenían este estado.
+	 * @param ultimoId         El identificador de la última novedad recibida,
+	 *                         enviado por el cliente al reconectarse.
+	 * @return El canal de eventos, con tipo de contenido
+	 *         {@code text/event-stream}.
+	 */
+	@RequestMapping(value = "/novedades", method = RequestMethod.GET, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public SseEmitter novedadesIncidencias(
+			@RequestParam(value = "numeroAula", required = false) String numeroAula,
+			@RequestParam(value = "estadoIncidencia", required = false) String estadoIncidencia,
+			@RequestHeader(value = "Last-Event-ID", required = false) Long ultimoId)
+	{
+		SseEmitter emisor = new SseEmitter(this.tiempoMaximoNovedades);
+		canalNovedades.suscribir(emisor, numeroAula == null || numeroAula.isBlank() ? null : numeroAula,
+				estadoIncidencia == null || estadoIncidencia.isBlank() ? null : estadoIncidencia, ultimoId);
+		log.debug("DEBUG: Suscripcion a novedades, {} suscriptores.", canalNovedades.getSuscriptores());
+		return emisor;
+	}
+
 	/**
 	 * Elimina una incidencia de la base de datos basándose en los detalles
 	 * proporcionados en el DTO. Verifica primero si la incidencia existe, y si no,
@@ -295,17 +878,19 @@ public class IncidenciaController
 			// Mapea el DTO recibido a la entidad de Incidencia y controla parametros NULL.
 			IncidenciaEntity inEntity = incidenciaMapper.mapToEntity(dto);
 
-			// Verifica si la incidencia existe en la base de datos.
-			if (!(iIncidenciaRepository.existsByCompositeId(inEntity.getNumeroAula(), inEntity.getCorreoDocente(),
-					inEntity.getFechaIncidencia())))
+			// Elimina la incidencia de la base de datos, leyendola bloqueada para notificar los datos que tenia guardados.
+			Optional<IncidenciaEntity> borrada = iIncidenciaRepository.borraIncidencia(new IncidenciaEntityId(
+					inEntity.getNumeroAula(), inEntity.getCorreoDocente(), inEntity.getFechaIncidencia()));
+			if (borrada.isEmpty())
 			{
 				// Si no existe la incidencia, responde con 404.
 				return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Incidencia no encontrada.");
 			}
+			inEntity = borrada.get();
 
-			// Elimina la incidencia de la base de datos y loguea la accion.
-			iIncidenciaRepository.delete(inEntity);
-			log.info("INFO: Incidencia eliminada con exito.\n{}", inEntity.toString());
+			// Notifica el borrado y loguea la accion.
+			applicationEventPublisher.publishEvent(new IncidenciaModificadaEvent(IncidenciaModificadaEvent.Tipo.BORRADA, inEntity));
+			log.debug("DEBUG: Incidencia eliminada con exito.\n{}", inEntity);
 
 			// Respuesta HTTP de objeto borrado con exito.
 			return ResponseEntity.status(HttpStatus.NO_CONTENT).body("INFO:Incidencia eliminada con exito.");
@@ -328,4 +913,32 @@ public class IncidenciaController
 			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(serverError.getMapError());
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Comprueba si alguna de las etiquetas de la cabecera "If-None-Match" coincide
+	 * con la de la página, con la comparación débil que corresponde a esta
+	 * cabecera.
+	 *
+	 * @param etiquetasCliente El valor de la cabecera, con una o varias etiquetas
+	 *                         separadas por comas o "*". Puede ser nulo.
+	 * @param etiqueta         La etiqueta actual de la página.
+	 * @return true si el cliente ya tiene la página.
+	 */
+	private static boolean coincideEtiqueta(String etiquetasCliente, String etiqueta)
+	{
+		if (etiquetasCliente == null || etiquetasCliente.isBlank())
+		{
+			return false;
+		}
+		String buscada = etiqueta.startsWith("W/") ? etiqueta.substring(2) : etiqueta;
+		for (String enviada : etiquetasCliente.split(","))
+		{
+			enviada = enviada.trim();
+			if (enviada.equals("*") || (enviada.startsWith("W/") ? enviada.substring(2) : enviada).equals(buscada))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+}
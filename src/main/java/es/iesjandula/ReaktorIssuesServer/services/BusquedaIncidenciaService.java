@@ -0,0 +1,559 @@
+package es.iesjandula.ReaktorIssuesServer.services;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.function.ThrowingConsumer;
+
+import es.iesjandula.ReaktorIssuesServer.cache.CacheBusquedaIncidencias;
+import es.iesjandula.ReaktorIssuesServer.cache.ClaveBusqueda;
+import es.iesjandula.ReaktorIssuesServer.cache.VersionesBusqueda;
+import es.iesjandula.ReaktorIssuesServer.dto.CriteriosBusqueda;
+import es.iesjandula.ReaktorIssuesServer.dto.FiltroBusqueda;
+import es.iesjandula.ReaktorIssuesServer.dto.IncidenciaDTO;
+import es.iesjandula.ReaktorIssuesServer.dto.PaginaIncidencias;
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntityId;
+import es.iesjandula.ReaktorIssuesServer.indice.IndiceTextoIncidencias;
+import es.iesjandula.ReaktorIssuesServer.repository.IIncidenciaRepository;
+import es.iesjandula.ReaktorIssuesServer.utils.CursorIncidencia;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Servicio que resuelve las búsquedas de incidencias por páginas.
+ * <p>
+ * Traduce un {@link FiltroBusqueda} recibido del cliente a la consulta del repositorio, limitando siempre el
+ * número de filas leídas al tamaño de página solicitado (acotado por el máximo configurado) y calculando el
+ * cursor opaco que permite continuar la búsqueda en la página siguiente.
+ * </p>
+ * <p>
+ * Las búsquedas por descripción o comentario se resuelven, siempre que es posible, con el
+ * {@link IndiceTextoIncidencias} en lugar de la consulta {@code LIKE}, y las búsquedas repetidas se responden
+ * desde la {@link CacheBusquedaIncidencias}.
+ * </p>
+ * <p>
+ * Permite además recorrer el resultado completo de un filtro sin mantenerlo en memoria, para su exportación, y
+ * contar o comprobar si existen incidencias que lo cumplen sin leerlas. El recuento y la comprobación usan las mismas
+ * candidatas del índice de texto que la búsqueda.
+ * </p>
+ * <p>
+ * Todas las lecturas se hacen en transacciones de solo lectura, que con réplicas habilitadas se envían a una réplica.
+ * </p>
+ */
+@Slf4j
+@Service
+public class BusquedaIncidenciaService
+{
+
+	@Autowired
+	// Auto-inyeccion de repositorio.
+	private IIncidenciaRepository iIncidenciaRepository;
+
+	/**
+	 * Tamaño de página que se aplica cuando el filtro no indica ninguno.
+	 */
+	@Value("${incidencias.busqueda.tamano-pagina-defecto:100}")
+	private int tamanoPaginaDefecto;
+
+	/**
+	 * Tamaño de página máximo que puede solicitar un cliente.
+	 */
+	@Value("${incidencias.busqueda.tamano-pagina-maximo:1000}")
+	private int tamanoPaginaMaximo;
+
+	/**
+	 * Número máximo de candidatas del índice de texto con el que compensa usarlo. Por encima, el texto buscado es tan
+	 * frecuente que la consulta paginada de la base de datos completa la página antes.
+	 */
+	@Value("${incidencias.indice-texto.maximo-candidatos:50000}")
+	private int maximoCandidatos;
+
+	@Autowired
+	// Auto-inyeccion del indice de texto.
+	private IndiceTextoIncidencias indiceTexto;
+
+	@Autowired
+	// Auto-inyeccion de la cache de paginas de resultados.
+	private CacheBusquedaIncidencias cacheBusqueda;
+
+	@Autowired
+	// Auto-inyeccion de las versiones de los datos de cada busqueda.
+	private VersionesBusqueda versionesBusqueda;
+
+	/**
+	 * Orden de la paginación: fecha, aula y correo del docente.
+	 */
+	private static final Comparator<IncidenciaEntityId> ORDEN_PAGINACION = Comparator
+			.comparing(IncidenciaEntityId::getFechaIncidencia)
+			.thenComparing(IncidenciaEntityId::getNumeroAula)
+			.thenComparing(IncidenciaEntityId::getCorreoDocente);
+
+	/**
+	 * Campos que identifican la incidencia, que se devuelven siempre.
+	 */
+	private static final List<String> CAMPOS_CLAVE = List.of("numeroAula", "correoDocente", "fechaIncidencia");
+
+	/**
+	 * Campos que solo se devuelven si se solicitan, o si la búsqueda no indica ninguno.
+	 */
+	public static final List<String> CAMPOS_OPCIONALES = List.of("descripcionIncidencia", "estadoIncidencia",
+			"comentario");
+
+	/**
+	 * Número máximo de claves que se leen de la base de datos en cada consulta de la búsqueda con índice.
+	 */
+	private static final int TAMANO_BLOQUE_CLAVES = 500;
+
+	/**
+	 * Busca una página de incidencias que cumplen con los criterios del filtro.
+	 *
+	 * @param filtroBusqueda El filtro recibido del cliente.
+	 * @return La página de incidencias encontradas junto al cursor de la página siguiente.
+	 * @throws ParseException Si alguna de las fechas del filtro no tiene el formato dd-MM-yyyy.
+	 * @throws IllegalArgumentException Si el cursor, el tamaño de página o los campos no son válidos.
+	 */
+	@Transactional(readOnly = true)
+	public PaginaIncidencias buscar(FiltroBusqueda filtroBusqueda) throws ParseException, IllegalArgumentException
+	{
+		ClaveBusqueda clave = this.clave(filtroBusqueda);
+
+		// Identificador de la última incidencia de la página anterior, si la hay.
+		IncidenciaEntityId cursor = clave.getCursor() == null ? new IncidenciaEntityId()
+				: CursorIncidencia.decodificar(clave.getCursor());
+
+		// Las busquedas repetidas se responden desde la cache mientras no cambie ninguna incidencia que puedan incluir.
+		return cacheBusqueda.obtener(clave, () -> this.buscar(clave.getCriterios(), cursor, clave.getTamanoPagina(),
+				clave.isRelevancia(), clave.getCampos()));
+	}
+
+	/**
+	 * Cuenta las incidencias que cumplen con los criterios del filtro, sin leerlas.
+	 * <p>
+	 * Los campos de paginación y de orden del filtro se ignoran.
+	 * </p>
+	 *
+	 * @param filtroBusqueda El filtro recibido del cliente.
+	 * @return El número de incidencias que cumplen con los criterios.
+	 * @throws ParseException Si alguna de las fechas del filtro no tiene el formato dd-MM-yyyy.
+	 */
+	@Transactional(readOnly = true)
+	public long contar(FiltroBusqueda filtroBusqueda) throws ParseException
+	{
+		CriteriosBusqueda criterios = this.normalizar(filtroBusqueda);
+		List<IncidenciaEntityId> claves = this.clavesCandidatas(criterios, false);
+		if (claves == null)
+		{
+			return iIncidenciaRepository.cuentaIncidencias(criterios);
+		}
+
+		long[] total = { 0 };
+		this.leerCandidatas(criterios, claves, TAMANO_BLOQUE_CLAVES, fila ->
+		{
+			total[0]++;
+			return true;
+		});
+		return total[0];
+	}
+
+	/**
+	 * Comprueba si alguna incidencia cumple con los criterios del filtro, sin leerla.
+	 * <p>
+	 * Los campos de paginación y de orden del filtro se ignoran.
+	 * </p>
+	 *
+	 * @param filtroBusqueda El filtro recibido del cliente.
+	 * @return {@code true} si existe al menos una incidencia que cumple con los criterios.
+	 * @throws ParseException Si alguna de las fechas del filtro no tiene el formato dd-MM-yyyy.
+	 */
+	@Transactional(readOnly = true)
+	public boolean existe(FiltroBusqueda filtroBusqueda) throws ParseException
+	{
+		CriteriosBusqueda criterios = this.normalizar(filtroBusqueda);
+		List<IncidenciaEntityId> claves = this.clavesCandidatas(criterios, false);
+		if (claves == null)
+		{
+			return iIncidenciaRepository.existeIncidencia(criterios);
+		}
+
+		// Termina en la primera candidata que cumple los criterios.
+		boolean[] encontrada = { false };
+		this.leerCandidatas(criterios, claves, TAMANO_BLOQUE_CLAVES, fila ->
+		{
+			encontrada[0] = true;
+			return false;
+		});
+		return encontrada[0];
+	}
+
+	/**
+	 * Calcula la etiqueta {@code ETag} de la página que devolvería la búsqueda, sin consultar la base de datos.
+	 * <p>
+	 * La etiqueta solo cambia cuando se modifica alguna incidencia que la búsqueda puede incluir, por lo que un
+	 * cliente que ya tiene la página con la misma etiqueta no necesita volver a recibirla.
+	 * </p>
+	 *
+	 * @param filtroBusqueda El filtro recibido del cliente.
+	 * @return La etiqueta débil de la página.
+	 * @throws ParseException Si alguna de las fechas del filtro no tiene el formato dd-MM-yyyy.
+	 * @throws IllegalArgumentException Si el tamaño de página o los campos no son válidos.
+	 */
+	public String etiqueta(FiltroBusqueda filtroBusqueda) throws ParseException, IllegalArgumentException
+	{
+		return versionesBusqueda.etiqueta(this.clave(filtroBusqueda));
+	}
+
+	/**
+	 * Obtiene la búsqueda solicitada por el filtro, con sus criterios normalizados y su tamaño de página efectivo.
+	 */
+	private ClaveBusqueda clave(FiltroBusqueda filtroBusqueda) throws ParseException, IllegalArgumentException
+	{
+		CriteriosBusqueda criterios = this.normalizar(filtroBusqueda);
+		String cursorRecibido = filtroBusqueda.getCursor() == null || filtroBusqueda.getCursor().isBlank() ? null
+				: filtroBusqueda.getCursor();
+		int tamanoPagina = this.calcularTamanoPagina(filtroBusqueda.getTamanoPagina());
+		boolean relevancia = Boolean.TRUE.equals(filtroBusqueda.getOrdenarPorRelevancia());
+		return new ClaveBusqueda(criterios, cursorRecibido, tamanoPagina, relevancia,
+				this.calcularCampos(filtroBusqueda.getCampos()));
+	}
+
+	/**
+	 * Busca una página de incidencias en el índice de texto o en la base de datos.
+	 *
+	 * @param criterios    Los criterios de búsqueda normalizados.
+	 * @param cursor       La última incidencia de la página anterior.
+	 * @param tamanoPagina El tamaño de página a devolver.
+	 * @param relevancia   Si las incidencias se ordenan por relevancia en lugar de por fecha.
+	 * @param campos       Los campos opcionales que se devuelven, o null para devolverlos todos.
+	 * @return La página de incidencias encontradas.
+	 */
+	private PaginaIncidencias buscar(CriteriosBusqueda criterios, IncidenciaEntityId cursor, int tamanoPagina,
+			boolean relevancia, List<String> campos)
+	{
+		Map<IncidenciaEntityId, Double> candidatos = this.candidatas(criterios, relevancia);
+		if (candidatos != null)
+		{
+			// Las filas se leen completas para comprobar el texto y despues se eliminan los campos no solicitados.
+			PaginaIncidencias pagina = this.buscarConIndice(criterios, candidatos, cursor, tamanoPagina, relevancia);
+			return new PaginaIncidencias(proyectar(pagina.getIncidencias(), campos), pagina.getSiguienteCursor());
+		}
+
+		// Se pide una fila más de la necesaria para saber si existe una página siguiente.
+		List<IncidenciaDTO> listado = iIncidenciaRepository.buscaIncidencia(criterios, cursor, tamanoPagina + 1,
+				campos);
+
+		return this.crearPagina(listado, tamanoPagina, true);
+	}
+
+	/**
+	 * Recorre todas las incidencias que cumplen con los criterios, entregándolas una a una al consumidor.
+	 * <p>
+	 * Las incidencias se leen de la base de datos por bloques mediante un cursor JDBC dentro de una transacción de
+	 * solo lectura, de modo que la memoria utilizada no depende del número de filas. La conexión queda ocupada
+	 * hasta que el consumidor ha procesado la última incidencia.
+	 * </p>
+	 *
+	 * @param criterios Los criterios de búsqueda ya normalizados.
+	 * @param consumidor El consumidor que recibe cada incidencia en orden.
+	 * @return El número de incidencias entregadas.
+	 */
+	@Transactional(readOnly = true)
+	public long exportar(CriteriosBusqueda criterios, ThrowingConsumer<IncidenciaDTO> consumidor)
+	{
+		long total = 0;
+		try (Stream<IncidenciaDTO> incidencias = iIncidenciaRepository.exportaIncidencia(criterios))
+		{
+			Iterator<IncidenciaDTO> iterador = incidencias.iterator();
+			while (iterador.hasNext())
+			{
+				consumidor.accept(iterador.next());
+				total++;
+			}
+		}
+		log.debug("DEBUG: Exportadas {} incidencias", total);
+		return total;
+	}
+
+	/**
+	 * Normaliza el filtro recibido del cliente interpretando sus fechas.
+	 * <p>
+	 * Si no se indica fecha de inicio o de fin, el criterio correspondiente queda nulo y la búsqueda no se acota por
+	 * ese lado.
+	 * </p>
+	 *
+	 * @param filtroBusqueda El filtro recibido del cliente.
+	 * @return Los criterios de búsqueda equivalentes.
+	 * @throws ParseException Si alguna de las fechas del filtro no tiene el formato dd-MM-yyyy.
+	 */
+	public CriteriosBusqueda normalizar(FiltroBusqueda filtroBusqueda) throws ParseException
+	{
+		// Formateador de fecha
+		SimpleDateFormat formatter = new SimpleDateFormat("dd-MM-yyyy");
+
+		// Horas formateadas para consulta en bbdd.
+		Date fechainicioF = null;
+		if (filtroBusqueda.getFechaInicio() != null && !filtroBusqueda.getFechaInicio().isBlank())
+		{
+			fechainicioF = formatter.parse(filtroBusqueda.getFechaInicio());
+		}
+		Date fechafinF = null;
+		if (filtroBusqueda.getFechaFin() != null && !filtroBusqueda.getFechaFin().isBlank())
+		{
+			fechafinF = formatter.parse(filtroBusqueda.getFechaFin());
+		}
+
+		return new CriteriosBusqueda(filtroBusqueda.getNumeroAula(), filtroBusqueda.getCorreoDocente(), fechainicioF,
+				fechafinF, filtroBusqueda.getDescripcionIncidencia(), filtroBusqueda.getEstadoIncidencia(),
+				filtroBusqueda.getComentario(), Boolean.TRUE.equals(filtroBusqueda.getIncluirArchivo()));
+	}
+
+	/**
+	 * Obtiene del índice de texto las candidatas de una búsqueda de texto, si el índice puede responderla.
+	 * <p>
+	 * El índice no contiene las incidencias archivadas, y si el texto es tan frecuente que tiene más de
+	 * {@code maximoCandidatos} candidatas, la consulta de la base de datos responde antes, salvo que se ordene por
+	 * relevancia.
+	 * </p>
+	 *
+	 * @param criterios  Los criterios de búsqueda normalizados.
+	 * @param relevancia Si las incidencias se ordenan por relevancia.
+	 * @return Las claves candidatas con su puntuación de relevancia, o null si la búsqueda no usa el índice.
+	 */
+	private Map<IncidenciaEntityId, Double> candidatas(CriteriosBusqueda criterios, boolean relevancia)
+	{
+		if (criterios.isIncluirArchivo()
+				|| (criterios.getDescripcionIncidencia() == null && criterios.getComentario() == null))
+		{
+			return null;
+		}
+		Map<IncidenciaEntityId, Double> candidatos = indiceTexto.buscar(criterios.getDescripcionIncidencia(),
+				criterios.getComentario());
+		return candidatos != null && (relevancia || candidatos.size() <= this.maximoCandidatos) ? candidatos : null;
+	}
+
+	/**
+	 * Obtiene las claves candidatas del índice de texto que cumplen los criterios de aula, docente y fechas.
+	 *
+	 * @param criterios  Los criterios de búsqueda normalizados.
+	 * @param relevancia Si las incidencias se ordenan por relevancia.
+	 * @return Las claves candidatas, o null si la búsqueda no usa el índice.
+	 */
+	private List<IncidenciaEntityId> clavesCandidatas(CriteriosBusqueda criterios, boolean relevancia)
+	{
+		Map<IncidenciaEntityId, Double> candidatos = this.candidatas(criterios, relevancia);
+		if (candidatos == null)
+		{
+			return null;
+		}
+		return candidatos.keySet().stream().filter(clave -> cumpleClave(criterios, clave)).toList();
+	}
+
+	/**
+	 * Busca una página de incidencias a partir de las candidatas obtenidas del índice de texto.
+	 * <p>
+	 * Los criterios de aula, docente y fechas se comprueban sobre la propia clave de cada candidata, sin consultar la
+	 * base de datos. Las candidatas restantes se leen por bloques de la base de datos, en el orden de la página, hasta
+	 * completarla, comprobando el estado y el texto de cada una.
+	 * </p>
+	 *
+	 * @param criterios    Los criterios de búsqueda normalizados.
+	 * @param candidatos   Las claves candidatas con su puntuación de relevancia.
+	 * @param cursor       La última incidencia de la página anterior.
+	 * @param tamanoPagina El tamaño de página a devolver.
+	 * @param relevancia   Si las incidencias se ordenan por relevancia en lugar de por fecha.
+	 * @return La página de incidencias encontradas.
+	 */
+	private PaginaIncidencias buscarConIndice(CriteriosBusqueda criterios, Map<IncidenciaEntityId, Double> candidatos,
+			IncidenciaEntityId cursor, int tamanoPagina, boolean relevancia)
+	{
+		Comparator<IncidenciaEntityId> orden = ORDEN_PAGINACION;
+		if (relevancia)
+		{
+			orden = Comparator.<IncidenciaEntityId, Double>comparing(candidatos::get).reversed()
+					.thenComparing(ORDEN_PAGINACION);
+		}
+
+		List<IncidenciaEntityId> claves = candidatos.keySet().stream()
+				.filter(clave -> cumpleClave(criterios, clave))
+				.filter(clave -> relevancia || cursor.getFechaIncidencia() == null
+						|| ORDEN_PAGINACION.compare(clave, cursor) > 0)
+				.sorted(orden)
+				.toList();
+
+		List<IncidenciaDTO> listado = new ArrayList<>();
+		this.leerCandidatas(criterios, claves, Math.min(tamanoPagina + 1, TAMANO_BLOQUE_CLAVES), fila ->
+		{
+			listado.add(fila);
+			return listado.size() <= tamanoPagina;
+		});
+
+		log.debug("DEBUG: Busqueda con indice de texto, {} candidatas", claves.size());
+		// Con orden de relevancia no se pagina: el cursor solo sigue el orden por fecha.
+		return this.crearPagina(listado, tamanoPagina, !relevancia);
+	}
+
+	/**
+	 * Lee de la base de datos, por bloques y en el orden de las claves, las incidencias candidatas que cumplen los
+	 * criterios de estado y de texto, entregándolas una a una al consumidor.
+	 *
+	 * @param criterios  Los criterios de búsqueda normalizados.
+	 * @param claves     Las claves candidatas, en el orden en que se entregan.
+	 * @param bloque     El número de claves que se leen en cada consulta.
+	 * @param consumidor Recibe cada incidencia y devuelve false si no deben leerse más.
+	 */
+	private void leerCandidatas(CriteriosBusqueda criterios, List<IncidenciaEntityId> claves, int bloque,
+			Predicate<IncidenciaDTO> consumidor)
+	{
+		boolean continuar = true;
+		for (int desde = 0; desde < claves.size() && continuar; desde += bloque)
+		{
+			List<IncidenciaEntityId> claveBloque = claves.subList(desde, Math.min(desde + bloque, claves.size()));
+
+			// Lee las filas del bloque en una sola consulta.
+			Map<IncidenciaEntityId, IncidenciaDTO> filas = new HashMap<>();
+			List<IncidenciaDTO> leidas = iIncidenciaRepository.buscaPorClaves(
+					claveBloque.stream().map(IncidenciaEntityId::getCorreoDocente).collect(Collectors.toSet()),
+					claveBloque.stream().map(IncidenciaEntityId::getFechaIncidencia).collect(Collectors.toSet()));
+			for (IncidenciaDTO fila : leidas)
+			{
+				filas.put(IncidenciaEntityId.crear(fila.getNumeroAula(), fila.getCorreoDocente(),
+						fila.getFechaIncidencia()), fila);
+			}
+
+			// Conserva el orden de las claves y descarta las que no cumplen el resto de criterios.
+			for (int i = 0; i < claveBloque.size() && continuar; i++)
+			{
+				IncidenciaDTO fila = filas.get(claveBloque.get(i));
+				if (fila != null && cumpleFila(criterios, fila))
+				{
+					continuar = consumidor.test(fila);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Recorta el listado al tamaño de página y calcula el cursor de la página siguiente.
+	 *
+	 * @param listado      Las incidencias encontradas, con una más que el tamaño de página si hay más resultados.
+	 * @param tamanoPagina El tamaño de página a devolver.
+	 * @param conCursor    Si debe calcularse el cursor de la página siguiente.
+	 * @return La página de incidencias.
+	 */
+	private PaginaIncidencias crearPagina(List<IncidenciaDTO> listado, int tamanoPagina, boolean conCursor)
+	{
+		String siguienteCursor = null;
+		if (listado.size() > tamanoPagina)
+		{
+			listado = listado.subList(0, tamanoPagina);
+			IncidenciaDTO ultima = listado.get(tamanoPagina - 1);
+			if (conCursor)
+			{
+				siguienteCursor = CursorIncidencia.codificar(new IncidenciaEntityId(ultima.getNumeroAula(),
+						ultima.getCorreoDocente(), ultima.getFechaIncidencia()));
+			}
+		}
+
+		log.debug("DEBUG: Pagina de {} incidencias, hay mas paginas: {}", listado.size(), siguienteCursor != null);
+		return new PaginaIncidencias(listado, siguienteCursor);
+	}
+
+	/**
+	 * Comprueba los criterios de aula, docente y fechas sobre la clave de una incidencia.
+	 */
+	private static boolean cumpleClave(CriteriosBusqueda criterios, IncidenciaEntityId clave)
+	{
+		return (criterios.getNumeroAula() == null || criterios.getNumeroAula().equalsIgnoreCase(clave.getNumeroAula()))
+				&& (criterios.getCorreoDocente() == null
+						|| criterios.getCorreoDocente().equalsIgnoreCase(clave.getCorreoDocente()))
+				&& (criterios.getFechaInicio() == null || !clave.getFechaIncidencia().before(criterios.getFechaInicio()))
+				&& (criterios.getFechaFin() == null || !clave.getFechaIncidencia().after(criterios.getFechaFin()));
+	}
+
+	/**
+	 * Comprueba los criterios de estado y de texto sobre una incidencia leída de la base de datos.
+	 */
+	private static boolean cumpleFila(CriteriosBusqueda criterios, IncidenciaDTO fila)
+	{
+		return (criterios.getEstadoIncidencia() == null
+				|| criterios.getEstadoIncidencia().equalsIgnoreCase(fila.getEstadoIncidencia()))
+				&& (criterios.getDescripcionIncidencia() == null
+						|| IndiceTextoIncidencias.contiene(fila.getDescripcionIncidencia(), criterios.getDescripcionIncidencia()))
+				&& (criterios.getComentario() == null
+						|| IndiceTextoIncidencias.contiene(fila.getComentario(), criterios.getComentario()));
+	}
+
+	/**
+	 * Calcula los campos opcionales que se devuelven a partir de los solicitados por el cliente.
+	 *
+	 * @param camposSolicitados Los campos indicados en el filtro, puede ser nulo.
+	 * @return Los campos opcionales solicitados, en el orden de {@link #CAMPOS_OPCIONALES}, o null si se solicitan
+	 *         todos.
+	 * @throws IllegalArgumentException Si algún campo no es un atributo de {@link IncidenciaDTO}.
+	 */
+	private List<String> calcularCampos(List<String> camposSolicitados) throws IllegalArgumentException
+	{
+		if (camposSolicitados == null || camposSolicitados.isEmpty())
+		{
+			return null;
+		}
+		for (String campo : camposSolicitados)
+		{
+			if (!CAMPOS_CLAVE.contains(campo) && !CAMPOS_OPCIONALES.contains(campo))
+			{
+				throw new IllegalArgumentException("El campo " + campo + " no existe.");
+			}
+		}
+		// El mismo conjunto de campos da siempre la misma lista, que forma parte de la clave de la cache.
+		List<String> campos = CAMPOS_OPCIONALES.stream().filter(camposSolicitados::contains).toList();
+		return campos.size() == CAMPOS_OPCIONALES.size() ? null : campos;
+	}
+
+	/**
+	 * Elimina de las incidencias los campos opcionales no solicitados.
+	 */
+	private static List<IncidenciaDTO> proyectar(List<IncidenciaDTO> listado, List<String> campos)
+	{
+		if (campos == null)
+		{
+			return listado;
+		}
+		return listado.stream().map(fila -> new IncidenciaDTO(fila.getNumeroAula(), fila.getCorreoDocente(),
+				fila.getFechaIncidencia(),
+				campos.contains("descripcionIncidencia") ? fila.getDescripcionIncidencia() : null,
+				campos.contains("estadoIncidencia") ? fila.getEstadoIncidencia() : null,
+				campos.contains("comentario") ? fila.getComentario() : null)).toList();
+	}
+
+	/**
+	 * Calcula el tamaño de página efectivo a partir del solicitado por el cliente.
+	 *
+	 * @param tamanoSolicitado El tamaño de página indicado en el filtro, puede ser nulo.
+	 * @return El tamaño solicitado acotado por el máximo configurado, o el tamaño por defecto.
+	 * @throws IllegalArgumentException Si el tamaño solicitado no es positivo.
+	 */
+	private int calcularTamanoPagina(Integer tamanoSolicitado) throws IllegalArgumentException
+	{
+		if (tamanoSolicitado == null)
+		{
+			return Math.min(this.tamanoPaginaDefecto, this.tamanoPaginaMaximo);
+		}
+		if (tamanoSolicitado <= 0)
+		{
+			throw new IllegalArgumentException("El tamaño de página debe ser mayor que cero.");
+		}
+		return Math.min(tamanoSolicitado, this.tamanoPaginaMaximo);
+	}
+}
@@ -0,0 +1,88 @@
+package es.iesjandula.ReaktorIssuesServer.services;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import es.iesjandula.ReaktorIssuesServer.dto.IncidenciaDTO;
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import es.iesjandula.ReaktorIssuesServer.events.IncidenciaModificadaEvent;
+import es.iesjandula.ReaktorIssuesServer.mappers.IncidenciaMapper;
+import es.iesjandula.ReaktorIssuesServer.repository.IIncidenciaRepository;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Servicio que crea o actualiza una incidencia recibida en {@code PUT /incidencias}.
+ * <p>
+ * Si el DTO identifica una incidencia que ya existe, se lee y bloquea su estado y se actualiza en la misma
+ * transacción, de modo que el {@link IncidenciaModificadaEvent} publicado indica el estado que tenía justo antes de
+ * la actualización y las estadísticas pueden mover la incidencia de un estado a otro sin recontar la tabla. Solo
+ * entonces se validan todos los atributos del DTO. En otro caso se crea una incidencia nueva con el correo de la
+ * cabecera, la fecha actual, el estado pendiente y sin comentario.
+ * </p>
+ */
+@Slf4j
+@Service
+public class EscrituraIncidenciaService
+{
+
+	@Autowired
+	// Auto-inyeccion de repositorio.
+	private IIncidenciaRepository iIncidenciaRepository;
+
+	@Autowired
+	// Auto-inyeccion de mapeador de dto-entidad.
+	private IncidenciaMapper incidenciaMapper;
+
+	@Autowired
+	// Auto-inyeccion del publicador de eventos de modificacion de incidencias.
+	private ApplicationEventPublisher applicationEventPublisher;
+
+	/**
+	 * Crea o actualiza una incidencia en una única transacción.
+	 *
+	 * @param correoDocente El correo del docente recibido en la cabecera, con el que se crean las incidencias nuevas.
+	 * @param incidenciaDTO La incidencia recibida, con el aula y la descripción ya validados.
+	 * @return Si la incidencia se ha creado o actualizado.
+	 * @throws Exception Si el DTO identifica una incidencia que existe pero le falta algún atributo.
+	 */
+	@Transactional
+	public IncidenciaModificadaEvent.Tipo guardar(String correoDocente, IncidenciaDTO incidenciaDTO) throws Exception
+	{
+		// Si se identifica una incidencia concreta puede tratarse de una actualizacion.
+		if (incidenciaDTO.getCorreoDocente() != null && incidenciaDTO.getFechaIncidencia() != null)
+		{
+			List<String> estado = iIncidenciaRepository.bloqueaEstado(incidenciaDTO.getNumeroAula(),
+					incidenciaDTO.getCorreoDocente(), incidenciaDTO.getFechaIncidencia());
+			if (!estado.isEmpty())
+			{
+				IncidenciaEntity incidencia = incidenciaMapper.mapToEntity(incidenciaDTO);
+				iIncidenciaRepository.actualizaIncidencia(incidencia.getNumeroAula(), incidencia.getCorreoDocente(),
+						incidencia.getFechaIncidencia(), incidencia.getDescripcionIncidencia(),
+						incidencia.getEstadoIncidencia(), incidencia.getComentario());
+				return this.publicar(IncidenciaModificadaEvent.Tipo.ACTUALIZADA, incidencia, estado.get(0));
+			}
+		}
+
+		// Una incidencia identificada que no existe se crea como cualquier otra nueva, con una sola sentencia.
+		IncidenciaEntity incidencia = incidenciaMapper.mapToNuevaEntity(correoDocente, incidenciaDTO);
+		iIncidenciaRepository.guardaIncidencia(incidencia.getNumeroAula(), incidencia.getCorreoDocente(),
+				incidencia.getFechaIncidencia(), incidencia.getDescripcionIncidencia(),
+				incidencia.getEstadoIncidencia(), incidencia.getComentario());
+		return this.publicar(IncidenciaModificadaEvent.Tipo.CREADA, incidencia, null);
+	}
+
+	/**
+	 * Publica la modificación, que los oyentes reciben al confirmarse la transacción.
+	 */
+	private IncidenciaModificadaEvent.Tipo publicar(IncidenciaModificadaEvent.Tipo tipo, IncidenciaEntity incidencia,
+			String estadoAnterior)
+	{
+		applicationEventPublisher.publishEvent(new IncidenciaModificadaEvent(tipo, incidencia, estadoAnterior));
+		log.debug("DEBUG: El objeto guardado en base de datos es:\n{}", incidencia);
+		return tipo;
+	}
+}
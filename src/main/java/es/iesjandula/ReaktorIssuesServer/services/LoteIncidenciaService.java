@@ -0,0 +1,306 @@
+package es.iesjandula.ReaktorIssuesServer.services;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import es.iesjandula.ReaktorIssuesServer.dto.IncidenciaDTO;
+import es.iesjandula.ReaktorIssuesServer.dto.PeticionIncidenciaDTO;
+import es.iesjandula.ReaktorIssuesServer.dto.ResultadoLoteDTO;
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntityId;
+import es.iesjandula.ReaktorIssuesServer.events.IncidenciaModificadaEvent;
+import es.iesjandula.ReaktorIssuesServer.mappers.IncidenciaMapper;
+import es.iesjandula.ReaktorIssuesServer.repository.IIncidenciaRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Servicio que crea o actualiza muchas incidencias en una sola operación.
+ * <p>
+ * Todas las incidencias del lote se escriben en una única transacción. Las que ya existen se obtienen con una sola
+ * consulta y se actualizan como entidades gestionadas, y las nuevas se persisten directamente, sin la lectura previa
+ * que realiza {@code save()} con un identificador compuesto. Al confirmar, Hibernate agrupa las sentencias
+ * {@code INSERT} y {@code UPDATE} en lotes JDBC según {@code hibernate.jdbc.batch_size}.
+ * </p>
+ * <p>
+ * Las incidencias no válidas se rechazan individualmente sin impedir que se guarden las demás, y de las que se repiten
+ * en el lote solo se guarda la última.
+ * </p>
+ */
+@Slf4j
+@Service
+public class LoteIncidenciaService
+{
+
+	@Autowired
+	// Auto-inyeccion de repositorio.
+	private IIncidenciaRepository iIncidenciaRepository;
+
+	@Autowired
+	// Auto-inyeccion de mapeador de dto-entidad.
+	private IncidenciaMapper incidenciaMapper;
+
+	@Autowired
+	// Auto-inyeccion del publicador de eventos de modificacion de incidencias.
+	private ApplicationEventPublisher applicationEventPublisher;
+
+	@PersistenceContext
+	// Contexto de persistencia de la transaccion en curso.
+	private EntityManager entityManager;
+
+	/**
+	 * Número máximo de incidencias que se admiten en un lote.
+	 */
+	@Value("${incidencias.lote.tamano-maximo:1000}")
+	private int tamanoMaximo;
+
+	/**
+	 * Crea o actualiza todas las incidencias válidas del lote en una única transacción.
+	 * <p>
+	 * Cada incidencia debe incluir todos sus atributos, identificativos incluidos. Si una misma incidencia aparece
+	 * varias veces en el lote solo se guarda la última, y las anteriores se informan como duplicadas.
+	 * </p>
+	 *
+	 * @param lote Las incidencias recibidas del cliente.
+	 * @return El resultado de cada incidencia, en el mismo orden que el lote.
+	 * @throws IllegalArgumentException Si el lote es nulo, está vacío o supera el tamaño máximo configurado.
+	 */
+	@Transactional
+	public List<ResultadoLoteDTO> guardar(List<IncidenciaDTO> lote) throws IllegalArgumentException
+	{
+		if (lote == null || lote.isEmpty())
+		{
+			throw new IllegalArgumentException("El lote de incidencias es nulo o esta vacio.");
+		}
+		if (lote.size() > this.tamanoMaximo)
+		{
+			throw new IllegalArgumentException("El lote supera el maximo de " + this.tamanoMaximo + " incidencias.");
+		}
+
+		// Valida y mapea cada incidencia del lote. Las no validas quedan a null.
+		List<ResultadoLoteDTO> resultados = new ArrayList<>(lote.size());
+		List<IncidenciaEntity> incidencias = new ArrayList<>(lote.size());
+		for (IncidenciaDTO incidenciaDTO : lote)
+		{
+			ResultadoLoteDTO resultado = new ResultadoLoteDTO();
+			IncidenciaEntity incidencia = null;
+			if (incidenciaDTO != null)
+			{
+				resultado.setNumeroAula(incidenciaDTO.getNumeroAula());
+				resultado.setCorreoDocente(incidenciaDTO.getCorreoDocente());
+				resultado.setFechaIncidencia(incidenciaDTO.getFechaIncidencia());
+			}
+			try
+			{
+				incidencia = incidenciaMapper.mapToEntity(incidenciaDTO);
+			}
+			catch (Exception mapException)
+			{
+				resultado.setResultado(ResultadoLoteDTO.INVALIDA);
+				resultado.setMensaje(mapException.getMessage());
+			}
+			resultados.add(resultado);
+			incidencias.add(incidencia);
+		}
+
+		// Descarta las apariciones anteriores de las incidencias repetidas, de modo que cada una se guarda una vez.
+		Set<IncidenciaEntityId> vistas = new HashSet<>();
+		int duplicadas = 0;
+		for (int i = incidencias.size() - 1; i >= 0; i--)
+		{
+			if (incidencias.get(i) != null && !vistas.add(clave(incidencias.get(i))))
+			{
+				incidencias.set(i, null);
+				resultados.get(i).setResultado(ResultadoLoteDTO.DUPLICADA);
+				resultados.get(i).setMensaje("La incidencia se repite mas adelante en el lote.");
+				duplicadas++;
+			}
+		}
+
+		// Guarda las incidencias validas y anota el resultado de cada una.
+		List<IncidenciaModificadaEvent.Tipo> tipos = this.guardarEntidades(
+				incidencias.stream().filter(incidencia -> incidencia != null).toList());
+		int creadas = 0;
+		int actualizadas = 0;
+		int guardada = 0;
+		for (int i = 0; i < incidencias.size(); i++)
+		{
+			if (incidencias.get(i) == null)
+			{
+				continue;
+			}
+			if (tipos.get(guardada++) == IncidenciaModificadaEvent.Tipo.CREADA)
+			{
+				resultados.get(i).setResultado(ResultadoLoteDTO.CREADA);
+				creadas++;
+			}
+			else
+			{
+				resultados.get(i).setResultado(ResultadoLoteDTO.ACTUALIZADA);
+				actualizadas++;
+			}
+		}
+
+		log.info("INFO: Lote de {} incidencias guardado: {} creadas, {} actualizadas, {} duplicadas, {} invalidas.",
+				lote.size(), creadas, actualizadas, duplicadas, lote.size() - creadas - actualizadas - duplicadas);
+		return resultados;
+	}
+
+	/**
+	 * Crea o actualiza en una única transacción incidencias ya validadas.
+	 * <p>
+	 * Las que ya existen se obtienen con una sola consulta y se actualizan; las demás se persisten. Las sentencias se
+	 * envían antes de terminar, de modo que cualquier error de la base de datos se produce en este método. Si una
+	 * misma incidencia aparece varias veces, prevalece la última.
+	 * </p>
+	 *
+	 * @param incidencias Las incidencias a guardar, todas con sus atributos identificativos.
+	 * @return Para cada incidencia, en el mismo orden, si se ha creado o actualizado.
+	 */
+	@Transactional
+	public List<IncidenciaModificadaEvent.Tipo> guardarEntidades(List<IncidenciaEntity> incidencias)
+	{
+		if (incidencias.isEmpty())
+		{
+			return new ArrayList<>();
+		}
+		return this.guardarEntidades(incidencias, this.buscarGestionadas(
+				incidencias.stream().map(IncidenciaEntity::getCorreoDocente).collect(Collectors.toSet()),
+				incidencias.stream().map(IncidenciaEntity::getFechaIncidencia).collect(Collectors.toSet())));
+	}
+
+	/**
+	 * Crea o actualiza en una única transacción las incidencias recibidas en modo de ingesta asíncrona, con la misma
+	 * regla que {@link EscrituraIncidenciaService#guardar(String, IncidenciaDTO)} sigue durante la petición.
+	 * <p>
+	 * Las incidencias que el DTO identifica y ya existen se obtienen con una sola consulta y se actualizan, y solo
+	 * entonces se validan todos sus atributos. Las demás se crean con el correo de la cabecera, la fecha actual, el
+	 * estado pendiente y sin comentario, aunque el DTO indique otro docente, otra fecha u otro estado.
+	 * </p>
+	 *
+	 * @param peticiones Las peticiones recibidas, con el aula y la descripción ya validados.
+	 * @return Para cada petición, en el mismo orden, si la incidencia se ha creado o actualizado.
+	 * @throws Exception Si alguna petición identifica una incidencia que existe pero le falta algún atributo. En ese
+	 *                   caso no se guarda ninguna.
+	 */
+	@Transactional
+	public List<IncidenciaModificadaEvent.Tipo> guardarPeticiones(List<PeticionIncidenciaDTO> peticiones)
+			throws Exception
+	{
+		// Obtiene en una sola consulta las incidencias identificadas que ya existen.
+		List<IncidenciaDTO> identificadas = peticiones.stream().map(PeticionIncidenciaDTO::getIncidencia)
+				.filter(LoteIncidenciaService::identificada).toList();
+		Map<IncidenciaEntityId, IncidenciaEntity> gestionadas = identificadas.isEmpty() ? new HashMap<>()
+				: this.buscarGestionadas(
+						identificadas.stream().map(IncidenciaDTO::getCorreoDocente).collect(Collectors.toSet()),
+						identificadas.stream().map(IncidenciaDTO::getFechaIncidencia).collect(Collectors.toSet()));
+
+		// Las que existen se validan y actualizan; las demas se crean como cualquier incidencia nueva.
+		List<IncidenciaEntity> incidencias = new ArrayList<>(peticiones.size());
+		for (PeticionIncidenciaDTO peticion : peticiones)
+		{
+			IncidenciaDTO incidenciaDTO = peticion.getIncidencia();
+			if (identificada(incidenciaDTO) && gestionadas.containsKey(IncidenciaEntityId.crear(
+					incidenciaDTO.getNumeroAula(), incidenciaDTO.getCorreoDocente(), incidenciaDTO.getFechaIncidencia())))
+			{
+				incidencias.add(incidenciaMapper.mapToEntity(incidenciaDTO));
+			}
+			else
+			{
+				incidencias.add(incidenciaMapper.mapToNuevaEntity(peticion.getCorreoDocente(), incidenciaDTO));
+			}
+		}
+		return this.guardarEntidades(incidencias, gestionadas);
+	}
+
+	/**
+	 * Obtiene en una sola consulta, bloqueadas, las incidencias existentes con alguno de los correos y alguna de las
+	 * fechas indicadas, por su clave.
+	 */
+	private Map<IncidenciaEntityId, IncidenciaEntity> buscarGestionadas(Set<String> correos, Set<Date> fechas)
+	{
+		Map<IncidenciaEntityId, IncidenciaEntity> gestionadas = new HashMap<>();
+		for (IncidenciaEntity existente : iIncidenciaRepository.buscaEntidadesPorClaves(correos, fechas))
+		{
+			gestionadas.put(clave(existente), existente);
+		}
+		return gestionadas;
+	}
+
+	/**
+	 * Actualiza las incidencias que ya existen y persiste las nuevas, publicando un evento por cada una.
+	 *
+	 * @param incidencias Las incidencias a guardar.
+	 * @param gestionadas Las incidencias existentes que pueden actualizarse, por su clave. Se le añaden las nuevas.
+	 * @return Para cada incidencia, en el mismo orden, si se ha creado o actualizado.
+	 */
+	private List<IncidenciaModificadaEvent.Tipo> guardarEntidades(List<IncidenciaEntity> incidencias,
+			Map<IncidenciaEntityId, IncidenciaEntity> gestionadas)
+	{
+		List<IncidenciaModificadaEvent.Tipo> tipos = new ArrayList<>(incidencias.size());
+
+		// Actualiza las existentes y persiste las nuevas.
+		for (IncidenciaEntity incidencia : incidencias)
+		{
+			IncidenciaModificadaEvent.Tipo tipo;
+			String estadoAnterior = null;
+			IncidenciaEntity gestionada = gestionadas.get(clave(incidencia));
+			if (gestionada == null)
+			{
+				entityManager.persist(incidencia);
+				gestionadas.put(clave(incidencia), incidencia);
+				gestionada = incidencia;
+				tipo = IncidenciaModificadaEvent.Tipo.CREADA;
+			}
+			else
+			{
+				estadoAnterior = gestionada.getEstadoIncidencia();
+				gestionada.setDescripcionIncidencia(incidencia.getDescripcionIncidencia());
+				gestionada.setEstadoIncidencia(incidencia.getEstadoIncidencia());
+				gestionada.setComentario(incidencia.getComentario());
+				tipo = IncidenciaModificadaEvent.Tipo.ACTUALIZADA;
+			}
+			tipos.add(tipo);
+			// Los oyentes reciben el evento al confirmarse la transaccion, con una copia de la incidencia tal y como
+			// queda en este punto, ya que si se repite en el lote la entidad gestionada volvera a cambiar.
+			IncidenciaEntity copia = new IncidenciaEntity(gestionada.getNumeroAula(), gestionada.getCorreoDocente(),
+					gestionada.getFechaIncidencia(), gestionada.getDescripcionIncidencia(),
+					gestionada.getEstadoIncidencia(), gestionada.getComentario());
+			applicationEventPublisher.publishEvent(new IncidenciaModificadaEvent(tipo, copia, estadoAnterior));
+		}
+
+		// Envia los lotes de sentencias pendientes para que cualquier error se produzca aqui.
+		entityManager.flush();
+		return tipos;
+	}
+
+	/**
+	 * Crea la clave de una incidencia, con la fecha normalizada para poder compararla.
+	 */
+	private static IncidenciaEntityId clave(IncidenciaEntity incidencia)
+	{
+		return IncidenciaEntityId.crear(incidencia.getNumeroAula(), incidencia.getCorreoDocente(),
+				incidencia.getFechaIncidencia());
+	}
+
+	/**
+	 * Indica si el DTO identifica una incidencia concreta, que puede existir ya.
+	 */
+	private static boolean identificada(IncidenciaDTO incidenciaDTO)
+	{
+		return incidenciaDTO.getCorreoDocente() != null && incidenciaDTO.getFechaIncidencia() != null;
+	}
+}
@@ -0,0 +1,224 @@
+package es.iesjandula.ReaktorIssuesServer.services;
+
+import java.sql.Timestamp;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import es.iesjandula.ReaktorIssuesServer.dto.CriteriosBusqueda;
+import es.iesjandula.ReaktorIssuesServer.dto.FiltroBusqueda;
+import es.iesjandula.ReaktorIssuesServer.dto.ResultadoMasivoDTO;
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import es.iesjandula.ReaktorIssuesServer.events.IncidenciaModificadaEvent;
+import es.iesjandula.ReaktorIssuesServer.repository.IIncidenciaRepository;
+import es.iesjandula.ReaktorIssuesServer.utils.Constants;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Servicio que borra o cambia de estado todas las incidencias que cumplen un filtro de búsqueda, por ejemplo al cerrar
+ * un trimestre.
+ * <p>
+ * Las incidencias se modifican por lotes, cada uno en su propia transacción: se leen y bloquean la clave y el estado
+ * de las incidencias del lote con los mismos criterios que la búsqueda y se borran o actualizan con una única
+ * sentencia {@code DELETE} o {@code UPDATE} sobre sus claves. Así ninguna transacción mantiene bloqueadas más incidencias que las de un lote, la
+ * conexión se libera entre lotes y, si la operación se interrumpe, los lotes confirmados quedan aplicados.
+ * </p>
+ * <p>
+ * Por cada incidencia modificada se publica su {@link IncidenciaModificadaEvent}, para que la caché de búsquedas, las
+ * estadísticas, el índice de texto y las novedades la reflejen como si se hubiera modificado una a una. Como su
+ * descripción y su comentario no se leen, los eventos los indican como desconocidos.
+ * </p>
+ */
+@Slf4j
+@Service
+public class MasivoIncidenciaService
+{
+	/**
+	 * Estados que se pueden asignar a una incidencia.
+	 */
+	private static final Set<String> ESTADOS = Set.of(Constants.ESTADO_PENDIENTE, Constants.ESTADO_EN_PROGRESO,
+			Constants.ESTADO_RESUELTA, Constants.ESTADO_CANCELADA);
+
+	@Autowired
+	// Auto-inyeccion de repositorio.
+	private IIncidenciaRepository iIncidenciaRepository;
+
+	@Autowired
+	// Auto-inyeccion del servicio de busqueda, que interpreta el filtro.
+	private BusquedaIncidenciaService busquedaIncidenciaService;
+
+	@Autowired
+	// Auto-inyeccion del acceso JDBC para las sentencias de cada lote.
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	// Auto-inyeccion del gestor de transacciones, con una transaccion por lote.
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	// Auto-inyeccion del publicador de eventos de modificacion de incidencias.
+	private ApplicationEventPublisher applicationEventPublisher;
+
+	/**
+	 * Número máximo de incidencias que se modifican en cada transacción.
+	 */
+	@Value("${incidencias.masivo.tamano-lote:500}")
+	private int tamanoLote;
+
+	/**
+	 * Borra todas las incidencias que cumplen con los criterios del filtro.
+	 *
+	 * @param filtroBusqueda El filtro recibido del cliente. Los campos de paginación, orden y campos se ignoran.
+	 * @param simulacion     Si es {@code true}, solo se cuentan las incidencias que se borrarían.
+	 * @return El número de incidencias borradas, o que se borrarían.
+	 * @throws ParseException           Si alguna de las fechas del filtro no tiene el formato dd-MM-yyyy.
+	 * @throws IllegalArgumentException Si el filtro no indica ningún criterio o incluye el archivo.
+	 */
+	public ResultadoMasivoDTO borrar(FiltroBusqueda filtroBusqueda, boolean simulacion)
+			throws ParseException, IllegalArgumentException
+	{
+		CriteriosBusqueda criterios = this.criterios(filtroBusqueda);
+		if (simulacion)
+		{
+			return new ResultadoMasivoDTO(iIncidenciaRepository.cuentaModificables(criterios, null), true);
+		}
+		return new ResultadoMasivoDTO(this.aplicar(criterios, null), false);
+	}
+
+	/**
+	 * Cambia el estado de todas las incidencias que cumplen con los criterios del filtro. Las que ya tienen el nuevo
+	 * estado no se modifican ni se cuentan.
+	 *
+	 * @param filtroBusqueda El filtro recibido del cliente. Los campos de paginación, orden y campos se ignoran.
+	 * @param estado         El nuevo estado de las incidencias.
+	 * @param simulacion     Si es {@code true}, solo se cuentan las incidencias que cambiarían de estado.
+	 * @return El número de incidencias cambiadas de estado, o que cambiarían.
+	 * @throws ParseException           Si alguna de las fechas del filtro no tiene el formato dd-MM-yyyy.
+	 * @throws IllegalArgumentException Si el estado no es válido, o si el filtro no indica ningún criterio o incluye
+	 *                                  el archivo.
+	 */
+	public ResultadoMasivoDTO cambiarEstado(FiltroBusqueda filtroBusqueda, String estado, boolean simulacion)
+			throws ParseException, IllegalArgumentException
+	{
+		if (estado == null || !ESTADOS.contains(estado))
+		{
+			throw new IllegalArgumentException("El estado debe ser uno de " + ESTADOS + ".");
+		}
+		CriteriosBusqueda criterios = this.criterios(filtroBusqueda);
+		if (simulacion)
+		{
+			return new ResultadoMasivoDTO(iIncidenciaRepository.cuentaModificables(criterios, estado), true);
+		}
+		return new ResultadoMasivoDTO(this.aplicar(criterios, estado), false);
+	}
+
+	/**
+	 * Interpreta el filtro y comprueba que puede aplicarse a un borrado o cambio de estado.
+	 */
+	private CriteriosBusqueda criterios(FiltroBusqueda filtroBusqueda) throws ParseException, IllegalArgumentException
+	{
+		CriteriosBusqueda criterios = busquedaIncidenciaService.normalizar(filtroBusqueda);
+		if (criterios.isIncluirArchivo())
+		{
+			throw new IllegalArgumentException("Las incidencias archivadas no se pueden modificar.");
+		}
+		// Un filtro vacio afectaria a todas las incidencias, lo que casi siempre es un error del cliente.
+		if (criterios.getNumeroAula() == null && criterios.getCorreoDocente() == null
+				&& criterios.getFechaInicio() == null && criterios.getFechaFin() == null
+				&& criterios.getDescripcionIncidencia() == null && criterios.getEstadoIncidencia() == null
+				&& criterios.getComentario() == null)
+		{
+			throw new IllegalArgumentException("El filtro debe indicar al menos un criterio.");
+		}
+		return criterios;
+	}
+
+	/**
+	 * Borra o cambia de estado por lotes todas las incidencias que cumplen con los criterios.
+	 *
+	 * @param criterios Los criterios de búsqueda normalizados.
+	 * @param estado    El nuevo estado, o null para borrarlas.
+	 * @return El número de incidencias modificadas.
+	 */
+	private long aplicar(CriteriosBusqueda criterios, String estado)
+	{
+		long afectadas = 0;
+		int lote;
+		do
+		{
+			lote = this.aplicarLote(criterios, estado);
+			afectadas += lote;
+		}
+		while (lote == this.tamanoLote);
+		log.info("INFO: {} {} incidencias por filtro.", estado == null ? "Borradas" : "Cambiadas a " + estado,
+				afectadas);
+		return afectadas;
+	}
+
+	/**
+	 * Borra o cambia de estado un lote de incidencias en una sola transacción.
+	 *
+	 * @param criterios Los criterios de búsqueda normalizados.
+	 * @param estado    El nuevo estado, o null para borrarlas.
+	 * @return El número de incidencias modificadas, menor que el tamaño de lote si no quedan más.
+	 */
+	private int aplicarLote(CriteriosBusqueda criterios, String estado)
+	{
+		Integer modificadas = new TransactionTemplate(this.transactionManager).execute(transaccion ->
+		{
+			// Las que ya tienen el nuevo estado no se vuelven a leer, de modo que cada lote avanza.
+			List<IncidenciaEntity> lote = iIncidenciaRepository.bloqueaIncidencias(criterios, estado, this.tamanoLote);
+			if (lote.isEmpty())
+			{
+				return 0;
+			}
+
+			// Una sola sentencia para todas las claves del lote.
+			List<Object> parametros = new ArrayList<>();
+			if (estado != null)
+			{
+				parametros.add(estado);
+			}
+			for (IncidenciaEntity incidencia : lote)
+			{
+				parametros.add(incidencia.getNumeroAula());
+				parametros.add(incidencia.getCorreoDocente());
+				parametros.add(new Timestamp(incidencia.getFechaIncidencia().getTime()));
+			}
+			String claves = "(numero_aula, correo_docente, fecha_incidencia) IN ("
+					+ String.join(", ", Collections.nCopies(lote.size(), "(?, ?, ?)")) + ")";
+			this.jdbcTemplate.update(estado == null ? "DELETE FROM incidencias WHERE " + claves
+					: "UPDATE incidencias SET estado_incidencia = ? WHERE " + claves, parametros.toArray());
+
+			// Los oyentes los reciben al confirmar la transaccion.
+			for (IncidenciaEntity incidencia : lote)
+			{
+				if (estado == null)
+				{
+					this.applicationEventPublisher.publishEvent(new IncidenciaModificadaEvent(
+							IncidenciaModificadaEvent.Tipo.BORRADA, incidencia, null, true));
+				}
+				else
+				{
+					IncidenciaEntity actualizada = new IncidenciaEntity(incidencia.getNumeroAula(),
+							incidencia.getCorreoDocente(), incidencia.getFechaIncidencia(), null, estado, null);
+					this.applicationEventPublisher.publishEvent(new IncidenciaModificadaEvent(
+							IncidenciaModificadaEvent.Tipo.ACTUALIZADA, actualizada, incidencia.getEstadoIncidencia(), true));
+				}
+			}
+			return lote.size();
+		});
+		log.debug("DEBUG: Lote de {} incidencias modificado", modificadas);
+		return modificadas == null ? 0 : modificadas;
+	}
+}
@@ -0,0 +1,80 @@
+package es.iesjandula.ReaktorIssuesServer.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.Date;
+
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntityId;
+
+/**
+ * Clase de utilidad que codifica y decodifica los cursores de paginación.
+ * <p>
+ * Un cursor identifica la última incidencia devuelta en una página mediante su
+ * identificador compuesto, que coincide con el orden de la paginación
+ * (fechaIncidencia, numeroAula, correoDocente). Para el cliente es una cadena
+ * opaca en Base64 apta para URL que debe devolver tal cual para pedir la siguiente página.
+ * </p>
+ */
+public final class CursorIncidencia
+{
+	private CursorIncidencia()
+	{
+	}
+
+	/**
+	 * Codifica el identificador de la última incidencia de una página como cursor opaco.
+	 *
+	 * @param id Identificador compuesto de la última incidencia devuelta.
+	 * @return La cadena Base64 que representa el cursor.
+	 */
+	public static String codificar(IncidenciaEntityId id)
+	{
+		try
+		{
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream salida = new DataOutputStream(bytes);
+			salida.writeLong(id.getFechaIncidencia().getTime());
+			salida.writeUTF(id.getNumeroAula());
+			salida.writeUTF(id.getCorreoDocente());
+			salida.flush();
+			return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+		}
+		catch (IOException ioException)
+		{
+			// No puede ocurrir escribiendo en memoria.
+			throw new IllegalStateException(ioException);
+		}
+	}
+
+	/**
+	 * Decodifica un cursor recibido del cliente.
+	 *
+	 * @param cursor La cadena opaca recibida en el filtro de búsqueda.
+	 * @return El identificador compuesto de la última incidencia de la página anterior.
+	 * @throws IllegalArgumentException Si el cursor no tiene un formato válido.
+	 */
+	public static IncidenciaEntityId decodificar(String cursor) throws IllegalArgumentException
+	{
+		try
+		{
+			byte[] bytes = Base64.getUrlDecoder().decode(cursor);
+			DataInputStream entrada = new DataInputStream(new ByteArrayInputStream(bytes));
+			Date fecha = new Date(entrada.readLong());
+			String numeroAula = entrada.readUTF();
+			String correoDocente = entrada.readUTF();
+			if (entrada.available() > 0)
+			{
+				throw new IllegalArgumentException("El cursor contiene datos sobrantes.");
+			}
+			return new IncidenciaEntityId(numeroAula, correoDocente, fecha);
+		}
+		catch (IOException ioException)
+		{
+			throw new IllegalArgumentException("El cursor de paginación no es válido.", ioException);
+		}
+	}
+}
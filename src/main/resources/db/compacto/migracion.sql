@@ -0,0 +1,21 @@
+-- Migra la tabla de incidencias del esquema generado por Hibernate al esquema compacto (db/compacto/schema.sql).
+--
+-- Se ejecuta una sola vez, con la aplicación detenida, antes de arrancarla con el perfil "compacto":
+--   mysql -u root -p incidencias < migracion.sql
+--
+-- Antes de migrar, comprobar que todos los estados son válidos; la siguiente consulta no debe devolver filas:
+--   SELECT DISTINCT estado_incidencia FROM incidencias
+--   WHERE estado_incidencia NOT IN ('PENDIENTE', 'EN PROGRESO', 'RESUELTA', 'CANCELADA');
+--
+-- El ALTER TABLE reconstruye la tabla completa una sola vez. Para revertir la migración, usar reversion.sql.
+
+ALTER TABLE incidencias
+	DROP PRIMARY KEY,
+	DROP INDEX idx_incidencias_orden,
+	ADD COLUMN id BIGINT NOT NULL AUTO_INCREMENT FIRST,
+	ADD PRIMARY KEY (id),
+	ADD UNIQUE KEY uk_incidencias_clave (fecha_incidencia, numero_aula, correo_docente),
+	ADD KEY idx_incidencias_docente (correo_docente, fecha_incidencia),
+	MODIFY COLUMN estado_incidencia ENUM('PENDIENTE', 'EN PROGRESO', 'RESUELTA', 'CANCELADA');
+
+ANALYZE TABLE incidencias;
@@ -0,0 +1,15 @@
+-- Devuelve la tabla de incidencias del esquema compacto al esquema generado por Hibernate.
+--
+-- Se ejecuta con la aplicación detenida, antes de arrancarla sin el perfil "compacto":
+--   mysql -u root -p incidencias < reversion.sql
+
+ALTER TABLE incidencias
+	DROP PRIMARY KEY,
+	DROP COLUMN id,
+	DROP INDEX uk_incidencias_clave,
+	DROP INDEX idx_incidencias_docente,
+	ADD PRIMARY KEY (correo_docente, fecha_incidencia, numero_aula),
+	ADD INDEX idx_incidencias_orden (fecha_incidencia, numero_aula, correo_docente),
+	MODIFY COLUMN estado_incidencia VARCHAR(255);
+
+ANALYZE TABLE incidencias;
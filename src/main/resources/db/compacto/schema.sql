@@ -0,0 +1,39 @@
+-- Esquema compacto de la tabla de incidencias (perfil "compacto").
+--
+-- Diferencias con el esquema que genera Hibernate a partir de IncidenciaEntity:
+--   * La clave primaria es un BIGINT autoincremental. InnoDB ordena la tabla por la clave primaria y la copia en
+--     cada índice secundario, por lo que cada índice guarda 8 bytes por fila en lugar del aula, el correo y la fecha.
+--   * El identificador natural (fecha, aula y correo) pasa a ser una clave única, en el orden de la paginación por
+--     cursor, de modo que el mismo índice garantiza la unicidad, resuelve el ON DUPLICATE KEY UPDATE y ordena las
+--     búsquedas.
+--   * El estado se guarda como ENUM, que ocupa un byte y se lee y escribe como texto.
+--
+-- Las columnas mantienen los nombres y tipos que usa la entidad, por lo que las consultas JPQL y nativas no cambian.
+
+CREATE TABLE IF NOT EXISTS incidencias (
+	id BIGINT NOT NULL AUTO_INCREMENT,
+	numero_aula VARCHAR(255) NOT NULL,
+	correo_docente VARCHAR(255) NOT NULL,
+	fecha_incidencia DATETIME(6) NOT NULL,
+	descripcion_incidencia TEXT,
+	estado_incidencia ENUM('PENDIENTE', 'EN PROGRESO', 'RESUELTA', 'CANCELADA'),
+	comentario TEXT,
+	PRIMARY KEY (id),
+	UNIQUE KEY uk_incidencias_clave (fecha_incidencia, numero_aula, correo_docente),
+	KEY idx_incidencias_docente (correo_docente, fecha_incidencia),
+	KEY idx_incidencias_estado (estado_incidencia, fecha_incidencia),
+	KEY idx_incidencias_aula (numero_aula, fecha_incidencia)
+);
+
+-- Incidencias cerradas trasladadas por el archivado (incidencias.archivo). Tiene la forma de la tabla que genera
+-- Hibernate, ya que solo se lee en las búsquedas que incluyen el archivo.
+CREATE TABLE IF NOT EXISTS incidencias_archivo (
+	numero_aula VARCHAR(255) NOT NULL,
+	correo_docente VARCHAR(255) NOT NULL,
+	fecha_incidencia DATETIME(6) NOT NULL,
+	descripcion_incidencia TEXT,
+	estado_incidencia VARCHAR(255),
+	comentario TEXT,
+	PRIMARY KEY (correo_docente, fecha_incidencia, numero_aula),
+	KEY idx_incidencias_archivo_orden (fecha_incidencia, numero_aula, correo_docente)
+);
@@ -0,0 +1,15 @@
+-- Tamaño en disco de la tabla de incidencias y de cada uno de sus índices, en MB.
+--
+-- Permite comparar el esquema generado por Hibernate con el esquema compacto sobre los mismos datos:
+--   mysql -u root -p incidencias < tamano-indices.sql
+--
+-- En InnoDB el índice PRIMARY contiene las filas completas de la tabla. Las estadísticas se actualizan con
+-- ANALYZE TABLE, que se ejecuta primero.
+
+ANALYZE TABLE incidencias;
+
+SELECT index_name AS indice,
+	ROUND(stat_value * @@innodb_page_size / 1024 / 1024, 2) AS tamano_mb
+FROM mysql.innodb_index_stats
+WHERE database_name = DATABASE() AND table_name = 'incidencias' AND stat_name = 'size'
+ORDER BY index_name;
@@ -0,0 +1,35 @@
+-- Particiona la tabla de incidencias por meses de fecha_incidencia (incidencias.particiones.habilitadas: true).
+--
+-- Se ejecuta una sola vez, con la aplicación detenida:
+--   mysql -u root -p incidencias < migracion.sql
+--
+-- Crea una partición pAAAAMM por cada mes desde la incidencia más antigua hasta el mes actual y una última partición
+-- p_futuro para las fechas posteriores. Al arrancar, la aplicación divide p_futuro en las particiones de los próximos
+-- meses. El ALTER TABLE reconstruye la tabla completa una sola vez. Para revertir la migración, usar reversion.sql.
+--
+-- MySQL exige que todas las claves únicas incluyan la columna de particionado. La clave primaria del esquema de
+-- Hibernate ya incluye fecha_incidencia; con el esquema compacto (db/compacto/schema.sql) antes debe ejecutarse:
+--   ALTER TABLE incidencias DROP PRIMARY KEY, ADD PRIMARY KEY (id, fecha_incidencia);
+
+SET SESSION group_concat_max_len = 1000000;
+
+SET @primer_mes = (SELECT DATE_FORMAT(COALESCE(MIN(fecha_incidencia), CURDATE()), '%Y-%m-01') FROM incidencias);
+
+SET @particiones = (
+	WITH RECURSIVE meses (mes) AS (
+		SELECT CAST(@primer_mes AS DATE)
+		UNION ALL
+		SELECT mes + INTERVAL 1 MONTH FROM meses WHERE mes < DATE_FORMAT(CURDATE(), '%Y-%m-01')
+	)
+	SELECT GROUP_CONCAT(CONCAT('PARTITION p', DATE_FORMAT(mes, '%Y%m'), ' VALUES LESS THAN (''',
+			mes + INTERVAL 1 MONTH, ''')') ORDER BY mes SEPARATOR ', ')
+	FROM meses);
+
+SET @sentencia = CONCAT('ALTER TABLE incidencias PARTITION BY RANGE COLUMNS (fecha_incidencia) (', @particiones,
+		', PARTITION p_futuro VALUES LESS THAN (MAXVALUE))');
+
+PREPARE particionar FROM @sentencia;
+EXECUTE particionar;
+DEALLOCATE PREPARE particionar;
+
+ANALYZE TABLE incidencias;
@@ -0,0 +1,12 @@
+-- Muestra las particiones de la tabla de incidencias con su límite superior y el número aproximado de filas.
+--
+-- Para comprobar que una búsqueda solo lee las particiones de su rango de fechas, la columna "partitions" de EXPLAIN
+-- debe mostrar únicamente esos meses, por ejemplo:
+--   EXPLAIN SELECT * FROM incidencias
+--   WHERE fecha_incidencia >= '2024-10-01' AND fecha_incidencia <= '2024-11-15 23:59:59';
+
+SELECT PARTITION_NAME AS particion, PARTITION_DESCRIPTION AS hasta, TABLE_ROWS AS filas,
+	ROUND((DATA_LENGTH + INDEX_LENGTH) / 1024 / 1024, 2) AS tamano_mb
+FROM information_schema.PARTITIONS
+WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'incidencias'
+ORDER BY PARTITION_ORDINAL_POSITION;
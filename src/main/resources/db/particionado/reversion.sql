@@ -0,0 +1,10 @@
+-- Devuelve la tabla de incidencias particionada por meses a una tabla sin particiones.
+--
+-- Se ejecuta con la aplicación detenida, antes de arrancarla con incidencias.particiones.habilitadas: false:
+--   mysql -u root -p incidencias < reversion.sql
+--
+-- Las tablas incidencias_pAAAAMM de las particiones archivadas no se modifican.
+
+ALTER TABLE incidencias REMOVE PARTITIONING;
+
+ANALYZE TABLE incidencias;
@@ -0,0 +1,103 @@
+package es.iesjandula.ReaktorIssuesServer.admision;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import es.iesjandula.ReaktorIssuesServer.ReaktorIssuesServerApplication;
+
+/**
+ * Tests del límite de peticiones por cliente y grupo de operaciones.
+ */
+@SpringBootTest(classes = ReaktorIssuesServerApplication.class, properties = { "incidencias.admision.habilitada=true",
+		"incidencias.admision.escritura.por-segundo=0.001", "incidencias.admision.escritura.rafaga=2" })
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class AdmisionPeticionesTests
+{
+	private static final long SEGUNDO = 1_000_000_000L;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Test
+	void rechazaConRetryAfterAlAgotarLaRafagaDeLaDireccion() throws Exception
+	{
+		mockMvc.perform(alta("10.0.0.1", "agotado@g.educaand.es")).andExpect(status().is2xxSuccessful());
+		mockMvc.perform(alta("10.0.0.1", "agotado@g.educaand.es")).andExpect(status().is2xxSuccessful());
+
+		// Un testigo cada 1000 segundos, aunque se cambie de docente.
+		mockMvc.perform(alta("10.0.0.1", "otro@g.educaand.es"))
+				.andExpect(status().isTooManyRequests())
+				.andExpect(header().string(HttpHeaders.RETRY_AFTER, "1000"))
+				.andExpect(jsonPath("$.id").value("18"));
+
+		// Ni las demas direcciones ni las lecturas del mismo cliente se ven afectadas.
+		mockMvc.perform(alta("10.0.0.2", "agotado@g.educaand.es")).andExpect(status().is2xxSuccessful());
+		mockMvc.perform(get("/incidencias/cache").with(direccion("10.0.0.1"))).andExpect(status().isOk());
+	}
+
+	@Test
+	void elCuboSeRellenaAlRitmoConfiguradoHastaLaRafaga()
+	{
+		AdmisionPeticiones admision = new AdmisionPeticiones(2, 3, 20, 50, 0.1, 2, 100, Duration.ofMinutes(10));
+		long[] limite = { SEGUNDO / 2, SEGUNDO };
+
+		// Rafaga de tres y despues un testigo cada medio segundo.
+		assertEquals(0, admision.consumir("a", limite, 0));
+		assertEquals(0, admision.consumir("a", limite, 0));
+		assertEquals(0, admision.consumir("a", limite, 0));
+		assertEquals(SEGUNDO / 2, admision.consumir("a", limite, 0));
+		assertEquals(SEGUNDO / 4, admision.consumir("a", limite, SEGUNDO / 4));
+		assertEquals(0, admision.consumir("a", limite, SEGUNDO / 2));
+
+		// Tras un periodo sin peticiones no se acumulan mas testigos que la rafaga.
+		long despues = 100 * SEGUNDO;
+		for (int i = 0; i < 3; i++)
+		{
+			assertEquals(0, admision.consumir("a", limite, despues));
+		}
+		assertEquals(SEGUNDO / 2, admision.consumir("a", limite, despues));
+	}
+
+	@Test
+	void clasificaLasPeticionesPorGrupo()
+	{
+		assertEquals(AdmisionPeticiones.Grupo.ESCRITURA, AdmisionPeticiones.grupo("PUT", "/lote"));
+		assertEquals(AdmisionPeticiones.Grupo.ESCRITURA, AdmisionPeticiones.grupo("POST", "/estado"));
+		assertEquals(AdmisionPeticiones.Grupo.LECTURA, AdmisionPeticiones.grupo("POST", ""));
+		assertEquals(AdmisionPeticiones.Grupo.EXPORTACION, AdmisionPeticiones.grupo("POST", "/exportar"));
+	}
+
+	private static MockHttpServletRequestBuilder alta(String direccion, String correoDocente)
+	{
+		return put("/incidencias").with(direccion(direccion)).header("correo-docente", correoDocente)
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"numeroAula\":\"0.9\",\"descripcionIncidencia\":\"No funciona el proyector\"}");
+	}
+
+	private static RequestPostProcessor direccion(String direccion)
+	{
+		return request ->
+		{
+			request.setRemoteAddr(direccion);
+			return request;
+		};
+	}
+}
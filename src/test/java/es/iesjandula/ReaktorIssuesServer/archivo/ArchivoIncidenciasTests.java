@@ -0,0 +1,99 @@
+package es.iesjandula.ReaktorIssuesServer.archivo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import es.iesjandula.ReaktorIssuesServer.ReaktorIssuesServerApplication;
+import es.iesjandula.ReaktorIssuesServer.dto.FiltroBusqueda;
+import es.iesjandula.ReaktorIssuesServer.dto.IncidenciaDTO;
+import es.iesjandula.ReaktorIssuesServer.dto.PaginaIncidencias;
+import es.iesjandula.ReaktorIssuesServer.services.BusquedaIncidenciaService;
+import es.iesjandula.ReaktorIssuesServer.utils.Constants;
+
+/**
+ * Tests del archivado por lotes de las incidencias cerradas y de las búsquedas que incluyen el archivo.
+ */
+@SpringBootTest(classes = ReaktorIssuesServerApplication.class, properties = {
+		"incidencias.archivo.tamano-lote=2", "incidencias.archivo.pausa=0s", "incidencias.cache-busqueda.habilitada=false" })
+@ActiveProfiles("test")
+class ArchivoIncidenciasTests
+{
+	private static final long DIA = 24L * 60 * 60 * 1000;
+
+	private static final long INICIO = 1700000000000L;
+
+	@Autowired
+	private ArchivoIncidencias archivo;
+
+	@Autowired
+	private BusquedaIncidenciaService busquedaIncidenciaService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void cargarIncidencias()
+	{
+		jdbcTemplate.update("DELETE FROM incidencias");
+		jdbcTemplate.update("DELETE FROM incidencias_archivo");
+		String[] estados = { Constants.ESTADO_RESUELTA, Constants.ESTADO_PENDIENTE, Constants.ESTADO_CANCELADA,
+				Constants.ESTADO_EN_PROGRESO };
+		for (int i = 0; i < 10; i++)
+		{
+			jdbcTemplate.update("INSERT INTO incidencias (numero_aula, correo_docente, fecha_incidencia, "
+					+ "descripcion_incidencia, estado_incidencia, comentario) VALUES (?, ?, ?, ?, ?, ?)", "0." + i,
+					"docente@g.educaand.es", new Timestamp(INICIO + i * DIA), "Incidencia " + i, estados[i % 4], "");
+		}
+	}
+
+	@Test
+	void archivaPorLotesSoloLasCerradasAnterioresAlLimite() throws InterruptedException
+	{
+		// Cerradas antes del dia 7: 0, 2, 4 y 6.
+		long archivadas = archivo.archivar(new Date(INICIO + 7 * DIA));
+
+		assertEquals(4, archivadas);
+		assertEquals(List.of("0.1", "0.3", "0.5", "0.7", "0.8", "0.9"), aulas("incidencias"));
+		assertEquals(List.of("0.0", "0.2", "0.4", "0.6"), aulas("incidencias_archivo"));
+
+		// Una segunda ejecucion no encuentra nada que archivar.
+		assertEquals(0, archivo.archivar(new Date(INICIO + 7 * DIA)));
+	}
+
+	@Test
+	void laBusquedaSoloIncluyeElArchivoSiSeSolicita() throws Exception
+	{
+		archivo.archivar(new Date(INICIO + 7 * DIA));
+
+		FiltroBusqueda filtro = new FiltroBusqueda();
+		filtro.setTamanoPagina(3);
+		assertEquals(List.of("0.1", "0.3", "0.5"), aulas(busquedaIncidenciaService.buscar(filtro).getIncidencias()));
+
+		filtro.setIncluirArchivo(true);
+		PaginaIncidencias pagina = busquedaIncidenciaService.buscar(filtro);
+		assertEquals(List.of("0.0", "0.1", "0.2"), aulas(pagina.getIncidencias()));
+
+		filtro.setCursor(pagina.getSiguienteCursor());
+		assertEquals(List.of("0.3", "0.4", "0.5"), aulas(busquedaIncidenciaService.buscar(filtro).getIncidencias()));
+	}
+
+	private List<String> aulas(String tabla)
+	{
+		return jdbcTemplate.queryForList("SELECT numero_aula FROM " + tabla + " ORDER BY fecha_incidencia", String.class);
+	}
+
+	private static List<String> aulas(List<IncidenciaDTO> incidencias)
+	{
+		return incidencias.stream().map(IncidenciaDTO::getNumeroAula).toList();
+	}
+}
@@ -0,0 +1,140 @@
+package es.iesjandula.ReaktorIssuesServer.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import es.iesjandula.ReaktorIssuesServer.dto.CriteriosBusqueda;
+import es.iesjandula.ReaktorIssuesServer.dto.PaginaIncidencias;
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import es.iesjandula.ReaktorIssuesServer.events.IncidenciaModificadaEvent;
+import es.iesjandula.ReaktorIssuesServer.utils.Constants;
+
+/**
+ * Tests de la caché de páginas de resultados y de su invalidación selectiva.
+ */
+class CacheBusquedaIncidenciasTests
+{
+	private static final Date INICIO = new Date(0L);
+
+	private static final Date FIN = new Date(4102444800000L);
+
+	private CacheBusquedaIncidencias cache;
+
+	private AtomicInteger calculos;
+
+	@BeforeEach
+	void preparar()
+	{
+		cache = new CacheBusquedaIncidencias(100, Duration.ofMinutes(1));
+		calculos = new AtomicInteger();
+	}
+
+	@Test
+	void busquedaRepetidaSeRespondeDesdeLaCache()
+	{
+		ClaveBusqueda clave = clave("0.5", null);
+		buscar(clave);
+		buscar(clave);
+
+		assertEquals(1, calculos.get());
+		assertEquals(1, cache.estadisticas().getAciertos());
+		assertEquals(1, cache.estadisticas().getFallos());
+	}
+
+	@Test
+	void modificacionSoloDescartaLasBusquedasQuePuedenIncluirla()
+	{
+		ClaveBusqueda mismaAula = clave("0.5", null);
+		ClaveBusqueda otraAula = clave("0.6", null);
+		ClaveBusqueda todas = clave(null, null);
+		buscar(mismaAula);
+		buscar(otraAula);
+		buscar(todas);
+
+		cache.alModificarIncidencia(evento(IncidenciaModificadaEvent.Tipo.CREADA, "0.5", Constants.ESTADO_PENDIENTE));
+
+		assertEquals(2, cache.estadisticas().getInvalidaciones());
+		buscar(otraAula);
+		assertEquals(3, calculos.get());
+	}
+
+	@Test
+	void actualizacionDescartaLasBusquedasDeCualquierEstado()
+	{
+		ClaveBusqueda pendientes = clave(null, Constants.ESTADO_PENDIENTE);
+		ClaveBusqueda resueltas = clave(null, Constants.ESTADO_RESUELTA);
+		buscar(pendientes);
+		buscar(resueltas);
+
+		// Al crear una incidencia pendiente, la busqueda de resueltas sigue siendo valida.
+		cache.alModificarIncidencia(evento(IncidenciaModificadaEvent.Tipo.CREADA, "0.5", Constants.ESTADO_PENDIENTE));
+		assertEquals(1, cache.estadisticas().getInvalidaciones());
+
+		// Al pasar a resuelta, ambas busquedas pueden cambiar.
+		buscar(pendientes);
+		cache.alModificarIncidencia(evento(IncidenciaModificadaEvent.Tipo.ACTUALIZADA, "0.5", Constants.ESTADO_RESUELTA));
+		assertEquals(3, cache.estadisticas().getInvalidaciones());
+		assertEquals(0, cache.estadisticas().getTamano());
+	}
+
+	@Test
+	void cambioDeEstadoDescartaLasBusquedasDelEstadoAnteriorYDelNuevo()
+	{
+		ClaveBusqueda pendientes = clave(null, Constants.ESTADO_PENDIENTE);
+		ClaveBusqueda enProgreso = clave(null, Constants.ESTADO_EN_PROGRESO);
+		ClaveBusqueda resueltas = clave(null, Constants.ESTADO_RESUELTA);
+		buscar(pendientes);
+		buscar(enProgreso);
+		buscar(resueltas);
+
+		IncidenciaModificadaEvent evento = evento(IncidenciaModificadaEvent.Tipo.ACTUALIZADA, "0.5",
+				Constants.ESTADO_EN_PROGRESO);
+		evento.setEstadoAnterior(Constants.ESTADO_PENDIENTE);
+		cache.alModificarIncidencia(evento);
+
+		assertEquals(2, cache.estadisticas().getInvalidaciones());
+		assertEquals(1, cache.estadisticas().getTamano());
+	}
+
+	@Test
+	void paginaCalculadaDuranteUnaModificacionNoSeGuarda()
+	{
+		ClaveBusqueda clave = clave(null, null);
+		cache.obtener(clave, () ->
+		{
+			cache.alModificarIncidencia(evento(IncidenciaModificadaEvent.Tipo.CREADA, "0.5", Constants.ESTADO_PENDIENTE));
+			return new PaginaIncidencias(List.of(), null);
+		});
+
+		assertEquals(0, cache.estadisticas().getTamano());
+	}
+
+	private void buscar(ClaveBusqueda clave)
+	{
+		cache.obtener(clave, () ->
+		{
+			calculos.incrementAndGet();
+			return new PaginaIncidencias(List.of(), null);
+		});
+	}
+
+	private static ClaveBusqueda clave(String numeroAula, String estado)
+	{
+		return new ClaveBusqueda(new CriteriosBusqueda(numeroAula, null, INICIO, FIN, null, estado, null), null, 100,
+				false);
+	}
+
+	private static IncidenciaModificadaEvent evento(IncidenciaModificadaEvent.Tipo tipo, String numeroAula,
+			String estado)
+	{
+		return new IncidenciaModificadaEvent(tipo, new IncidenciaEntity(numeroAula, "docente@g.educaand.es",
+				new Date(1700000000000L), "La pizarra digital no enciende", estado, ""));
+	}
+}
@@ -0,0 +1,97 @@
+package es.iesjandula.ReaktorIssuesServer.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.time.Duration;
+import java.util.Date;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import es.iesjandula.ReaktorIssuesServer.dto.CriteriosBusqueda;
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import es.iesjandula.ReaktorIssuesServer.events.IncidenciaModificadaEvent;
+import es.iesjandula.ReaktorIssuesServer.utils.Constants;
+
+/**
+ * Tests de las etiquetas de las búsquedas: solo cambian con las modificaciones que la búsqueda puede incluir.
+ */
+class VersionesBusquedaTests
+{
+	private VersionesBusqueda versiones;
+
+	@BeforeEach
+	void preparar()
+	{
+		versiones = new VersionesBusqueda(Duration.ofHours(1));
+	}
+
+	@Test
+	void etiquetaDeUnaAulaSoloCambiaConSusIncidencias()
+	{
+		ClaveBusqueda aula = clave("0.5", null);
+		String inicial = versiones.etiqueta(aula);
+
+		modificar(IncidenciaModificadaEvent.Tipo.CREADA, "0.6", Constants.ESTADO_PENDIENTE, null);
+		assertEquals(inicial, versiones.etiqueta(aula));
+
+		modificar(IncidenciaModificadaEvent.Tipo.CREADA, "0.5 ", Constants.ESTADO_PENDIENTE, null);
+		assertNotEquals(inicial, versiones.etiqueta(aula));
+	}
+
+	@Test
+	void actualizacionCambiaElEstadoAnteriorYElNuevo()
+	{
+		ClaveBusqueda pendientes = clave(null, Constants.ESTADO_PENDIENTE);
+		ClaveBusqueda resueltas = clave(null, Constants.ESTADO_RESUELTA);
+		ClaveBusqueda canceladas = clave(null, Constants.ESTADO_CANCELADA);
+		String pendientesInicial = versiones.etiqueta(pendientes);
+		String resueltasInicial = versiones.etiqueta(resueltas);
+		String canceladasInicial = versiones.etiqueta(canceladas);
+
+		modificar(IncidenciaModificadaEvent.Tipo.ACTUALIZADA, "0.5", Constants.ESTADO_RESUELTA,
+				Constants.ESTADO_PENDIENTE);
+
+		assertNotEquals(pendientesInicial, versiones.etiqueta(pendientes));
+		assertNotEquals(resueltasInicial, versiones.etiqueta(resueltas));
+		assertEquals(canceladasInicial, versiones.etiqueta(canceladas));
+
+		// Sin estado anterior puede afectar a cualquier estado.
+		modificar(IncidenciaModificadaEvent.Tipo.ACTUALIZADA, "0.5", Constants.ESTADO_RESUELTA, null);
+		assertNotEquals(canceladasInicial, versiones.etiqueta(canceladas));
+	}
+
+	@Test
+	void etiquetaDependeDeLaPaginaSolicitada()
+	{
+		ClaveBusqueda primera = clave("0.5", null);
+		ClaveBusqueda otroTamano = new ClaveBusqueda(primera.getCriterios(), null, 50, false);
+
+		assertEquals(versiones.etiqueta(primera), versiones.etiqueta(clave("0.5", null)));
+		assertNotEquals(versiones.etiqueta(primera), versiones.etiqueta(otroTamano));
+	}
+
+	@Test
+	void invalidarTodoCambiaTodasLasEtiquetas()
+	{
+		ClaveBusqueda aula = clave("0.5", null);
+		String inicial = versiones.etiqueta(aula);
+
+		versiones.invalidarTodo();
+
+		assertNotEquals(inicial, versiones.etiqueta(aula));
+	}
+
+	private void modificar(IncidenciaModificadaEvent.Tipo tipo, String aula, String estado, String estadoAnterior)
+	{
+		versiones.alModificarIncidencia(new IncidenciaModificadaEvent(tipo, new IncidenciaEntity(aula,
+				"docente@g.educaand.es", new Date(), "La pizarra digital no enciende", estado, ""), estadoAnterior));
+	}
+
+	private static ClaveBusqueda clave(String numeroAula, String estado)
+	{
+		return new ClaveBusqueda(new CriteriosBusqueda(numeroAula, null, null, null, null, estado, null), null, 100,
+				false);
+	}
+}
@@ -0,0 +1,66 @@
+package es.iesjandula.ReaktorIssuesServer.config;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests del límite de conexiones en uso a la vez del modo de hilos virtuales.
+ */
+class LimiteConexionesDataSourceTests
+{
+	private DataSource destino;
+
+	private LimiteConexionesDataSource limitado;
+
+	@BeforeEach
+	void preparar() throws SQLException
+	{
+		destino = mock(DataSource.class);
+		when(destino.getConnection()).thenAnswer(invocacion -> mock(Connection.class));
+		limitado = new LimiteConexionesDataSource(destino, 2, 50);
+	}
+
+	@Test
+	void sinPermisosLaConexionEsperaYFalla() throws SQLException
+	{
+		limitado.getConnection();
+		limitado.getConnection();
+
+		assertThrows(SQLTransientConnectionException.class, () -> limitado.getConnection());
+	}
+
+	@Test
+	void cerrarLaConexionDevuelveElPermisoUnaSolaVez() throws SQLException
+	{
+		Connection primera = limitado.getConnection();
+		limitado.getConnection();
+		primera.close();
+		primera.close();
+
+		limitado.getConnection();
+		assertThrows(SQLTransientConnectionException.class, () -> limitado.getConnection());
+	}
+
+	@Test
+	void errorDelPoolDevuelveElPermiso() throws SQLException
+	{
+		when(destino.getConnection()).thenThrow(new SQLException("Pool agotado"));
+		for (int i = 0; i < 3; i++)
+		{
+			assertThrows(SQLException.class, () -> limitado.getConnection());
+		}
+		verify(destino, times(3)).getConnection();
+	}
+}
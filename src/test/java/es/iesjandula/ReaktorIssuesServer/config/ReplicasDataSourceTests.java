@@ -0,0 +1,207 @@
+package es.iesjandula.ReaktorIssuesServer.config;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import es.iesjandula.ReaktorIssuesServer.ReaktorIssuesServerApplication;
+import es.iesjandula.ReaktorIssuesServer.utils.Constants;
+
+/**
+ * Tests de las réplicas de lectura con dos bases de datos H2 en memoria, el primario del perfil de test y una réplica
+ * con otras incidencias, además de una réplica caída. El retraso de las réplicas H2 se simula con una consulta.
+ */
+@SpringBootTest(classes = ReaktorIssuesServerApplication.class, properties = {
+		"incidencias.replicas.habilitadas=true",
+		"incidencias.replicas.urls=jdbc:caida:replica," + ReplicasDataSourceTests.REPLICA,
+		"incidencias.replicas.usuario=sa", "incidencias.replicas.contrasena=",
+		"incidencias.replicas.consulta-retraso=SELECT 0",
+		"incidencias.cache-busqueda.habilitada=false" })
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ReplicasDataSourceTests
+{
+	static final String REPLICA = "jdbc:h2:mem:replica;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+	private static final String INSERTAR = "INSERT INTO incidencias (numero_aula, correo_docente, fecha_incidencia, "
+			+ "descripcion_incidencia, estado_incidencia, comentario) VALUES (?, ?, ?, ?, ?, ?)";
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void cargarIncidencias()
+	{
+		// Fuera de una transaccion de solo lectura, la plantilla usa el primario.
+		jdbcTemplate.update("DELETE FROM incidencias");
+		jdbcTemplate.update(INSERTAR, "P.1", "docente@g.educaand.es", new Timestamp(1700000000000L),
+				"Solo en el primario", Constants.ESTADO_PENDIENTE, "");
+
+		JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA, "sa", ""));
+		replica.execute("CREATE TABLE IF NOT EXISTS incidencias (numero_aula VARCHAR(255) NOT NULL, "
+				+ "correo_docente VARCHAR(255) NOT NULL, fecha_incidencia TIMESTAMP(6) NOT NULL, "
+				+ "descripcion_incidencia TEXT, estado_incidencia VARCHAR(255), comentario TEXT, "
+				+ "PRIMARY KEY (numero_aula, correo_docente, fecha_incidencia))");
+		replica.update("DELETE FROM incidencias");
+		replica.update(INSERTAR, "R.1", "docente@g.educaand.es", new Timestamp(1700000000000L),
+				"Solo en la replica", Constants.ESTADO_PENDIENTE, "");
+	}
+
+	@Test
+	void lasLecturasSeHacenEnLaReplicaDisponible() throws Exception
+	{
+		// La rotacion pasa tambien por la replica caida, que se salta.
+		for (int i = 0; i < 3; i++)
+		{
+			mockMvc.perform(busqueda("10.0.0.3", "otro@g.educaand.es"))
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$[*].numeroAula", containsInAnyOrder("R.1")));
+		}
+		mockMvc.perform(post("/incidencias/contar").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"numeroAula\":\"R.1\"}"))
+				.andExpect(status().isOk())
+				.andExpect(content().string("1"));
+	}
+
+	@Test
+	void trasModificarElClienteLeeDelPrimario() throws Exception
+	{
+		mockMvc.perform(put("/incidencias").with(direccion("10.0.0.1")).header("correo-docente", "propia@g.educaand.es")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"numeroAula\":\"0.9\",\"descripcionIncidencia\":\"No funciona el proyector\"}"))
+				.andExpect(status().isCreated());
+
+		// La misma direccion sin cabecera y el mismo docente desde otra direccion leen del primario.
+		mockMvc.perform(busqueda("10.0.0.1", null))
+				.andExpect(jsonPath("$[*].numeroAula", containsInAnyOrder("P.1", "0.9")));
+		mockMvc.perform(busqueda("10.0.0.2", "propia@g.educaand.es"))
+				.andExpect(jsonPath("$[*].numeroAula", containsInAnyOrder("P.1", "0.9")));
+		mockMvc.perform(busqueda("10.0.0.3", "otro@g.educaand.es"))
+				.andExpect(jsonPath("$[*].numeroAula", containsInAnyOrder("R.1")));
+	}
+
+	@Test
+	void sinReplicasDisponiblesSeLeeDelPrimario() throws SQLException
+	{
+		DriverManagerDataSource primario = new DriverManagerDataSource("jdbc:h2:mem:primario_unidad", "sa", "");
+		try (ReplicasDataSource replicas = new ReplicasDataSource(primario, List.of(pool("jdbc:caida:replica")),
+				false, ReplicasDataSource.Seleccion.ROTACION, 30000, new LecturasPropias(Duration.ofSeconds(5)), null, 0);
+				Connection conexion = replicas.getConnection())
+		{
+			assertEquals("jdbc:h2:mem:primario_unidad", conexion.getMetaData().getURL());
+		}
+	}
+
+	@Test
+	void laSeleccionMenosOcupadaEligeLaReplicaConMenosConexiones() throws SQLException
+	{
+		DriverManagerDataSource primario = new DriverManagerDataSource("jdbc:h2:mem:primario_unidad", "sa", "");
+		try (ReplicasDataSource replicas = new ReplicasDataSource(primario,
+				List.of(pool("jdbc:h2:mem:replica_a"), pool("jdbc:h2:mem:replica_b")), false,
+				ReplicasDataSource.Seleccion.MENOS_OCUPADA, 30000, new LecturasPropias(Duration.ofSeconds(5)), null, 0);
+				Connection primera = replicas.getConnection();
+				Connection segunda = replicas.getConnection())
+		{
+			assertEquals("jdbc:h2:mem:replica_a", primera.getMetaData().getURL());
+			assertEquals("jdbc:h2:mem:replica_b", segunda.getMetaData().getURL());
+		}
+	}
+
+	@Test
+	void lasReplicasRetrasadasNoSeUsanHastaQueSePonenAlDia() throws SQLException
+	{
+		DriverManagerDataSource primario = new DriverManagerDataSource("jdbc:h2:mem:primario_unidad", "sa", "");
+		JdbcTemplate retrasada = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:retrasada;DB_CLOSE_DELAY=-1",
+				"sa", ""));
+		JdbcTemplate alDia = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:al_dia;DB_CLOSE_DELAY=-1",
+				"sa", ""));
+		for (JdbcTemplate replica : List.of(retrasada, alDia))
+		{
+			replica.execute("CREATE TABLE IF NOT EXISTS retraso (segundos INT)");
+			replica.update("DELETE FROM retraso");
+		}
+		retrasada.update("INSERT INTO retraso VALUES (60)");
+		alDia.update("INSERT INTO retraso VALUES (0)");
+
+		try (ReplicasDataSource replicas = new ReplicasDataSource(primario,
+				List.of(pool("jdbc:h2:mem:retrasada"), pool("jdbc:h2:mem:al_dia")), false,
+				ReplicasDataSource.Seleccion.ROTACION, 30000, new LecturasPropias(Duration.ofSeconds(5)),
+				"SELECT segundos FROM retraso", 10000))
+		{
+			replicas.comprobarRetraso();
+			for (int i = 0; i < 2; i++)
+			{
+				try (Connection conexion = replicas.getConnection())
+				{
+					assertEquals("jdbc:h2:mem:al_dia", conexion.getMetaData().getURL());
+				}
+			}
+
+			// Tambien se deja de usar la replica que no informa de su retraso.
+			retrasada.update("UPDATE retraso SET segundos = 0");
+			alDia.update("DELETE FROM retraso");
+			replicas.comprobarRetraso();
+			for (int i = 0; i < 2; i++)
+			{
+				try (Connection conexion = replicas.getConnection())
+				{
+					assertEquals("jdbc:h2:mem:retrasada", conexion.getMetaData().getURL());
+				}
+			}
+		}
+	}
+
+	private static HikariDataSource pool(String url)
+	{
+		HikariDataSource pool = new HikariDataSource();
+		pool.setJdbcUrl(url);
+		pool.setUsername("sa");
+		pool.setPassword("");
+		pool.setMaximumPoolSize(2);
+		return pool;
+	}
+
+	private static MockHttpServletRequestBuilder busqueda(String direccion, String correoDocente)
+	{
+		MockHttpServletRequestBuilder busqueda = post("/incidencias").with(direccion(direccion))
+				.contentType(MediaType.APPLICATION_JSON).content("{}");
+		return correoDocente == null ? busqueda : busqueda.header("correo-docente", correoDocente);
+	}
+
+	private static RequestPostProcessor direccion(String direccion)
+	{
+		return request ->
+		{
+			request.setRemoteAddr(direccion);
+			return request;
+		};
+	}
+}
@@ -0,0 +1,146 @@
+package es.iesjandula.ReaktorIssuesServer.estadisticas;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import es.iesjandula.ReaktorIssuesServer.ReaktorIssuesServerApplication;
+import es.iesjandula.ReaktorIssuesServer.dto.EstadisticasIncidenciasDTO;
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import es.iesjandula.ReaktorIssuesServer.repository.IIncidenciaRepository;
+import es.iesjandula.ReaktorIssuesServer.utils.Constants;
+
+/**
+ * Tests de los contadores de incidencias: cálculo inicial con consultas agrupadas y actualización con las
+ * modificaciones realizadas a través de la API.
+ */
+@SpringBootTest(classes = ReaktorIssuesServerApplication.class)
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class EstadisticasIncidenciasTests
+{
+	/**
+	 * Lunes 13-11-2023 a mediodía, en la zona horaria del servidor.
+	 */
+	private static final Date LUNES = Date.from(LocalDate.of(2023, 11, 13).atTime(12, 0)
+			.atZone(ZoneId.systemDefault()).toInstant());
+
+	private static final long DIA = 24L * 3600 * 1000;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private IIncidenciaRepository iIncidenciaRepository;
+
+	@Autowired
+	private EstadisticasIncidencias estadisticas;
+
+	@BeforeEach
+	void preparar() throws InterruptedException
+	{
+		while (!estadisticas.isListas())
+		{
+			Thread.sleep(10);
+		}
+		iIncidenciaRepository.deleteAllInBatch();
+		iIncidenciaRepository.saveAllAndFlush(List.of(
+				incidencia("0.5", LUNES, Constants.ESTADO_PENDIENTE),
+				incidencia("0.5", new Date(LUNES.getTime() + DIA), Constants.ESTADO_PENDIENTE),
+				incidencia("0.6", new Date(LUNES.getTime() + 7 * DIA), Constants.ESTADO_RESUELTA)));
+		estadisticas.recalcular();
+	}
+
+	@Test
+	void calculoInicialAgrupaPorEstadoAulaDiaYSemana()
+	{
+		EstadisticasIncidenciasDTO resultado = estadisticas.consultar(null, null);
+
+		assertEquals(3, resultado.getTotal());
+		assertEquals(2, resultado.getPorEstado().get(Constants.ESTADO_PENDIENTE));
+		assertEquals(1, resultado.getPorEstado().get(Constants.ESTADO_RESUELTA));
+		assertEquals(2, resultado.getPorAula().get("0.5"));
+		assertEquals(1, resultado.getPorDia().get(LocalDate.of(2023, 11, 14)));
+		assertEquals(2, resultado.getPorSemana().get(LocalDate.of(2023, 11, 13)));
+		assertEquals(1, resultado.getPorSemana().get(LocalDate.of(2023, 11, 20)));
+	}
+
+	@Test
+	void cambioDeEstadoMueveLaIncidenciaEntreContadores() throws Exception
+	{
+		mockMvc.perform(put("/incidencias").header("correo-docente", "docente@g.educaand.es")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"numeroAula\":\"0.5\",\"correoDocente\":\"docente@g.educaand.es\",\"fechaIncidencia\":"
+						+ LUNES.getTime() + ",\"descripcionIncidencia\":\"La pizarra digital no enciende\","
+						+ "\"estadoIncidencia\":\"RESUELTA\",\"comentario\":\"\"}"))
+				.andExpect(status().isOk());
+
+		// Sin recontar la tabla: la actualizacion publica el estado que tenia la incidencia.
+		mockMvc.perform(get("/incidencias/estadisticas"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.total").value(3))
+				.andExpect(jsonPath("$.porEstado.PENDIENTE").value(1))
+				.andExpect(jsonPath("$.porEstado.RESUELTA").value(2));
+	}
+
+	@Test
+	void altaYBorradoActualizanTodosLosContadores() throws Exception
+	{
+		mockMvc.perform(put("/incidencias").header("correo-docente", "docente@g.educaand.es")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"numeroAula\":\"0.7\",\"descripcionIncidencia\":\"La pizarra digital no enciende\"}"))
+				.andExpect(status().isCreated());
+		mockMvc.perform(delete("/incidencias").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"numeroAula\":\"0.6\",\"correoDocente\":\"docente@g.educaand.es\",\"fechaIncidencia\":"
+						+ (LUNES.getTime() + 7 * DIA) + ",\"descripcionIncidencia\":\"La pizarra digital no enciende\","
+						+ "\"estadoIncidencia\":\"PENDIENTE\",\"comentario\":\"\"}"))
+				.andExpect(status().isNoContent());
+
+		EstadisticasIncidenciasDTO resultado = estadisticas.consultar(null, null);
+		assertEquals(3, resultado.getTotal());
+		assertEquals(3, resultado.getPorEstado().get(Constants.ESTADO_PENDIENTE));
+		// Se descuenta el estado guardado, no el recibido en la peticion.
+		assertNull(resultado.getPorEstado().get(Constants.ESTADO_RESUELTA));
+		assertNull(resultado.getPorAula().get("0.6"));
+		assertEquals(1, resultado.getPorAula().get("0.7"));
+		assertEquals(1, resultado.getPorDia().get(LocalDate.now()));
+	}
+
+	@Test
+	void endpointLimitaLosContadoresPorFecha() throws Exception
+	{
+		mockMvc.perform(get("/incidencias/estadisticas").param("fechaInicio", "14-11-2023"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.total").value(3))
+				.andExpect(jsonPath("$.porDia.length()").value(2))
+				.andExpect(jsonPath("$.porDia['2023-11-14']").value(1))
+				.andExpect(jsonPath("$.porSemana['2023-11-13']").value(2));
+
+		mockMvc.perform(get("/incidencias/estadisticas").param("fechaInicio", "2023-11-14"))
+				.andExpect(status().isBadRequest());
+	}
+
+	private static IncidenciaEntity incidencia(String numeroAula, Date fecha, String estado)
+	{
+		return new IncidenciaEntity(numeroAula, "docente@g.educaand.es", fecha, "La pizarra digital no enciende",
+				estado, "");
+	}
+}
@@ -0,0 +1,146 @@
+package es.iesjandula.ReaktorIssuesServer.indice;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import es.iesjandula.ReaktorIssuesServer.dto.IncidenciaDTO;
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntityId;
+import es.iesjandula.ReaktorIssuesServer.events.IncidenciaModificadaEvent;
+import es.iesjandula.ReaktorIssuesServer.utils.Constants;
+
+/**
+ * Tests del índice de texto, usado fuera de Spring: las candidatas de cada consulta deben ser las mismas incidencias
+ * que encontraría {@code LIKE '%texto%'}.
+ */
+class IndiceTextoIncidenciasTests
+{
+	private static final Date FECHA = new Date(1700000000000L);
+
+	private IndiceTextoIncidencias indice;
+
+	@BeforeEach
+	void cargarIndice()
+	{
+		indice = new IndiceTextoIncidencias();
+		indice.cargar(Stream.of(
+				incidencia("0.1", "La pizarra digital no enciende", "Revisando el cable"),
+				incidencia("0.2", "El proyector parpadea", ""),
+				incidencia("0.3", "Falta el cable del proyector", "Pedido al almacén"),
+				incidencia("0.4", "Ventana rota en el aula", null)));
+	}
+
+	@Test
+	void encuentraSubcadenasSinDistinguirTildesNiMayusculas()
+	{
+		assertEquals(Set.of(aula("0.2"), aula("0.3")), indice.buscar("YECT", null).keySet());
+		assertEquals(Set.of(aula("0.3")), indice.buscar(null, "almacen").keySet());
+		assertEquals(Set.of(aula("0.1")), indice.buscar("pizarra", "cable").keySet());
+		assertTrue(indice.buscar("impresora", null).isEmpty());
+	}
+
+	@Test
+	void variasPalabrasCoincidenConElFinalDeLaPrimeraYElComienzoDeLaUltima()
+	{
+		assertEquals(Set.of(aula("0.1")), indice.buscar("arra digital no enc", null).keySet());
+		assertEquals(Set.of(aula("0.3")), indice.buscar("cable del proy", null).keySet());
+		// Las palabras intermedias deben coincidir enteras y la primera no puede ser el comienzo de una palabra.
+		assertTrue(indice.buscar("pizarra digi no", null).isEmpty());
+		assertTrue(indice.buscar("pizar digital", null).isEmpty());
+	}
+
+	@Test
+	void mantieneLasModificacionesYLosBorrados()
+	{
+		IncidenciaEntity actualizada = new IncidenciaEntity("0.2", "docente@g.educaand.es", FECHA,
+				"El proyector no enciende", Constants.ESTADO_EN_PROGRESO, "Cambiada la lampara");
+		indice.alModificarIncidencia(new IncidenciaModificadaEvent(IncidenciaModificadaEvent.Tipo.ACTUALIZADA,
+				actualizada, Constants.ESTADO_PENDIENTE));
+		assertEquals(Set.of(aula("0.1"), aula("0.2")), indice.buscar("enciende", null).keySet());
+		assertTrue(indice.buscar("parpadea", null).isEmpty());
+
+		indice.alModificarIncidencia(new IncidenciaModificadaEvent(IncidenciaModificadaEvent.Tipo.BORRADA,
+				new IncidenciaEntity("0.1", "docente@g.educaand.es", FECHA, "La pizarra digital no enciende",
+						Constants.ESTADO_PENDIENTE, "Revisando el cable")));
+		assertEquals(Set.of(aula("0.2")), indice.buscar("enciende", null).keySet());
+		assertEquals(3, indice.tamano());
+	}
+
+	@Test
+	void unCambioDeEstadoSinTextoConservaElTextoIndexado()
+	{
+		IncidenciaEntity sinTexto = new IncidenciaEntity("0.3", "docente@g.educaand.es", FECHA, null,
+				Constants.ESTADO_RESUELTA, null);
+		indice.alModificarIncidencia(new IncidenciaModificadaEvent(IncidenciaModificadaEvent.Tipo.ACTUALIZADA,
+				sinTexto, Constants.ESTADO_PENDIENTE, true));
+
+		assertEquals(Set.of(aula("0.3")), indice.buscar("cable del", "almacen").keySet());
+
+		indice.alModificarIncidencia(new IncidenciaModificadaEvent(IncidenciaModificadaEvent.Tipo.BORRADA,
+				sinTexto, null, true));
+		assertTrue(indice.buscar("cable del", null).isEmpty());
+	}
+
+	@Test
+	void noRespondeAntesDeCargarNiConComodines()
+	{
+		assertNull(new IndiceTextoIncidencias().buscar("proyector", null));
+		assertNull(indice.buscar("proy%", null));
+		assertNull(indice.buscar(null, "cable_"));
+		assertNull(indice.buscar(null, null));
+	}
+
+	@Test
+	void lasPalabrasMenosFrecuentesPuntuanMas()
+	{
+		Map<IncidenciaEntityId, Double> candidatas = indice.buscar("e", null);
+		assertEquals(4, candidatas.size());
+
+		double proyector = indice.buscar("proyector", null).get(aula("0.2"));
+		double pizarra = indice.buscar("pizarra", null).get(aula("0.1"));
+		assertTrue(pizarra > proyector);
+	}
+
+	@Test
+	void compactaTrasMuchosBorradosSinPerderIncidencias()
+	{
+		List<IncidenciaEntity> temporales = new ArrayList<>();
+		for (int i = 0; i < 1100; i++)
+		{
+			IncidenciaEntity temporal = new IncidenciaEntity("9." + i, "docente@g.educaand.es", FECHA,
+					"Temporal " + i, Constants.ESTADO_PENDIENTE, "");
+			temporales.add(temporal);
+			indice.alModificarIncidencia(new IncidenciaModificadaEvent(IncidenciaModificadaEvent.Tipo.CREADA, temporal));
+		}
+		temporales.forEach(temporal -> indice.alModificarIncidencia(
+				new IncidenciaModificadaEvent(IncidenciaModificadaEvent.Tipo.BORRADA, temporal)));
+
+		assertEquals(4, indice.tamano());
+		assertTrue(indice.buscar("temporal", null).isEmpty());
+		assertTrue(indice.buscar("poral", null).isEmpty());
+		assertEquals(Set.of(aula("0.2"), aula("0.3")), indice.buscar("proyector", null).keySet());
+		assertEquals(Set.of(aula("0.4")), indice.buscar("rota en el", null).keySet());
+	}
+
+	private static IncidenciaDTO incidencia(String numeroAula, String descripcion, String comentario)
+	{
+		return new IncidenciaDTO(numeroAula, "docente@g.educaand.es", FECHA, descripcion, Constants.ESTADO_PENDIENTE,
+				comentario);
+	}
+
+	private static IncidenciaEntityId aula(String numeroAula)
+	{
+		return new IncidenciaEntityId(numeroAula, "docente@g.educaand.es", FECHA);
+	}
+}
@@ -0,0 +1,134 @@
+package es.iesjandula.ReaktorIssuesServer.ingesta;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import es.iesjandula.ReaktorIssuesServer.dto.IncidenciaDTO;
+import es.iesjandula.ReaktorIssuesServer.dto.IngestaDTO;
+import es.iesjandula.ReaktorIssuesServer.dto.PeticionIncidenciaDTO;
+import es.iesjandula.ReaktorIssuesServer.events.IncidenciaModificadaEvent;
+import es.iesjandula.ReaktorIssuesServer.services.LoteIncidenciaService;
+
+/**
+ * Tests de la cola de ingesta asíncrona: agrupación de las escrituras, rechazo con la cola llena, aislamiento de las
+ * incidencias erróneas y vaciado de la cola al detenerla.
+ */
+class ColaIngestaIncidenciasTests
+{
+	private LoteIncidenciaService loteIncidenciaService;
+
+	private List<List<PeticionIncidenciaDTO>> lotes;
+
+	@BeforeEach
+	void preparar() throws Exception
+	{
+		loteIncidenciaService = mock(LoteIncidenciaService.class);
+		lotes = new ArrayList<>();
+		// Guarda una copia de cada lote recibido y crea todas sus incidencias, salvo la del aula "error".
+		when(loteIncidenciaService.guardarPeticiones(anyList())).thenAnswer(invocacion ->
+		{
+			List<PeticionIncidenciaDTO> lote = new ArrayList<>(invocacion.getArgument(0));
+			lotes.add(lote);
+			if (lote.stream().anyMatch(peticion -> peticion.getIncidencia().getNumeroAula().equals("error")))
+			{
+				throw new IllegalStateException("Fallo al guardar el aula error");
+			}
+			return lote.stream().map(incidencia -> IncidenciaModificadaEvent.Tipo.CREADA).toList();
+		});
+	}
+
+	@Test
+	void incidenciasRecibidasALaVezSeGuardanEnUnaTransaccion() throws Exception
+	{
+		ColaIngestaIncidencias cola = cola(100, Duration.ofSeconds(1));
+		cola.start();
+		List<IngestaDTO> recibidas = new ArrayList<>();
+		for (int i = 0; i < 5; i++)
+		{
+			recibidas.add(cola.encolar("docente@g.educaand.es", incidencia("0." + i)));
+		}
+		cola.stop();
+
+		verify(loteIncidenciaService, times(1)).guardarPeticiones(anyList());
+		assertEquals(5, lotes.get(0).size());
+		assertEquals("docente@g.educaand.es", lotes.get(0).get(0).getCorreoDocente());
+		for (IngestaDTO recibida : recibidas)
+		{
+			assertEquals(IngestaDTO.EN_COLA, recibida.getEstado());
+			assertEquals(IngestaDTO.CREADA, cola.consultar(recibida.getTestigo()).getEstado());
+		}
+	}
+
+	@Test
+	void colaLlenaRechazaIncidencias()
+	{
+		ColaIngestaIncidencias cola = cola(2, Duration.ZERO);
+		// Admite incidencias sin iniciar el escritor, para que no se vacie la cola.
+		ReflectionTestUtils.setField(cola, "enMarcha", true);
+		cola.encolar("docente@g.educaand.es", incidencia("0.1"));
+		cola.encolar("docente@g.educaand.es", incidencia("0.2"));
+
+		assertThrows(RejectedExecutionException.class, () -> cola.encolar("docente@g.educaand.es", incidencia("0.3")));
+		assertEquals(2, cola.pendientes());
+	}
+
+	@Test
+	void incidenciaErroneaNoImpideGuardarLasDemas()
+	{
+		ColaIngestaIncidencias cola = cola(100, Duration.ofSeconds(1));
+		cola.start();
+		IngestaDTO correcta = cola.encolar("docente@g.educaand.es", incidencia("0.1"));
+		IngestaDTO erronea = cola.encolar("docente@g.educaand.es", incidencia("error"));
+		cola.stop();
+
+		// El lote completo falla y se reintenta cada incidencia por separado.
+		assertEquals(List.of(2, 1, 1), lotes.stream().map(List::size).toList());
+		assertEquals(IngestaDTO.CREADA, cola.consultar(correcta.getTestigo()).getEstado());
+		assertEquals(IngestaDTO.ERROR, cola.consultar(erronea.getTestigo()).getEstado());
+	}
+
+	@Test
+	void colaDetenidaNoAdmiteIncidencias()
+	{
+		ColaIngestaIncidencias cola = cola(100, Duration.ZERO);
+		cola.start();
+		cola.stop();
+
+		assertThrows(RejectedExecutionException.class, () -> cola.encolar("docente@g.educaand.es", incidencia("0.1")));
+		assertNull(cola.consultar("desconocido"));
+	}
+
+	private ColaIngestaIncidencias cola(int capacidad, Duration espera)
+	{
+		ColaIngestaIncidencias cola = new ColaIngestaIncidencias(capacidad, Duration.ofMinutes(1));
+		ReflectionTestUtils.setField(cola, "asincrona", true);
+		ReflectionTestUtils.setField(cola, "tamanoLote", 10);
+		ReflectionTestUtils.setField(cola, "espera", espera);
+		ReflectionTestUtils.setField(cola, "tiempoCierre", Duration.ofSeconds(10));
+		ReflectionTestUtils.setField(cola, "loteIncidenciaService", loteIncidenciaService);
+		return cola;
+	}
+
+	private static IncidenciaDTO incidencia(String aula)
+	{
+		IncidenciaDTO incidencia = new IncidenciaDTO();
+		incidencia.setNumeroAula(aula);
+		incidencia.setDescripcionIncidencia("El proyector no enciende");
+		return incidencia;
+	}
+}
@@ -0,0 +1,186 @@
+package es.iesjandula.ReaktorIssuesServer.ingesta;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import es.iesjandula.ReaktorIssuesServer.ReaktorIssuesServerApplication;
+import es.iesjandula.ReaktorIssuesServer.dto.IngestaDTO;
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import es.iesjandula.ReaktorIssuesServer.estadisticas.EstadisticasIncidencias;
+import es.iesjandula.ReaktorIssuesServer.repository.IIncidenciaRepository;
+import es.iesjandula.ReaktorIssuesServer.utils.Constants;
+
+/**
+ * Tests de la ingesta asíncrona de extremo a extremo: la misma petición {@code PUT /incidencias} guarda la misma
+ * incidencia tanto si se atiende durante la petición como si pasa por la cola.
+ */
+@SpringBootTest(classes = ReaktorIssuesServerApplication.class, properties = "incidencias.ingesta.asincrona=true")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class IngestaAsincronaIncidenciasTests
+{
+	private static final Date FECHA = new Date(1700000000000L);
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private IIncidenciaRepository iIncidenciaRepository;
+
+	@Autowired
+	private EstadisticasIncidencias estadisticasIncidencias;
+
+	@Autowired
+	private ColaIngestaIncidencias colaIngestaIncidencias;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@BeforeEach
+	void preparar() throws InterruptedException
+	{
+		// Espera a que terminen las consultas del calculo inicial de estadisticas, que se ejecutan en segundo plano.
+		while (!estadisticasIncidencias.isListas())
+		{
+			Thread.sleep(10);
+		}
+		iIncidenciaRepository.deleteAllInBatch();
+	}
+
+	@AfterEach
+	void restaurar()
+	{
+		this.asincrona(true);
+	}
+
+	@Test
+	void incidenciaIdentificadaQueNoExisteSeCreaIgualConLaCola() throws Exception
+	{
+		String cuerpo = "{\"numeroAula\":\"0.5\",\"correoDocente\":\"docente@g.educaand.es\","
+				+ "\"fechaIncidencia\":1700000000000,\"descripcionIncidencia\":\"La pizarra digital no enciende\","
+				+ "\"estadoIncidencia\":\"RESUELTA\",\"comentario\":\"Cambiado el cable\"}";
+
+		IncidenciaEntity sincrona = this.guardar(false, cuerpo, null);
+		IncidenciaEntity asincrona = this.guardar(true, cuerpo, null);
+
+		// Ni durante la peticion ni con la cola se toman el docente, la fecha, el estado y el comentario del cliente.
+		for (IncidenciaEntity incidencia : List.of(sincrona, asincrona))
+		{
+			assertEquals("cabecera@g.educaand.es", incidencia.getCorreoDocente());
+			assertNotEquals(FECHA.getTime(), incidencia.getFechaIncidencia().getTime());
+			assertEquals(Constants.ESTADO_PENDIENTE, incidencia.getEstadoIncidencia());
+			assertEquals("", incidencia.getComentario());
+		}
+		assertEquals(sincrona.getNumeroAula(), asincrona.getNumeroAula());
+		assertEquals(sincrona.getDescripcionIncidencia(), asincrona.getDescripcionIncidencia());
+	}
+
+	@Test
+	void incidenciaIdentificadaQueExisteSeActualizaIgualConLaCola() throws Exception
+	{
+		String cuerpo = "{\"numeroAula\":\"0.5\",\"correoDocente\":\"docente@g.educaand.es\","
+				+ "\"fechaIncidencia\":1700000000000,\"descripcionIncidencia\":\"La pizarra digital no enciende\","
+				+ "\"estadoIncidencia\":\"RESUELTA\",\"comentario\":\"Cambiado el cable\"}";
+		IncidenciaEntity existente = new IncidenciaEntity("0.5", "docente@g.educaand.es", FECHA,
+				"La pizarra no enciende", Constants.ESTADO_PENDIENTE, "");
+
+		IncidenciaEntity sincrona = this.guardar(false, cuerpo, existente);
+		IncidenciaEntity asincrona = this.guardar(true, cuerpo, existente);
+
+		assertEquals(sincrona, asincrona);
+		assertEquals(Constants.ESTADO_RESUELTA, asincrona.getEstadoIncidencia());
+		assertEquals("Cambiado el cable", asincrona.getComentario());
+	}
+
+	@Test
+	void incidenciaExistenteIncompletaSeRechazaConLaCola() throws Exception
+	{
+		iIncidenciaRepository.saveAndFlush(new IncidenciaEntity("0.5", "docente@g.educaand.es", FECHA,
+				"La pizarra no enciende", Constants.ESTADO_PENDIENTE, ""));
+
+		IngestaDTO ingesta = this.encolar("{\"numeroAula\":\"0.5\",\"correoDocente\":\"docente@g.educaand.es\","
+				+ "\"fechaIncidencia\":1700000000000,\"descripcionIncidencia\":\"La pizarra digital no enciende\"}");
+
+		assertEquals(IngestaDTO.ERROR, ingesta.getEstado());
+		assertEquals(Constants.ESTADO_PENDIENTE,
+				iIncidenciaRepository.findAll().get(0).getEstadoIncidencia());
+	}
+
+	/**
+	 * Envía la petición durante la petición o por la cola, partiendo de la incidencia existente indicada, y devuelve
+	 * la única incidencia guardada.
+	 */
+	private IncidenciaEntity guardar(boolean asincrona, String cuerpo, IncidenciaEntity existente) throws Exception
+	{
+		iIncidenciaRepository.deleteAllInBatch();
+		if (existente != null)
+		{
+			iIncidenciaRepository.saveAndFlush(existente);
+		}
+
+		if (asincrona)
+		{
+			assertNotEquals(IngestaDTO.ERROR, this.encolar(cuerpo).getEstado());
+		}
+		else
+		{
+			this.asincrona(false);
+			mockMvc.perform(put("/incidencias").header("correo-docente", "cabecera@g.educaand.es")
+					.contentType(MediaType.APPLICATION_JSON).content(cuerpo))
+					.andExpect(existente == null ? status().isCreated() : status().isOk());
+			this.asincrona(true);
+		}
+
+		List<IncidenciaEntity> incidencias = iIncidenciaRepository.findAll();
+		assertEquals(1, incidencias.size());
+		return incidencias.get(0);
+	}
+
+	/**
+	 * Envía la petición por la cola y espera a que se guarde.
+	 */
+	private IngestaDTO encolar(String cuerpo) throws Exception
+	{
+		String respuesta = mockMvc.perform(put("/incidencias").header("correo-docente", "cabecera@g.educaand.es")
+				.contentType(MediaType.APPLICATION_JSON).content(cuerpo))
+				.andExpect(status().isAccepted())
+				.andReturn().getResponse().getContentAsString();
+		String testigo = objectMapper.readValue(respuesta, IngestaDTO.class).getTestigo();
+
+		IngestaDTO ingesta = colaIngestaIncidencias.consultar(testigo);
+		while (IngestaDTO.EN_COLA.equals(ingesta.getEstado()))
+		{
+			Thread.sleep(10);
+			ingesta = colaIngestaIncidencias.consultar(testigo);
+		}
+		return ingesta;
+	}
+
+	/**
+	 * Habilita o deshabilita la ingesta asíncrona sin detener el escritor de la cola.
+	 */
+	private void asincrona(boolean asincrona)
+	{
+		Object cola = AopTestUtils.getTargetObject(colaIngestaIncidencias);
+		ReflectionTestUtils.setField(cola, "asincrona", asincrona);
+	}
+}
@@ -0,0 +1,85 @@
+package es.iesjandula.ReaktorIssuesServer.metricas;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import es.iesjandula.ReaktorIssuesServer.ReaktorIssuesServerApplication;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Tests de las métricas de peticiones, repositorio y pool de conexiones publicadas para Prometheus.
+ */
+@SpringBootTest(classes = ReaktorIssuesServerApplication.class)
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+@ActiveProfiles("test")
+class MetricasPeticionesTests
+{
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Test
+	void peticionesSeMidenPorOperacionYResultado() throws Exception
+	{
+		// El registro se comparte entre los tests del contexto, asi que se comprueba lo que suma cada peticion.
+		long creadas = contar("crearActualizarIncidencia", "CREADA");
+		long noEncontradas = contar("borraIncidencia", "NO_ENCONTRADA");
+		long erroneas = contar("borraIncidencia", "ERROR_4");
+
+		mockMvc.perform(put("/incidencias").header("correo-docente", "metricas@g.educaand.es")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"numeroAula\":\"0.7\",\"descripcionIncidencia\":\"El altavoz hace ruido\"}"))
+				.andExpect(status().isCreated());
+		mockMvc.perform(delete("/incidencias").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"numeroAula\":\"0.7\",\"correoDocente\":\"metricas@g.educaand.es\","
+						+ "\"fechaIncidencia\":1700000000000,\"descripcionIncidencia\":\"El altavoz hace ruido\","
+						+ "\"estadoIncidencia\":\"PENDIENTE\","
+						+ "\"comentario\":\"\"}"))
+				.andExpect(status().isNotFound());
+		mockMvc.perform(delete("/incidencias").contentType(MediaType.APPLICATION_JSON).content("{}"))
+				.andExpect(status().isInternalServerError());
+
+		assertEquals(creadas + 1, contar("crearActualizarIncidencia", "CREADA"));
+		assertEquals(noEncontradas + 1, contar("borraIncidencia", "NO_ENCONTRADA"));
+		assertEquals(erroneas + 1, contar("borraIncidencia", "ERROR_4"));
+	}
+
+	@Test
+	void prometheusPublicaLosHistogramas() throws Exception
+	{
+		mockMvc.perform(put("/incidencias").header("correo-docente", "metricas@g.educaand.es")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"numeroAula\":\"0.8\",\"descripcionIncidencia\":\"La persiana esta rota\"}"))
+				.andExpect(status().isCreated());
+
+		String metricas = mockMvc.perform(get("/actuator/prometheus")).andExpect(status().isOk()).andReturn()
+				.getResponse().getContentAsString();
+
+		assertTrue(metricas.contains("incidencias_peticiones_seconds_bucket{"));
+		assertTrue(metricas.contains("spring_data_repository_invocations_seconds_bucket{"));
+		assertTrue(metricas.contains("hikaricp_connections_acquire_seconds_bucket{"));
+		assertTrue(metricas.contains("hikaricp_connections_pending{"));
+	}
+
+	private long contar(String operacion, String resultado)
+	{
+		return meterRegistry.find(MetricasPeticiones.METRICA).tag("operacion", operacion).tag("resultado", resultado)
+				.timers().stream().mapToLong(timer -> timer.count()).sum();
+	}
+}
@@ -0,0 +1,243 @@
+package es.iesjandula.ReaktorIssuesServer.novedades;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import es.iesjandula.ReaktorIssuesServer.events.IncidenciaModificadaEvent;
+import es.iesjandula.ReaktorIssuesServer.utils.Constants;
+
+/**
+ * Tests del canal de novedades: reparto a miles de suscriptores con filtro, expulsión de los clientes lentos y
+ * recuperación de las novedades perdidas al reconectarse.
+ */
+class CanalNovedadesTests
+{
+	private static final Pattern ID = Pattern.compile("id:(\\d+)");
+
+	private static final Pattern NOMBRE = Pattern.compile("event:(\\w+)");
+
+	private CanalNovedades canal;
+
+	@AfterEach
+	void cerrar()
+	{
+		canal.cerrar();
+	}
+
+	@Test
+	void milesDeSuscriptoresRecibenSoloLasNovedadesDeSuFiltro()
+	{
+		canal = new CanalNovedades(256, 1000, 0);
+		List<Emisor> porAula = new ArrayList<>();
+		List<Emisor> porEstado = new ArrayList<>();
+		List<Emisor> todas = new ArrayList<>();
+		for (int i = 0; i < 5000; i++)
+		{
+			Emisor emisor = new Emisor();
+			switch (i % 3)
+			{
+				case 0 -> { porAula.add(emisor); canal.suscribir(emisor, "0.1", null, null); }
+				case 1 -> { porEstado.add(emisor); canal.suscribir(emisor, null, Constants.ESTADO_PENDIENTE, null); }
+				default -> { todas.add(emisor); canal.suscribir(emisor, null, null, null); }
+			}
+		}
+
+		// Aulas 0.1 y 0.2 alternas; estado pendiente en la mitad de las de cada aula.
+		for (int i = 0; i < 20; i++)
+		{
+			publicar(IncidenciaModificadaEvent.Tipo.CREADA, "0." + (1 + i % 2),
+					i % 4 < 2 ? Constants.ESTADO_PENDIENTE : Constants.ESTADO_RESUELTA, null);
+		}
+
+		esperar(() -> todas.stream().allMatch(emisor -> emisor.ids().size() == 20)
+				&& porAula.stream().allMatch(emisor -> emisor.ids().size() == 10)
+				&& porEstado.stream().allMatch(emisor -> emisor.ids().size() == 10));
+		assertEquals(List.of(1L, 3L, 5L, 7L, 9L, 11L, 13L, 15L, 17L, 19L), porAula.get(0).ids());
+		assertEquals(List.of(1L, 2L, 5L, 6L, 9L, 10L, 13L, 14L, 17L, 18L), porEstado.get(0).ids());
+	}
+
+	@Test
+	void unaActualizacionInteresaAlEstadoAnteriorYAlNuevo()
+	{
+		canal = new CanalNovedades(256, 1000, 0);
+		Emisor pendientes = new Emisor();
+		canal.suscribir(pendientes, null, Constants.ESTADO_PENDIENTE, null);
+
+		publicar(IncidenciaModificadaEvent.Tipo.ACTUALIZADA, "0.1", Constants.ESTADO_RESUELTA,
+				Constants.ESTADO_PENDIENTE);
+		publicar(IncidenciaModificadaEvent.Tipo.ACTUALIZADA, "0.1", Constants.ESTADO_RESUELTA,
+				Constants.ESTADO_EN_PROGRESO);
+
+		esperar(() -> pendientes.ids().size() == 1);
+		assertEquals(List.of("ACTUALIZADA"), pendientes.nombres());
+	}
+
+	@Test
+	void clienteLentoEsExpulsadoSinRetrasarALosDemas()
+	{
+		canal = new CanalNovedades(2, 1000, 0);
+		CountDownLatch bloqueo = new CountDownLatch(1);
+		Emisor lento = new Emisor(bloqueo);
+		Emisor rapido = new Emisor();
+		canal.suscribir(lento, null, null, null);
+		canal.suscribir(rapido, null, null, null);
+
+		for (int i = 1; i <= 5; i++)
+		{
+			publicar(IncidenciaModificadaEvent.Tipo.CREADA, "0.1", Constants.ESTADO_PENDIENTE, null);
+			int recibidas = i;
+			esperar(() -> rapido.ids().size() == recibidas);
+		}
+
+		assertEquals(1, canal.getSuscriptores());
+		assertTrue(lento.completado);
+		bloqueo.countDown();
+	}
+
+	@Test
+	void reconexionRecibeLasNovedadesPerdidas()
+	{
+		canal = new CanalNovedades(256, 3, 0);
+		for (int i = 0; i < 5; i++)
+		{
+			publicar(IncidenciaModificadaEvent.Tipo.CREADA, "0.1", Constants.ESTADO_PENDIENTE, null);
+		}
+
+		Emisor reconectado = new Emisor();
+		canal.suscribir(reconectado, null, null, 3L);
+		esperar(() -> reconectado.ids().size() == 2);
+		assertEquals(List.of(4L, 5L), reconectado.ids());
+
+		// Las novedades 1 y 2 ya no estan en el historial.
+		Emisor antiguo = new Emisor();
+		canal.suscribir(antiguo, null, null, 1L);
+		esperar(() -> antiguo.ids().size() == 1);
+		assertEquals(List.of(CanalNovedades.EVENTO_REINICIO), antiguo.nombres());
+	}
+
+	@Test
+	void reconexionTrasReiniciarElServicioRecibeReinicio()
+	{
+		// Un identificador posterior al ultimo publicado viene de otro arranque.
+		canal = new CanalNovedades(256, 1000, 0);
+		publicar(IncidenciaModificadaEvent.Tipo.CREADA, "0.1", Constants.ESTADO_PENDIENTE, null);
+		Emisor posterior = new Emisor();
+		canal.suscribir(posterior, null, null, 5L);
+		esperar(() -> posterior.ids().size() == 1);
+		assertEquals(List.of(CanalNovedades.EVENTO_REINICIO), posterior.nombres());
+		canal.cerrar();
+
+		// Tras arrancar, los identificadores del arranque anterior son menores que los nuevos.
+		canal = new CanalNovedades(256, 1000);
+		publicar(IncidenciaModificadaEvent.Tipo.CREADA, "0.1", Constants.ESTADO_PENDIENTE, null);
+		Emisor anterior = new Emisor();
+		canal.suscribir(anterior, null, null, 5L);
+		esperar(() -> anterior.ids().size() == 1);
+		assertEquals(List.of(CanalNovedades.EVENTO_REINICIO), anterior.nombres());
+		assertTrue(anterior.ids().get(0) > System.currentTimeMillis());
+	}
+
+	private void publicar(IncidenciaModificadaEvent.Tipo tipo, String aula, String estado, String estadoAnterior)
+	{
+		canal.alModificarIncidencia(new IncidenciaModificadaEvent(tipo, new IncidenciaEntity(aula,
+				"docente@g.educaand.es", new Date(), "La pizarra digital no enciende", estado, ""), estadoAnterior));
+	}
+
+	private static void esperar(BooleanSupplier condicion)
+	{
+		long limite = System.currentTimeMillis() + 10000;
+		while (!condicion.getAsBoolean())
+		{
+			assertTrue(System.currentTimeMillis() < limite, "No se han recibido las novedades esperadas.");
+			Thread.onSpinWait();
+		}
+	}
+
+	/**
+	 * Emisor que guarda los eventos enviados en lugar de escribirlos en una respuesta HTTP. Opcionalmente, cada envío
+	 * espera a que se abra un cerrojo, como un cliente que no lee.
+	 */
+	private static final class Emisor extends SseEmitter
+	{
+		private final List<String> eventos = Collections.synchronizedList(new ArrayList<>());
+
+		private final CountDownLatch bloqueo;
+
+		private volatile boolean completado;
+
+		Emisor()
+		{
+			this(new CountDownLatch(0));
+		}
+
+		Emisor(CountDownLatch bloqueo)
+		{
+			this.bloqueo = bloqueo;
+		}
+
+		@Override
+		public void send(SseEventBuilder evento) throws IOException
+		{
+			try
+			{
+				this.bloqueo.await(30, TimeUnit.SECONDS);
+			}
+			catch (InterruptedException interruptedException)
+			{
+				throw new IOException(interruptedException);
+			}
+			this.eventos.add(evento.build().stream().map(parte -> String.valueOf(parte.getData()))
+					.collect(Collectors.joining()));
+		}
+
+		@Override
+		public void complete()
+		{
+			this.completado = true;
+		}
+
+		List<Long> ids()
+		{
+			return this.buscar(ID).stream().map(Long::valueOf).toList();
+		}
+
+		List<String> nombres()
+		{
+			return this.buscar(NOMBRE);
+		}
+
+		private List<String> buscar(Pattern patron)
+		{
+			List<String> valores = new ArrayList<>();
+			synchronized (this.eventos)
+			{
+				for (String evento : this.eventos)
+				{
+					Matcher coincidencia = patron.matcher(evento);
+					if (coincidencia.find())
+					{
+						valores.add(coincidencia.group(1));
+					}
+				}
+			}
+			return valores;
+		}
+	}
+}
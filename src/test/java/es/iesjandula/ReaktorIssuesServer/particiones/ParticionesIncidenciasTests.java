@@ -0,0 +1,175 @@
+package es.iesjandula.ReaktorIssuesServer.particiones;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import es.iesjandula.ReaktorIssuesServer.cache.CacheBusquedaIncidencias;
+import es.iesjandula.ReaktorIssuesServer.cache.VersionesBusqueda;
+import es.iesjandula.ReaktorIssuesServer.estadisticas.EstadisticasIncidencias;
+
+/**
+ * Tests de las sentencias con las que se crean y retiran las particiones mensuales de la tabla de incidencias.
+ */
+class ParticionesIncidenciasTests
+{
+	private JdbcTemplate jdbcTemplate;
+
+	private CacheBusquedaIncidencias cacheBusqueda;
+
+	private TaskScheduler taskScheduler;
+
+	private ParticionesIncidencias particiones;
+
+	@BeforeEach
+	void preparar()
+	{
+		jdbcTemplate = mock(JdbcTemplate.class);
+		cacheBusqueda = mock(CacheBusquedaIncidencias.class);
+		taskScheduler = mock(TaskScheduler.class);
+		particiones = new ParticionesIncidencias();
+		ReflectionTestUtils.setField(particiones, "jdbcTemplate", jdbcTemplate);
+		ReflectionTestUtils.setField(particiones, "cacheBusqueda", cacheBusqueda);
+		ReflectionTestUtils.setField(particiones, "versionesBusqueda", mock(VersionesBusqueda.class));
+		ReflectionTestUtils.setField(particiones, "estadisticas", mock(EstadisticasIncidencias.class));
+		ReflectionTestUtils.setField(particiones, "taskScheduler", taskScheduler);
+		ReflectionTestUtils.setField(particiones, "habilitadas", true);
+		ReflectionTestUtils.setField(particiones, "mesesFuturos", 2);
+	}
+
+	@Test
+	void sentenciaCrearDivideLaParticionFuturo()
+	{
+		assertEquals("ALTER TABLE incidencias REORGANIZE PARTITION p_futuro INTO ("
+				+ "PARTITION p202412 VALUES LESS THAN ('2025-01-01'), "
+				+ "PARTITION p202501 VALUES LESS THAN ('2025-02-01'), "
+				+ "PARTITION p_futuro VALUES LESS THAN (MAXVALUE))",
+				ParticionesIncidencias.sentenciaCrear(List.of(YearMonth.of(2024, 12), YearMonth.of(2025, 1))));
+	}
+
+	@Test
+	void creaSoloLosMesesQueFaltan()
+	{
+		particionesExistentes("p202409", "p202410", "p_futuro");
+
+		List<YearMonth> creadas = particiones.crearParticionesFuturas(YearMonth.of(2024, 10));
+
+		assertEquals(List.of(YearMonth.of(2024, 11), YearMonth.of(2024, 12)), creadas);
+		verify(jdbcTemplate).execute(ParticionesIncidencias.sentenciaCrear(creadas));
+	}
+
+	@Test
+	void noCreaNadaSiYaExistenLosMesesFuturos()
+	{
+		particionesExistentes("p202410", "p202411", "p202412", "p_futuro");
+
+		assertTrue(particiones.crearParticionesFuturas(YearMonth.of(2024, 10)).isEmpty());
+		verify(jdbcTemplate, never()).execute(anyString());
+	}
+
+	@Test
+	void tablaSinParticionarLanzaExcepcion()
+	{
+		when(jdbcTemplate.queryForList(anyString(), eq(String.class))).thenReturn(Collections.singletonList(null));
+
+		assertThrows(IllegalStateException.class, () -> particiones.meses());
+	}
+
+	@Test
+	void archivarIntercambiaLaParticionAntesDeEliminarla()
+	{
+		assertEquals("incidencias_p202401", particiones.retirarParticion(YearMonth.of(2024, 1), true));
+
+		InOrder orden = inOrder(jdbcTemplate);
+		orden.verify(jdbcTemplate).execute("CREATE TABLE incidencias_p202401 LIKE incidencias");
+		orden.verify(jdbcTemplate).execute("ALTER TABLE incidencias_p202401 REMOVE PARTITIONING");
+		orden.verify(jdbcTemplate)
+				.execute("ALTER TABLE incidencias EXCHANGE PARTITION p202401 WITH TABLE incidencias_p202401");
+		orden.verify(jdbcTemplate).execute("ALTER TABLE incidencias DROP PARTITION p202401");
+		verify(cacheBusqueda).vaciar();
+		verify(taskScheduler).schedule(any(Runnable.class), any(Instant.class));
+	}
+
+	@Test
+	void archivarRecreaLaTablaVaciaDeUnIntentoAnterior()
+	{
+		tablaArchivoExistente(List.of());
+
+		assertEquals("incidencias_p202401", particiones.retirarParticion(YearMonth.of(2024, 1), true));
+
+		InOrder orden = inOrder(jdbcTemplate);
+		orden.verify(jdbcTemplate).execute("DROP TABLE incidencias_p202401");
+		orden.verify(jdbcTemplate).execute("CREATE TABLE incidencias_p202401 LIKE incidencias");
+		orden.verify(jdbcTemplate)
+				.execute("ALTER TABLE incidencias EXCHANGE PARTITION p202401 WITH TABLE incidencias_p202401");
+	}
+
+	@Test
+	void archivarNoUsaUnaTablaConIncidencias()
+	{
+		tablaArchivoExistente(List.of(1));
+
+		assertThrows(IllegalStateException.class, () -> particiones.retirarParticion(YearMonth.of(2024, 1), true));
+
+		verify(jdbcTemplate, never()).execute("CREATE TABLE incidencias_p202401 LIKE incidencias");
+		verify(jdbcTemplate, never()).execute("ALTER TABLE incidencias DROP PARTITION p202401");
+	}
+
+	@Test
+	void siFallaElIntercambioSeEliminaLaTablaVacia()
+	{
+		doThrow(new DataAccessResourceFailureException("Sin conexion")).when(jdbcTemplate)
+				.execute("ALTER TABLE incidencias EXCHANGE PARTITION p202401 WITH TABLE incidencias_p202401");
+
+		assertThrows(DataAccessResourceFailureException.class,
+				() -> particiones.retirarParticion(YearMonth.of(2024, 1), true));
+
+		verify(jdbcTemplate).execute("DROP TABLE IF EXISTS incidencias_p202401");
+		verify(jdbcTemplate, never()).execute("ALTER TABLE incidencias DROP PARTITION p202401");
+		verify(cacheBusqueda, never()).vaciar();
+	}
+
+	@Test
+	void eliminarSoloDescartaLaParticion()
+	{
+		assertNull(particiones.retirarParticion(YearMonth.of(2024, 1), false));
+
+		verify(jdbcTemplate).execute("ALTER TABLE incidencias DROP PARTITION p202401");
+		verify(jdbcTemplate, never()).execute("CREATE TABLE incidencias_p202401 LIKE incidencias");
+	}
+
+	private void particionesExistentes(String... nombres)
+	{
+		when(jdbcTemplate.queryForList(anyString(), eq(String.class))).thenReturn(List.of(nombres));
+	}
+
+	private void tablaArchivoExistente(List<Integer> filas)
+	{
+		when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq("incidencias_p202401")))
+				.thenReturn(List.of("incidencias_p202401"));
+		when(jdbcTemplate.queryForList("SELECT 1 FROM incidencias_p202401 LIMIT 1", Integer.class)).thenReturn(filas);
+	}
+}
@@ -0,0 +1,254 @@
+package es.iesjandula.ReaktorIssuesServer.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import es.iesjandula.ReaktorIssuesServer.ReaktorIssuesServerApplication;
+import es.iesjandula.ReaktorIssuesServer.dto.CriteriosBusqueda;
+import es.iesjandula.ReaktorIssuesServer.dto.IncidenciaDTO;
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntityId;
+
+/**
+ * Tests de la búsqueda dinámica de incidencias: comprueban con {@code EXPLAIN} de H2 que cada combinación de criterios
+ * se resuelve con un índice y no recorriendo la tabla, y que las proyecciones no leen las columnas no solicitadas.
+ * <p>
+ * La sentencia y los valores de sus parámetros se capturan en el propio driver JDBC, por lo que se explica exactamente
+ * la consulta que genera Hibernate.
+ * </p>
+ */
+@SpringBootTest(classes = { ReaktorIssuesServerApplication.class, BusquedaIncidenciaRepositoryTests.Captura.class })
+@ActiveProfiles("test")
+class BusquedaIncidenciaRepositoryTests
+{
+	private static final long DIA = 24L * 60 * 60 * 1000;
+
+	private static final long INICIO = 1700000000000L;
+
+	@Autowired
+	private IIncidenciaRepository iIncidenciaRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void cargarIncidencias()
+	{
+		jdbcTemplate.update("DELETE FROM incidencias");
+		String[] estados = { "PENDIENTE", "EN PROGRESO", "RESUELTA", "CANCELADA" };
+		List<Object[]> filas = new ArrayList<>();
+		for (int i = 0; i < 2000; i++)
+		{
+			filas.add(new Object[] { "0." + (i % 50), "docente" + (i % 40) + "@g.educaand.es",
+					new Timestamp(INICIO + i * (DIA / 10)), "Incidencia " + i, estados[i % 4], "" });
+		}
+		jdbcTemplate.batchUpdate("INSERT INTO incidencias (numero_aula, correo_docente, fecha_incidencia, "
+				+ "descripcion_incidencia, estado_incidencia, comentario) VALUES (?, ?, ?, ?, ?, ?)", filas);
+		jdbcTemplate.execute("ANALYZE");
+	}
+
+	static Stream<Arguments> combinaciones()
+	{
+		Date desde = new Date(INICIO + 10 * DIA);
+		Date hasta = new Date(INICIO + 20 * DIA);
+		return Stream.of(
+				Arguments.of("aula", new CriteriosBusqueda("0.7", null, null, null, null, null, null), 1),
+				Arguments.of("aula y fechas", new CriteriosBusqueda("0.7", null, desde, hasta, null, null, null), 3),
+				Arguments.of("estado", new CriteriosBusqueda(null, null, null, null, null, "RESUELTA", null), 1),
+				Arguments.of("estado y fechas", new CriteriosBusqueda(null, null, desde, hasta, null, "RESUELTA", null), 3),
+				Arguments.of("fechas", new CriteriosBusqueda(null, null, desde, hasta, null, null, null), 2),
+				Arguments.of("fecha de inicio", new CriteriosBusqueda(null, null, desde, null, null, null, null), 1),
+				Arguments.of("docente", new CriteriosBusqueda(null, "docente3@g.educaand.es", null, null, null, null, null), 1),
+				Arguments.of("docente y fechas",
+						new CriteriosBusqueda(null, "docente3@g.educaand.es", desde, hasta, null, null, null), 3),
+				Arguments.of("aula, estado y texto",
+						new CriteriosBusqueda("0.7", null, null, null, "Incidencia", "EN PROGRESO", null), 3));
+	}
+
+	@ParameterizedTest(name = "{0}")
+	@MethodSource("combinaciones")
+	void cadaCombinacionDeCriteriosUsaUnIndice(String nombre, CriteriosBusqueda criterios, int condiciones)
+	{
+		Captura.sentencias.clear();
+		List<IncidenciaDTO> pagina = iIncidenciaRepository.buscaIncidencia(criterios, new IncidenciaEntityId(), 10);
+		assertFalse(pagina.isEmpty());
+
+		Sentencia busqueda = Captura.ultimaBusqueda();
+		// Solo se envian los criterios presentes y el limite de la pagina.
+		assertEquals(condiciones + 1, busqueda.parametros().size(), busqueda.sql());
+
+		String plan = explicar(busqueda);
+		assertFalse(plan.contains("tableScan"), plan);
+	}
+
+	@ParameterizedTest(name = "{0}")
+	@MethodSource("combinaciones")
+	void lasPaginasSiguientesUsanUnIndice(String nombre, CriteriosBusqueda criterios, int condiciones)
+	{
+		List<IncidenciaDTO> primera = iIncidenciaRepository.buscaIncidencia(criterios, new IncidenciaEntityId(), 2);
+		IncidenciaDTO ultima = primera.get(primera.size() - 1);
+
+		Captura.sentencias.clear();
+		List<IncidenciaDTO> segunda = iIncidenciaRepository.buscaIncidencia(criterios,
+				new IncidenciaEntityId(ultima.getNumeroAula(), ultima.getCorreoDocente(), ultima.getFechaIncidencia()), 2);
+		assertTrue(segunda.stream().allMatch(fila -> fila.getFechaIncidencia().compareTo(ultima.getFechaIncidencia()) >= 0));
+
+		String plan = explicar(Captura.ultimaBusqueda());
+		assertFalse(plan.contains("tableScan"), plan);
+	}
+
+	@Test
+	void laProyeccionSoloLeeLasColumnasSolicitadas()
+	{
+		CriteriosBusqueda criterios = new CriteriosBusqueda(null, null, null, null, null, "RESUELTA", null);
+
+		Captura.sentencias.clear();
+		List<IncidenciaDTO> pagina = iIncidenciaRepository.buscaIncidencia(criterios, new IncidenciaEntityId(), 10,
+				List.of("estadoIncidencia"));
+		assertEquals(10, pagina.size());
+		assertTrue(pagina.stream().allMatch(fila -> "RESUELTA".equals(fila.getEstadoIncidencia())
+				&& fila.getFechaIncidencia() != null && fila.getDescripcionIncidencia() == null
+				&& fila.getComentario() == null));
+
+		// Misma pagina que la busqueda completa.
+		List<IncidenciaDTO> completa = iIncidenciaRepository.buscaIncidencia(criterios, new IncidenciaEntityId(), 10);
+		assertEquals(completa.stream().map(IncidenciaDTO::getFechaIncidencia).toList(),
+				pagina.stream().map(IncidenciaDTO::getFechaIncidencia).toList());
+
+		Sentencia busqueda = Captura.sentencias.stream().filter(sentencia -> sentencia.sql().startsWith("select"))
+				.findFirst().orElseThrow();
+		String seleccion = busqueda.sql().substring(0, busqueda.sql().indexOf(" from "));
+		assertFalse(seleccion.contains("descripcion_incidencia"), busqueda.sql());
+		assertFalse(seleccion.contains("comentario"), busqueda.sql());
+		String plan = explicar(busqueda);
+		assertFalse(plan.contains("tableScan"), plan);
+	}
+
+	/**
+	 * Obtiene el plan de H2 para la sentencia capturada, con los mismos valores de sus parámetros.
+	 */
+	private String explicar(Sentencia sentencia)
+	{
+		return String.join("\n", jdbcTemplate.query("EXPLAIN " + sentencia.sql(), (fila, numero) -> fila.getString(1),
+				sentencia.parametros().values().toArray()));
+	}
+
+	/**
+	 * Una sentencia preparada y los valores de sus parámetros por posición.
+	 */
+	record Sentencia(String sql, Map<Integer, Object> parametros)
+	{
+	}
+
+	/**
+	 * Envuelve el {@link DataSource} de la aplicación para capturar las consultas a la tabla de incidencias.
+	 */
+	@TestConfiguration
+	static class Captura
+	{
+		static final List<Sentencia> sentencias = new ArrayList<>();
+
+		static synchronized Sentencia ultimaBusqueda()
+		{
+			return sentencias.stream().filter(sentencia -> sentencia.sql().startsWith("select"))
+					.reduce((primera, segunda) -> segunda).orElseThrow();
+		}
+
+		@Bean
+		static BeanPostProcessor capturaSentencias()
+		{
+			return new BeanPostProcessor()
+			{
+				@Override
+				public Object postProcessAfterInitialization(Object bean, String beanName)
+				{
+					if (!(bean instanceof DataSource dataSource))
+					{
+						return bean;
+					}
+					return envolver(DataSource.class, dataSource, (metodo, argumentos, resultado) ->
+					{
+						if (resultado instanceof Connection conexion)
+						{
+							return envolver(Connection.class, conexion, (metodoConexion, argumentosConexion, sentencia) ->
+							{
+								if (sentencia instanceof PreparedStatement preparada
+										&& metodoConexion.getName().equals("prepareStatement"))
+								{
+									Sentencia capturada = new Sentencia((String) argumentosConexion[0], new TreeMap<>());
+									synchronized (Captura.class)
+									{
+										sentencias.add(capturada);
+									}
+									return envolver(PreparedStatement.class, preparada, (metodoSentencia, valores, r) ->
+									{
+										if (metodoSentencia.getName().startsWith("set") && valores != null
+												&& valores.length >= 2 && valores[0] instanceof Integer posicion)
+										{
+											capturada.parametros().put(posicion, valores[1]);
+										}
+										return r;
+									});
+								}
+								return sentencia;
+							});
+						}
+						return resultado;
+					});
+				}
+			};
+		}
+
+		/**
+		 * Crea un proxy que delega en el objeto y deja transformar el resultado de cada método.
+		 */
+		@SuppressWarnings("unchecked")
+		private static <T> T envolver(Class<T> tipo, T objeto, Transformacion transformacion)
+		{
+			return (T) Proxy.newProxyInstance(tipo.getClassLoader(), new Class<?>[] { tipo }, (proxy, metodo, argumentos) ->
+			{
+				try
+				{
+					return transformacion.aplicar(metodo, argumentos, metodo.invoke(objeto, argumentos));
+				}
+				catch (InvocationTargetException excepcion)
+				{
+					throw excepcion.getTargetException();
+				}
+			});
+		}
+
+		private interface Transformacion
+		{
+			Object aplicar(Method metodo, Object[] argumentos, Object resultado);
+		}
+	}
+}
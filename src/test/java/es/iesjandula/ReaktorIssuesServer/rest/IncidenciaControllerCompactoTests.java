@@ -0,0 +1,90 @@
+package es.iesjandula.ReaktorIssuesServer.rest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.sql.Timestamp;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import es.iesjandula.ReaktorIssuesServer.ReaktorIssuesServerApplication;
+
+/**
+ * Tests de los endpoints de incidencias con el esquema compacto de la tabla (perfil "compacto").
+ * <p>
+ * Comprueban que la clave primaria BIGINT y el estado ENUM no cambian el comportamiento de la API.
+ * </p>
+ */
+@SpringBootTest(classes = ReaktorIssuesServerApplication.class,
+		properties = "spring.datasource.url=jdbc:h2:mem:compacto;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1")
+@AutoConfigureMockMvc
+@ActiveProfiles({ "test", "compacto" })
+class IncidenciaControllerCompactoTests
+{
+	private static final String INCIDENCIA = "{\"numeroAula\":\"0.5\",\"correoDocente\":\"docente@g.educaand.es\","
+			+ "\"fechaIncidencia\":%d,\"descripcionIncidencia\":\"La pizarra digital no enciende\","
+			+ "\"estadoIncidencia\":\"%s\",\"comentario\":\"\"}";
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void preparar()
+	{
+		jdbcTemplate.update("DELETE FROM incidencias");
+	}
+
+	@Test
+	void crearActualizarBuscarYBorrar() throws Exception
+	{
+		mockMvc.perform(put("/incidencias").header("correo-docente", "docente@g.educaand.es")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"numeroAula\":\"0.5\",\"descripcionIncidencia\":\"La pizarra digital no enciende\"}"))
+				.andExpect(status().isCreated());
+		long fecha = jdbcTemplate.queryForObject("SELECT fecha_incidencia FROM incidencias", Timestamp.class).getTime();
+		mockMvc.perform(put("/incidencias").header("correo-docente", "docente@g.educaand.es")
+				.contentType(MediaType.APPLICATION_JSON).content(INCIDENCIA.formatted(fecha, "EN PROGRESO")))
+				.andExpect(status().isOk());
+
+		// La clave sustituta no forma parte de las respuestas.
+		mockMvc.perform(post("/incidencias").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"estadoIncidencia\":\"EN PROGRESO\"}"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(1))
+				.andExpect(jsonPath("$[0].numeroAula").value("0.5"))
+				.andExpect(jsonPath("$[0].id").doesNotExist());
+
+		mockMvc.perform(delete("/incidencias").contentType(MediaType.APPLICATION_JSON)
+				.content(INCIDENCIA.formatted(fecha, "EN PROGRESO")))
+				.andExpect(status().isNoContent());
+		assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM incidencias", Integer.class));
+	}
+
+	@Test
+	void loteAsignaClavesSustitutas() throws Exception
+	{
+		mockMvc.perform(put("/incidencias/lote").contentType(MediaType.APPLICATION_JSON)
+				.content("[" + INCIDENCIA.formatted(1700000000000L, "PENDIENTE") + ","
+						+ INCIDENCIA.formatted(1700000000000L, "RESUELTA").replace("0.5", "0.6") + "]"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[0].resultado").value("CREADA"))
+				.andExpect(jsonPath("$[1].resultado").value("CREADA"));
+
+		assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(DISTINCT id) FROM incidencias", Integer.class));
+	}
+}
@@ -0,0 +1,313 @@
+package es.iesjandula.ReaktorIssuesServer.rest;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasItem;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import es.iesjandula.ReaktorIssuesServer.ReaktorIssuesServerApplication;
+import es.iesjandula.ReaktorIssuesServer.dto.IncidenciaDTO;
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntityId;
+import es.iesjandula.ReaktorIssuesServer.estadisticas.EstadisticasIncidencias;
+import es.iesjandula.ReaktorIssuesServer.repository.IIncidenciaRepository;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.servlet.DispatcherType;
+
+/**
+ * Tests del endpoint de creación y actualización de incidencias y de las respuestas condicionales y los formatos de la
+ * búsqueda.
+ * <p>
+ * Además del código de respuesta, comprueban cuántas sentencias SQL se ejecutan en cada petición, para detectar si
+ * alguna operación vuelve a necesitar consultas previas a la escritura. Solo se admite la lectura del estado anterior
+ * de una incidencia identificada, que necesitan los oyentes de las modificaciones.
+ * </p>
+ */
+@SpringBootTest(classes = ReaktorIssuesServerApplication.class)
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class IncidenciaControllerTests
+{
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private IIncidenciaRepository iIncidenciaRepository;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private EstadisticasIncidencias estadisticasIncidencias;
+
+	@Autowired
+	private ThreadPoolTaskExecutor exportacionExecutor;
+
+	private Statistics estadisticas;
+
+	@BeforeEach
+	void preparar() throws InterruptedException
+	{
+		// Espera a que terminen las consultas del calculo inicial de estadisticas, que se ejecutan en segundo plano.
+		while (!estadisticasIncidencias.isListas())
+		{
+			Thread.sleep(10);
+		}
+		iIncidenciaRepository.deleteAllInBatch();
+		estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		estadisticas.clear();
+	}
+
+	@Test
+	void crearIncidenciaEjecutaUnaSolaSentencia() throws Exception
+	{
+		mockMvc.perform(put("/incidencias").header("correo-docente", "docente@g.educaand.es")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"numeroAula\":\"0.5\",\"descripcionIncidencia\":\"La pizarra digital no enciende\"}"))
+				.andExpect(status().isCreated());
+
+		assertEquals(1, estadisticas.getPrepareStatementCount());
+		assertEquals(1, iIncidenciaRepository.count());
+	}
+
+	@Test
+	void actualizarIncidenciaLeeLaIncidenciaYEjecutaUnaSolaEscritura() throws Exception
+	{
+		iIncidenciaRepository.saveAndFlush(new IncidenciaEntity("0.5", "docente@g.educaand.es",
+				new Date(1700000000000L), "La pizarra digital no enciende", "PENDIENTE", ""));
+		estadisticas.clear();
+
+		mockMvc.perform(put("/incidencias").header("correo-docente", "docente@g.educaand.es")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"numeroAula\":\"0.5\",\"correoDocente\":\"docente@g.educaand.es\","
+						+ "\"fechaIncidencia\":1700000000000,\"descripcionIncidencia\":\"La pizarra digital no enciende\","
+						+ "\"estadoIncidencia\":\"RESUELTA\",\"comentario\":\"Cambiado el cable\"}"))
+				.andExpect(status().isOk());
+
+		// La lectura bloqueada del estado anterior y la escritura.
+		assertEquals(2, estadisticas.getPrepareStatementCount());
+		assertEquals(0, estadisticas.getEntityLoadCount());
+		IncidenciaEntity incidencia = iIncidenciaRepository.findById(
+				new IncidenciaEntityId("0.5", "docente@g.educaand.es", new Date(1700000000000L))).orElseThrow();
+		assertEquals("RESUELTA", incidencia.getEstadoIncidencia());
+		assertEquals("Cambiado el cable", incidencia.getComentario());
+	}
+
+	@Test
+	void guardarIncidenciaIdentificadaQueNoExisteCreaUnaNueva() throws Exception
+	{
+		mockMvc.perform(put("/incidencias").header("correo-docente", "cabecera@g.educaand.es")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"numeroAula\":\"0.5\",\"correoDocente\":\"docente@g.educaand.es\","
+						+ "\"fechaIncidencia\":1700000000000,\"descripcionIncidencia\":\"La pizarra digital no enciende\","
+						+ "\"estadoIncidencia\":\"RESUELTA\",\"comentario\":\"Cambiado el cable\"}"))
+				.andExpect(status().isCreated());
+
+		// Como cualquier incidencia nueva: correo de la cabecera, fecha actual, pendiente y sin comentario.
+		List<IncidenciaEntity> incidencias = iIncidenciaRepository.findAll();
+		assertEquals(1, incidencias.size());
+		IncidenciaEntity incidencia = incidencias.get(0);
+		assertEquals("0.5", incidencia.getNumeroAula());
+		assertEquals("cabecera@g.educaand.es", incidencia.getCorreoDocente());
+		assertNotEquals(1700000000000L, incidencia.getFechaIncidencia().getTime());
+		assertEquals("La pizarra digital no enciende", incidencia.getDescripcionIncidencia());
+		assertEquals("PENDIENTE", incidencia.getEstadoIncidencia());
+		assertEquals("", incidencia.getComentario());
+	}
+
+	@Test
+	void guardarIncidenciaIdentificadaQueNoExisteSinEstadoNiComentarioCreaUnaNueva() throws Exception
+	{
+		// Como antes de actualizar con una sentencia nativa, los atributos solo se exigen si la incidencia existe.
+		mockMvc.perform(put("/incidencias").header("correo-docente", "cabecera@g.educaand.es")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"numeroAula\":\"0.5\",\"correoDocente\":\"docente@g.educaand.es\","
+						+ "\"fechaIncidencia\":1700000000000,\"descripcionIncidencia\":\"La pizarra digital no enciende\"}"))
+				.andExpect(status().isCreated());
+
+		IncidenciaEntity incidencia = iIncidenciaRepository.findAll().get(0);
+		assertEquals("cabecera@g.educaand.es", incidencia.getCorreoDocente());
+		assertEquals("PENDIENTE", incidencia.getEstadoIncidencia());
+		assertEquals("", incidencia.getComentario());
+	}
+
+	@Test
+	void busquedaSinCambiosRespondeNotModifiedSinConsultar() throws Exception
+	{
+		iIncidenciaRepository.saveAndFlush(new IncidenciaEntity("0.5", "docente@g.educaand.es",
+				new Date(1700000000000L), "La pizarra digital no enciende", "PENDIENTE", ""));
+		String filtro = "{\"numeroAula\":\"0.5\"}";
+
+		String etiqueta = mockMvc.perform(post("/incidencias").contentType(MediaType.APPLICATION_JSON).content(filtro))
+				.andExpect(status().isOk()).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		estadisticas.clear();
+
+		mockMvc.perform(post("/incidencias").contentType(MediaType.APPLICATION_JSON).content(filtro)
+				.header(HttpHeaders.IF_NONE_MATCH, etiqueta))
+				.andExpect(status().isNotModified())
+				.andExpect(header().string(HttpHeaders.ETAG, etiqueta))
+				.andExpect(content().string(""));
+		assertEquals(0, estadisticas.getPrepareStatementCount());
+
+		// Una incidencia de otra aula no cambia la etiqueta; una de la misma aula si.
+		mockMvc.perform(put("/incidencias").header("correo-docente", "docente@g.educaand.es")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"numeroAula\":\"0.6\",\"descripcionIncidencia\":\"La pizarra digital no enciende\"}"))
+				.andExpect(status().isCreated());
+		mockMvc.perform(post("/incidencias").contentType(MediaType.APPLICATION_JSON).content(filtro)
+				.header(HttpHeaders.IF_NONE_MATCH, etiqueta))
+				.andExpect(status().isNotModified());
+
+		mockMvc.perform(put("/incidencias").header("correo-docente", "docente@g.educaand.es")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"numeroAula\":\"0.5\",\"descripcionIncidencia\":\"El proyector no enciende\"}"))
+				.andExpect(status().isCreated());
+		mockMvc.perform(post("/incidencias").contentType(MediaType.APPLICATION_JSON).content(filtro)
+				.header(HttpHeaders.IF_NONE_MATCH, etiqueta))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(2));
+	}
+
+	@Test
+	void busquedaDevuelveJsonSinCambiosYFormatosBinariosPorAccept() throws Exception
+	{
+		iIncidenciaRepository.saveAndFlush(new IncidenciaEntity("0.5", "docente@g.educaand.es",
+				new Date(1700000000000L), "La pizarra digital no enciende", "PENDIENTE", ""));
+		String filtro = "{\"numeroAula\":\"0.5\"}";
+		List<IncidenciaDTO> esperadas = List.of(new IncidenciaDTO("0.5", "docente@g.educaand.es",
+				new Date(1700000000000L), "La pizarra digital no enciende", "PENDIENTE", ""));
+
+		// Sin cabecera Accept, el mismo JSON que antes de admitir otros formatos.
+		byte[] json = mockMvc.perform(post("/incidencias").contentType(MediaType.APPLICATION_JSON).content(filtro))
+				.andExpect(status().isOk())
+				.andExpect(content().contentType(MediaType.APPLICATION_JSON))
+				.andReturn().getResponse().getContentAsByteArray();
+		assertArrayEquals(Jackson2ObjectMapperBuilder.json().build().writeValueAsBytes(esperadas), json);
+
+		byte[] cbor = mockMvc.perform(post("/incidencias").contentType(MediaType.APPLICATION_JSON).content(filtro)
+				.accept("application/cbor"))
+				.andExpect(status().isOk())
+				.andExpect(content().contentType("application/cbor"))
+				.andExpect(header().stringValues(HttpHeaders.VARY, hasItem(containsString(HttpHeaders.ACCEPT))))
+				.andReturn().getResponse().getContentAsByteArray();
+		assertEquals(esperadas, leer(Jackson2ObjectMapperBuilder.cbor().build(), cbor));
+
+		byte[] smile = mockMvc.perform(post("/incidencias").contentType(MediaType.APPLICATION_JSON).content(filtro)
+				.accept("application/x-jackson-smile"))
+				.andExpect(status().isOk())
+				.andExpect(content().contentType("application/x-jackson-smile"))
+				.andReturn().getResponse().getContentAsByteArray();
+		assertEquals(esperadas, leer(Jackson2ObjectMapperBuilder.smile().build(), smile));
+	}
+
+	@Test
+	void contarYExisteEjecutanUnaSolaSentencia() throws Exception
+	{
+		iIncidenciaRepository.saveAllAndFlush(List.of(
+				new IncidenciaEntity("0.5", "docente@g.educaand.es", new Date(1700000000000L),
+						"La pizarra digital no enciende", "PENDIENTE", ""),
+				new IncidenciaEntity("0.5", "docente@g.educaand.es", new Date(1700000001000L),
+						"El proyector no enciende", "PENDIENTE", ""),
+				new IncidenciaEntity("0.5", "docente@g.educaand.es", new Date(1700000002000L),
+						"El teclado no funciona", "RESUELTA", ""),
+				new IncidenciaEntity("0.6", "docente@g.educaand.es", new Date(1700000003000L),
+						"La impresora no funciona", "PENDIENTE", "")));
+		estadisticas.clear();
+
+		mockMvc.perform(post("/incidencias/contar").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"numeroAula\":\"0.5\",\"estadoIncidencia\":\"PENDIENTE\",\"tamanoPagina\":1}"))
+				.andExpect(status().isOk())
+				.andExpect(content().string("2"));
+		assertEquals(1, estadisticas.getPrepareStatementCount());
+		estadisticas.clear();
+
+		mockMvc.perform(post("/incidencias/existe").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"numeroAula\":\"0.5\",\"estadoIncidencia\":\"RESUELTA\"}"))
+				.andExpect(status().isOk())
+				.andExpect(content().string("true"));
+		mockMvc.perform(post("/incidencias/existe").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"numeroAula\":\"0.6\",\"estadoIncidencia\":\"CANCELADA\"}"))
+				.andExpect(status().isOk())
+				.andExpect(content().string("false"));
+		assertEquals(2, estadisticas.getPrepareStatementCount());
+		// Ninguna incidencia se carga como entidad.
+		assertEquals(0, estadisticas.getEntityLoadCount());
+	}
+
+	@Test
+	void exportacionConLaColaLlenaRespondeServiceUnavailable() throws Exception
+	{
+		// Ocupa todos los hilos de las exportaciones y todos los huecos de su cola.
+		CountDownLatch liberar = new CountDownLatch(1);
+		int ocupadas = exportacionExecutor.getMaxPoolSize() + exportacionExecutor.getQueueCapacity();
+		try
+		{
+			for (int i = 0; i < ocupadas; i++)
+			{
+				exportacionExecutor.execute(() ->
+				{
+					try
+					{
+						liberar.await();
+					}
+					catch (InterruptedException interruptedException)
+					{
+						Thread.currentThread().interrupt();
+					}
+				});
+			}
+
+			MvcResult exportacion = mockMvc.perform(post("/incidencias/exportar")
+					.contentType(MediaType.APPLICATION_JSON).content("{}")).andReturn();
+
+			// El rechazo fija el resultado antes de que MockMvc pueda esperarlo, por lo que se redirige sin esperar.
+			MockHttpServletRequest peticion = exportacion.getRequest();
+			peticion.setDispatcherType(DispatcherType.ASYNC);
+			peticion.setAsyncStarted(false);
+			mockMvc.perform(contexto -> peticion)
+					.andExpect(status().isServiceUnavailable())
+					.andExpect(header().exists(HttpHeaders.RETRY_AFTER))
+					.andExpect(jsonPath("$.id").value("19"));
+		}
+		finally
+		{
+			liberar.countDown();
+		}
+	}
+
+	private static List<IncidenciaDTO> leer(ObjectMapper mapper, byte[] contenido) throws IOException
+	{
+		return mapper.readValue(contenido,
+				mapper.getTypeFactory().constructCollectionType(List.class, IncidenciaDTO.class));
+	}
+}
@@ -0,0 +1,176 @@
+package es.iesjandula.ReaktorIssuesServer.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import es.iesjandula.ReaktorIssuesServer.ReaktorIssuesServerApplication;
+import es.iesjandula.ReaktorIssuesServer.dto.FiltroBusqueda;
+import es.iesjandula.ReaktorIssuesServer.dto.IncidenciaDTO;
+import es.iesjandula.ReaktorIssuesServer.dto.PaginaIncidencias;
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntityId;
+import es.iesjandula.ReaktorIssuesServer.indice.IndiceTextoIncidencias;
+import es.iesjandula.ReaktorIssuesServer.repository.IIncidenciaRepository;
+import es.iesjandula.ReaktorIssuesServer.utils.Constants;
+import es.iesjandula.ReaktorIssuesServer.utils.CursorIncidencia;
+
+/**
+ * Tests de la paginación por cursor de la búsqueda, con páginas de como mucho tres incidencias y varias incidencias
+ * con la misma fecha, que se ordenan por aula y docente.
+ */
+@SpringBootTest(classes = ReaktorIssuesServerApplication.class, properties = {
+		"incidencias.busqueda.tamano-pagina-maximo=3", "incidencias.cache-busqueda.habilitada=false" })
+@ActiveProfiles("test")
+class BusquedaIncidenciaServiceTests
+{
+	private static final long INICIO = 1700000000000L;
+
+	@Autowired
+	private BusquedaIncidenciaService busquedaIncidenciaService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private IndiceTextoIncidencias indiceTexto;
+
+	@Autowired
+	private IIncidenciaRepository iIncidenciaRepository;
+
+	@BeforeEach
+	void cargarIncidencias()
+	{
+		jdbcTemplate.update("DELETE FROM incidencias");
+		// Las tres primeras y las tres siguientes comparten fecha, de modo que los cortes de pagina caen en empates.
+		insertar("0.2", "b@g.educaand.es", INICIO);
+		insertar("0.1", "b@g.educaand.es", INICIO);
+		insertar("0.1", "a@g.educaand.es", INICIO);
+		insertar("0.3", "a@g.educaand.es", INICIO + 1000);
+		insertar("0.1", "c@g.educaand.es", INICIO + 1000);
+		insertar("0.3", "b@g.educaand.es", INICIO + 1000);
+		insertar("0.1", "a@g.educaand.es", INICIO + 2000);
+	}
+
+	@Test
+	void elCursorRecorreTodasLasIncidenciasUnaVezEnOrden() throws Exception
+	{
+		List<String> recorridas = new ArrayList<>();
+		List<Integer> tamanos = new ArrayList<>();
+		String cursor = null;
+		do
+		{
+			FiltroBusqueda filtro = new FiltroBusqueda();
+			filtro.setCursor(cursor);
+			PaginaIncidencias pagina = busquedaIncidenciaService.buscar(filtro);
+			pagina.getIncidencias().forEach(incidencia -> recorridas.add(clave(incidencia)));
+			tamanos.add(pagina.getIncidencias().size());
+			cursor = pagina.getSiguienteCursor();
+		}
+		while (cursor != null);
+
+		// Orden por fecha, aula y docente, sin repetir ni saltar las incidencias con la misma fecha.
+		assertEquals(List.of(
+				INICIO + " 0.1 a@g.educaand.es", INICIO + " 0.1 b@g.educaand.es", INICIO + " 0.2 b@g.educaand.es",
+				(INICIO + 1000) + " 0.1 c@g.educaand.es", (INICIO + 1000) + " 0.3 a@g.educaand.es",
+				(INICIO + 1000) + " 0.3 b@g.educaand.es", (INICIO + 2000) + " 0.1 a@g.educaand.es"), recorridas);
+		assertEquals(List.of(3, 3, 1), tamanos);
+	}
+
+	@Test
+	void laUltimaPaginaCompletaNoTieneCursor() throws Exception
+	{
+		FiltroBusqueda filtro = new FiltroBusqueda();
+		filtro.setNumeroAula("0.1");
+		filtro.setTamanoPagina(2);
+
+		PaginaIncidencias primera = busquedaIncidenciaService.buscar(filtro);
+		assertEquals(2, primera.getIncidencias().size());
+		assertNotNull(primera.getSiguienteCursor());
+
+		filtro.setCursor(primera.getSiguienteCursor());
+		PaginaIncidencias ultima = busquedaIncidenciaService.buscar(filtro);
+		assertEquals(2, ultima.getIncidencias().size());
+		assertNull(ultima.getSiguienteCursor());
+	}
+
+	@Test
+	void elTamanoDePaginaSeLimitaAlMaximo() throws Exception
+	{
+		FiltroBusqueda filtro = new FiltroBusqueda();
+		filtro.setTamanoPagina(500);
+		assertEquals(3, busquedaIncidenciaService.buscar(filtro).getIncidencias().size());
+
+		filtro.setTamanoPagina(0);
+		assertThrows(IllegalArgumentException.class, () -> busquedaIncidenciaService.buscar(filtro));
+	}
+
+	@Test
+	void elCursorSeDecodificaTalCualYRechazaLosAlterados()
+	{
+		IncidenciaEntityId id = new IncidenciaEntityId("0.1", "a@g.educaand.es", new Date(INICIO));
+		assertEquals(id, CursorIncidencia.decodificar(CursorIncidencia.codificar(id)));
+
+		assertThrows(IllegalArgumentException.class, () -> CursorIncidencia.decodificar("no es un cursor"));
+		assertThrows(IllegalArgumentException.class,
+				() -> CursorIncidencia.decodificar(CursorIncidencia.codificar(id) + "AAAA"));
+	}
+
+	@Test
+	void contarYExisteUsanLasCandidatasDelIndice() throws Exception
+	{
+		jdbcTemplate.update("UPDATE incidencias SET descripcion_incidencia = 'El proyector parpadea' "
+				+ "WHERE numero_aula = '0.1'");
+		// El indice tiene ademas una incidencia que ya no existe y otra cuyo texto ha cambiado, que se descartan al
+		// leerlas de la base de datos.
+		indiceTexto.cargar(Stream.concat(
+				jdbcTemplate.query("SELECT * FROM incidencias", (fila, numero) -> new IncidenciaDTO(
+						fila.getString("numero_aula"), fila.getString("correo_docente"),
+						fila.getTimestamp("fecha_incidencia"), fila.getString("descripcion_incidencia"),
+						fila.getString("estado_incidencia"), fila.getString("comentario"))).stream()
+						.map(incidencia -> "0.2".equals(incidencia.getNumeroAula())
+								? new IncidenciaDTO(incidencia.getNumeroAula(), incidencia.getCorreoDocente(),
+										incidencia.getFechaIncidencia(), "Proyector", null, null)
+								: incidencia),
+				Stream.of(new IncidenciaDTO("0.9", "a@g.educaand.es", new Date(INICIO), "Proyector", null, null))));
+
+		FiltroBusqueda filtro = new FiltroBusqueda();
+		filtro.setDescripcionIncidencia("proyector");
+		assertEquals(4, busquedaIncidenciaService.contar(filtro));
+		assertEquals(iIncidenciaRepository.cuentaIncidencias(busquedaIncidenciaService.normalizar(filtro)),
+				busquedaIncidenciaService.contar(filtro));
+		assertTrue(busquedaIncidenciaService.existe(filtro));
+
+		filtro.setNumeroAula("0.2");
+		assertEquals(0, busquedaIncidenciaService.contar(filtro));
+		assertFalse(busquedaIncidenciaService.existe(filtro));
+	}
+
+	private void insertar(String numeroAula, String correoDocente, long fecha)
+	{
+		jdbcTemplate.update("INSERT INTO incidencias (numero_aula, correo_docente, fecha_incidencia, "
+				+ "descripcion_incidencia, estado_incidencia, comentario) VALUES (?, ?, ?, ?, ?, ?)",
+				numeroAula, correoDocente, new Timestamp(fecha), "Incidencia", Constants.ESTADO_PENDIENTE, "");
+	}
+
+	private static String clave(IncidenciaDTO incidencia)
+	{
+		return incidencia.getFechaIncidencia().getTime() + " " + incidencia.getNumeroAula() + " "
+				+ incidencia.getCorreoDocente();
+	}
+}
@@ -0,0 +1,112 @@
+package es.iesjandula.ReaktorIssuesServer.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import es.iesjandula.ReaktorIssuesServer.ReaktorIssuesServerApplication;
+import es.iesjandula.ReaktorIssuesServer.dto.IncidenciaDTO;
+import es.iesjandula.ReaktorIssuesServer.dto.ResultadoLoteDTO;
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntityId;
+import es.iesjandula.ReaktorIssuesServer.utils.Constants;
+
+/**
+ * Tests del alta y la actualización de incidencias por lotes, con un máximo de cuatro incidencias por lote.
+ */
+@SpringBootTest(classes = ReaktorIssuesServerApplication.class, properties = "incidencias.lote.tamano-maximo=4")
+@ActiveProfiles("test")
+class LoteIncidenciaServiceTests
+{
+	private static final long INICIO = 1700000000000L;
+
+	@Autowired
+	private LoteIncidenciaService loteIncidenciaService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void cargarIncidencias()
+	{
+		jdbcTemplate.update("DELETE FROM incidencias");
+		jdbcTemplate.update("INSERT INTO incidencias (numero_aula, correo_docente, fecha_incidencia, "
+				+ "descripcion_incidencia, estado_incidencia, comentario) VALUES (?, ?, ?, ?, ?, ?)",
+				"0.1", "docente@g.educaand.es", new Timestamp(INICIO), "Incidencia", Constants.ESTADO_PENDIENTE, "");
+	}
+
+	@Test
+	void creaLasNuevasYActualizaLasExistentes()
+	{
+		List<ResultadoLoteDTO> resultados = loteIncidenciaService.guardar(List.of(
+				incidencia("0.1", Constants.ESTADO_RESUELTA), incidencia("0.2", Constants.ESTADO_PENDIENTE)));
+
+		assertEquals(List.of(ResultadoLoteDTO.ACTUALIZADA, ResultadoLoteDTO.CREADA),
+				resultados.stream().map(ResultadoLoteDTO::getResultado).toList());
+		assertEquals(Constants.ESTADO_RESUELTA, estado("0.1"));
+		assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM incidencias", Integer.class));
+	}
+
+	@Test
+	void lasRepetidasSeGuardanUnaVezConLaUltima()
+	{
+		List<ResultadoLoteDTO> resultados = loteIncidenciaService.guardar(List.of(
+				incidencia("0.2", Constants.ESTADO_PENDIENTE), incidencia("0.1", Constants.ESTADO_EN_PROGRESO),
+				incidencia("0.2", Constants.ESTADO_CANCELADA), incidencia("0.1", Constants.ESTADO_RESUELTA)));
+
+		assertEquals(List.of(ResultadoLoteDTO.DUPLICADA, ResultadoLoteDTO.DUPLICADA, ResultadoLoteDTO.CREADA,
+				ResultadoLoteDTO.ACTUALIZADA), resultados.stream().map(ResultadoLoteDTO::getResultado).toList());
+		assertEquals(Constants.ESTADO_CANCELADA, estado("0.2"));
+		assertEquals(Constants.ESTADO_RESUELTA, estado("0.1"));
+	}
+
+	@Test
+	void rechazaLasInvalidasYLosLotesDemasiadoGrandes()
+	{
+		IncidenciaDTO sinEstado = incidencia("0.3", null);
+		List<ResultadoLoteDTO> resultados = loteIncidenciaService.guardar(Arrays.asList(sinEstado, null,
+				incidencia("0.3", Constants.ESTADO_PENDIENTE)));
+
+		assertEquals(List.of(ResultadoLoteDTO.INVALIDA, ResultadoLoteDTO.INVALIDA, ResultadoLoteDTO.CREADA),
+				resultados.stream().map(ResultadoLoteDTO::getResultado).toList());
+
+		List<IncidenciaDTO> grande = List.of(incidencia("0.1", Constants.ESTADO_PENDIENTE),
+				incidencia("0.2", Constants.ESTADO_PENDIENTE), incidencia("0.3", Constants.ESTADO_PENDIENTE),
+				incidencia("0.4", Constants.ESTADO_PENDIENTE), incidencia("0.5", Constants.ESTADO_PENDIENTE));
+		assertThrows(IllegalArgumentException.class, () -> loteIncidenciaService.guardar(grande));
+		assertThrows(IllegalArgumentException.class, () -> loteIncidenciaService.guardar(List.of()));
+	}
+
+	@Test
+	void laClaveComparaFechasDeLaBaseDeDatos()
+	{
+		Timestamp deLaBaseDeDatos = new Timestamp(INICIO);
+		// Un Timestamp nunca es igual a una Date, aunque tengan el mismo instante.
+		assertNotEquals(new IncidenciaEntityId("0.1", "docente@g.educaand.es", deLaBaseDeDatos),
+				new IncidenciaEntityId("0.1", "docente@g.educaand.es", new Date(INICIO)));
+		assertEquals(IncidenciaEntityId.crear("0.1", "docente@g.educaand.es", deLaBaseDeDatos),
+				new IncidenciaEntityId("0.1", "docente@g.educaand.es", new Date(INICIO)));
+	}
+
+	private String estado(String numeroAula)
+	{
+		return jdbcTemplate.queryForObject("SELECT estado_incidencia FROM incidencias WHERE numero_aula = ?",
+				String.class, numeroAula);
+	}
+
+	private static IncidenciaDTO incidencia(String numeroAula, String estado)
+	{
+		return new IncidenciaDTO(numeroAula, "docente@g.educaand.es", new Date(INICIO), "Incidencia", estado, "");
+	}
+}
@@ -0,0 +1,143 @@
+package es.iesjandula.ReaktorIssuesServer.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import es.iesjandula.ReaktorIssuesServer.ReaktorIssuesServerApplication;
+import es.iesjandula.ReaktorIssuesServer.dto.CriteriosBusqueda;
+import es.iesjandula.ReaktorIssuesServer.dto.FiltroBusqueda;
+import es.iesjandula.ReaktorIssuesServer.dto.IncidenciaDTO;
+import es.iesjandula.ReaktorIssuesServer.dto.ResultadoMasivoDTO;
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import es.iesjandula.ReaktorIssuesServer.repository.IIncidenciaRepository;
+import es.iesjandula.ReaktorIssuesServer.utils.Constants;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Tests del borrado y el cambio de estado por filtro, con lotes de dos incidencias.
+ */
+@SpringBootTest(classes = ReaktorIssuesServerApplication.class, properties = "incidencias.masivo.tamano-lote=2")
+@ActiveProfiles("test")
+class MasivoIncidenciaServiceTests
+{
+	private static final long INICIO = 1700000000000L;
+
+	@Autowired
+	private MasivoIncidenciaService masivoIncidenciaService;
+
+	@Autowired
+	private BusquedaIncidenciaService busquedaIncidenciaService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private IIncidenciaRepository iIncidenciaRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@BeforeEach
+	void cargarIncidencias()
+	{
+		jdbcTemplate.update("DELETE FROM incidencias");
+		// Aula 0.1: cinco pendientes y una resuelta. Aula 0.2: dos pendientes.
+		for (int i = 0; i < 8; i++)
+		{
+			jdbcTemplate.update("INSERT INTO incidencias (numero_aula, correo_docente, fecha_incidencia, "
+					+ "descripcion_incidencia, estado_incidencia, comentario) VALUES (?, ?, ?, ?, ?, ?)",
+					i < 6 ? "0.1" : "0.2", "docente@g.educaand.es", new Timestamp(INICIO + i * 1000L),
+					"Incidencia " + i, i == 5 ? Constants.ESTADO_RESUELTA : Constants.ESTADO_PENDIENTE, "");
+		}
+	}
+
+	@Test
+	void cambiaElEstadoPorLotesSoloDeLasQueNoLoTienen() throws Exception
+	{
+		FiltroBusqueda aula = filtro("0.1");
+		// La busqueda queda en la cache y debe reflejar el cambio.
+		assertEquals(6, estados(aula).size());
+
+		ResultadoMasivoDTO simulado = masivoIncidenciaService.cambiarEstado(aula, Constants.ESTADO_RESUELTA, true);
+		assertEquals(new ResultadoMasivoDTO(5, true), simulado);
+		assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM incidencias WHERE estado_incidencia = ?",
+				Integer.class, Constants.ESTADO_RESUELTA));
+
+		ResultadoMasivoDTO resultado = masivoIncidenciaService.cambiarEstado(aula, Constants.ESTADO_RESUELTA, false);
+		assertEquals(new ResultadoMasivoDTO(5, false), resultado);
+		assertEquals(List.of(Constants.ESTADO_RESUELTA), estados(aula).stream().distinct().toList());
+		assertEquals(List.of(Constants.ESTADO_PENDIENTE, Constants.ESTADO_PENDIENTE), estados(filtro("0.2")));
+	}
+
+	@Test
+	void borraPorLotesLasQueCumplenElFiltro() throws Exception
+	{
+		FiltroBusqueda pendientes = filtro("0.1");
+		pendientes.setEstadoIncidencia(Constants.ESTADO_PENDIENTE);
+
+		assertEquals(new ResultadoMasivoDTO(5, true), masivoIncidenciaService.borrar(pendientes, true));
+		assertEquals(8, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM incidencias", Integer.class));
+
+		assertEquals(new ResultadoMasivoDTO(5, false), masivoIncidenciaService.borrar(pendientes, false));
+		assertEquals(List.of(Constants.ESTADO_RESUELTA), estados(filtro("0.1")));
+		assertEquals(3, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM incidencias", Integer.class));
+	}
+
+	@Test
+	void elLoteSoloLeeLaClaveYElEstado() throws Exception
+	{
+		Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		estadisticas.clear();
+
+		CriteriosBusqueda criterios = busquedaIncidenciaService.normalizar(filtro("0.1"));
+		List<IncidenciaEntity> lote = new TransactionTemplate(transactionManager).execute(transaccion ->
+				iIncidenciaRepository.bloqueaIncidencias(criterios, Constants.ESTADO_RESUELTA, 2));
+
+		assertEquals(2, lote.size());
+		assertEquals("0.1", lote.get(0).getNumeroAula());
+		assertEquals(INICIO, lote.get(0).getFechaIncidencia().getTime());
+		assertEquals(Constants.ESTADO_PENDIENTE, lote.get(0).getEstadoIncidencia());
+		assertNull(lote.get(0).getDescripcionIncidencia());
+		assertEquals(0, estadisticas.getEntityLoadCount());
+	}
+
+	@Test
+	void rechazaElFiltroVacioYLosEstadosDesconocidos()
+	{
+		assertThrows(IllegalArgumentException.class, () -> masivoIncidenciaService.borrar(new FiltroBusqueda(), false));
+		assertThrows(IllegalArgumentException.class,
+				() -> masivoIncidenciaService.cambiarEstado(filtro("0.1"), "OLVIDADA", false));
+		assertEquals(8, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM incidencias", Integer.class));
+	}
+
+	private List<String> estados(FiltroBusqueda filtro) throws Exception
+	{
+		return busquedaIncidenciaService.buscar(filtro).getIncidencias().stream()
+				.map(IncidenciaDTO::getEstadoIncidencia).toList();
+	}
+
+	private static FiltroBusqueda filtro(String numeroAula)
+	{
+		FiltroBusqueda filtro = new FiltroBusqueda();
+		filtro.setNumeroAula(numeroAula);
+		return filtro;
+	}
+}
@@ -2,8 +2,12 @@ package ies_jandula.incidencia;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
 
-@SpringBootTest
+import es.iesjandula.ReaktorIssuesServer.ReaktorIssuesServerApplication;
+
+@SpringBootTest(classes = ReaktorIssuesServerApplication.class)
+@ActiveProfiles("test")
 class IncidenciaApplicationTests {
 
 	@Test